@@ -18,7 +18,8 @@ CREATE TABLE IF NOT EXISTS users (
 CREATE TABLE IF NOT EXISTS waste_types (
     type_id INT AUTO_INCREMENT PRIMARY KEY,
     type_name VARCHAR(50) NOT NULL UNIQUE,
-    description TEXT
+    description TEXT,
+    requires_certification BOOLEAN NOT NULL DEFAULT FALSE -- only certified crews may collect it
 );
 
 -- Waste requests table
@@ -31,9 +32,14 @@ CREATE TABLE IF NOT EXISTS waste_requests (
     status ENUM('Pending', 'Assigned', 'In Progress', 'Collected') DEFAULT 'Pending',
     requested_date DATE NOT NULL,
     pickup_date DATE,
+    pickup_zone VARCHAR(50), -- zone pickup_date was booked in
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     FOREIGN KEY (user_id) REFERENCES users(user_id),
-    FOREIGN KEY (waste_type) REFERENCES waste_types(type_id)
+    FOREIGN KEY (waste_type) REFERENCES waste_types(type_id),
+    INDEX idx_requests_requested_date (requested_date),
+    INDEX idx_requests_status_date (status, requested_date), -- oldest pending first, for claiming
+    INDEX idx_requests_pickup_date (pickup_date),
+    INDEX idx_requests_pickup_zone (pickup_zone, pickup_date) -- booked pickups per zone and day
 );
 
 -- Assignments table
@@ -42,6 +48,8 @@ CREATE TABLE IF NOT EXISTS assignments (
     request_id INT NOT NULL UNIQUE,
     collector_id INT NOT NULL,
     assigned_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    in_progress_at TIMESTAMP NULL,
+    completed_at TIMESTAMP NULL,
     status ENUM('Assigned', 'In Progress', 'Completed') DEFAULT 'Assigned',
     FOREIGN KEY (request_id) REFERENCES waste_requests(request_id),
     FOREIGN KEY (collector_id) REFERENCES users(user_id)
@@ -59,16 +67,210 @@ CREATE TABLE IF NOT EXISTS feedback (
     FOREIGN KEY (request_id) REFERENCES waste_requests(request_id)
 );
 
+-- Change log used by client instances to invalidate each other's caches
+CREATE TABLE IF NOT EXISTS change_log (
+    change_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    origin CHAR(36) NOT NULL,
+    tags MEDIUMTEXT NOT NULL,
+    changed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_change_log_changed_at (changed_at)
+);
+
+-- Create reporting rollups, maintained in the same transaction as each write
+CREATE TABLE IF NOT EXISTS rollup_requests_daily (
+    day DATE NOT NULL,
+    waste_type INT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    request_count INT NOT NULL DEFAULT 0,
+    total_quantity DECIMAL(14,2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (day, waste_type, status)
+);
+
+CREATE TABLE IF NOT EXISTS rollup_collector_daily (
+    collector_id INT NOT NULL,
+    day DATE NOT NULL,
+    assigned_count INT NOT NULL DEFAULT 0,
+    completed_count INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (collector_id, day)
+);
+
+CREATE TABLE IF NOT EXISTS rollup_collector_ratings (
+    collector_id INT NOT NULL,
+    rating INT NOT NULL,
+    feedback_count INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (collector_id, rating)
+);
+
+CREATE TABLE IF NOT EXISTS rollup_feedback_daily (
+    day DATE NOT NULL,
+    waste_type INT NOT NULL,
+    rating INT NOT NULL,
+    feedback_count INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (day, waste_type, rating)
+);
+
+-- Mergeable KPI sketches per month of requested dates (month = year * 12 + month - 1)
+CREATE TABLE IF NOT EXISTS kpi_sketches (
+    month INT NOT NULL,
+    sketch VARCHAR(30) NOT NULL,
+    data MEDIUMBLOB NOT NULL,
+    PRIMARY KEY (month, sketch)
+);
+
+-- Vehicle of each collector, used by the route planner; collectors without
+-- a row get the planner's default capacity and no certification
+CREATE TABLE IF NOT EXISTS collector_vehicles (
+    collector_id INT PRIMARY KEY,
+    capacity_kg DECIMAL(10,2) NOT NULL,
+    certified BOOLEAN NOT NULL DEFAULT FALSE,
+    FOREIGN KEY (collector_id) REFERENCES users(user_id)
+);
+
+-- Local gazetteer of pickup coordinates and zones, keyed by normalized address
+-- (trimmed, lower case, single spaces); the row 'depot' is where routes start
+CREATE TABLE IF NOT EXISTS address_gazetteer (
+    address VARCHAR(255) PRIMARY KEY,
+    latitude DOUBLE NOT NULL,
+    longitude DOUBLE NOT NULL,
+    zone VARCHAR(50) -- pickup zone; addresses without one are in zone 'default'
+);
+
+-- Pickups per day of each zone, with overrides for single days (e.g. 0 on holidays)
+CREATE TABLE IF NOT EXISTS zone_capacity (
+    zone VARCHAR(50) PRIMARY KEY,
+    daily_pickups INT NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS zone_capacity_days (
+    zone VARCHAR(50) NOT NULL,
+    day DATE NOT NULL,
+    pickups INT NOT NULL,
+    PRIMARY KEY (zone, day)
+);
+
+-- Upgrades of databases created by earlier versions. MySQL has no
+-- ADD COLUMN IF NOT EXISTS, so each column is added through a statement
+-- that is built only when information_schema does not list it yet.
+
+-- Assignment lifecycle timestamps. Assignments completed before the upgrade
+-- keep completed_at NULL (their completion time is unknown), so completion
+-- latency reports only cover assignments completed after it.
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.columns WHERE table_schema = DATABASE()
+               AND table_name = 'assignments' AND column_name = 'in_progress_at') = 0,
+    'ALTER TABLE assignments ADD COLUMN in_progress_at TIMESTAMP NULL AFTER assigned_date',
+    'DO 0');
+PREPARE upgrade FROM @ddl;
+EXECUTE upgrade;
+DEALLOCATE PREPARE upgrade;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.columns WHERE table_schema = DATABASE()
+               AND table_name = 'assignments' AND column_name = 'completed_at') = 0,
+    'ALTER TABLE assignments ADD COLUMN completed_at TIMESTAMP NULL AFTER in_progress_at',
+    'DO 0');
+PREPARE upgrade FROM @ddl;
+EXECUTE upgrade;
+DEALLOCATE PREPARE upgrade;
+
+-- Waste types only certified crews may collect; seeded for the default
+-- restricted types only when the column is first added
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.columns WHERE table_schema = DATABASE()
+                AND table_name = 'waste_types' AND column_name = 'requires_certification');
+SET @ddl = IF(@missing,
+    'ALTER TABLE waste_types ADD COLUMN requires_certification BOOLEAN NOT NULL DEFAULT FALSE',
+    'DO 0');
+PREPARE upgrade FROM @ddl;
+EXECUTE upgrade;
+DEALLOCATE PREPARE upgrade;
+
+SET @ddl = IF(@missing,
+    'UPDATE waste_types SET requires_certification = TRUE WHERE type_name IN (''Electronic'', ''Hazardous'')',
+    'DO 0');
+PREPARE upgrade FROM @ddl;
+EXECUTE upgrade;
+DEALLOCATE PREPARE upgrade;
+
+-- Pickup zone of gazetteer addresses, for pickup date slotting
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.columns WHERE table_schema = DATABASE()
+               AND table_name = 'address_gazetteer' AND column_name = 'zone') = 0,
+    'ALTER TABLE address_gazetteer ADD COLUMN zone VARCHAR(50)',
+    'DO 0');
+PREPARE upgrade FROM @ddl;
+EXECUTE upgrade;
+DEALLOCATE PREPARE upgrade;
+
+-- Requested-date index for the trend reports
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics WHERE table_schema = DATABASE()
+               AND table_name = 'waste_requests' AND index_name = 'idx_requests_requested_date') = 0,
+    'ALTER TABLE waste_requests ADD INDEX idx_requests_requested_date (requested_date)',
+    'DO 0');
+PREPARE upgrade FROM @ddl;
+EXECUTE upgrade;
+DEALLOCATE PREPARE upgrade;
+
+-- Change log tags grew from TEXT to MEDIUMTEXT, as one batched write can
+-- touch more tags than fit in 64 KB
+SET @ddl = IF((SELECT data_type FROM information_schema.columns WHERE table_schema = DATABASE()
+               AND table_name = 'change_log' AND column_name = 'tags') = 'text',
+    'ALTER TABLE change_log MODIFY tags MEDIUMTEXT NOT NULL',
+    'DO 0');
+PREPARE upgrade FROM @ddl;
+EXECUTE upgrade;
+DEALLOCATE PREPARE upgrade;
+
+-- Pending requests in requested order, for claiming with SKIP LOCKED
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics WHERE table_schema = DATABASE()
+               AND table_name = 'waste_requests' AND index_name = 'idx_requests_status_date') = 0,
+    'ALTER TABLE waste_requests ADD INDEX idx_requests_status_date (status, requested_date)',
+    'DO 0');
+PREPARE upgrade FROM @ddl;
+EXECUTE upgrade;
+DEALLOCATE PREPARE upgrade;
+
+-- Future pickups by date, for slotting
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics WHERE table_schema = DATABASE()
+               AND table_name = 'waste_requests' AND index_name = 'idx_requests_pickup_date') = 0,
+    'ALTER TABLE waste_requests ADD INDEX idx_requests_pickup_date (pickup_date)',
+    'DO 0');
+PREPARE upgrade FROM @ddl;
+EXECUTE upgrade;
+DEALLOCATE PREPARE upgrade;
+
+-- Zone each pickup was booked in, for slotting one new request at a time.
+-- Requests dated before the upgrade get the zone of their gazetteer address.
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.columns WHERE table_schema = DATABASE()
+                AND table_name = 'waste_requests' AND column_name = 'pickup_zone');
+SET @ddl = IF(@missing,
+    'ALTER TABLE waste_requests ADD COLUMN pickup_zone VARCHAR(50) AFTER pickup_date',
+    'DO 0');
+PREPARE upgrade FROM @ddl;
+EXECUTE upgrade;
+DEALLOCATE PREPARE upgrade;
+
+SET @ddl = IF(@missing,
+    'UPDATE waste_requests wr LEFT JOIN address_gazetteer g ON g.address = LOWER(REGEXP_REPLACE(TRIM(wr.address), ''[[:space:]]+'', '' '')) SET wr.pickup_zone = COALESCE(g.zone, ''default'') WHERE wr.pickup_date IS NOT NULL',
+    'DO 0');
+PREPARE upgrade FROM @ddl;
+EXECUTE upgrade;
+DEALLOCATE PREPARE upgrade;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics WHERE table_schema = DATABASE()
+               AND table_name = 'waste_requests' AND index_name = 'idx_requests_pickup_zone') = 0,
+    'ALTER TABLE waste_requests ADD INDEX idx_requests_pickup_zone (pickup_zone, pickup_date)',
+    'DO 0');
+PREPARE upgrade FROM @ddl;
+EXECUTE upgrade;
+DEALLOCATE PREPARE upgrade;
+
 -- Insert default waste types
-INSERT INTO waste_types (type_name, description) VALUES
-('Plastic', 'Plastic waste including bottles, containers, and packaging'),
-('Paper', 'Paper waste including newspapers, magazines, and cardboard'),
-('Glass', 'Glass waste including bottles and jars'),
-('Metal', 'Metal waste including cans and aluminum foil'),
-('Organic', 'Organic waste including food scraps and yard waste'),
-('Electronic', 'Electronic waste including old devices and batteries'),
-('Hazardous', 'Hazardous waste requiring special handling');
+INSERT IGNORE INTO waste_types (type_name, description, requires_certification) VALUES
+('Plastic', 'Plastic waste including bottles, containers, and packaging', FALSE),
+('Paper', 'Paper waste including newspapers, magazines, and cardboard', FALSE),
+('Glass', 'Glass waste including bottles and jars', FALSE),
+('Metal', 'Metal waste including cans and aluminum foil', FALSE),
+('Organic', 'Organic waste including food scraps and yard waste', FALSE),
+('Electronic', 'Electronic waste including old devices and batteries', TRUE),
+('Hazardous', 'Hazardous waste requiring special handling', TRUE);
 
 -- Insert default admin user (password: admin123)
-INSERT INTO users (username, password, full_name, role, email, phone)
+INSERT IGNORE INTO users (username, password, full_name, role, email, phone)
 VALUES ('admin', 'FS1Wsnx52MOT0OY6CAVGz5HUSp0PobkVR+FArcFR+r8u0gcFj14RHFqxXOI2MtOm', 'System Administrator', 'Admin', 'admin@wastewise.com', '1234567890');
\ No newline at end of file
@@ -0,0 +1,184 @@
+package analytics;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Count-min sketch of how often items were added, with a bounded list of
+ * the most frequent items seen so far.
+ * Counts are never underestimated and overestimated by at most about 0.3% of
+ * the total count with high probability. The sketch itself cannot list its
+ * items, so it also keeps the items with the highest estimates as candidates
+ * for getTopItems(). Sketches merge by adding counters.
+ * Not thread-safe.
+ */
+public class CountMinSketch {
+    
+    private static final int DEPTH = 4;
+    private static final int WIDTH = 1024;
+    private static final int CANDIDATES = 64;
+    
+    private final int[][] counters = new int[DEPTH][WIDTH];
+    private final Map<String, Long> candidates = new HashMap<>();
+    private long totalCount;
+    
+    /**
+     * Add occurrences of an item
+     * @param item Item to count
+     * @param count Number of occurrences
+     */
+    public void add(String item, int count) {
+        long hash = HyperLogLog.mix(item.hashCode());
+        for (int row = 0; row < DEPTH; row++) {
+            counters[row][index(hash, row)] += count;
+        }
+        totalCount += count;
+        offerCandidate(item, estimate(item));
+    }
+    
+    /**
+     * Estimate how often an item was added
+     * @param item Item to look up
+     * @return Estimated count, never lower than the true count
+     */
+    public long estimate(String item) {
+        long hash = HyperLogLog.mix(item.hashCode());
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counters[row][index(hash, row)]);
+        }
+        return estimate;
+    }
+    
+    public long getTotalCount() {
+        return totalCount;
+    }
+    
+    /**
+     * Add all counts of another sketch to this one
+     * @param other Sketch to merge
+     */
+    public void merge(CountMinSketch other) {
+        for (int row = 0; row < DEPTH; row++) {
+            for (int column = 0; column < WIDTH; column++) {
+                counters[row][column] += other.counters[row][column];
+            }
+        }
+        totalCount += other.totalCount;
+        
+        // Items frequent in either sketch are the candidates for the merged one
+        List<String> items = new ArrayList<>(candidates.keySet());
+        items.addAll(other.candidates.keySet());
+        candidates.clear();
+        for (String item : items) {
+            offerCandidate(item, estimate(item));
+        }
+    }
+    
+    /**
+     * Get the most frequent items with their estimated counts
+     * @param limit Maximum number of items
+     * @return Items and counts, most frequent first
+     */
+    public List<Map.Entry<String, Long>> getTopItems(int limit) {
+        List<Map.Entry<String, Long>> items = new ArrayList<>(candidates.entrySet());
+        Collections.sort(items, new Comparator<Map.Entry<String, Long>>() {
+            @Override
+            public int compare(Map.Entry<String, Long> a, Map.Entry<String, Long> b) {
+                return Long.compare(b.getValue(), a.getValue());
+            }
+        });
+        return items.subList(0, Math.min(limit, items.size()));
+    }
+    
+    public byte[] toBytes() {
+        List<byte[]> names = new ArrayList<>(candidates.size());
+        int size = 8 + DEPTH * WIDTH * 4 + 4;
+        for (String item : candidates.keySet()) {
+            byte[] name = item.getBytes(StandardCharsets.UTF_8);
+            names.add(name);
+            size += 4 + name.length;
+        }
+        
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putLong(totalCount);
+        for (int[] row : counters) {
+            for (int counter : row) {
+                buffer.putInt(counter);
+            }
+        }
+        buffer.putInt(names.size());
+        for (byte[] name : names) {
+            buffer.putInt(name.length);
+            buffer.put(name);
+        }
+        return buffer.array();
+    }
+    
+    /**
+     * Read a sketch written by toBytes()
+     * @param bytes Serialized sketch
+     * @return CountMinSketch object
+     * @throws IllegalArgumentException if the bytes are not a sketch
+     */
+    public static CountMinSketch fromBytes(byte[] bytes) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            CountMinSketch sketch = new CountMinSketch();
+            sketch.totalCount = buffer.getLong();
+            for (int[] row : sketch.counters) {
+                for (int column = 0; column < WIDTH; column++) {
+                    row[column] = buffer.getInt();
+                }
+            }
+            int candidateCount = buffer.getInt();
+            for (int i = 0; i < candidateCount; i++) {
+                byte[] name = new byte[buffer.getInt()];
+                buffer.get(name);
+                String item = new String(name, StandardCharsets.UTF_8);
+                sketch.candidates.put(item, sketch.estimate(item));
+            }
+            return sketch;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Not a count-min sketch", e);
+        }
+    }
+    
+    /**
+     * Keep an item as a candidate if it is among the most frequent
+     */
+    private void offerCandidate(String item, long estimate) {
+        if (candidates.containsKey(item) || candidates.size() < CANDIDATES) {
+            candidates.put(item, estimate);
+            return;
+        }
+        
+        String least = null;
+        long leastEstimate = Long.MAX_VALUE;
+        for (Map.Entry<String, Long> candidate : candidates.entrySet()) {
+            if (candidate.getValue() < leastEstimate) {
+                least = candidate.getKey();
+                leastEstimate = candidate.getValue();
+            }
+        }
+        if (estimate > leastEstimate) {
+            candidates.remove(least);
+            candidates.put(item, estimate);
+        }
+    }
+    
+    /**
+     * Column of an item in a row, from two halves of its hash (Kirsch-Mitzenmacher)
+     */
+    private static int index(long hash, int row) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        return ((h1 + row * h2) & Integer.MAX_VALUE) % WIDTH;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,16 @@
+package analytics;
+
+/**
+ * Columns of RequestColumns that requests can be grouped by
+ */
+public enum Dimension {
+    WASTE_TYPE,
+    STATUS,
+    COLLECTOR,
+    RESIDENT,
+    DAY,
+    /** Requested week as weeks since Monday 1970-01-05 */
+    WEEK,
+    /** Requested month as year * 12 + month - 1 */
+    MONTH
+}
\ No newline at end of file
@@ -0,0 +1,146 @@
+package analytics;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork-join aggregation over a range of RequestColumns rows.
+ * Ranges are split in halves until they are small enough to scan in one
+ * loop; each leaf fills dense arrays indexed by group key minus the smallest
+ * key, and the halves are added together on the way back up. Latency
+ * sketches are only created for groups that have a latency to add.
+ */
+class GroupByTask extends RecursiveTask<GroupByTask.Partial> {
+    
+    private static final int LEAF_ROWS = 1 << 16;
+    
+    private final RequestColumns columns;
+    private final int[] intKeys;
+    private final byte[] byteKeys;
+    private final int minKey;
+    private final int groupCount;
+    private final byte completedCode;
+    private final boolean withLatencies;
+    private final RowFilter filter;
+    private final int from;
+    private final int to;
+    
+    GroupByTask(RequestColumns columns, int[] intKeys, byte[] byteKeys, int minKey, int groupCount,
+            byte completedCode, boolean withLatencies, RowFilter filter, int from, int to) {
+        this.columns = columns;
+        this.intKeys = intKeys;
+        this.byteKeys = byteKeys;
+        this.minKey = minKey;
+        this.groupCount = groupCount;
+        this.completedCode = completedCode;
+        this.withLatencies = withLatencies;
+        this.filter = filter;
+        this.from = from;
+        this.to = to;
+    }
+    
+    @Override
+    protected Partial compute() {
+        if (to - from <= LEAF_ROWS) {
+            return scan();
+        }
+        
+        int middle = (from + to) >>> 1;
+        GroupByTask left = new GroupByTask(columns, intKeys, byteKeys, minKey, groupCount, completedCode,
+                withLatencies, filter, from, middle);
+        GroupByTask right = new GroupByTask(columns, intKeys, byteKeys, minKey, groupCount, completedCode,
+                withLatencies, filter, middle, to);
+        left.fork();
+        Partial result = right.compute();
+        result.add(left.join());
+        return result;
+    }
+    
+    private Partial scan() {
+        Partial result = new Partial(groupCount, withLatencies);
+        for (int row = from; row < to; row++) {
+            if (columns.statusCodeAt(row) == RequestColumns.DELETED) {
+                continue;
+            }
+            if (filter != null && !filter.accept(columns, row)) {
+                continue;
+            }
+            
+            int group = (intKeys != null ? intKeys[row] : byteKeys[row]) - minKey;
+            result.counts[group]++;
+            result.quantities[group] += columns.quantityAt(row);
+            if (columns.collectorIdAt(row) != RequestColumns.UNASSIGNED) {
+                result.assigned[group]++;
+                if (columns.assignmentStatusCodeAt(row) == completedCode) {
+                    result.completed[group]++;
+                }
+            }
+            if (withLatencies) {
+                result.addLatencies(group, columns.assignSecondsAt(row), columns.completeSecondsAt(row));
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Totals of one range, indexed by group key minus the smallest key
+     */
+    static class Partial {
+        final long[] counts;
+        final double[] quantities;
+        final long[] assigned;
+        final long[] completed;
+        final QuantileSketch[] assignLatencies;
+        final QuantileSketch[] completeLatencies;
+        
+        Partial(int groupCount, boolean withLatencies) {
+            counts = new long[groupCount];
+            quantities = new double[groupCount];
+            assigned = new long[groupCount];
+            completed = new long[groupCount];
+            assignLatencies = withLatencies ? new QuantileSketch[groupCount] : null;
+            completeLatencies = withLatencies ? new QuantileSketch[groupCount] : null;
+        }
+        
+        void addLatencies(int group, int assignSeconds, int completeSeconds) {
+            if (assignSeconds != RequestColumns.NO_LATENCY) {
+                sketch(assignLatencies, group).add(assignSeconds);
+            }
+            if (completeSeconds != RequestColumns.NO_LATENCY) {
+                sketch(completeLatencies, group).add(completeSeconds);
+            }
+        }
+        
+        void add(Partial other) {
+            for (int group = 0; group < counts.length; group++) {
+                counts[group] += other.counts[group];
+                quantities[group] += other.quantities[group];
+                assigned[group] += other.assigned[group];
+                completed[group] += other.completed[group];
+            }
+            if (assignLatencies != null) {
+                merge(assignLatencies, other.assignLatencies);
+                merge(completeLatencies, other.completeLatencies);
+            }
+        }
+        
+        private static QuantileSketch sketch(QuantileSketch[] sketches, int group) {
+            if (sketches[group] == null) {
+                sketches[group] = new QuantileSketch();
+            }
+            return sketches[group];
+        }
+        
+        private static void merge(QuantileSketch[] into, QuantileSketch[] from) {
+            for (int group = 0; group < into.length; group++) {
+                if (from[group] == null) {
+                    continue;
+                }
+                if (into[group] == null) {
+                    into[group] = from[group];
+                } else {
+                    into[group].merge(from[group]);
+                }
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,72 @@
+package analytics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Result of RequestColumns.groupBy(): per group, the number of requests,
+ * their total quantity, how many of them are assigned and completed, and
+ * when requested, sketches of their assignment and completion latencies
+ */
+public class GroupTotals {
+    
+    private final int minKey;
+    private final GroupByTask.Partial totals;
+    
+    GroupTotals(int minKey, GroupByTask.Partial totals) {
+        this.minKey = minKey;
+        this.totals = totals;
+    }
+    
+    /**
+     * Get the keys of the groups holding at least one request
+     * @return Keys in ascending order
+     */
+    public List<Integer> getKeys() {
+        List<Integer> keys = new ArrayList<>();
+        for (int group = 0; group < totals.counts.length; group++) {
+            if (totals.counts[group] > 0) {
+                keys.add(group + minKey);
+            }
+        }
+        return keys;
+    }
+    
+    public long getCount(int key) {
+        return inRange(key) ? totals.counts[key - minKey] : 0;
+    }
+    
+    public double getQuantity(int key) {
+        return inRange(key) ? totals.quantities[key - minKey] : 0;
+    }
+    
+    public long getAssigned(int key) {
+        return inRange(key) ? totals.assigned[key - minKey] : 0;
+    }
+    
+    public long getCompleted(int key) {
+        return inRange(key) ? totals.completed[key - minKey] : 0;
+    }
+    
+    /**
+     * Get the seconds from creation to assignment of a group's requests
+     * @param key Group key
+     * @return Sketch, or null if latencies were not requested or none was added
+     */
+    public QuantileSketch getAssignSeconds(int key) {
+        return inRange(key) && totals.assignLatencies != null ? totals.assignLatencies[key - minKey] : null;
+    }
+    
+    /**
+     * Get the seconds from assignment to completion of a group's requests
+     * @param key Group key
+     * @return Sketch, or null if latencies were not requested or none was added
+     */
+    public QuantileSketch getCompleteSeconds(int key) {
+        return inRange(key) && totals.completeLatencies != null ? totals.completeLatencies[key - minKey] : null;
+    }
+    
+    private boolean inRange(int key) {
+        return key >= minKey && key - minKey < totals.counts.length;
+    }
+}
\ No newline at end of file
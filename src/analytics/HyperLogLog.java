@@ -0,0 +1,103 @@
+package analytics;
+
+/**
+ * HyperLogLog estimate of the number of distinct values added.
+ * 4096 one-byte registers give a standard error of about 1.6% whatever the
+ * number of values. Sketches merge by taking the larger register, so counts
+ * kept per time bucket can be combined for any range of buckets.
+ * Not thread-safe.
+ */
+public class HyperLogLog {
+    
+    private static final int PRECISION = 12;
+    private static final int REGISTER_COUNT = 1 << PRECISION;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTER_COUNT);
+    
+    private final byte[] registers;
+    
+    public HyperLogLog() {
+        registers = new byte[REGISTER_COUNT];
+    }
+    
+    private HyperLogLog(byte[] registers) {
+        this.registers = registers;
+    }
+    
+    /**
+     * Add a value
+     * @param value Value to add, e.g. a user ID
+     */
+    public void add(long value) {
+        long hash = mix(value);
+        int index = (int) (hash >>> (64 - PRECISION));
+        // Position of the first 1 bit after the index bits, capped for an all-zero rest
+        int rank = Math.min(Long.numberOfLeadingZeros(hash << PRECISION), 64 - PRECISION) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+    
+    /**
+     * Add all values of another sketch to this one
+     * @param other Sketch to merge
+     */
+    public void merge(HyperLogLog other) {
+        for (int i = 0; i < REGISTER_COUNT; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+    
+    /**
+     * Estimate the number of distinct values added
+     * @return Estimated count
+     */
+    public long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        
+        double estimate = ALPHA * REGISTER_COUNT * REGISTER_COUNT / sum;
+        // Linear counting is more accurate while many registers are still empty
+        if (estimate <= 2.5 * REGISTER_COUNT && zeros > 0) {
+            estimate = REGISTER_COUNT * Math.log((double) REGISTER_COUNT / zeros);
+        }
+        return Math.round(estimate);
+    }
+    
+    public byte[] toBytes() {
+        return registers.clone();
+    }
+    
+    /**
+     * Read a sketch written by toBytes()
+     * @param bytes Serialized sketch
+     * @return HyperLogLog object
+     * @throws IllegalArgumentException if the bytes are not a sketch
+     */
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        if (bytes.length != REGISTER_COUNT) {
+            throw new IllegalArgumentException("Not a HyperLogLog sketch: " + bytes.length + " bytes");
+        }
+        return new HyperLogLog(bytes.clone());
+    }
+    
+    /**
+     * Spread the bits of a value over the whole 64-bit hash (MurmurHash3 finalizer)
+     */
+    static long mix(long value) {
+        long hash = value * 0x9E3779B97F4A7C15L;
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
\ No newline at end of file
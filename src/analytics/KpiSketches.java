@@ -0,0 +1,132 @@
+package analytics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Sketches of the waste requests made in a range of months, answering the
+ * admin KPIs in constant time however long the range:
+ * - distinct residents who made a request (HyperLogLog)
+ * - quantity percentiles per waste type (QuantileSketch over grams, so
+ *   quantities below 1 kg keep their 1% accuracy)
+ * - most requested addresses (CountMinSketch)
+ * Sketches of several ranges merge into one for the union of the ranges.
+ */
+public class KpiSketches {
+    
+    private static final double GRAMS_PER_KG = 1000;
+    
+    private final HyperLogLog residents = new HyperLogLog();
+    private final CountMinSketch addresses = new CountMinSketch();
+    private final Map<Integer, QuantileSketch> quantities = new TreeMap<>();
+    
+    /**
+     * Add one request
+     * @param userId Resident who made the request
+     * @param wasteType Waste type ID
+     * @param quantity Quantity in kg
+     * @param address Pickup address
+     */
+    public void addRequest(int userId, int wasteType, double quantity, String address) {
+        residents.add(userId);
+        addresses.add(normalizeAddress(address), 1);
+        quantitySketch(wasteType).add(quantity * GRAMS_PER_KG);
+    }
+    
+    public void mergeResidents(HyperLogLog sketch) {
+        residents.merge(sketch);
+    }
+    
+    public void mergeAddresses(CountMinSketch sketch) {
+        addresses.merge(sketch);
+    }
+    
+    public void mergeQuantities(int wasteType, QuantileSketch sketch) {
+        quantitySketch(wasteType).merge(sketch);
+    }
+    
+    /**
+     * Merge all sketches of another range into this one
+     * @param other Sketches to merge
+     */
+    public void merge(KpiSketches other) {
+        residents.merge(other.residents);
+        addresses.merge(other.addresses);
+        for (Map.Entry<Integer, QuantileSketch> quantity : other.quantities.entrySet()) {
+            quantitySketch(quantity.getKey()).merge(quantity.getValue());
+        }
+    }
+    
+    public HyperLogLog getResidents() {
+        return residents;
+    }
+    
+    public CountMinSketch getAddresses() {
+        return addresses;
+    }
+    
+    public Map<Integer, QuantileSketch> getQuantities() {
+        return quantities;
+    }
+    
+    /**
+     * Estimate the number of distinct residents who made a request
+     * @return Estimated count
+     */
+    public long getActiveResidents() {
+        return residents.estimate();
+    }
+    
+    /**
+     * Get the number of requests added
+     * @return Request count
+     */
+    public long getRequestCount() {
+        return addresses.getTotalCount();
+    }
+    
+    public Set<Integer> getWasteTypes() {
+        return quantities.keySet();
+    }
+    
+    /**
+     * Estimate a quantile of the quantity requested for a waste type
+     * @param wasteType Waste type ID
+     * @param quantile Quantile between 0 and 1
+     * @return Quantity in kg, or NaN if there are no requests of that type
+     */
+    public double getQuantityQuantile(int wasteType, double quantile) {
+        QuantileSketch sketch = quantities.get(wasteType);
+        return sketch == null ? Double.NaN : sketch.getQuantile(quantile) / GRAMS_PER_KG;
+    }
+    
+    /**
+     * Get the most requested addresses
+     * @param limit Maximum number of addresses
+     * @return Normalized addresses and estimated request counts, most requested first
+     */
+    public List<Map.Entry<String, Long>> getTopAddresses(int limit) {
+        return addresses.getTopItems(limit);
+    }
+    
+    /**
+     * Normalize an address so that spelling variants count as one:
+     * lower case, with runs of whitespace collapsed
+     * @param address Address as entered
+     * @return Normalized address
+     */
+    public static String normalizeAddress(String address) {
+        return address.trim().replaceAll("\\s+", " ").toLowerCase();
+    }
+    
+    private QuantileSketch quantitySketch(int wasteType) {
+        QuantileSketch sketch = quantities.get(wasteType);
+        if (sketch == null) {
+            sketch = new QuantileSketch();
+            quantities.put(wasteType, sketch);
+        }
+        return sketch;
+    }
+}
\ No newline at end of file
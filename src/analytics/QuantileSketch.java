@@ -0,0 +1,147 @@
+package analytics;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Streaming quantile sketch with a bounded relative error, in the style of DDSketch.
+ * Values are counted in logarithmic buckets whose bounds grow by a factor of
+ * (1 + a) / (1 - a), so every quantile is returned within a = 1% of the true
+ * value while durations from seconds to years need only a few thousand
+ * counters. Sketches merge by adding counters, so per-group sketches can be
+ * built in one pass and combined for totals. Values below 1 are counted as zero.
+ * Not thread-safe.
+ */
+public class QuantileSketch {
+    
+    private static final double RELATIVE_ACCURACY = 0.01;
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    
+    private long[] counts = new long[0];
+    private int minIndex = 0;
+    private long zeroCount = 0;
+    private long count = 0;
+    
+    /**
+     * Add a value
+     * @param value Value to add; values below 1 count as zero
+     */
+    public void add(double value) {
+        count++;
+        if (!(value >= 1)) {
+            zeroCount++;
+            return;
+        }
+        
+        int index = (int) Math.ceil(Math.log(value) / LOG_GAMMA);
+        ensureIndex(index);
+        counts[index - minIndex]++;
+    }
+    
+    /**
+     * Add all values of another sketch to this one
+     * @param other Sketch to merge
+     */
+    public void merge(QuantileSketch other) {
+        if (other.count == 0) {
+            return;
+        }
+        
+        count += other.count;
+        zeroCount += other.zeroCount;
+        if (other.counts.length > 0) {
+            ensureIndex(other.minIndex);
+            ensureIndex(other.minIndex + other.counts.length - 1);
+            for (int i = 0; i < other.counts.length; i++) {
+                counts[other.minIndex + i - minIndex] += other.counts[i];
+            }
+        }
+    }
+    
+    /**
+     * Get the number of values added
+     * @return Value count
+     */
+    public long getCount() {
+        return count;
+    }
+    
+    /**
+     * Get an estimate of a quantile
+     * @param quantile Quantile between 0 and 1, e.g. 0.9 for p90
+     * @return Estimated value, or NaN if the sketch is empty
+     */
+    public double getQuantile(double quantile) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        
+        long rank = (long) Math.floor(quantile * (count - 1));
+        if (rank < zeroCount) {
+            return 0;
+        }
+        
+        long seen = zeroCount;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen > rank) {
+                // Midpoint of the bucket in relative terms
+                return 2 * Math.pow(GAMMA, minIndex + i) / (GAMMA + 1);
+            }
+        }
+        return 2 * Math.pow(GAMMA, minIndex + counts.length - 1) / (GAMMA + 1);
+    }
+    
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(8 + 8 + 4 + 4 + counts.length * 8);
+        buffer.putLong(count);
+        buffer.putLong(zeroCount);
+        buffer.putInt(minIndex);
+        buffer.putInt(counts.length);
+        for (long bucketCount : counts) {
+            buffer.putLong(bucketCount);
+        }
+        return buffer.array();
+    }
+    
+    /**
+     * Read a sketch written by toBytes()
+     * @param bytes Serialized sketch
+     * @return QuantileSketch object
+     * @throws IllegalArgumentException if the bytes are not a sketch
+     */
+    public static QuantileSketch fromBytes(byte[] bytes) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            QuantileSketch sketch = new QuantileSketch();
+            sketch.count = buffer.getLong();
+            sketch.zeroCount = buffer.getLong();
+            sketch.minIndex = buffer.getInt();
+            sketch.counts = new long[buffer.getInt()];
+            for (int i = 0; i < sketch.counts.length; i++) {
+                sketch.counts[i] = buffer.getLong();
+            }
+            return sketch;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Not a quantile sketch", e);
+        }
+    }
+    
+    private void ensureIndex(int index) {
+        if (counts.length == 0) {
+            counts = new long[1];
+            minIndex = index;
+            return;
+        }
+        
+        if (index < minIndex) {
+            long[] grown = new long[counts.length + (minIndex - index)];
+            System.arraycopy(counts, 0, grown, minIndex - index, counts.length);
+            counts = grown;
+            minIndex = index;
+        } else if (index >= minIndex + counts.length) {
+            counts = Arrays.copyOf(counts, index - minIndex + 1);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,360 @@
+package analytics;
+
+import cache.StringDictionary;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Waste requests and their assignments held column by column in primitive
+ * arrays, one row per request. Aggregations scan only the columns they need,
+ * in tight loops split across the fork-join pool (see GroupByTask).
+ * Rows are appended or overwritten in place as requests change; a deleted
+ * request keeps its row with the DELETED status so row numbers stay stable.
+ * Strings are dictionary-encoded; statuses are stored as byte codes.
+ * Assignment and completion times are kept as seconds, for the latency reports.
+ * All methods are synchronized, so a query always sees a consistent table.
+ */
+public class RequestColumns {
+    
+    public static final byte DELETED = -1;
+    
+    /** Collector ID of a request that is not assigned */
+    public static final int UNASSIGNED = 0;
+    
+    /** Latency of a request not yet assigned or completed */
+    public static final int NO_LATENCY = Integer.MIN_VALUE;
+    
+    private static final int INITIAL_CAPACITY = 1024;
+    
+    private int size;
+    private int maxRequestId;
+    private int[] requestIds = new int[INITIAL_CAPACITY];
+    private int[] userIds = new int[INITIAL_CAPACITY];
+    private int[] wasteTypes = new int[INITIAL_CAPACITY];
+    private double[] quantities = new double[INITIAL_CAPACITY];
+    private int[] addressCodes = new int[INITIAL_CAPACITY];
+    private byte[] statuses = new byte[INITIAL_CAPACITY];
+    private int[] requestedDays = new int[INITIAL_CAPACITY];
+    private int[] requestedWeeks = new int[INITIAL_CAPACITY];
+    private int[] requestedMonths = new int[INITIAL_CAPACITY];
+    private int[] assignmentIds = new int[INITIAL_CAPACITY];
+    private int[] collectorIds = new int[INITIAL_CAPACITY];
+    private byte[] assignmentStatuses = new byte[INITIAL_CAPACITY];
+    private int[] assignSeconds = new int[INITIAL_CAPACITY];
+    private int[] completeSeconds = new int[INITIAL_CAPACITY];
+    
+    private final StringDictionary addresses = new StringDictionary();
+    private final StringDictionary requestStatuses = new StringDictionary();
+    private final StringDictionary assignmentStatusNames = new StringDictionary();
+    
+    private final Map<Integer, Integer> rowsByRequestId = new HashMap<>();
+    private final Map<Integer, Integer> rowsByAssignmentId = new HashMap<>();
+    
+    public RequestColumns() {
+        // Seed the known statuses so that their codes follow the schema order
+        for (String status : new String[] {"Pending", "Assigned", "In Progress", "Collected"}) {
+            requestStatuses.encode(status);
+        }
+        for (String status : new String[] {"Assigned", "In Progress", "Completed"}) {
+            assignmentStatusNames.encode(status);
+        }
+    }
+    
+    /**
+     * Add a request, or overwrite it if it is already present
+     * @param requestId Waste request ID
+     * @param userId Resident ID
+     * @param wasteType Waste type ID
+     * @param quantity Quantity in kg
+     * @param address Pickup address
+     * @param status Request status
+     * @param requestedDay Requested date as days since 1970-01-01
+     * @param assignmentId Assignment ID, or 0 if not assigned
+     * @param collectorId Collector ID, or UNASSIGNED
+     * @param assignmentStatus Assignment status, or null if not assigned
+     * @param assignSecs Seconds from creation to assignment, or NO_LATENCY
+     * @param completeSecs Seconds from assignment to completion, or NO_LATENCY
+     */
+    public synchronized void upsert(int requestId, int userId, int wasteType, double quantity, String address,
+            String status, int requestedDay, int assignmentId, int collectorId, String assignmentStatus,
+            int assignSecs, int completeSecs) {
+        Integer existing = rowsByRequestId.get(requestId);
+        int row;
+        if (existing != null) {
+            row = existing;
+            if (assignmentIds[row] != 0) {
+                rowsByAssignmentId.remove(assignmentIds[row]);
+            }
+        } else {
+            ensureCapacity(size + 1);
+            row = size++;
+            rowsByRequestId.put(requestId, row);
+            maxRequestId = Math.max(maxRequestId, requestId);
+        }
+        
+        requestIds[row] = requestId;
+        userIds[row] = userId;
+        wasteTypes[row] = wasteType;
+        quantities[row] = quantity;
+        addressCodes[row] = addresses.encode(address);
+        statuses[row] = toByteCode(requestStatuses, status);
+        requestedDays[row] = requestedDay;
+        requestedWeeks[row] = toWeek(requestedDay);
+        requestedMonths[row] = toMonth(requestedDay);
+        assignmentIds[row] = assignmentId;
+        collectorIds[row] = collectorId;
+        assignmentStatuses[row] = toByteCode(assignmentStatusNames, assignmentStatus);
+        assignSeconds[row] = assignSecs;
+        completeSeconds[row] = completeSecs;
+        
+        if (assignmentId != 0) {
+            rowsByAssignmentId.put(assignmentId, row);
+        }
+    }
+    
+    /**
+     * Mark a request as deleted
+     * @param requestId Waste request ID
+     */
+    public synchronized void remove(int requestId) {
+        Integer row = rowsByRequestId.get(requestId);
+        if (row == null) {
+            return;
+        }
+        statuses[row] = DELETED;
+        if (assignmentIds[row] != 0) {
+            rowsByAssignmentId.remove(assignmentIds[row]);
+            assignmentIds[row] = 0;
+        }
+        collectorIds[row] = UNASSIGNED;
+    }
+    
+    /**
+     * Get the request an assignment belongs to
+     * @param assignmentId Assignment ID
+     * @return Waste request ID, or 0 if the assignment is not loaded
+     */
+    public synchronized int findRequestForAssignment(int assignmentId) {
+        Integer row = rowsByAssignmentId.get(assignmentId);
+        return row == null ? 0 : requestIds[row];
+    }
+    
+    /**
+     * Get the highest request ID loaded
+     * @return Request ID, or 0 if empty
+     */
+    public synchronized int getMaxRequestId() {
+        return maxRequestId;
+    }
+    
+    /**
+     * Get the number of rows, including deleted ones
+     * @return Row count
+     */
+    public synchronized int size() {
+        return size;
+    }
+    
+    /**
+     * Count requests and sum their quantities per value of a dimension
+     * @param dimension Column to group by
+     * @param filter Rows to include, or null for all
+     * @return Totals per group
+     */
+    public synchronized GroupTotals groupBy(Dimension dimension, RowFilter filter) {
+        return groupBy(dimension, filter, false);
+    }
+    
+    /**
+     * Count requests and sum their quantities per value of a dimension,
+     * optionally also sketching their assignment and completion latencies
+     * @param dimension Column to group by
+     * @param filter Rows to include, or null for all
+     * @param withLatencies true to fill the latency sketches of each group
+     * @return Totals per group
+     */
+    public synchronized GroupTotals groupBy(Dimension dimension, RowFilter filter, boolean withLatencies) {
+        int[] intKeys = null;
+        byte[] byteKeys = null;
+        switch (dimension) {
+            case WASTE_TYPE:
+                intKeys = wasteTypes;
+                break;
+            case STATUS:
+                byteKeys = statuses;
+                break;
+            case COLLECTOR:
+                intKeys = collectorIds;
+                break;
+            case RESIDENT:
+                intKeys = userIds;
+                break;
+            case DAY:
+                intKeys = requestedDays;
+                break;
+            case WEEK:
+                intKeys = requestedWeeks;
+                break;
+            case MONTH:
+                intKeys = requestedMonths;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown dimension: " + dimension);
+        }
+        
+        int minKey = Integer.MAX_VALUE;
+        int maxKey = Integer.MIN_VALUE;
+        for (int row = 0; row < size; row++) {
+            int key = intKeys != null ? intKeys[row] : byteKeys[row];
+            minKey = Math.min(minKey, key);
+            maxKey = Math.max(maxKey, key);
+        }
+        if (size == 0) {
+            minKey = 0;
+            maxKey = -1;
+        }
+        
+        byte completed = assignmentStatusCode("Completed");
+        GroupByTask task = new GroupByTask(this, intKeys, byteKeys, minKey, maxKey - minKey + 1, completed,
+                withLatencies, filter, 0, size);
+        return new GroupTotals(minKey, task.invoke());
+    }
+    
+    /**
+     * Get the name of a request status code
+     * @param code Code from statusCodeAt() or a STATUS group key
+     * @return Status name
+     */
+    public synchronized String decodeStatus(int code) {
+        return requestStatuses.decode(code);
+    }
+    
+    /**
+     * Get the code of a request status, for use in filters
+     * @param status Status name
+     * @return Code, or DELETED if no request has that status
+     */
+    public synchronized byte statusCode(String status) {
+        for (int code = 0; code < requestStatuses.size(); code++) {
+            if (requestStatuses.decode(code).equals(status)) {
+                return (byte) code;
+            }
+        }
+        return DELETED;
+    }
+    
+    /**
+     * Get the code of an assignment status, for use in filters
+     * @param status Status name
+     * @return Code, or DELETED if no assignment has that status
+     */
+    public synchronized byte assignmentStatusCode(String status) {
+        for (int code = 0; code < assignmentStatusNames.size(); code++) {
+            if (assignmentStatusNames.decode(code).equals(status)) {
+                return (byte) code;
+            }
+        }
+        return DELETED;
+    }
+    
+    // Row accessors for filters and GroupByTask; only valid while a query holds the lock
+    
+    public int wasteTypeAt(int row) {
+        return wasteTypes[row];
+    }
+    
+    public double quantityAt(int row) {
+        return quantities[row];
+    }
+    
+    public byte statusCodeAt(int row) {
+        return statuses[row];
+    }
+    
+    public int requestedDayAt(int row) {
+        return requestedDays[row];
+    }
+    
+    public int requestedWeekAt(int row) {
+        return requestedWeeks[row];
+    }
+    
+    public int requestedMonthAt(int row) {
+        return requestedMonths[row];
+    }
+    
+    public int collectorIdAt(int row) {
+        return collectorIds[row];
+    }
+    
+    public byte assignmentStatusCodeAt(int row) {
+        return assignmentStatuses[row];
+    }
+    
+    public int assignSecondsAt(int row) {
+        return assignSeconds[row];
+    }
+    
+    public int completeSecondsAt(int row) {
+        return completeSeconds[row];
+    }
+    
+    public int userIdAt(int row) {
+        return userIds[row];
+    }
+    
+    public String addressAt(int row) {
+        return addresses.decode(addressCodes[row]);
+    }
+    
+    /**
+     * Convert days since 1970-01-01 to the week key used by the WEEK dimension
+     * @param epochDay Days since 1970-01-01
+     * @return Weeks since Monday 1970-01-05
+     */
+    public static int toWeek(int epochDay) {
+        return Math.floorDiv(epochDay - 4, 7);
+    }
+    
+    /**
+     * Convert days since 1970-01-01 to the month key used by the MONTH dimension
+     * @param epochDay Days since 1970-01-01
+     * @return year * 12 + month - 1
+     */
+    public static int toMonth(int epochDay) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        return date.getYear() * 12 + date.getMonthValue() - 1;
+    }
+    
+    private static byte toByteCode(StringDictionary dictionary, String value) {
+        int code = dictionary.encode(value);
+        if (code > Byte.MAX_VALUE) {
+            throw new IllegalStateException("Too many distinct statuses: " + value);
+        }
+        return (byte) code;
+    }
+    
+    private void ensureCapacity(int capacity) {
+        if (capacity <= requestIds.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, requestIds.length * 2);
+        requestIds = Arrays.copyOf(requestIds, newCapacity);
+        userIds = Arrays.copyOf(userIds, newCapacity);
+        wasteTypes = Arrays.copyOf(wasteTypes, newCapacity);
+        quantities = Arrays.copyOf(quantities, newCapacity);
+        addressCodes = Arrays.copyOf(addressCodes, newCapacity);
+        statuses = Arrays.copyOf(statuses, newCapacity);
+        requestedDays = Arrays.copyOf(requestedDays, newCapacity);
+        requestedWeeks = Arrays.copyOf(requestedWeeks, newCapacity);
+        requestedMonths = Arrays.copyOf(requestedMonths, newCapacity);
+        assignmentIds = Arrays.copyOf(assignmentIds, newCapacity);
+        collectorIds = Arrays.copyOf(collectorIds, newCapacity);
+        assignmentStatuses = Arrays.copyOf(assignmentStatuses, newCapacity);
+        assignSeconds = Arrays.copyOf(assignSeconds, newCapacity);
+        completeSeconds = Arrays.copyOf(completeSeconds, newCapacity);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,15 @@
+package analytics;
+
+/**
+ * Row predicate applied by RequestColumns aggregations
+ */
+public interface RowFilter {
+    
+    /**
+     * Check whether a row takes part in an aggregation
+     * @param columns Table being scanned
+     * @param row Row number
+     * @return true to include the row, false to skip it
+     */
+    boolean accept(RequestColumns columns, int row);
+}
\ No newline at end of file
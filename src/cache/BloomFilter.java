@@ -0,0 +1,96 @@
+package cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter for strings.
+ * A negative answer from mightContain() is always correct; a positive answer
+ * may be a false positive with roughly the probability the filter was sized for.
+ */
+public class BloomFilter {
+    
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final long expectedInsertions;
+    
+    /**
+     * Constructor
+     * @param expectedInsertions Number of values the filter is sized for
+     * @param falsePositiveRate Target false positive probability, e.g. 0.01
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(1, expectedInsertions);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        m = Math.max(64, m);
+        
+        this.expectedInsertions = n;
+        this.bitCount = m;
+        this.hashCount = Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+        this.bits = new AtomicLongArray((int) ((m + 63) / 64));
+    }
+    
+    /**
+     * Add a value to the filter
+     * @param value Value to add
+     */
+    public void add(String value) {
+        long hash1 = hash(value, 0x9E3779B97F4A7C15L);
+        long hash2 = hash(value, 0xC2B2AE3D27D4EB4FL) | 1;
+        
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            long mask = 1L << (bit & 63);
+            int index = (int) (bit >>> 6);
+            long current = bits.get(index);
+            while ((current & mask) == 0 && !bits.compareAndSet(index, current, current | mask)) {
+                current = bits.get(index);
+            }
+        }
+    }
+    
+    /**
+     * Check whether a value may have been added
+     * @param value Value to check
+     * @return false if the value was definitely never added, true otherwise
+     */
+    public boolean mightContain(String value) {
+        long hash1 = hash(value, 0x9E3779B97F4A7C15L);
+        long hash2 = hash(value, 0xC2B2AE3D27D4EB4FL) | 1;
+        
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << (bit & 63))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Get the number of values the filter was sized for
+     * @return Expected insertions
+     */
+    public long getExpectedInsertions() {
+        return expectedInsertions;
+    }
+    
+    /**
+     * 64-bit FNV-1a over the UTF-8 bytes, finished with the MurmurHash3 mixer
+     */
+    private static long hash(String value, long seed) {
+        long hash = 0xCBF29CE484222325L ^ seed;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= (b & 0xFF);
+            hash *= 0x100000001B3L;
+        }
+        
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
\ No newline at end of file
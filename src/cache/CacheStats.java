@@ -0,0 +1,51 @@
+package cache;
+
+/**
+ * Immutable snapshot of cache usage counters
+ */
+public class CacheStats {
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final int size;
+    
+    // Constructor with all fields
+    public CacheStats(long hitCount, long missCount, long evictionCount, int size) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.size = size;
+    }
+    
+    // Getters
+    public long getHitCount() {
+        return hitCount;
+    }
+    
+    public long getMissCount() {
+        return missCount;
+    }
+    
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+    
+    public int getSize() {
+        return size;
+    }
+    
+    /**
+     * Get the fraction of lookups that were served from the cache
+     * @return Hit rate between 0 and 1, or 0 if there were no lookups
+     */
+    public double getHitRate() {
+        long requests = hitCount + missCount;
+        return requests == 0 ? 0.0 : (double) hitCount / requests;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("hits=%d, misses=%d, hitRate=%.1f%%, evictions=%d, size=%d",
+                hitCount, missCount, getHitRate() * 100, evictionCount, size);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,224 @@
+package cache;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Result cache for DAO list and lookup methods.
+ * Entries are keyed by method name and parameters, e.g.
+ * "WasteRequestDAO.getWasteRequestsByUserId(42)", and carry tags naming the
+ * rows and scopes they were built from, e.g. "request:17" or "requests:user:42".
+ * A DAO write invalidates the tags it touches, which removes exactly the cached
+ * results that could have changed. Entries also expire after a short time so
+ * that writes made by other clients are eventually picked up.
+ */
+public class QueryCache {
+    
+    private static final int DEFAULT_MAX_ENTRIES = 500;
+    private static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(2);
+    
+    private static final QueryCache INSTANCE = new QueryCache(DEFAULT_MAX_ENTRIES, DEFAULT_TTL_MILLIS);
+    
+    private final int maxEntries;
+    private final long ttlMillis;
+    
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> keysByTag = new ConcurrentHashMap<>();
+    
+    private final AtomicLong version = new AtomicLong();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    
+    /**
+     * Constructor
+     * @param maxEntries Maximum number of results held at once
+     * @param ttlMillis Time after which a result is reloaded
+     */
+    public QueryCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+    }
+    
+    /**
+     * Get the shared cache instance
+     * @return QueryCache instance
+     */
+    public static QueryCache getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Build a cache key from a method name and its parameters
+     * @param method Method name, e.g. "AssignmentDAO.getAssignmentsByCollectorId"
+     * @param params Method parameters
+     * @return Cache key
+     */
+    public static String key(String method, Object... params) {
+        StringBuilder key = new StringBuilder(method).append('(');
+        for (int i = 0; i < params.length; i++) {
+            if (i > 0) {
+                key.append(", ");
+            }
+            key.append(params[i]);
+        }
+        return key.append(')').toString();
+    }
+    
+    /**
+     * Get the current version, to be passed to put() once the database read completes
+     * @return Current cache version
+     */
+    public long getVersion() {
+        return version.get();
+    }
+    
+    /**
+     * Get a cached result
+     * @param key Cache key
+     * @return Cached value, or null on a miss
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            missCount.increment();
+            return null;
+        }
+        
+        if (System.currentTimeMillis() >= entry.expiresAt) {
+            remove(key, entry);
+            evictionCount.increment();
+            missCount.increment();
+            return null;
+        }
+        
+        hitCount.increment();
+        return (T) entry.value;
+    }
+    
+    /**
+     * Store a result read from the database.
+     * The result is discarded if any invalidation happened while it was being read.
+     * @param key Cache key
+     * @param value Result to cache (callers must treat it as read-only)
+     * @param tags Tags naming the rows and scopes the result depends on
+     * @param expectedVersion Version returned by getVersion() before the read started
+     */
+    public synchronized void put(String key, Object value, Collection<String> tags, long expectedVersion) {
+        if (version.get() != expectedVersion || value == null) {
+            return;
+        }
+        
+        if (entries.size() >= maxEntries && !entries.containsKey(key)) {
+            evictOne();
+        }
+        
+        Entry entry = new Entry(value, tags, System.currentTimeMillis() + ttlMillis);
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            unindex(key, previous);
+        }
+        for (String tag : entry.tags) {
+            Set<String> keys = keysByTag.get(tag);
+            if (keys == null) {
+                keys = ConcurrentHashMap.newKeySet();
+                keysByTag.put(tag, keys);
+            }
+            keys.add(key);
+        }
+    }
+    
+    /**
+     * Remove every cached result carrying any of the given tags
+     * @param tags Tags touched by a write
+     */
+    public synchronized void invalidate(Collection<String> tags) {
+        version.incrementAndGet();
+        for (String tag : tags) {
+            Set<String> keys = keysByTag.remove(tag);
+            if (keys == null) {
+                continue;
+            }
+            for (String key : keys) {
+                Entry entry = entries.get(key);
+                if (entry != null) {
+                    remove(key, entry);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Remove every cached result
+     */
+    public synchronized void invalidateAll() {
+        version.incrementAndGet();
+        entries.clear();
+        keysByTag.clear();
+    }
+    
+    /**
+     * Get a snapshot of the cache counters
+     * @return CacheStats object
+     */
+    public CacheStats getStats() {
+        return new CacheStats(hitCount.sum(), missCount.sum(), evictionCount.sum(), entries.size());
+    }
+    
+    /**
+     * Evict the entry closest to expiry, which is also the oldest one
+     */
+    private void evictOne() {
+        String oldestKey = null;
+        Entry oldest = null;
+        for (Map.Entry<String, Entry> candidate : entries.entrySet()) {
+            if (oldest == null || candidate.getValue().expiresAt < oldest.expiresAt) {
+                oldestKey = candidate.getKey();
+                oldest = candidate.getValue();
+            }
+        }
+        if (oldest != null) {
+            remove(oldestKey, oldest);
+            evictionCount.increment();
+        }
+    }
+    
+    private synchronized void remove(String key, Entry entry) {
+        if (entries.remove(key, entry)) {
+            unindex(key, entry);
+        }
+    }
+    
+    private void unindex(String key, Entry entry) {
+        for (String tag : entry.tags) {
+            Set<String> keys = keysByTag.get(tag);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    keysByTag.remove(tag);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Cached result with its tags and expiry time
+     */
+    private static class Entry {
+        private final Object value;
+        private final String[] tags;
+        private final long expiresAt;
+        
+        Entry(Object value, Collection<String> tags, long expiresAt) {
+            this.value = value;
+            this.tags = tags.toArray(new String[0]);
+            this.expiresAt = expiresAt;
+        }
+    }
+}
\ No newline at end of file
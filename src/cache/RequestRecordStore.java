@@ -0,0 +1,213 @@
+package cache;
+
+import models.WasteRequest;
+
+import java.nio.ByteBuffer;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Off-heap store for waste request rows.
+ * Each request is packed into a fixed-width record in a direct ByteBuffer:
+ * numeric fields are stored inline, dates as epoch days, and the status,
+ * address, resident name and waste type name as references into shared
+ * string dictionaries. A few hundred thousand requests then cost a few
+ * megabytes outside the heap instead of millions of small heap objects.
+ *
+ * Not thread-safe while being filled; safe to read once published.
+ */
+public class RequestRecordStore {
+    
+    private static final int REQUEST_ID = 0;
+    private static final int USER_ID = 4;
+    private static final int WASTE_TYPE = 8;
+    private static final int QUANTITY = 12;
+    private static final int STATUS_REF = 20;
+    private static final int REQUESTED_DAY = 24;
+    private static final int PICKUP_DAY = 28;
+    private static final int CREATED_AT = 32;
+    private static final int ADDRESS_REF = 40;
+    private static final int USER_NAME_REF = 44;
+    private static final int TYPE_NAME_REF = 48;
+    
+    /** Size of one record in bytes */
+    public static final int RECORD_SIZE = 52;
+    
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+    
+    private final StringDictionary statuses = new StringDictionary();
+    private final StringDictionary addresses = new StringDictionary();
+    private final StringDictionary names = new StringDictionary();
+    
+    private ByteBuffer records;
+    private int size;
+    
+    /**
+     * Constructor
+     * @param initialCapacity Number of records to reserve space for
+     */
+    public RequestRecordStore(int initialCapacity) {
+        this.records = ByteBuffer.allocateDirect(Math.max(16, initialCapacity) * RECORD_SIZE);
+    }
+    
+    /**
+     * Build a store holding the given requests
+     * @param requests Requests to pack
+     * @return RequestRecordStore object
+     */
+    public static RequestRecordStore of(List<WasteRequest> requests) {
+        RequestRecordStore store = new RequestRecordStore(requests.size());
+        for (WasteRequest request : requests) {
+            store.add(request);
+        }
+        return store;
+    }
+    
+    /**
+     * Append a request
+     * @param request WasteRequest to pack
+     */
+    public void add(WasteRequest request) {
+        if ((size + 1) * RECORD_SIZE > records.capacity()) {
+            grow();
+        }
+        
+        int offset = size * RECORD_SIZE;
+        records.putInt(offset + REQUEST_ID, request.getRequestId());
+        records.putInt(offset + USER_ID, request.getUserId());
+        records.putInt(offset + WASTE_TYPE, request.getWasteType());
+        records.putDouble(offset + QUANTITY, request.getQuantity());
+        records.putInt(offset + STATUS_REF, statuses.encode(request.getStatus()));
+        records.putInt(offset + REQUESTED_DAY, toEpochDay(request.getRequestedDate()));
+        records.putInt(offset + PICKUP_DAY, toEpochDay(request.getPickupDate()));
+        records.putLong(offset + CREATED_AT, request.getCreatedAt() == null ? NO_TIMESTAMP : request.getCreatedAt().getTime());
+        records.putInt(offset + ADDRESS_REF, addresses.encode(request.getAddress()));
+        records.putInt(offset + USER_NAME_REF, names.encode(request.getUserName()));
+        records.putInt(offset + TYPE_NAME_REF, names.encode(request.getWasteTypeName()));
+        size++;
+    }
+    
+    /**
+     * Get the number of records
+     * @return Record count
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Get the off-heap bytes used by the records
+     * @return Used bytes
+     */
+    public long getUsedBytes() {
+        return (long) size * RECORD_SIZE;
+    }
+    
+    // Field accessors by record index, for scans that do not need whole objects
+    public int getRequestId(int index) {
+        return records.getInt(offset(index) + REQUEST_ID);
+    }
+    
+    public int getUserId(int index) {
+        return records.getInt(offset(index) + USER_ID);
+    }
+    
+    public int getWasteType(int index) {
+        return records.getInt(offset(index) + WASTE_TYPE);
+    }
+    
+    public double getQuantity(int index) {
+        return records.getDouble(offset(index) + QUANTITY);
+    }
+    
+    public String getStatus(int index) {
+        return statuses.decode(records.getInt(offset(index) + STATUS_REF));
+    }
+    
+    /**
+     * Get the requested date of a record as an epoch day
+     * @param index Record index
+     * @return Epoch day, or Integer.MIN_VALUE if the date is not set
+     */
+    public int getRequestedEpochDay(int index) {
+        return records.getInt(offset(index) + REQUESTED_DAY);
+    }
+    
+    /**
+     * Get the pickup date of a record as an epoch day
+     * @param index Record index
+     * @return Epoch day, or Integer.MIN_VALUE if the date is not set
+     */
+    public int getPickupEpochDay(int index) {
+        return records.getInt(offset(index) + PICKUP_DAY);
+    }
+    
+    public String getAddress(int index) {
+        return addresses.decode(records.getInt(offset(index) + ADDRESS_REF));
+    }
+    
+    /**
+     * Rebuild the WasteRequest object of a record
+     * @param index Record index
+     * @return WasteRequest object
+     */
+    public WasteRequest get(int index) {
+        int offset = offset(index);
+        long createdAt = records.getLong(offset + CREATED_AT);
+        
+        WasteRequest request = new WasteRequest(
+            records.getInt(offset + REQUEST_ID),
+            records.getInt(offset + USER_ID),
+            records.getInt(offset + WASTE_TYPE),
+            records.getDouble(offset + QUANTITY),
+            addresses.decode(records.getInt(offset + ADDRESS_REF)),
+            statuses.decode(records.getInt(offset + STATUS_REF)),
+            toDate(records.getInt(offset + REQUESTED_DAY)),
+            toDate(records.getInt(offset + PICKUP_DAY)),
+            createdAt == NO_TIMESTAMP ? null : new Timestamp(createdAt)
+        );
+        request.setUserName(names.decode(records.getInt(offset + USER_NAME_REF)));
+        request.setWasteTypeName(names.decode(records.getInt(offset + TYPE_NAME_REF)));
+        return request;
+    }
+    
+    /**
+     * Rebuild all records as WasteRequest objects
+     * @return List of waste requests in insertion order
+     */
+    public List<WasteRequest> toList() {
+        List<WasteRequest> requests = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            requests.add(get(i));
+        }
+        return requests;
+    }
+    
+    private int offset(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Record " + index + " of " + size);
+        }
+        return index * RECORD_SIZE;
+    }
+    
+    private void grow() {
+        ByteBuffer larger = ByteBuffer.allocateDirect(records.capacity() * 2);
+        ByteBuffer used = records.duplicate();
+        used.position(0);
+        used.limit(size * RECORD_SIZE);
+        larger.put(used);
+        records = larger;
+    }
+    
+    private static int toEpochDay(Date date) {
+        return date == null ? NO_DATE : (int) date.toLocalDate().toEpochDay();
+    }
+    
+    private static Date toDate(int epochDay) {
+        return epochDay == NO_DATE ? null : Date.valueOf(LocalDate.ofEpochDay(epochDay));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,55 @@
+package cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps repeated strings to small integer codes so that records can store a
+ * fixed-width reference instead of a String. Null is encoded as -1.
+ * Not thread-safe while being filled; safe to read once published.
+ */
+public class StringDictionary {
+    
+    public static final int NULL_CODE = -1;
+    
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+    
+    /**
+     * Get the code of a string, adding it if it is new
+     * @param value String to encode, may be null
+     * @return Code of the string
+     */
+    public int encode(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+        }
+        return code;
+    }
+    
+    /**
+     * Get the string for a code
+     * @param code Code returned by encode()
+     * @return String, or null for NULL_CODE
+     */
+    public String decode(int code) {
+        return code == NULL_CODE ? null : values.get(code);
+    }
+    
+    /**
+     * Get the number of distinct strings
+     * @return Dictionary size
+     */
+    public int size() {
+        return values.size();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,34 @@
+package cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Table rows saved by a previous session, with the time they were loaded
+ */
+public class TableSnapshot {
+    private final long savedAt;
+    private final int columnCount;
+    private final List<Object[]> rows;
+    
+    // Constructor with all fields
+    public TableSnapshot(long savedAt, int columnCount, List<Object[]> rows) {
+        this.savedAt = savedAt;
+        this.columnCount = columnCount;
+        this.rows = Collections.unmodifiableList(new ArrayList<>(rows));
+    }
+    
+    // Getters
+    public long getSavedAt() {
+        return savedAt;
+    }
+    
+    public int getColumnCount() {
+        return columnCount;
+    }
+    
+    public List<Object[]> getRows() {
+        return rows;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,259 @@
+package cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Local store for the last rows shown in each dashboard table.
+ * Each table is saved to its own compact binary file under
+ * ~/.wastewise/snapshots and read back in one read, so a dashboard can show
+ * the previous session's data before the database answers. Files are read
+ * rather than memory-mapped: on Windows a mapping that outlives the read
+ * keeps the next save from replacing the file. Snapshots hold user data, so
+ * the directory and files are readable by their owner only, and the
+ * dashboards delete theirs on logout.
+ *
+ * File layout: magic, format version, save time, column count, row count, then
+ * one tagged value per cell. Supported cell types are the ones the dashboards
+ * display: Integer, Double, String, java.sql.Date and Timestamp.
+ */
+public class TableSnapshotStore {
+    
+    private static final int MAGIC = 0x57575331; // "WWS1"
+    private static final int FORMAT_VERSION = 1;
+    
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_INT = 1;
+    private static final byte TAG_DOUBLE = 2;
+    private static final byte TAG_STRING = 3;
+    private static final byte TAG_DATE = 4;
+    private static final byte TAG_TIMESTAMP = 5;
+    
+    private static final TableSnapshotStore INSTANCE = new TableSnapshotStore(
+            Paths.get(System.getProperty("user.home"), ".wastewise", "snapshots"));
+    
+    private final Path directory;
+    
+    /**
+     * Constructor
+     * @param directory Directory holding the snapshot files
+     */
+    public TableSnapshotStore(Path directory) {
+        this.directory = directory;
+    }
+    
+    /**
+     * Get the shared store instance
+     * @return TableSnapshotStore instance
+     */
+    public static TableSnapshotStore getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Save the rows of a table, replacing any previous snapshot
+     * @param name Snapshot name, e.g. "resident-requests-42"
+     * @param columnCount Number of columns in each row
+     * @param rows Rows to save
+     * @return true if successful, false otherwise
+     */
+    public boolean save(String name, int columnCount, List<Object[]> rows) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + rows.size() * columnCount * 16);
+        
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(columnCount);
+            out.writeInt(rows.size());
+            
+            for (Object[] row : rows) {
+                for (int column = 0; column < columnCount; column++) {
+                    writeValue(out, column < row.length ? row[column] : null);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error encoding table snapshot: " + e.getMessage());
+            return false;
+        }
+        
+        Path file = fileFor(name);
+        
+        try {
+            createPrivateDirectory();
+            Path tempFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            restrictToOwner(tempFile, false);
+            Files.write(tempFile, bytes.toByteArray());
+            try {
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
+        
+        } catch (IOException e) {
+            System.err.println("Error saving table snapshot: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Load the rows of a table saved by an earlier session
+     * @param name Snapshot name
+     * @return TableSnapshot object if a readable snapshot exists, null otherwise
+     */
+    public TableSnapshot load(String name) {
+        Path file = fileFor(name);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+            
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                return null;
+            }
+            
+            long savedAt = buffer.getLong();
+            int columnCount = buffer.getInt();
+            int rowCount = buffer.getInt();
+            if (columnCount < 0 || rowCount < 0 || (long) columnCount * rowCount > buffer.remaining()) {
+                return null;
+            }
+            
+            List<Object[]> rows = new ArrayList<>(rowCount);
+            for (int i = 0; i < rowCount; i++) {
+                Object[] row = new Object[columnCount];
+                for (int column = 0; column < columnCount; column++) {
+                    row[column] = readValue(buffer);
+                }
+                rows.add(row);
+            }
+            
+            return new TableSnapshot(savedAt, columnCount, rows);
+        
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            System.err.println("Error reading table snapshot: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Delete the snapshot of a table
+     * @param name Snapshot name
+     */
+    public void delete(String name) {
+        try {
+            Files.deleteIfExists(fileFor(name));
+        } catch (IOException e) {
+            System.err.println("Error deleting table snapshot: " + e.getMessage());
+        }
+    }
+    
+    private void createPrivateDirectory() throws IOException {
+        if (Files.isDirectory(directory)) {
+            restrictToOwner(directory, true);
+            return;
+        }
+        if (isPosix()) {
+            Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(
+                    PosixFilePermissions.fromString("rwx------")));
+        } else {
+            Files.createDirectories(directory);
+            restrictToOwner(directory, true);
+        }
+    }
+    
+    private void restrictToOwner(Path path, boolean isDirectory) throws IOException {
+        if (isPosix()) {
+            Files.setPosixFilePermissions(path, PosixFilePermissions.fromString(isDirectory ? "rwx------" : "rw-------"));
+        } else {
+            File file = path.toFile();
+            file.setReadable(false, false);
+            file.setReadable(true, true);
+            file.setWritable(false, false);
+            file.setWritable(true, true);
+            if (isDirectory) {
+                file.setExecutable(false, false);
+                file.setExecutable(true, true);
+            }
+        }
+    }
+    
+    private boolean isPosix() {
+        return directory.getFileSystem().supportedFileAttributeViews().contains("posix");
+    }
+    
+    private Path fileFor(String name) {
+        return directory.resolve(name.replaceAll("[^A-Za-z0-9._-]", "_") + ".snap");
+    }
+    
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TAG_NULL);
+        } else if (value instanceof Integer) {
+            out.writeByte(TAG_INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Double) {
+            out.writeByte(TAG_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Timestamp) {
+            Timestamp timestamp = (Timestamp) value;
+            out.writeByte(TAG_TIMESTAMP);
+            out.writeLong(timestamp.getTime());
+            out.writeInt(timestamp.getNanos());
+        } else if (value instanceof Date) {
+            out.writeByte(TAG_DATE);
+            out.writeLong(((Date) value).getTime());
+        } else {
+            byte[] utf8 = value.toString().getBytes(StandardCharsets.UTF_8);
+            out.writeByte(TAG_STRING);
+            out.writeInt(utf8.length);
+            out.write(utf8);
+        }
+    }
+    
+    private static Object readValue(ByteBuffer buffer) {
+        byte tag = buffer.get();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_INT:
+                return buffer.getInt();
+            case TAG_DOUBLE:
+                return buffer.getDouble();
+            case TAG_STRING:
+                int length = buffer.getInt();
+                if (length < 0 || length > buffer.remaining()) {
+                    throw new IllegalArgumentException("bad string length " + length);
+                }
+                byte[] utf8 = new byte[length];
+                buffer.get(utf8);
+                return new String(utf8, StandardCharsets.UTF_8);
+            case TAG_DATE:
+                return new Date(buffer.getLong());
+            case TAG_TIMESTAMP:
+                Timestamp timestamp = new Timestamp(buffer.getLong());
+                timestamp.setNanos(buffer.getInt());
+                return timestamp;
+            default:
+                throw new IllegalArgumentException("unknown cell tag " + tag);
+        }
+    }
+}
\ No newline at end of file
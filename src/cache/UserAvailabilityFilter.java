@@ -0,0 +1,178 @@
+package cache;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Bloom filters over every registered username and email address.
+ * Registration uses them to answer "available" without a database round trip:
+ * if a value is not in the filter it is definitely not taken, and only a
+ * possible match has to be confirmed with SQL. The UNIQUE constraints on
+ * the users table remain the final check.
+ */
+public class UserAvailabilityFilter {
+    
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final long MIN_CAPACITY = 10000;
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    
+    private static final UserAvailabilityFilter INSTANCE = new UserAvailabilityFilter();
+    
+    private volatile BloomFilter usernames = null;
+    private volatile BloomFilter emails = null;
+    
+    // Filters being filled by a rebuild; values added meanwhile go into both sets
+    private BloomFilter pendingUsernames = null;
+    private BloomFilter pendingEmails = null;
+    
+    // Values added to each filter since it was built; a registration adds to both,
+    // an email change only to the emails
+    private final AtomicLong usernameInsertions = new AtomicLong();
+    private final AtomicLong emailInsertions = new AtomicLong();
+    
+    private boolean rebuildClaimed = false;
+    
+    private UserAvailabilityFilter() {}
+    
+    /**
+     * Get the shared filter instance
+     * @return UserAvailabilityFilter instance
+     */
+    public static UserAvailabilityFilter getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Check whether the filters are built and still within their sized capacity
+     * @return true if the filters can be used to answer lookups
+     */
+    public boolean isReady() {
+        BloomFilter current = usernames;
+        return current != null && usernameInsertions.get() <= current.getExpectedInsertions()
+                && emailInsertions.get() <= current.getExpectedInsertions();
+    }
+    
+    /**
+     * Check whether the filters have taken more values than they were sized for,
+     * and if so claim the rebuild for the caller. Only one caller is told to
+     * rebuild until that rebuild completes or is cancelled.
+     * @return true if the caller should rebuild the filters
+     */
+    public synchronized boolean claimRebuild() {
+        if (usernames == null || rebuildClaimed || pendingUsernames != null || isReady()) {
+            return false;
+        }
+        rebuildClaimed = true;
+        return true;
+    }
+    
+    /**
+     * Start a rebuild sized for the given number of users
+     * @param userCount Number of users currently registered
+     */
+    public synchronized void beginBuild(long userCount) {
+        long capacity = Math.max(MIN_CAPACITY, userCount * 2);
+        pendingUsernames = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+        pendingEmails = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+    }
+    
+    /**
+     * Add an existing user to the filters being rebuilt
+     * @param username Username
+     * @param email Email address
+     */
+    public synchronized void addToBuild(String username, String email) {
+        if (pendingUsernames != null) {
+            pendingUsernames.add(key(username));
+            pendingEmails.add(key(email));
+        }
+    }
+    
+    /**
+     * Replace the live filters with the rebuilt ones
+     * @param userCount Number of users added to the rebuilt filters
+     */
+    public synchronized void completeBuild(long userCount) {
+        if (pendingUsernames == null) {
+            return;
+        }
+        usernames = pendingUsernames;
+        emails = pendingEmails;
+        usernameInsertions.set(userCount);
+        emailInsertions.set(userCount);
+        pendingUsernames = null;
+        pendingEmails = null;
+        rebuildClaimed = false;
+    }
+    
+    /**
+     * Abandon a rebuild that failed part way through
+     */
+    public synchronized void cancelBuild() {
+        pendingUsernames = null;
+        pendingEmails = null;
+        rebuildClaimed = false;
+    }
+    
+    /**
+     * Record a newly registered or changed username and email
+     * @param username Username (may be null if unchanged)
+     * @param email Email address (may be null if unchanged)
+     */
+    public synchronized void add(String username, String email) {
+        if (username != null) {
+            addTo(usernames, pendingUsernames, username);
+            usernameInsertions.incrementAndGet();
+        }
+        if (email != null) {
+            addTo(emails, pendingEmails, email);
+            emailInsertions.incrementAndGet();
+        }
+    }
+    
+    /**
+     * Check whether a username may already be taken
+     * @param username Username to check
+     * @return false if it is definitely available, true if it must be checked in the database
+     */
+    public boolean mightContainUsername(String username) {
+        BloomFilter current = usernames;
+        return current == null || current.mightContain(key(username));
+    }
+    
+    /**
+     * Check whether an email address may already be taken
+     * @param email Email to check
+     * @return false if it is definitely available, true if it must be checked in the database
+     */
+    public boolean mightContainEmail(String email) {
+        BloomFilter current = emails;
+        return current == null || current.mightContain(key(email));
+    }
+    
+    private static void addTo(BloomFilter live, BloomFilter pending, String value) {
+        if (live != null) {
+            live.add(key(value));
+        }
+        if (pending != null) {
+            pending.add(key(value));
+        }
+    }
+    
+    /**
+     * Normalize a value the way MySQL's utf8mb4_0900_ai_ci collation compares it:
+     * case- and accent-insensitively, with compatibility forms and the sharp s folded as well.
+     * Folding more values together only adds false positives, never false negatives.
+     */
+    private static String key(String value) {
+        if (value == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(value.trim(), Normalizer.Form.NFKD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("")
+                .toLowerCase(Locale.ROOT)
+                .replace("\u00df", "ss");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,290 @@
+package cache;
+
+import models.User;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Size-bounded, time-limited cache of users indexed by ID, username and role.
+ * Lookups are lock-free; writes and invalidations are serialized so that a
+ * database read which raced with an update can never be stored. Once the cache
+ * holds more than its maximum size the oldest entries are evicted first.
+ */
+public class UserCache {
+    
+    private static final int DEFAULT_MAX_SIZE = 10000;
+    private static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    
+    private static final UserCache INSTANCE = new UserCache(DEFAULT_MAX_SIZE, DEFAULT_TTL_MILLIS);
+    
+    private final int maxSize;
+    private final long ttlMillis;
+    
+    private final Map<Integer, Entry> byId = new ConcurrentHashMap<>();
+    private final Map<String, Integer> idByUsername = new ConcurrentHashMap<>();
+    private final Map<String, RoleEntry> byRole = new ConcurrentHashMap<>();
+    // Guarded by this; may hold entries that were since replaced or removed
+    private final ArrayDeque<Entry> insertionOrder = new ArrayDeque<>();
+    
+    private final AtomicLong version = new AtomicLong();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    
+    /**
+     * Constructor
+     * @param maxSize Maximum number of users held at once
+     * @param ttlMillis Time after which a cached user is reloaded
+     */
+    public UserCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+    }
+    
+    /**
+     * Get the shared cache instance
+     * @return UserCache instance
+     */
+    public static UserCache getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Get the current version, to be passed to put() once the database read completes
+     * @return Current cache version
+     */
+    public long getVersion() {
+        return version.get();
+    }
+    
+    /**
+     * Get a cached user by ID
+     * @param userId User ID
+     * @return Copy of the cached user, or null on a miss
+     */
+    public User getById(int userId) {
+        Entry entry = byId.get(userId);
+        if (entry == null) {
+            missCount.increment();
+            return null;
+        }
+        
+        if (entry.isExpired()) {
+            expire(entry);
+            missCount.increment();
+            return null;
+        }
+        
+        hitCount.increment();
+        return copyOf(entry.user);
+    }
+    
+    /**
+     * Get a cached user by username
+     * @param username Username (matched case-insensitively, like the database)
+     * @return Copy of the cached user, or null on a miss
+     */
+    public User getByUsername(String username) {
+        Integer userId = idByUsername.get(usernameKey(username));
+        if (userId == null) {
+            missCount.increment();
+            return null;
+        }
+        
+        return getById(userId);
+    }
+    
+    /**
+     * Get the cached list of users with a role
+     * @param role Role name
+     * @return Copies of the cached users, or null on a miss
+     */
+    public List<User> getByRole(String role) {
+        RoleEntry entry = byRole.get(role);
+        if (entry == null || entry.isExpired()) {
+            if (entry != null) {
+                byRole.remove(role, entry);
+                evictionCount.increment();
+            }
+            missCount.increment();
+            return null;
+        }
+        
+        hitCount.increment();
+        List<User> users = new ArrayList<>(entry.users.size());
+        for (User user : entry.users) {
+            users.add(copyOf(user));
+        }
+        return users;
+    }
+    
+    /**
+     * Store a user read from the database
+     * @param user User to cache
+     * @param expectedVersion Version returned by getVersion() before the read started
+     */
+    public synchronized void put(User user, long expectedVersion) {
+        if (version.get() != expectedVersion) {
+            return;
+        }
+        store(user);
+        evictIfNeeded();
+    }
+    
+    /**
+     * Store the list of users with a role, as read from the database
+     * @param role Role name
+     * @param users Users with that role
+     * @param expectedVersion Version returned by getVersion() before the read started
+     */
+    public synchronized void putRole(String role, List<User> users, long expectedVersion) {
+        if (version.get() != expectedVersion) {
+            return;
+        }
+        
+        List<User> copies = new ArrayList<>(users.size());
+        for (User user : users) {
+            copies.add(copyOf(user));
+            store(user);
+        }
+        byRole.put(role, new RoleEntry(copies, System.currentTimeMillis() + ttlMillis));
+        evictIfNeeded();
+    }
+    
+    /**
+     * Remove a user and every role list, since the user's role may have changed
+     * @param userId ID of the user that was written
+     */
+    public synchronized void invalidate(int userId) {
+        version.incrementAndGet();
+        Entry entry = byId.remove(userId);
+        if (entry != null) {
+            idByUsername.remove(usernameKey(entry.user.getUsername()), userId);
+        }
+        byRole.clear();
+    }
+    
+    /**
+     * Remove every role list, e.g. after a user was added
+     */
+    public synchronized void invalidateRoles() {
+        version.incrementAndGet();
+        byRole.clear();
+    }
+    
+    /**
+     * Remove everything from the cache
+     */
+    public synchronized void invalidateAll() {
+        version.incrementAndGet();
+        byId.clear();
+        idByUsername.clear();
+        byRole.clear();
+        insertionOrder.clear();
+    }
+    
+    /**
+     * Get a snapshot of the cache counters
+     * @return CacheStats object
+     */
+    public CacheStats getStats() {
+        return new CacheStats(hitCount.sum(), missCount.sum(), evictionCount.sum(), byId.size());
+    }
+    
+    private void store(User user) {
+        Entry entry = new Entry(copyOf(user), System.currentTimeMillis() + ttlMillis);
+        Entry previous = byId.put(user.getUserId(), entry);
+        if (previous != null) {
+            idByUsername.remove(usernameKey(previous.user.getUsername()), user.getUserId());
+        }
+        idByUsername.put(usernameKey(user.getUsername()), user.getUserId());
+        insertionOrder.add(entry);
+        
+        if (insertionOrder.size() > 2 * maxSize) {
+            compactInsertionOrder();
+        }
+    }
+    
+    private void compactInsertionOrder() {
+        Iterator<Entry> iterator = insertionOrder.iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (byId.get(entry.user.getUserId()) != entry) {
+                iterator.remove();
+            }
+        }
+    }
+    
+    private void evictIfNeeded() {
+        while (byId.size() > maxSize) {
+            Entry oldest = insertionOrder.poll();
+            if (oldest == null) {
+                break;
+            }
+            // Skip queue entries that were already replaced or invalidated
+            if (byId.remove(oldest.user.getUserId(), oldest)) {
+                idByUsername.remove(usernameKey(oldest.user.getUsername()), oldest.user.getUserId());
+                evictionCount.increment();
+            }
+        }
+    }
+    
+    private void expire(Entry entry) {
+        if (byId.remove(entry.user.getUserId(), entry)) {
+            idByUsername.remove(usernameKey(entry.user.getUsername()), entry.user.getUserId());
+            evictionCount.increment();
+        }
+    }
+    
+    private static String usernameKey(String username) {
+        return username == null ? "" : username.trim().toLowerCase(Locale.ROOT);
+    }
+    
+    private static User copyOf(User user) {
+        return new User(user.getUserId(), user.getUsername(), user.getPassword(), user.getFullName(),
+                user.getRole(), user.getEmail(), user.getPhone(), user.getCreatedAt());
+    }
+    
+    /**
+     * Cached user with its expiry time
+     */
+    private static class Entry {
+        private final User user;
+        private final long expiresAt;
+        
+        Entry(User user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+        
+        boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
+    
+    /**
+     * Cached role list with its expiry time
+     */
+    private static class RoleEntry {
+        private final List<User> users;
+        private final long expiresAt;
+        
+        RoleEntry(List<User> users, long expiresAt) {
+            this.users = users;
+            this.expiresAt = expiresAt;
+        }
+        
+        boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,143 @@
+package cache;
+
+import models.WasteType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process cache for waste type reference data.
+ * Waste types change rarely, so the whole table is held in memory both by ID
+ * and as a list sorted by name. The cache is filled by WasteTypeDAO on first
+ * use and cleared whenever a waste type is added, updated or deleted.
+ */
+public class WasteTypeCache {
+    
+    private static final WasteTypeCache INSTANCE = new WasteTypeCache();
+    
+    private final AtomicLong version = new AtomicLong();
+    
+    private volatile Snapshot snapshot = null;
+    
+    private WasteTypeCache() {}
+    
+    /**
+     * Get the shared cache instance
+     * @return WasteTypeCache instance
+     */
+    public static WasteTypeCache getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Check whether the cache currently holds data
+     * @return true if loaded, false otherwise
+     */
+    public boolean isLoaded() {
+        return snapshot != null;
+    }
+    
+    /**
+     * Get the current version, to be passed to load() once the database read completes
+     * @return Current cache version
+     */
+    public long getVersion() {
+        return version.get();
+    }
+    
+    /**
+     * Fill the cache with waste types read from the database.
+     * The data is discarded if the cache was invalidated while it was being read.
+     * @param wasteTypes Waste types as read from the database
+     * @param expectedVersion Version returned by getVersion() before the read started
+     */
+    public void load(List<WasteType> wasteTypes, long expectedVersion) {
+        Snapshot loaded = new Snapshot(wasteTypes);
+        synchronized (this) {
+            if (version.get() == expectedVersion) {
+                snapshot = loaded;
+            }
+        }
+    }
+    
+    /**
+     * Clear the cache so the next lookup reloads from the database
+     */
+    public synchronized void invalidate() {
+        version.incrementAndGet();
+        snapshot = null;
+    }
+    
+    /**
+     * Get all cached waste types sorted by name
+     * @return List of waste types, or null if the cache is not loaded
+     */
+    public List<WasteType> getAll() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return null;
+        }
+        
+        List<WasteType> wasteTypes = new ArrayList<>(current.sorted.size());
+        for (WasteType wasteType : current.sorted) {
+            wasteTypes.add(copyOf(wasteType));
+        }
+        return wasteTypes;
+    }
+    
+    /**
+     * Get a cached waste type by its ID
+     * @param typeId Waste type ID
+     * @return WasteType object, or null if unknown or the cache is not loaded
+     */
+    public WasteType getById(int typeId) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return null;
+        }
+        
+        WasteType wasteType = current.byId.get(typeId);
+        return wasteType != null ? copyOf(wasteType) : null;
+    }
+    
+    /**
+     * Get the names of all cached waste types keyed by type ID
+     * @return Unmodifiable map of type ID to name, or null if the cache is not loaded
+     */
+    public Map<Integer, String> getTypeNames() {
+        Snapshot current = snapshot;
+        return current != null ? current.names : null;
+    }
+    
+    private static WasteType copyOf(WasteType wasteType) {
+        return new WasteType(wasteType.getTypeId(), wasteType.getTypeName(), wasteType.getDescription());
+    }
+    
+    /**
+     * Immutable view of the waste types table
+     */
+    private static class Snapshot {
+        private final Map<Integer, WasteType> byId;
+        private final List<WasteType> sorted;
+        private final Map<Integer, String> names;
+        
+        Snapshot(List<WasteType> wasteTypes) {
+            Map<Integer, WasteType> map = new HashMap<>();
+            Map<Integer, String> typeNames = new HashMap<>();
+            List<WasteType> list = new ArrayList<>(wasteTypes.size());
+            for (WasteType wasteType : wasteTypes) {
+                WasteType copy = copyOf(wasteType);
+                map.put(copy.getTypeId(), copy);
+                typeNames.put(copy.getTypeId(), copy.getTypeName());
+                list.add(copy);
+            }
+            this.byId = Collections.unmodifiableMap(map);
+            this.sorted = Collections.unmodifiableList(list);
+            this.names = Collections.unmodifiableMap(typeNames);
+        }
+    }
+}
\ No newline at end of file
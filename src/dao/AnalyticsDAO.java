@@ -0,0 +1,216 @@
+package dao;
+
+import analytics.RequestColumns;
+import utils.DatabaseConnection;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Data Access Object keeping an in-memory columnar copy of the waste requests
+ * and their assignments, for reports over millions of rows.
+ * The first use loads every request. After that, each use only loads the
+ * requests added since (looking back a little, as IDs can commit out of
+ * order) and reloads the requests named in cache invalidations, whether the
+ * write was made here or in another client instance.
+ * ReportDAO answers the reports the rollups cannot, including the latency
+ * percentiles, from this copy instead of scanning the raw tables each time.
+ * It holds every request in client memory; -Dwastewise.reports.columnar=false
+ * turns it off, and ReportDAO falls back to SQL then or when a load fails.
+ */
+public class AnalyticsDAO {
+    
+    static final String ENABLED_PROPERTY = "wastewise.reports.columnar";
+    
+    private static final int LOOKBACK = 50;
+    private static final int RELOAD_BATCH_SIZE = 500;
+    
+    private static final String SELECT_ROWS =
+            "SELECT r.request_id, r.user_id, r.waste_type, r.quantity, r.address, r.status, r.requested_date, " +
+            "a.assignment_id, a.collector_id, a.status AS assignment_status, " +
+            "TIMESTAMPDIFF(SECOND, r.created_at, a.assigned_date) AS assign_seconds, " +
+            "TIMESTAMPDIFF(SECOND, a.assigned_date, a.completed_at) AS complete_seconds " +
+            "FROM waste_requests r LEFT JOIN assignments a ON a.request_id = r.request_id ";
+    
+    private static final Set<Integer> changedRequests = ConcurrentHashMap.newKeySet();
+    private static final Set<Integer> changedAssignments = ConcurrentHashMap.newKeySet();
+    
+    private static volatile boolean tracking = false;
+    private static RequestColumns columns = null;
+    
+    /**
+     * Check whether reports should be answered from the columnar copy
+     * @return true unless disabled by system property
+     */
+    public static boolean isEnabled() {
+        return !"false".equalsIgnoreCase(System.getProperty(ENABLED_PROPERTY));
+    }
+    
+    /**
+     * Note that a request must be reloaded before the next report
+     * @param requestId Waste request ID
+     */
+    static void requestChanged(int requestId) {
+        if (tracking) {
+            changedRequests.add(requestId);
+        }
+    }
+    
+    /**
+     * Note that the request of an assignment must be reloaded before the next report
+     * @param assignmentId Assignment ID
+     */
+    static void assignmentChanged(int assignmentId) {
+        if (tracking) {
+            changedAssignments.add(assignmentId);
+        }
+    }
+    
+    /**
+     * Get the columnar copy, brought up to date with the database
+     * @return RequestColumns object, or null if it could not be loaded
+     */
+    public static synchronized RequestColumns getColumns() {
+        try {
+            if (columns == null) {
+                // Track changes from now on, so none committed during the load is lost
+                tracking = true;
+                RequestColumns loaded = new RequestColumns();
+                loadRows(loaded, "WHERE r.request_id > ?", Collections.singletonList(0), null, true);
+                columns = loaded;
+            }
+            refresh();
+            return columns;
+        
+        } catch (SQLException e) {
+            System.err.println("Error loading request columns: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Append new requests and reload changed ones
+     */
+    private static void refresh() throws SQLException {
+        Set<Integer> requestIds = drain(changedRequests);
+        Set<Integer> assignmentIds = drain(changedAssignments);
+        
+        try {
+            for (int assignmentId : assignmentIds) {
+                int requestId = columns.findRequestForAssignment(assignmentId);
+                if (requestId != 0) {
+                    requestIds.add(requestId);
+                }
+            }
+            
+            int since = Math.max(0, columns.getMaxRequestId() - LOOKBACK);
+            loadRows(columns, "WHERE r.request_id > ?", Collections.singletonList(since), null, false);
+            
+            List<Integer> batch = new ArrayList<>(RELOAD_BATCH_SIZE);
+            Iterator<Integer> iterator = requestIds.iterator();
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                if (batch.size() == RELOAD_BATCH_SIZE || !iterator.hasNext()) {
+                    reloadRows(batch);
+                    batch.clear();
+                }
+            }
+            
+        } catch (SQLException e) {
+            // Try these again next time
+            changedRequests.addAll(requestIds);
+            changedAssignments.addAll(assignmentIds);
+            throw e;
+        }
+    }
+    
+    /**
+     * Reload the given requests, removing those that no longer exist
+     */
+    private static void reloadRows(List<Integer> requestIds) throws SQLException {
+        StringBuilder where = new StringBuilder("WHERE r.request_id IN (");
+        for (int i = 0; i < requestIds.size(); i++) {
+            where.append(i == 0 ? "?" : ", ?");
+        }
+        where.append(")");
+        
+        Set<Integer> found = new HashSet<>();
+        loadRows(columns, where.toString(), requestIds, found, false);
+        for (int requestId : requestIds) {
+            if (!found.contains(requestId)) {
+                columns.remove(requestId);
+            }
+        }
+    }
+    
+    /**
+     * Upsert the rows matching a condition into a columnar table
+     * @param target Table to fill
+     * @param where WHERE clause with one placeholder per parameter
+     * @param params Integer parameters
+     * @param found Set to add the loaded request IDs to, or null
+     * @param stream true to stream a large result instead of buffering it
+     */
+    private static void loadRows(RequestColumns target, String where, List<Integer> params, Set<Integer> found,
+            boolean stream) throws SQLException {
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SELECT_ROWS + where)) {
+            
+            if (stream) {
+                // Connector/J streams rows one at a time with this fetch size
+                stmt.setFetchSize(Integer.MIN_VALUE);
+            }
+            for (int i = 0; i < params.size(); i++) {
+                stmt.setInt(i + 1, params.get(i));
+            }
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int requestId = rs.getInt("request_id");
+                    target.upsert(
+                        requestId,
+                        rs.getInt("user_id"),
+                        rs.getInt("waste_type"),
+                        rs.getDouble("quantity"),
+                        rs.getString("address"),
+                        rs.getString("status"),
+                        (int) rs.getDate("requested_date").toLocalDate().toEpochDay(),
+                        rs.getInt("assignment_id"),
+                        rs.getInt("collector_id"),
+                        rs.getString("assignment_status"),
+                        seconds(rs, "assign_seconds"),
+                        seconds(rs, "complete_seconds")
+                    );
+                    if (found != null) {
+                        found.add(requestId);
+                    }
+                }
+            }
+        }
+    }
+    
+    private static int seconds(ResultSet rs, String column) throws SQLException {
+        long seconds = rs.getLong(column);
+        if (rs.wasNull()) {
+            return RequestColumns.NO_LATENCY;
+        }
+        return (int) Math.max(Integer.MIN_VALUE + 1, Math.min(Integer.MAX_VALUE, seconds));
+    }
+    
+    private static Set<Integer> drain(Set<Integer> changed) {
+        Set<Integer> drained = new HashSet<>();
+        Iterator<Integer> iterator = changed.iterator();
+        while (iterator.hasNext()) {
+            drained.add(iterator.next());
+            iterator.remove();
+        }
+        return drained;
+    }
+}
\ No newline at end of file
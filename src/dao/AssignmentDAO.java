@@ -1,47 +1,378 @@
 package dao;
 
+import cache.QueryCache;
+import dispatch.CollectorLoad;
 import models.Assignment;
+import models.WasteRequest;
 import utils.DatabaseConnection;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Data Access Object for Assignment-related database operations
  */
 public class AssignmentDAO {
     
+    // Lifecycle timestamps, each taking the new status as a parameter. A
+    // timestamp is kept while the assignment stays at or past its step and
+    // cleared if the assignment moves back.
+    private static final String IN_PROGRESS_AT_FOR_STATUS =
+            "IF(? IN ('In Progress', 'Completed'), COALESCE(in_progress_at, CURRENT_TIMESTAMP), NULL)";
+    private static final String COMPLETED_AT_FOR_STATUS =
+            "IF(? = 'Completed', COALESCE(completed_at, CURRENT_TIMESTAMP), NULL)";
+    
+    private static final int MAX_IDS_PER_QUERY = 500;
+    
+    private final WasteTypeDAO wasteTypeDAO = new WasteTypeDAO();
+    private final UserDAO userDAO = new UserDAO();
+    private final QueryCache queryCache = QueryCache.getInstance();
+    private final RollupDAO rollupDAO = new RollupDAO();
+    
     /**
      * Add a new assignment to the database
      * @param assignment Assignment object to add
      * @return true if successful, false otherwise
      */
     public boolean addAssignment(Assignment assignment) {
-        String query = "INSERT INTO assignments (request_id, collector_id, status) VALUES (?, ?, ?)";
+        try (Transaction tx = new Transaction()) {
+            
+            boolean added = insertAssignment(tx, assignment);
+            if (!added) {
+                return false;
+            }
+            tx.commit();
+            return true;
+            
+        } catch (SQLException e) {
+            System.err.println("Error adding assignment: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Claim the oldest pending request a collector can take and assign it to
+     * them. The request is locked with SKIP LOCKED, so collectors claiming at
+     * the same time each get a different request instead of waiting for one
+     * another or colliding on the assignment's unique request ID.
+     * @param collectorId Collector ID
+     * @param certified true if the collector may take waste types that require certification
+     * @param maxKg Largest quantity the collector has room for
+     * @return ID of the claimed request, 0 if no pending request fits, or -1 on error
+     */
+    public int claimNextRequest(int collectorId, boolean certified, double maxKg) {
+        // Only the request row is locked, so claimers never wait on the waste types read
+        String query = "SELECT wr.request_id FROM waste_requests wr " +
+                       "WHERE wr.status = 'Pending' AND wr.quantity <= ? " +
+                       "AND (? OR wr.waste_type NOT IN (SELECT type_id FROM waste_types WHERE requires_certification)) " +
+                       "ORDER BY wr.requested_date, wr.request_id LIMIT 1 " +
+                       "FOR UPDATE OF wr SKIP LOCKED";
         
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Transaction tx = new Transaction();
+             PreparedStatement stmt = tx.getConnection().prepareStatement(query)) {
+            
+            stmt.setDouble(1, maxKg);
+            stmt.setBoolean(2, certified);
+            
+            Assignment assignment;
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return 0;
+                }
+                assignment = new Assignment(rs.getInt("request_id"), collectorId);
+            }
+            
+            if (!insertAssignment(tx, assignment)) {
+                return -1;
+            }
+            tx.commit();
+            return assignment.getRequestId();
+            
+        } catch (SQLException e) {
+            System.err.println("Error claiming request: " + e.getMessage());
+            return -1;
+        }
+    }
+    
+    /**
+     * Insert an assignment and mark its request assigned as part of a larger write
+     * @param tx Transaction of the write
+     * @param assignment Assignment object to add; its ID is set
+     * @return true if the assignment was inserted, false otherwise
+     * @throws SQLException if the insert fails
+     */
+    private boolean insertAssignment(Transaction tx, Assignment assignment) throws SQLException {
+        String query = "INSERT INTO assignments (request_id, collector_id, status, in_progress_at, completed_at) " +
+                       "VALUES (?, ?, ?, IF(? IN ('In Progress', 'Completed'), CURRENT_TIMESTAMP, NULL), " +
+                       "IF(? = 'Completed', CURRENT_TIMESTAMP, NULL))";
+        
+        try (PreparedStatement stmt = tx.getConnection().prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
             
             stmt.setInt(1, assignment.getRequestId());
             stmt.setInt(2, assignment.getCollectorId());
             stmt.setString(3, assignment.getStatus());
+            stmt.setString(4, assignment.getStatus());
+            stmt.setString(5, assignment.getStatus());
             
             int rowsAffected = stmt.executeUpdate();
+            if (rowsAffected == 0) {
+                return false;
+            }
             
-            if (rowsAffected > 0) {
-                // Update the waste request status to "Assigned"
-                WasteRequestDAO requestDAO = new WasteRequestDAO();
-                requestDAO.updateRequestStatus(assignment.getRequestId(), "Assigned");
-                return true;
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                if (keys.next()) {
+                    assignment.setAssignmentId(keys.getInt(1));
+                    LockedAssignment added = lockAssignment(tx, keys.getInt(1));
+                    rollupDAO.applyAssignment(tx, added.collectorId, added.assignedDay, 1, completedCount(added.status));
+                    for (int rating : rollupDAO.findRatingsForRequest(tx, added.requestId)) {
+                        rollupDAO.applyRating(tx, added.collectorId, rating, 1);
+                    }
+                }
+            }
+        }
+        
+        // Update the waste request status to "Assigned"
+        WasteRequestDAO requestDAO = new WasteRequestDAO();
+        requestDAO.updateRequestStatus(tx, assignment.getRequestId(), "Assigned");
+        
+        tx.invalidate(CacheTags.ALL_ASSIGNMENTS, CacheTags.assignmentByRequest(assignment.getRequestId()),
+                CacheTags.assignmentsByCollector(assignment.getCollectorId()),
+                CacheTags.assignmentsByStatus(assignment.getStatus()));
+        return true;
+    }
+    
+    /**
+     * Add a batch of new assignments of pending requests in one transaction,
+     * e.g. a plan made by AssignmentPlanner. Requests that are no longer pending
+     * when the batch is saved are skipped; the rest are all saved or none are.
+     * @param assignments New assignments with request and collector set
+     * @return Number of assignments added, or -1 on error
+     */
+    public int addAssignments(List<Assignment> assignments) {
+        String insert = "INSERT INTO assignments (request_id, collector_id, status) VALUES (?, ?, 'Assigned')";
+        String update = "UPDATE waste_requests SET status = 'Assigned' WHERE request_id = ?";
+        
+        try (Transaction tx = new Transaction();
+             PreparedStatement insertStmt = tx.getConnection().prepareStatement(insert);
+             PreparedStatement updateStmt = tx.getConnection().prepareStatement(update)) {
+            
+            List<Integer> requestIds = new ArrayList<>(assignments.size());
+            for (Assignment assignment : assignments) {
+                requestIds.add(assignment.getRequestId());
             }
+            Map<Integer, WasteRequest> pending = lockPendingRequests(tx, requestIds);
             
-            return false;
+            // Rollup changes are summed per cell, so they cost a few statements for the whole batch
+            Map<String, RequestCell> requestCells = new HashMap<>();
+            Map<Integer, Integer> assignedByCollector = new HashMap<>();
+            Map<Integer, Integer> collectorByRequest = new HashMap<>();
+            Set<String> tags = new LinkedHashSet<>();
+            tags.add(CacheTags.ALL_ASSIGNMENTS);
+            tags.add(CacheTags.assignmentsByStatus("Assigned"));
+            tags.add(CacheTags.requestsByStatus("Assigned"));
+            
+            for (Assignment assignment : assignments) {
+                WasteRequest request = pending.remove(assignment.getRequestId());
+                if (request == null) {
+                    continue;
+                }
+                
+                insertStmt.setInt(1, request.getRequestId());
+                insertStmt.setInt(2, assignment.getCollectorId());
+                insertStmt.addBatch();
+                updateStmt.setInt(1, request.getRequestId());
+                updateStmt.addBatch();
+                
+                String key = request.getRequestedDate() + "/" + request.getWasteType();
+                RequestCell cell = requestCells.get(key);
+                if (cell == null) {
+                    cell = new RequestCell(request.getRequestedDate(), request.getWasteType());
+                    requestCells.put(key, cell);
+                }
+                cell.count++;
+                cell.quantity += request.getQuantity();
+                
+                Integer assigned = assignedByCollector.get(assignment.getCollectorId());
+                assignedByCollector.put(assignment.getCollectorId(), assigned == null ? 1 : assigned + 1);
+                collectorByRequest.put(request.getRequestId(), assignment.getCollectorId());
+                
+                tags.add(CacheTags.request(request.getRequestId()));
+                tags.add(CacheTags.assignmentsByCollector(assignment.getCollectorId()));
+            }
+            
+            if (collectorByRequest.isEmpty()) {
+                return 0;
+            }
+            insertStmt.executeBatch();
+            updateStmt.executeBatch();
+            
+            for (RequestCell cell : requestCells.values()) {
+                rollupDAO.applyRequests(tx, cell.day, cell.wasteType, "Pending", -cell.count, -cell.quantity);
+                rollupDAO.applyRequests(tx, cell.day, cell.wasteType, "Assigned", cell.count, cell.quantity);
+            }
+            Date today = currentDate(tx);
+            for (Map.Entry<Integer, Integer> assigned : assignedByCollector.entrySet()) {
+                rollupDAO.applyAssignment(tx, assigned.getKey(), today, assigned.getValue(), 0);
+            }
+            applyRatings(tx, collectorByRequest);
+            
+            tx.invalidate(tags.toArray(new String[0]));
+            tx.commit();
+            return collectorByRequest.size();
             
         } catch (SQLException e) {
-            System.err.println("Error adding assignment: " + e.getMessage());
-            return false;
+            System.err.println("Error adding assignments: " + e.getMessage());
+            return -1;
+        }
+    }
+    
+    /**
+     * Get the open work of every collector with assignments not yet completed
+     * @return Map of collector ID to open kg and stop count, or null on error
+     */
+    public Map<Integer, CollectorLoad> getOpenLoads() {
+        String query = "SELECT a.collector_id, COUNT(*) AS stops, SUM(wr.quantity) AS open_kg " +
+                       "FROM assignments a " +
+                       "JOIN waste_requests wr ON a.request_id = wr.request_id " +
+                       "WHERE a.status <> 'Completed' " +
+                       "GROUP BY a.collector_id";
+        Map<Integer, CollectorLoad> loads = new HashMap<>();
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            
+            while (rs.next()) {
+                int collectorId = rs.getInt("collector_id");
+                loads.put(collectorId, new CollectorLoad(collectorId, rs.getDouble("open_kg"), rs.getInt("stops")));
+            }
+            return loads;
+        
+        } catch (SQLException e) {
+            System.err.println("Error getting open collector loads: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Get the open work of one collector
+     * @param collectorId Collector ID
+     * @return Open kg and stop count (zero if all work is completed), or null on error
+     */
+    public CollectorLoad getOpenLoad(int collectorId) {
+        String query = "SELECT COUNT(*) AS stops, COALESCE(SUM(wr.quantity), 0) AS open_kg " +
+                       "FROM assignments a " +
+                       "JOIN waste_requests wr ON a.request_id = wr.request_id " +
+                       "WHERE a.collector_id = ? AND a.status <> 'Completed'";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            
+            stmt.setInt(1, collectorId);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return new CollectorLoad(collectorId, rs.getDouble("open_kg"), rs.getInt("stops"));
+            }
+        
+        } catch (SQLException e) {
+            System.err.println("Error getting open collector load: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Lock the requests that are still pending, one IN query per batch of IDs
+     * @param tx Transaction of the write
+     * @param requestIds Request IDs
+     * @return Pending requests by ID, with waste type, quantity and requested date set
+     * @throws SQLException if the query fails
+     */
+    private Map<Integer, WasteRequest> lockPendingRequests(Transaction tx, List<Integer> requestIds) throws SQLException {
+        Map<Integer, WasteRequest> pending = new HashMap<>();
+        
+        for (int start = 0; start < requestIds.size(); start += MAX_IDS_PER_QUERY) {
+            List<Integer> batch = requestIds.subList(start, Math.min(start + MAX_IDS_PER_QUERY, requestIds.size()));
+            String query = "SELECT request_id, waste_type, quantity, requested_date FROM waste_requests " +
+                           "WHERE request_id IN (" + placeholders(batch.size()) + ") AND status = 'Pending' " +
+                           "FOR UPDATE";
+            
+            try (PreparedStatement stmt = tx.getConnection().prepareStatement(query)) {
+                for (int i = 0; i < batch.size(); i++) {
+                    stmt.setInt(i + 1, batch.get(i));
+                }
+                
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        WasteRequest request = new WasteRequest();
+                        request.setRequestId(rs.getInt("request_id"));
+                        request.setWasteType(rs.getInt("waste_type"));
+                        request.setQuantity(rs.getDouble("quantity"));
+                        request.setStatus("Pending");
+                        request.setRequestedDate(rs.getDate("requested_date"));
+                        pending.put(request.getRequestId(), request);
+                    }
+                }
+            }
         }
+        return pending;
+    }
+    
+    /**
+     * Credit the ratings already given to newly assigned requests to their collectors
+     * @param tx Transaction of the write
+     * @param collectorByRequest Collector ID by request ID
+     * @throws SQLException if the update fails
+     */
+    private void applyRatings(Transaction tx, Map<Integer, Integer> collectorByRequest) throws SQLException {
+        List<Integer> requestIds = new ArrayList<>(collectorByRequest.keySet());
+        Map<String, Integer> counts = new HashMap<>();
+        
+        for (int start = 0; start < requestIds.size(); start += MAX_IDS_PER_QUERY) {
+            List<Integer> batch = requestIds.subList(start, Math.min(start + MAX_IDS_PER_QUERY, requestIds.size()));
+            String query = "SELECT request_id, rating FROM feedback WHERE rating IS NOT NULL AND request_id IN (" + placeholders(batch.size()) + ")";
+            
+            try (PreparedStatement stmt = tx.getConnection().prepareStatement(query)) {
+                for (int i = 0; i < batch.size(); i++) {
+                    stmt.setInt(i + 1, batch.get(i));
+                }
+                
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        String key = collectorByRequest.get(rs.getInt("request_id")) + ":" + rs.getInt("rating");
+                        Integer count = counts.get(key);
+                        counts.put(key, count == null ? 1 : count + 1);
+                    }
+                }
+            }
+        }
+        
+        for (Map.Entry<String, Integer> count : counts.entrySet()) {
+            String[] parts = count.getKey().split(":");
+            rollupDAO.applyRating(tx, Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), count.getValue());
+        }
+    }
+    
+    private static Date currentDate(Transaction tx) throws SQLException {
+        try (Statement stmt = tx.getConnection().createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT CURRENT_DATE")) {
+            rs.next();
+            return rs.getDate(1);
+        }
+    }
+    
+    private static String placeholders(int count) {
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        return placeholders.toString();
     }
     
     /**
@@ -50,17 +381,41 @@ public class AssignmentDAO {
      * @return true if successful, false otherwise
      */
     public boolean updateAssignment(Assignment assignment) {
-        String query = "UPDATE assignments SET collector_id = ?, status = ? WHERE assignment_id = ?";
+        String query = "UPDATE assignments SET collector_id = ?, status = ?, " +
+                       "in_progress_at = " + IN_PROGRESS_AT_FOR_STATUS + ", completed_at = " + COMPLETED_AT_FOR_STATUS + " " +
+                       "WHERE assignment_id = ?";
         
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Transaction tx = new Transaction();
+             PreparedStatement stmt = tx.getConnection().prepareStatement(query)) {
+            
+            LockedAssignment previous = lockAssignment(tx, assignment.getAssignmentId());
+            if (previous == null) {
+                return false;
+            }
             
             stmt.setInt(1, assignment.getCollectorId());
             stmt.setString(2, assignment.getStatus());
-            stmt.setInt(3, assignment.getAssignmentId());
+            stmt.setString(3, assignment.getStatus());
+            stmt.setString(4, assignment.getStatus());
+            stmt.setInt(5, assignment.getAssignmentId());
+            stmt.executeUpdate();
             
-            int rowsAffected = stmt.executeUpdate();
-            return rowsAffected > 0;
+            rollupDAO.applyAssignment(tx, previous.collectorId, previous.assignedDay, -1, -completedCount(previous.status));
+            rollupDAO.applyAssignment(tx, assignment.getCollectorId(), previous.assignedDay, 1, completedCount(assignment.getStatus()));
+            
+            // Ratings follow the request to its new collector
+            if (previous.collectorId != assignment.getCollectorId()) {
+                for (int rating : rollupDAO.findRatingsForRequest(tx, previous.requestId)) {
+                    rollupDAO.applyRating(tx, previous.collectorId, rating, -1);
+                    rollupDAO.applyRating(tx, assignment.getCollectorId(), rating, 1);
+                }
+            }
+            
+            tx.invalidate(CacheTags.assignment(assignment.getAssignmentId()),
+                    CacheTags.assignmentsByCollector(assignment.getCollectorId()),
+                    CacheTags.assignmentsByStatus(assignment.getStatus()));
+            tx.commit();
+            return true;
             
         } catch (SQLException e) {
             System.err.println("Error updating assignment: " + e.getMessage());
@@ -75,29 +430,36 @@ public class AssignmentDAO {
      * @return true if successful, false otherwise
      */
     public boolean updateAssignmentStatus(int assignmentId, String status) {
-        String query = "UPDATE assignments SET status = ? WHERE assignment_id = ?";
+        String query = "UPDATE assignments SET status = ?, " +
+                       "in_progress_at = " + IN_PROGRESS_AT_FOR_STATUS + ", completed_at = " + COMPLETED_AT_FOR_STATUS + " " +
+                       "WHERE assignment_id = ?";
         
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Transaction tx = new Transaction();
+             PreparedStatement stmt = tx.getConnection().prepareStatement(query)) {
+            
+            LockedAssignment previous = lockAssignment(tx, assignmentId);
+            if (previous == null) {
+                return false;
+            }
             
             stmt.setString(1, status);
-            stmt.setInt(2, assignmentId);
+            stmt.setString(2, status);
+            stmt.setString(3, status);
+            stmt.setInt(4, assignmentId);
+            stmt.executeUpdate();
             
-            int rowsAffected = stmt.executeUpdate();
+            rollupDAO.applyAssignment(tx, previous.collectorId, previous.assignedDay, 0,
+                    completedCount(status) - completedCount(previous.status));
             
-            if (rowsAffected > 0) {
-                // If the assignment is completed, update the waste request status to "Collected"
-                if (status.equals("Completed")) {
-                    Assignment assignment = getAssignmentById(assignmentId);
-                    if (assignment != null) {
-                        WasteRequestDAO requestDAO = new WasteRequestDAO();
-                        requestDAO.updateRequestStatus(assignment.getRequestId(), "Collected");
-                    }
-                }
-                return true;
+            // If the assignment is completed, update the waste request status to "Collected"
+            if (status.equals("Completed")) {
+                WasteRequestDAO requestDAO = new WasteRequestDAO();
+                requestDAO.updateRequestStatus(tx, previous.requestId, "Collected");
             }
             
-            return false;
+            tx.invalidate(CacheTags.assignment(assignmentId), CacheTags.assignmentsByStatus(status));
+            tx.commit();
+            return true;
             
         } catch (SQLException e) {
             System.err.println("Error updating assignment status: " + e.getMessage());
@@ -113,13 +475,25 @@ public class AssignmentDAO {
     public boolean deleteAssignment(int assignmentId) {
         String query = "DELETE FROM assignments WHERE assignment_id = ?";
         
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Transaction tx = new Transaction();
+             PreparedStatement stmt = tx.getConnection().prepareStatement(query)) {
+            
+            LockedAssignment previous = lockAssignment(tx, assignmentId);
+            if (previous == null) {
+                return false;
+            }
             
             stmt.setInt(1, assignmentId);
+            stmt.executeUpdate();
             
-            int rowsAffected = stmt.executeUpdate();
-            return rowsAffected > 0;
+            rollupDAO.applyAssignment(tx, previous.collectorId, previous.assignedDay, -1, -completedCount(previous.status));
+            for (int rating : rollupDAO.findRatingsForRequest(tx, previous.requestId)) {
+                rollupDAO.applyRating(tx, previous.collectorId, rating, -1);
+            }
+            
+            tx.invalidate(CacheTags.assignment(assignmentId));
+            tx.commit();
+            return true;
             
         } catch (SQLException e) {
             System.err.println("Error deleting assignment: " + e.getMessage());
@@ -127,20 +501,57 @@ public class AssignmentDAO {
         }
     }
     
+    /**
+     * Lock an assignment row for the rest of the transaction and read the
+     * fields the rollups are keyed on
+     * @param tx Transaction of the write
+     * @param assignmentId Assignment ID
+     * @return LockedAssignment, or null if not found
+     * @throws SQLException if the query fails
+     */
+    private LockedAssignment lockAssignment(Transaction tx, int assignmentId) throws SQLException {
+        String query = "SELECT request_id, collector_id, status, DATE(assigned_date) AS assigned_day " +
+                       "FROM assignments WHERE assignment_id = ? FOR UPDATE";
+        
+        try (PreparedStatement stmt = tx.getConnection().prepareStatement(query)) {
+            
+            stmt.setInt(1, assignmentId);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                return new LockedAssignment(rs.getInt("request_id"), rs.getInt("collector_id"),
+                        rs.getString("status"), rs.getDate("assigned_day"));
+            }
+        }
+    }
+    
+    private static int completedCount(String status) {
+        return "Completed".equals(status) ? 1 : 0;
+    }
+    
     /**
      * Get an assignment by its ID
      * @param assignmentId Assignment ID to search for
      * @return Assignment object if found, null otherwise
      */
     public Assignment getAssignmentById(int assignmentId) {
-        String query = "SELECT a.*, u.full_name as collector_name, " +
-                       "CONCAT(wr.address, ' (', wt.type_name, ', ', wr.quantity, ' kg)') as request_details " +
+        String cacheKey = QueryCache.key("AssignmentDAO.getAssignmentById", assignmentId);
+        Assignment cached = queryCache.get(cacheKey);
+        if (cached != null) {
+            return copyOf(cached);
+        }
+        
+        long version = queryCache.getVersion();
+        String query = "SELECT a.*, wr.address, wr.waste_type, wr.quantity " +
                        "FROM assignments a " +
-                       "JOIN users u ON a.collector_id = u.user_id " +
                        "JOIN waste_requests wr ON a.request_id = wr.request_id " +
-                       "JOIN waste_types wt ON wr.waste_type = wt.type_id " +
                        "WHERE a.assignment_id = ?";
         
+        Assignment assignment = null;
+        Map<Integer, String> typeNames = wasteTypeDAO.getWasteTypeNames();
+        
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
             
@@ -148,7 +559,7 @@ public class AssignmentDAO {
             
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    return extractAssignmentFromResultSet(rs);
+                    assignment = extractAssignmentFromResultSet(rs, typeNames);
                 }
             }
             
@@ -156,7 +567,12 @@ public class AssignmentDAO {
             System.err.println("Error getting assignment by ID: " + e.getMessage());
         }
         
-        return null;
+        if (assignment != null) {
+            hydrateCollectorNames(Collections.singletonList(assignment));
+            queryCache.put(cacheKey, copyOf(assignment), CacheTags.forAssignments(Collections.singletonList(assignment), CacheTags.assignment(assignmentId)), version);
+        }
+        
+        return assignment;
     }
     
     /**
@@ -165,14 +581,21 @@ public class AssignmentDAO {
      * @return Assignment object if found, null otherwise
      */
     public Assignment getAssignmentByRequestId(int requestId) {
-        String query = "SELECT a.*, u.full_name as collector_name, " +
-                       "CONCAT(wr.address, ' (', wt.type_name, ', ', wr.quantity, ' kg)') as request_details " +
+        String cacheKey = QueryCache.key("AssignmentDAO.getAssignmentByRequestId", requestId);
+        Assignment cached = queryCache.get(cacheKey);
+        if (cached != null) {
+            return copyOf(cached);
+        }
+        
+        long version = queryCache.getVersion();
+        String query = "SELECT a.*, wr.address, wr.waste_type, wr.quantity " +
                        "FROM assignments a " +
-                       "JOIN users u ON a.collector_id = u.user_id " +
                        "JOIN waste_requests wr ON a.request_id = wr.request_id " +
-                       "JOIN waste_types wt ON wr.waste_type = wt.type_id " +
                        "WHERE a.request_id = ?";
         
+        Assignment assignment = null;
+        Map<Integer, String> typeNames = wasteTypeDAO.getWasteTypeNames();
+        
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
             
@@ -180,7 +603,7 @@ public class AssignmentDAO {
             
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    return extractAssignmentFromResultSet(rs);
+                    assignment = extractAssignmentFromResultSet(rs, typeNames);
                 }
             }
             
@@ -188,54 +611,82 @@ public class AssignmentDAO {
             System.err.println("Error getting assignment by request ID: " + e.getMessage());
         }
         
-        return null;
+        if (assignment != null) {
+            hydrateCollectorNames(Collections.singletonList(assignment));
+            queryCache.put(cacheKey, copyOf(assignment), CacheTags.forAssignments(Collections.singletonList(assignment), CacheTags.assignmentByRequest(requestId)), version);
+        }
+        
+        return assignment;
     }
     
     /**
      * Get all assignments
-     * @return List of all assignments
+     * @return List of all assignments, or null if the query failed
      */
     public List<Assignment> getAllAssignments() {
+        String cacheKey = QueryCache.key("AssignmentDAO.getAllAssignments");
+        List<Assignment> cached = queryCache.get(cacheKey);
+        if (cached != null) {
+            return copyOf(cached);
+        }
+        
+        long version = queryCache.getVersion();
+        boolean loaded = false;
         List<Assignment> assignments = new ArrayList<>();
-        String query = "SELECT a.*, u.full_name as collector_name, " +
-                       "CONCAT(wr.address, ' (', wt.type_name, ', ', wr.quantity, ' kg)') as request_details " +
+        String query = "SELECT a.*, wr.address, wr.waste_type, wr.quantity " +
                        "FROM assignments a " +
-                       "JOIN users u ON a.collector_id = u.user_id " +
                        "JOIN waste_requests wr ON a.request_id = wr.request_id " +
-                       "JOIN waste_types wt ON wr.waste_type = wt.type_id " +
                        "ORDER BY a.assigned_date DESC";
         
+        Map<Integer, String> typeNames = wasteTypeDAO.getWasteTypeNames();
+        
         try (Connection conn = DatabaseConnection.getConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(query)) {
             
             while (rs.next()) {
-                assignments.add(extractAssignmentFromResultSet(rs));
+                assignments.add(extractAssignmentFromResultSet(rs, typeNames));
             }
             
+            loaded = true;
+            
         } catch (SQLException e) {
             System.err.println("Error getting all assignments: " + e.getMessage());
         }
         
+        if (!loaded) {
+            return null;
+        }
+        
+        hydrateCollectorNames(assignments);
+        queryCache.put(cacheKey, copyOf(assignments), CacheTags.forAssignments(assignments, CacheTags.ALL_ASSIGNMENTS), version);
+        
         return assignments;
     }
     
     /**
      * Get assignments by collector ID
      * @param collectorId Collector ID to filter by
-     * @return List of assignments for the specified collector
+     * @return List of assignments for the specified collector, or null if the query failed
      */
     public List<Assignment> getAssignmentsByCollectorId(int collectorId) {
+        String cacheKey = QueryCache.key("AssignmentDAO.getAssignmentsByCollectorId", collectorId);
+        List<Assignment> cached = queryCache.get(cacheKey);
+        if (cached != null) {
+            return copyOf(cached);
+        }
+        
+        long version = queryCache.getVersion();
+        boolean loaded = false;
         List<Assignment> assignments = new ArrayList<>();
-        String query = "SELECT a.*, u.full_name as collector_name, " +
-                       "CONCAT(wr.address, ' (', wt.type_name, ', ', wr.quantity, ' kg)') as request_details " +
+        String query = "SELECT a.*, wr.address, wr.waste_type, wr.quantity " +
                        "FROM assignments a " +
-                       "JOIN users u ON a.collector_id = u.user_id " +
                        "JOIN waste_requests wr ON a.request_id = wr.request_id " +
-                       "JOIN waste_types wt ON wr.waste_type = wt.type_id " +
                        "WHERE a.collector_id = ? " +
                        "ORDER BY a.assigned_date DESC";
         
+        Map<Integer, String> typeNames = wasteTypeDAO.getWasteTypeNames();
+        
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
             
@@ -243,14 +694,23 @@ public class AssignmentDAO {
             
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    assignments.add(extractAssignmentFromResultSet(rs));
+                    assignments.add(extractAssignmentFromResultSet(rs, typeNames));
                 }
             }
             
+            loaded = true;
+            
         } catch (SQLException e) {
             System.err.println("Error getting assignments by collector ID: " + e.getMessage());
         }
         
+        if (!loaded) {
+            return null;
+        }
+        
+        hydrateCollectorNames(assignments);
+        queryCache.put(cacheKey, copyOf(assignments), CacheTags.forAssignments(assignments, CacheTags.assignmentsByCollector(collectorId)), version);
+        
         return assignments;
     }
     
@@ -260,16 +720,23 @@ public class AssignmentDAO {
      * @return List of assignments with the specified status
      */
     public List<Assignment> getAssignmentsByStatus(String status) {
+        String cacheKey = QueryCache.key("AssignmentDAO.getAssignmentsByStatus", status);
+        List<Assignment> cached = queryCache.get(cacheKey);
+        if (cached != null) {
+            return copyOf(cached);
+        }
+        
+        long version = queryCache.getVersion();
+        boolean loaded = false;
         List<Assignment> assignments = new ArrayList<>();
-        String query = "SELECT a.*, u.full_name as collector_name, " +
-                       "CONCAT(wr.address, ' (', wt.type_name, ', ', wr.quantity, ' kg)') as request_details " +
+        String query = "SELECT a.*, wr.address, wr.waste_type, wr.quantity " +
                        "FROM assignments a " +
-                       "JOIN users u ON a.collector_id = u.user_id " +
                        "JOIN waste_requests wr ON a.request_id = wr.request_id " +
-                       "JOIN waste_types wt ON wr.waste_type = wt.type_id " +
                        "WHERE a.status = ? " +
                        "ORDER BY a.assigned_date DESC";
         
+        Map<Integer, String> typeNames = wasteTypeDAO.getWasteTypeNames();
+        
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
             
@@ -277,35 +744,122 @@ public class AssignmentDAO {
             
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    assignments.add(extractAssignmentFromResultSet(rs));
+                    assignments.add(extractAssignmentFromResultSet(rs, typeNames));
                 }
             }
             
+            loaded = true;
+            
         } catch (SQLException e) {
             System.err.println("Error getting assignments by status: " + e.getMessage());
         }
         
+        hydrateCollectorNames(assignments);
+        
+        if (loaded) {
+            queryCache.put(cacheKey, copyOf(assignments), CacheTags.forAssignments(assignments, CacheTags.assignmentsByStatus(status)), version);
+        }
+        
         return assignments;
     }
     
+    /**
+     * Fill in collector names from the user cache instead of joining the users table
+     * @param assignments List of Assignment objects to update
+     */
+    private void hydrateCollectorNames(List<Assignment> assignments) {
+        if (assignments.isEmpty()) {
+            return;
+        }
+        
+        List<Integer> userIds = new ArrayList<>(assignments.size());
+        for (Assignment assignment : assignments) {
+            userIds.add(assignment.getCollectorId());
+        }
+        
+        Map<Integer, String> names = userDAO.getFullNames(userIds);
+        for (Assignment assignment : assignments) {
+            assignment.setCollectorName(names.get(assignment.getCollectorId()));
+        }
+    }
+    
+    /**
+     * Copy an Assignment so that callers never share objects with the query cache
+     */
+    private static Assignment copyOf(Assignment assignment) {
+        Assignment copy = new Assignment(assignment.getAssignmentId(), assignment.getRequestId(),
+                assignment.getCollectorId(), assignment.getAssignedDate(), assignment.getStatus());
+        copy.setInProgressAt(assignment.getInProgressAt());
+        copy.setCompletedAt(assignment.getCompletedAt());
+        copy.setCollectorName(assignment.getCollectorName());
+        copy.setRequestDetails(assignment.getRequestDetails());
+        copy.setAddress(assignment.getAddress());
+        return copy;
+    }
+    
+    private static List<Assignment> copyOf(List<Assignment> assignments) {
+        List<Assignment> copies = new ArrayList<>(assignments.size());
+        for (Assignment assignment : assignments) {
+            copies.add(copyOf(assignment));
+        }
+        return copies;
+    }
+    
     /**
      * Extract an Assignment object from a ResultSet
      * @param rs ResultSet containing assignment data
+     * @param typeNames Waste type names keyed by type ID
      * @return Assignment object
      * @throws SQLException if an error occurs
      */
-    private Assignment extractAssignmentFromResultSet(ResultSet rs) throws SQLException {
+    private Assignment extractAssignmentFromResultSet(ResultSet rs, Map<Integer, String> typeNames) throws SQLException {
         Assignment assignment = new Assignment();
         assignment.setAssignmentId(rs.getInt("assignment_id"));
         assignment.setRequestId(rs.getInt("request_id"));
         assignment.setCollectorId(rs.getInt("collector_id"));
         assignment.setAssignedDate(rs.getTimestamp("assigned_date"));
+        assignment.setInProgressAt(rs.getTimestamp("in_progress_at"));
+        assignment.setCompletedAt(rs.getTimestamp("completed_at"));
         assignment.setStatus(rs.getString("status"));
         
         // Set additional display fields
-        assignment.setCollectorName(rs.getString("collector_name"));
-        assignment.setRequestDetails(rs.getString("request_details"));
+        assignment.setRequestDetails(rs.getString("address") + " (" +
+                                     typeNames.get(rs.getInt("waste_type")) + ", " +
+                                     rs.getBigDecimal("quantity").toPlainString() + " kg)");
+        assignment.setAddress(rs.getString("address"));
         
         return assignment;
     }
+    
+    /**
+     * Assignment fields read under a row lock before a write
+     */
+    private static class LockedAssignment {
+        private final int requestId;
+        private final int collectorId;
+        private final String status;
+        private final Date assignedDay;
+        
+        LockedAssignment(int requestId, int collectorId, String status, Date assignedDay) {
+            this.requestId = requestId;
+            this.collectorId = collectorId;
+            this.status = status;
+            this.assignedDay = assignedDay;
+        }
+    }
+    
+    /**
+     * Requests of a batch sharing a requested day and waste type
+     */
+    private static class RequestCell {
+        private final Date day;
+        private final int wasteType;
+        private int count;
+        private double quantity;
+        
+        RequestCell(Date day, int wasteType) {
+            this.day = day;
+            this.wasteType = wasteType;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,219 @@
+package dao;
+
+import cache.QueryCache;
+import cache.UserAvailabilityFilter;
+import cache.UserCache;
+import cache.WasteTypeCache;
+import models.Assignment;
+import models.Feedback;
+import models.User;
+import models.WasteRequest;
+
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tags used to invalidate QueryCache entries.
+ * A cached result is tagged with a scope tag (e.g. "requests:user:42") and with
+ * the ID of every row it contains or embeds (e.g. "request:17", "user:42").
+ * A write then only has to name the rows it changed plus the scopes a row
+ * may have entered, such as the new status of an updated request.
+ *
+ * Writes also record their tags in the change log, so that other client
+ * instances can apply the same invalidation (see ChangeLogPoller).
+ */
+final class CacheTags {
+    
+    static final String ALL_REQUESTS = "requests:all";
+    static final String ALL_ASSIGNMENTS = "assignments:all";
+    static final String ALL_FEEDBACK = "feedback:all";
+    static final String ALL_USERS = "users:all";
+    static final String ALL_WASTE_TYPES = "waste-types:all";
+    
+    private static final String REQUEST_PREFIX = "request:";
+    private static final String ASSIGNMENT_PREFIX = "assignment:";
+    private static final String ASSIGNMENT_REQUEST_PREFIX = "assignment:request:";
+    private static final String USER_PREFIX = "user:";
+    private static final String USERNAME_PREFIX = "username:";
+    private static final String EMAIL_PREFIX = "email:";
+    
+    private CacheTags() {}
+    
+    static String request(int requestId) {
+        return REQUEST_PREFIX + requestId;
+    }
+    
+    static String requestsByUser(int userId) {
+        return "requests:user:" + userId;
+    }
+    
+    static String requestsByStatus(String status) {
+        return "requests:status:" + status;
+    }
+    
+    static String assignment(int assignmentId) {
+        return ASSIGNMENT_PREFIX + assignmentId;
+    }
+    
+    static String assignmentByRequest(int requestId) {
+        return ASSIGNMENT_REQUEST_PREFIX + requestId;
+    }
+    
+    static String assignmentsByCollector(int collectorId) {
+        return "assignments:collector:" + collectorId;
+    }
+    
+    static String assignmentsByStatus(String status) {
+        return "assignments:status:" + status;
+    }
+    
+    static String feedback(int feedbackId) {
+        return "feedback:" + feedbackId;
+    }
+    
+    static String feedbackByRequest(int requestId) {
+        return "feedback:request:" + requestId;
+    }
+    
+    static String feedbackByUser(int userId) {
+        return "feedback:user:" + userId;
+    }
+    
+    static String user(int userId) {
+        return USER_PREFIX + userId;
+    }
+    
+    /**
+     * Tag announcing a newly taken username, for the registration availability filter
+     */
+    static String username(String username) {
+        return USERNAME_PREFIX + username;
+    }
+    
+    /**
+     * Tag announcing a newly taken email, for the registration availability filter
+     */
+    static String email(String email) {
+        return EMAIL_PREFIX + email;
+    }
+    
+    /**
+     * Tags for a list of waste requests: the scope plus each request and resident
+     */
+    static Set<String> forRequests(List<WasteRequest> requests, String scope) {
+        Set<String> tags = new LinkedHashSet<>();
+        tags.add(scope);
+        for (WasteRequest request : requests) {
+            tags.add(request(request.getRequestId()));
+            tags.add(user(request.getUserId()));
+        }
+        return tags;
+    }
+    
+    /**
+     * Tags for a list of assignments: the scope plus each assignment, its request and collector
+     */
+    static Set<String> forAssignments(List<Assignment> assignments, String scope) {
+        Set<String> tags = new LinkedHashSet<>();
+        tags.add(scope);
+        for (Assignment assignment : assignments) {
+            tags.add(assignment(assignment.getAssignmentId()));
+            tags.add(request(assignment.getRequestId()));
+            tags.add(user(assignment.getCollectorId()));
+        }
+        return tags;
+    }
+    
+    /**
+     * Tags for a list of feedback: the scope plus each feedback, its request and resident
+     */
+    static Set<String> forFeedback(List<Feedback> feedbackList, String scope) {
+        Set<String> tags = new LinkedHashSet<>();
+        tags.add(scope);
+        for (Feedback feedback : feedbackList) {
+            tags.add(feedback(feedback.getFeedbackId()));
+            tags.add(request(feedback.getRequestId()));
+            tags.add(user(feedback.getUserId()));
+        }
+        return tags;
+    }
+    
+    /**
+     * Tags for a list of users: the scope plus each user
+     */
+    static Set<String> forUsers(List<User> users, String scope) {
+        Set<String> tags = new LinkedHashSet<>();
+        tags.add(scope);
+        for (User user : users) {
+            tags.add(user(user.getUserId()));
+        }
+        return tags;
+    }
+    
+    /**
+     * Invalidate the cached data carrying any of the given tags, here and in
+     * every other client instance
+     * @param conn Connection the write was made on (left open)
+     * @param tags Tags touched by a write
+     */
+    static void invalidate(Connection conn, String... tags) {
+        List<String> tagList = Arrays.asList(tags);
+        new ChangeLogDAO().publish(conn, tagList);
+        applyLocally(tagList);
+    }
+    
+    /**
+     * Evict the local cached data carrying any of the given tags
+     * @param tags Tags touched by a write made here or in another instance
+     */
+    static void applyLocally(Collection<String> tags) {
+        ReportScheduler.recordChange();
+        
+        UserCache userCache = UserCache.getInstance();
+        UserAvailabilityFilter availabilityFilter = UserAvailabilityFilter.getInstance();
+        
+        for (String tag : tags) {
+            if (tag.equals(ALL_WASTE_TYPES)) {
+                // Type names are embedded in nearly every cached result
+                WasteTypeCache.getInstance().invalidate();
+                QueryCache.getInstance().invalidateAll();
+            } else if (tag.equals(ALL_USERS)) {
+                userCache.invalidateRoles();
+            } else if (tag.startsWith(USER_PREFIX)) {
+                try {
+                    userCache.invalidate(Integer.parseInt(tag.substring(USER_PREFIX.length())));
+                } catch (NumberFormatException e) {
+                    System.err.println("Ignoring malformed cache tag: " + tag);
+                }
+            } else if (tag.startsWith(REQUEST_PREFIX)) {
+                try {
+                    AnalyticsDAO.requestChanged(Integer.parseInt(tag.substring(REQUEST_PREFIX.length())));
+                } catch (NumberFormatException e) {
+                    System.err.println("Ignoring malformed cache tag: " + tag);
+                }
+            } else if (tag.startsWith(ASSIGNMENT_REQUEST_PREFIX)) {
+                try {
+                    AnalyticsDAO.requestChanged(Integer.parseInt(tag.substring(ASSIGNMENT_REQUEST_PREFIX.length())));
+                } catch (NumberFormatException e) {
+                    System.err.println("Ignoring malformed cache tag: " + tag);
+                }
+            } else if (tag.startsWith(ASSIGNMENT_PREFIX)) {
+                try {
+                    AnalyticsDAO.assignmentChanged(Integer.parseInt(tag.substring(ASSIGNMENT_PREFIX.length())));
+                } catch (NumberFormatException e) {
+                    System.err.println("Ignoring malformed cache tag: " + tag);
+                }
+            } else if (tag.startsWith(USERNAME_PREFIX)) {
+                availabilityFilter.add(tag.substring(USERNAME_PREFIX.length()), null);
+            } else if (tag.startsWith(EMAIL_PREFIX)) {
+                availabilityFilter.add(null, tag.substring(EMAIL_PREFIX.length()));
+            }
+        }
+        
+        QueryCache.getInstance().invalidate(tags);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,121 @@
+package dao;
+
+import models.ChangeLogEntry;
+import utils.DatabaseConnection;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Data Access Object for the change log that keeps client caches coherent.
+ * Every write records the cache tags it touched; other client instances poll
+ * the log and evict the matching entries from their own caches.
+ */
+public class ChangeLogDAO {
+    
+    /** Identifies this client instance, so it can skip its own changes */
+    public static final String ORIGIN = UUID.randomUUID().toString();
+    
+    private static final String TAG_SEPARATOR = "\n";
+    
+    /**
+     * Record the tags touched by a write, using the writer's connection
+     * @param conn Connection the write was made on (left open)
+     * @param tags Tags touched by the write
+     * @return true if successful, false otherwise
+     */
+    boolean publish(Connection conn, Collection<String> tags) {
+        String query = "INSERT INTO change_log (origin, tags) VALUES (?, ?)";
+        
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            
+            stmt.setString(1, ORIGIN);
+            stmt.setString(2, String.join(TAG_SEPARATOR, tags));
+            
+            int rowsAffected = stmt.executeUpdate();
+            return rowsAffected > 0;
+        
+        } catch (SQLException e) {
+            System.err.println("Error publishing change: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Get the ID of the latest change
+     * @return Latest change ID, 0 if the log is empty, or -1 on error
+     */
+    public long getLatestChangeId() {
+        String query = "SELECT COALESCE(MAX(change_id), 0) FROM change_log";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            
+            return rs.next() ? rs.getLong(1) : 0;
+        
+        } catch (SQLException e) {
+            System.err.println("Error getting latest change ID: " + e.getMessage());
+            return -1;
+        }
+    }
+    
+    /**
+     * Get changes after a given change ID, oldest first
+     * @param afterId Only return changes with a greater ID
+     * @param limit Maximum number of changes to return
+     * @return List of changes, or null on error
+     */
+    public List<ChangeLogEntry> getChangesSince(long afterId, int limit) {
+        List<ChangeLogEntry> changes = new ArrayList<>();
+        String query = "SELECT * FROM change_log WHERE change_id > ? ORDER BY change_id LIMIT ?";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            
+            stmt.setLong(1, afterId);
+            stmt.setInt(2, limit);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    changes.add(new ChangeLogEntry(
+                        rs.getLong("change_id"),
+                        rs.getString("origin"),
+                        Arrays.asList(rs.getString("tags").split(TAG_SEPARATOR)),
+                        rs.getTimestamp("changed_at")
+                    ));
+                }
+            }
+            
+            return changes;
+        
+        } catch (SQLException e) {
+            System.err.println("Error getting changes: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Delete changes older than the given number of hours
+     * @param hours Age in hours
+     * @return Number of deleted changes, or -1 on error
+     */
+    public int deleteChangesOlderThan(int hours) {
+        String query = "DELETE FROM change_log WHERE changed_at < NOW() - INTERVAL ? HOUR";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            
+            stmt.setInt(1, hours);
+            return stmt.executeUpdate();
+        
+        } catch (SQLException e) {
+            System.err.println("Error deleting old changes: " + e.getMessage());
+            return -1;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,108 @@
+package dao;
+
+import models.ChangeLogEntry;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background poller applying other client instances' changes to the local caches.
+ * It reads the change log past a high-water mark every couple of seconds.
+ * Because auto-increment IDs can become visible slightly out of order, each
+ * poll looks back a little behind the mark and skips changes already applied.
+ */
+public class ChangeLogPoller {
+    
+    private static final long POLL_INTERVAL_MILLIS = 2000;
+    private static final int BATCH_SIZE = 500;
+    private static final int LOOKBACK = 50;
+    private static final int RETENTION_HOURS = 24;
+    
+    private static ScheduledExecutorService executor;
+    
+    private final ChangeLogDAO changeLogDAO = new ChangeLogDAO();
+    private final Set<Long> recentlyApplied = new LinkedHashSet<>();
+    private long highWaterMark = -1;
+    
+    private ChangeLogPoller() {}
+    
+    /**
+     * Start polling on a daemon thread. Calling it again has no effect.
+     */
+    public static synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "change-log-poller");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        
+        final ChangeLogPoller poller = new ChangeLogPoller();
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                poller.poll();
+            }
+        }, 0, POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Stop polling
+     */
+    public static synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+    
+    private void poll() {
+        try {
+            if (highWaterMark < 0) {
+                // Nothing is cached yet, so older changes do not matter
+                changeLogDAO.deleteChangesOlderThan(RETENTION_HOURS);
+                highWaterMark = changeLogDAO.getLatestChangeId();
+                return;
+            }
+            
+            List<ChangeLogEntry> changes;
+            do {
+                changes = changeLogDAO.getChangesSince(Math.max(0, highWaterMark - LOOKBACK), BATCH_SIZE);
+                if (changes == null) {
+                    return;
+                }
+                
+                for (ChangeLogEntry change : changes) {
+                    if (!recentlyApplied.add(change.getChangeId())) {
+                        continue;
+                    }
+                    if (!ChangeLogDAO.ORIGIN.equals(change.getOrigin())) {
+                        CacheTags.applyLocally(change.getTags());
+                    }
+                    highWaterMark = Math.max(highWaterMark, change.getChangeId());
+                }
+                
+                // Only IDs inside the look-back window can be seen again
+                while (recentlyApplied.size() > BATCH_SIZE + LOOKBACK) {
+                    Long oldest = recentlyApplied.iterator().next();
+                    recentlyApplied.remove(oldest);
+                }
+            } while (changes.size() == BATCH_SIZE);
+        
+        } catch (RuntimeException e) {
+            // Keep the scheduled task alive; the next poll retries
+            System.err.println("Error polling change log: " + e.getMessage());
+        }
+    }
+}
\ No newline at end of file
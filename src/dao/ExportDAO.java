@@ -0,0 +1,354 @@
+package dao;
+
+import utils.ChannelWriter;
+import utils.DatabaseConnection;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.*;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Data Access Object exporting whole tables to CSV or JSON files.
+ * Rows are streamed from a MySQL cursor and written as they arrive through a
+ * fixed-size buffer into a FileChannel, optionally gzip-compressed, so an
+ * export of any size needs the same small amount of memory.
+ */
+public class ExportDAO {
+    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int PROGRESS_INTERVAL = 1000;
+    
+    /**
+     * Tables that can be exported, with the query producing their rows
+     */
+    public enum Table {
+        REQUESTS("Requests", "waste_requests",
+                "SELECT r.request_id, r.user_id, u.full_name AS resident_name, r.waste_type, " +
+                "t.type_name AS waste_type_name, r.quantity, r.address, r.status, r.requested_date, " +
+                "r.pickup_date, r.created_at " +
+                "FROM waste_requests r " +
+                "JOIN users u ON u.user_id = r.user_id " +
+                "JOIN waste_types t ON t.type_id = r.waste_type " +
+                "ORDER BY r.request_id"),
+        ASSIGNMENTS("Assignments", "assignments",
+                "SELECT a.assignment_id, a.request_id, a.collector_id, u.full_name AS collector_name, " +
+                "a.status, a.assigned_date, a.in_progress_at, a.completed_at " +
+                "FROM assignments a " +
+                "JOIN users u ON u.user_id = a.collector_id " +
+                "ORDER BY a.assignment_id"),
+        FEEDBACK("Feedback", "feedback",
+                "SELECT f.feedback_id, f.request_id, f.user_id, u.full_name AS resident_name, " +
+                "f.rating, f.comments, f.submitted_on " +
+                "FROM feedback f " +
+                "JOIN users u ON u.user_id = f.user_id " +
+                "ORDER BY f.feedback_id"),
+        // Password hashes are never exported
+        USERS("Users", "users",
+                "SELECT user_id, username, full_name, role, email, phone, created_at " +
+                "FROM users ORDER BY user_id");
+        
+        private final String label;
+        private final String tableName;
+        private final String query;
+        
+        Table(String label, String tableName, String query) {
+            this.label = label;
+            this.tableName = tableName;
+            this.query = query;
+        }
+        
+        public String getLabel() {
+            return label;
+        }
+        
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+    
+    /**
+     * File formats: CSV with a header row, or a JSON array with one object per line
+     */
+    public enum Format {
+        CSV("csv"),
+        JSON("json");
+        
+        private final String extension;
+        
+        Format(String extension) {
+            this.extension = extension;
+        }
+        
+        public String getExtension() {
+            return extension;
+        }
+    }
+    
+    /**
+     * Receives progress of an export, called on the exporting thread
+     */
+    public interface ProgressListener {
+        /**
+         * @param rowsWritten Rows written so far
+         * @param totalRows Rows in the table when the export started
+         */
+        void progress(long rowsWritten, long totalRows);
+        
+        /**
+         * @return true to stop the export and delete the partial file
+         */
+        boolean isCancelled();
+    }
+    
+    /**
+     * Export a table to a file
+     * @param table Table to export
+     * @param format File format
+     * @param gzip true to gzip-compress the file
+     * @param file File to write; replaced if it exists
+     * @param listener Progress listener, or null
+     * @return true if the export completed, false if it failed or was cancelled
+     */
+    public boolean export(Table table, Format format, boolean gzip, Path file, ProgressListener listener) {
+        boolean completed = false;
+        
+        try {
+            long totalRows = countRows(table);
+            boolean allRowsWritten = false;
+            
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(table.query,
+                         ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                 Writer writer = openWriter(file, gzip)) {
+                
+                // Connector/J streams rows one at a time with this fetch size
+                stmt.setFetchSize(Integer.MIN_VALUE);
+                
+                try (ResultSet rs = stmt.executeQuery()) {
+                    allRowsWritten = writeRows(rs, format, writer, totalRows, listener);
+                    if (!allRowsWritten) {
+                        // Closing a streamed result set reads the remaining rows; stop the query instead
+                        stmt.cancel();
+                    }
+                }
+            }
+            // Only now has the writer flushed its last bytes and the gzip trailer
+            completed = allRowsWritten;
+            
+        } catch (SQLException e) {
+            System.err.println("Error exporting " + table.getLabel() + ": " + e.getMessage());
+        } catch (IOException e) {
+            System.err.println("Error writing export file " + file + ": " + e.getMessage());
+        }
+        
+        if (!completed) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                System.err.println("Error deleting partial export file " + file + ": " + e.getMessage());
+            }
+        }
+        return completed;
+    }
+    
+    private long countRows(Table table) throws SQLException {
+        String query = "SELECT COUNT(*) FROM " + table.tableName;
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+    
+    private static Writer openWriter(Path file, boolean gzip) throws IOException {
+        FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        WritableByteChannel channel = fileChannel;
+        if (gzip) {
+            try {
+                channel = Channels.newChannel(new GZIPOutputStream(Channels.newOutputStream(fileChannel), BUFFER_SIZE));
+            } catch (IOException e) {
+                fileChannel.close();
+                throw e;
+            }
+        }
+        return new ChannelWriter(channel, BUFFER_SIZE);
+    }
+    
+    /**
+     * Write all rows of a result set
+     * @return true if all rows were written, false if the listener cancelled
+     */
+    private static boolean writeRows(ResultSet rs, Format format, Writer writer, long totalRows,
+            ProgressListener listener) throws SQLException, IOException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        String[] names = new String[columnCount];
+        boolean[] numeric = new boolean[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            names[i] = metaData.getColumnLabel(i + 1);
+            numeric[i] = isNumeric(metaData.getColumnType(i + 1));
+        }
+        
+        if (format == Format.CSV) {
+            for (int i = 0; i < columnCount; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeCsvValue(writer, names[i]);
+            }
+            writer.write("\r\n");
+        } else {
+            writer.write('[');
+        }
+        
+        long rows = 0;
+        while (rs.next()) {
+            if (format == Format.CSV) {
+                writeCsvRow(rs, writer, columnCount);
+            } else {
+                writeJsonRow(rs, writer, names, numeric, rows == 0);
+            }
+            
+            rows++;
+            if (listener != null && rows % PROGRESS_INTERVAL == 0) {
+                if (listener.isCancelled()) {
+                    return false;
+                }
+                listener.progress(rows, totalRows);
+            }
+        }
+        
+        if (format == Format.JSON) {
+            writer.write(rows == 0 ? "]\n" : "\n]\n");
+        }
+        if (listener != null) {
+            listener.progress(rows, totalRows);
+        }
+        return true;
+    }
+    
+    private static void writeCsvRow(ResultSet rs, Writer writer, int columnCount) throws SQLException, IOException {
+        for (int i = 0; i < columnCount; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String value = rs.getString(i + 1);
+            if (value != null) {
+                writeCsvValue(writer, value);
+            }
+        }
+        writer.write("\r\n");
+    }
+    
+    /**
+     * Write a CSV field, quoted only if it contains a separator, quote or line break
+     */
+    private static void writeCsvValue(Writer writer, String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        
+        writer.write('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == '"') {
+                writer.write(value, start, i + 1 - start);
+                writer.write('"');
+                start = i + 1;
+            }
+        }
+        writer.write(value, start, value.length() - start);
+        writer.write('"');
+    }
+    
+    private static void writeJsonRow(ResultSet rs, Writer writer, String[] names, boolean[] numeric, boolean first)
+            throws SQLException, IOException {
+        writer.write(first ? "\n{" : ",\n{");
+        for (int i = 0; i < names.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeJsonString(writer, names[i]);
+            writer.write(':');
+            
+            String value = rs.getString(i + 1);
+            if (value == null) {
+                writer.write("null");
+            } else if (numeric[i]) {
+                writer.write(value);
+            } else {
+                writeJsonString(writer, value);
+            }
+        }
+        writer.write('}');
+    }
+    
+    private static void writeJsonString(Writer writer, String value) throws IOException {
+        writer.write('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != '"' && c != '\\' && c >= 0x20) {
+                continue;
+            }
+            
+            writer.write(value, start, i - start);
+            start = i + 1;
+            switch (c) {
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                default:
+                    writer.write(String.format("\\u%04x", (int) c));
+            }
+        }
+        writer.write(value, start, value.length() - start);
+        writer.write('"');
+    }
+    
+    private static boolean isNumeric(int sqlType) {
+        switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
\ No newline at end of file
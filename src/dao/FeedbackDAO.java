@@ -1,17 +1,25 @@
 package dao;
 
+import cache.QueryCache;
 import models.Feedback;
 import utils.DatabaseConnection;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Data Access Object for Feedback-related database operations
  */
 public class FeedbackDAO {
     
+    private final WasteTypeDAO wasteTypeDAO = new WasteTypeDAO();
+    private final UserDAO userDAO = new UserDAO();
+    private final QueryCache queryCache = QueryCache.getInstance();
+    private final RollupDAO rollupDAO = new RollupDAO();
+    
     /**
      * Add new feedback to the database
      * @param feedback Feedback object to add
@@ -20,8 +28,8 @@ public class FeedbackDAO {
     public boolean addFeedback(Feedback feedback) {
         String query = "INSERT INTO feedback (user_id, request_id, rating, comments) VALUES (?, ?, ?, ?)";
         
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Transaction tx = new Transaction();
+             PreparedStatement stmt = tx.getConnection().prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
             
             stmt.setInt(1, feedback.getUserId());
             stmt.setInt(2, feedback.getRequestId());
@@ -29,7 +37,25 @@ public class FeedbackDAO {
             stmt.setString(4, feedback.getComments());
             
             int rowsAffected = stmt.executeUpdate();
-            return rowsAffected > 0;
+            if (rowsAffected == 0) {
+                return false;
+            }
+            
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                if (keys.next()) {
+                    rollupDAO.applyFeedback(tx, keys.getInt(1), 1);
+                }
+            }
+            
+            int collectorId = rollupDAO.findCollectorForRequest(tx, feedback.getRequestId());
+            if (collectorId > 0) {
+                rollupDAO.applyRating(tx, collectorId, feedback.getRating(), 1);
+            }
+            
+            tx.invalidate(CacheTags.ALL_FEEDBACK, CacheTags.feedbackByUser(feedback.getUserId()),
+                    CacheTags.feedbackByRequest(feedback.getRequestId()));
+            tx.commit();
+            return true;
             
         } catch (SQLException e) {
             System.err.println("Error adding feedback: " + e.getMessage());
@@ -45,15 +71,36 @@ public class FeedbackDAO {
     public boolean updateFeedback(Feedback feedback) {
         String query = "UPDATE feedback SET rating = ?, comments = ? WHERE feedback_id = ?";
         
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Transaction tx = new Transaction();
+             PreparedStatement stmt = tx.getConnection().prepareStatement(query)) {
+            
+            Feedback previous = lockFeedback(tx, feedback.getFeedbackId());
+            if (previous == null) {
+                return false;
+            }
+            
+            boolean ratingChanged = previous.getRating() != feedback.getRating();
+            if (ratingChanged) {
+                rollupDAO.applyFeedback(tx, feedback.getFeedbackId(), -1);
+            }
             
             stmt.setInt(1, feedback.getRating());
             stmt.setString(2, feedback.getComments());
             stmt.setInt(3, feedback.getFeedbackId());
+            stmt.executeUpdate();
             
-            int rowsAffected = stmt.executeUpdate();
-            return rowsAffected > 0;
+            int collectorId = rollupDAO.findCollectorForRequest(tx, previous.getRequestId());
+            if (ratingChanged) {
+                rollupDAO.applyFeedback(tx, feedback.getFeedbackId(), 1);
+                if (collectorId > 0) {
+                    rollupDAO.applyRating(tx, collectorId, previous.getRating(), -1);
+                    rollupDAO.applyRating(tx, collectorId, feedback.getRating(), 1);
+                }
+            }
+            
+            tx.invalidate(CacheTags.feedback(feedback.getFeedbackId()));
+            tx.commit();
+            return true;
             
         } catch (SQLException e) {
             System.err.println("Error updating feedback: " + e.getMessage());
@@ -69,13 +116,26 @@ public class FeedbackDAO {
     public boolean deleteFeedback(int feedbackId) {
         String query = "DELETE FROM feedback WHERE feedback_id = ?";
         
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Transaction tx = new Transaction();
+             PreparedStatement stmt = tx.getConnection().prepareStatement(query)) {
+            
+            Feedback previous = lockFeedback(tx, feedbackId);
+            if (previous == null) {
+                return false;
+            }
             
+            rollupDAO.applyFeedback(tx, feedbackId, -1);
             stmt.setInt(1, feedbackId);
+            stmt.executeUpdate();
             
-            int rowsAffected = stmt.executeUpdate();
-            return rowsAffected > 0;
+            int collectorId = rollupDAO.findCollectorForRequest(tx, previous.getRequestId());
+            if (collectorId > 0) {
+                rollupDAO.applyRating(tx, collectorId, previous.getRating(), -1);
+            }
+            
+            tx.invalidate(CacheTags.feedback(feedbackId));
+            tx.commit();
+            return true;
             
         } catch (SQLException e) {
             System.err.println("Error deleting feedback: " + e.getMessage());
@@ -83,20 +143,54 @@ public class FeedbackDAO {
         }
     }
     
+    /**
+     * Lock a feedback row for the rest of the transaction and read its request and rating
+     * @param tx Transaction of the write
+     * @param feedbackId Feedback ID
+     * @return Feedback object with request ID and rating set, or null if not found
+     * @throws SQLException if the query fails
+     */
+    private Feedback lockFeedback(Transaction tx, int feedbackId) throws SQLException {
+        String query = "SELECT request_id, rating FROM feedback WHERE feedback_id = ? FOR UPDATE";
+        
+        try (PreparedStatement stmt = tx.getConnection().prepareStatement(query)) {
+            
+            stmt.setInt(1, feedbackId);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                Feedback feedback = new Feedback();
+                feedback.setFeedbackId(feedbackId);
+                feedback.setRequestId(rs.getInt("request_id"));
+                feedback.setRating(rs.getInt("rating"));
+                return feedback;
+            }
+        }
+    }
+    
     /**
      * Get feedback by its ID
      * @param feedbackId Feedback ID to search for
      * @return Feedback object if found, null otherwise
      */
     public Feedback getFeedbackById(int feedbackId) {
-        String query = "SELECT f.*, u.full_name as user_name, " +
-                       "CONCAT(wr.address, ' (', wt.type_name, ')') as request_details " +
+        String cacheKey = QueryCache.key("FeedbackDAO.getFeedbackById", feedbackId);
+        Feedback cached = queryCache.get(cacheKey);
+        if (cached != null) {
+            return copyOf(cached);
+        }
+        
+        long version = queryCache.getVersion();
+        String query = "SELECT f.*, wr.address, wr.waste_type " +
                        "FROM feedback f " +
-                       "JOIN users u ON f.user_id = u.user_id " +
                        "JOIN waste_requests wr ON f.request_id = wr.request_id " +
-                       "JOIN waste_types wt ON wr.waste_type = wt.type_id " +
                        "WHERE f.feedback_id = ?";
         
+        Feedback feedback = null;
+        Map<Integer, String> typeNames = wasteTypeDAO.getWasteTypeNames();
+        
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
             
@@ -104,7 +198,7 @@ public class FeedbackDAO {
             
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    return extractFeedbackFromResultSet(rs);
+                    feedback = extractFeedbackFromResultSet(rs, typeNames);
                 }
             }
             
@@ -112,7 +206,12 @@ public class FeedbackDAO {
             System.err.println("Error getting feedback by ID: " + e.getMessage());
         }
         
-        return null;
+        if (feedback != null) {
+            hydrateUserNames(Collections.singletonList(feedback));
+            queryCache.put(cacheKey, copyOf(feedback), CacheTags.forFeedback(Collections.singletonList(feedback), CacheTags.feedback(feedbackId)), version);
+        }
+        
+        return feedback;
     }
     
     /**
@@ -121,14 +220,21 @@ public class FeedbackDAO {
      * @return Feedback object if found, null otherwise
      */
     public Feedback getFeedbackByRequestId(int requestId) {
-        String query = "SELECT f.*, u.full_name as user_name, " +
-                       "CONCAT(wr.address, ' (', wt.type_name, ')') as request_details " +
+        String cacheKey = QueryCache.key("FeedbackDAO.getFeedbackByRequestId", requestId);
+        Feedback cached = queryCache.get(cacheKey);
+        if (cached != null) {
+            return copyOf(cached);
+        }
+        
+        long version = queryCache.getVersion();
+        String query = "SELECT f.*, wr.address, wr.waste_type " +
                        "FROM feedback f " +
-                       "JOIN users u ON f.user_id = u.user_id " +
                        "JOIN waste_requests wr ON f.request_id = wr.request_id " +
-                       "JOIN waste_types wt ON wr.waste_type = wt.type_id " +
                        "WHERE f.request_id = ?";
         
+        Feedback feedback = null;
+        Map<Integer, String> typeNames = wasteTypeDAO.getWasteTypeNames();
+        
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
             
@@ -136,7 +242,7 @@ public class FeedbackDAO {
             
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    return extractFeedbackFromResultSet(rs);
+                    feedback = extractFeedbackFromResultSet(rs, typeNames);
                 }
             }
             
@@ -144,35 +250,56 @@ public class FeedbackDAO {
             System.err.println("Error getting feedback by request ID: " + e.getMessage());
         }
         
-        return null;
+        if (feedback != null) {
+            hydrateUserNames(Collections.singletonList(feedback));
+            queryCache.put(cacheKey, copyOf(feedback), CacheTags.forFeedback(Collections.singletonList(feedback), CacheTags.feedbackByRequest(requestId)), version);
+        }
+        
+        return feedback;
     }
     
     /**
      * Get all feedback
-     * @return List of all feedback
+     * @return List of all feedback, or null if the query failed
      */
     public List<Feedback> getAllFeedback() {
+        String cacheKey = QueryCache.key("FeedbackDAO.getAllFeedback");
+        List<Feedback> cached = queryCache.get(cacheKey);
+        if (cached != null) {
+            return copyOf(cached);
+        }
+        
+        long version = queryCache.getVersion();
+        boolean loaded = false;
         List<Feedback> feedbackList = new ArrayList<>();
-        String query = "SELECT f.*, u.full_name as user_name, " +
-                       "CONCAT(wr.address, ' (', wt.type_name, ')') as request_details " +
+        String query = "SELECT f.*, wr.address, wr.waste_type " +
                        "FROM feedback f " +
-                       "JOIN users u ON f.user_id = u.user_id " +
                        "JOIN waste_requests wr ON f.request_id = wr.request_id " +
-                       "JOIN waste_types wt ON wr.waste_type = wt.type_id " +
                        "ORDER BY f.submitted_on DESC";
         
+        Map<Integer, String> typeNames = wasteTypeDAO.getWasteTypeNames();
+        
         try (Connection conn = DatabaseConnection.getConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(query)) {
             
             while (rs.next()) {
-                feedbackList.add(extractFeedbackFromResultSet(rs));
+                feedbackList.add(extractFeedbackFromResultSet(rs, typeNames));
             }
             
+            loaded = true;
+            
         } catch (SQLException e) {
             System.err.println("Error getting all feedback: " + e.getMessage());
         }
         
+        if (!loaded) {
+            return null;
+        }
+        
+        hydrateUserNames(feedbackList);
+        queryCache.put(cacheKey, copyOf(feedbackList), CacheTags.forFeedback(feedbackList, CacheTags.ALL_FEEDBACK), version);
+        
         return feedbackList;
     }
     
@@ -182,16 +309,23 @@ public class FeedbackDAO {
      * @return List of feedback from the specified user
      */
     public List<Feedback> getFeedbackByUserId(int userId) {
+        String cacheKey = QueryCache.key("FeedbackDAO.getFeedbackByUserId", userId);
+        List<Feedback> cached = queryCache.get(cacheKey);
+        if (cached != null) {
+            return copyOf(cached);
+        }
+        
+        long version = queryCache.getVersion();
+        boolean loaded = false;
         List<Feedback> feedbackList = new ArrayList<>();
-        String query = "SELECT f.*, u.full_name as user_name, " +
-                       "CONCAT(wr.address, ' (', wt.type_name, ')') as request_details " +
+        String query = "SELECT f.*, wr.address, wr.waste_type " +
                        "FROM feedback f " +
-                       "JOIN users u ON f.user_id = u.user_id " +
                        "JOIN waste_requests wr ON f.request_id = wr.request_id " +
-                       "JOIN waste_types wt ON wr.waste_type = wt.type_id " +
                        "WHERE f.user_id = ? " +
                        "ORDER BY f.submitted_on DESC";
         
+        Map<Integer, String> typeNames = wasteTypeDAO.getWasteTypeNames();
+        
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
             
@@ -199,24 +333,72 @@ public class FeedbackDAO {
             
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    feedbackList.add(extractFeedbackFromResultSet(rs));
+                    feedbackList.add(extractFeedbackFromResultSet(rs, typeNames));
                 }
             }
             
+            loaded = true;
+            
         } catch (SQLException e) {
             System.err.println("Error getting feedback by user ID: " + e.getMessage());
         }
         
+        hydrateUserNames(feedbackList);
+        
+        if (loaded) {
+            queryCache.put(cacheKey, copyOf(feedbackList), CacheTags.forFeedback(feedbackList, CacheTags.feedbackByUser(userId)), version);
+        }
+        
         return feedbackList;
     }
     
+    /**
+     * Fill in resident names from the user cache instead of joining the users table
+     * @param feedbackList List of Feedback objects to update
+     */
+    private void hydrateUserNames(List<Feedback> feedbackList) {
+        if (feedbackList.isEmpty()) {
+            return;
+        }
+        
+        List<Integer> userIds = new ArrayList<>(feedbackList.size());
+        for (Feedback feedback : feedbackList) {
+            userIds.add(feedback.getUserId());
+        }
+        
+        Map<Integer, String> names = userDAO.getFullNames(userIds);
+        for (Feedback feedback : feedbackList) {
+            feedback.setUserName(names.get(feedback.getUserId()));
+        }
+    }
+    
+    /**
+     * Copy a Feedback so that callers never share objects with the query cache
+     */
+    private static Feedback copyOf(Feedback feedback) {
+        Feedback copy = new Feedback(feedback.getFeedbackId(), feedback.getUserId(), feedback.getRequestId(),
+                feedback.getRating(), feedback.getComments(), feedback.getSubmittedOn());
+        copy.setUserName(feedback.getUserName());
+        copy.setRequestDetails(feedback.getRequestDetails());
+        return copy;
+    }
+    
+    private static List<Feedback> copyOf(List<Feedback> feedbackList) {
+        List<Feedback> copies = new ArrayList<>(feedbackList.size());
+        for (Feedback feedback : feedbackList) {
+            copies.add(copyOf(feedback));
+        }
+        return copies;
+    }
+    
     /**
      * Extract a Feedback object from a ResultSet
      * @param rs ResultSet containing feedback data
+     * @param typeNames Waste type names keyed by type ID
      * @return Feedback object
      * @throws SQLException if an error occurs
      */
-    private Feedback extractFeedbackFromResultSet(ResultSet rs) throws SQLException {
+    private Feedback extractFeedbackFromResultSet(ResultSet rs, Map<Integer, String> typeNames) throws SQLException {
         Feedback feedback = new Feedback();
         feedback.setFeedbackId(rs.getInt("feedback_id"));
         feedback.setUserId(rs.getInt("user_id"));
@@ -226,8 +408,8 @@ public class FeedbackDAO {
         feedback.setSubmittedOn(rs.getTimestamp("submitted_on"));
         
         // Set additional display fields
-        feedback.setUserName(rs.getString("user_name"));
-        feedback.setRequestDetails(rs.getString("request_details"));
+        feedback.setRequestDetails(rs.getString("address") + " (" +
+                                   typeNames.get(rs.getInt("waste_type")) + ")");
         
         return feedback;
     }
@@ -0,0 +1,102 @@
+package dao;
+
+import dispatch.Vehicle;
+import models.User;
+import utils.DatabaseConnection;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Data Access Object for the collectors' vehicles and the waste types that
+ * only certified crews may collect
+ */
+public class FleetDAO {
+    
+    /** Capacity of a collector with no row in collector_vehicles */
+    public static final double DEFAULT_CAPACITY_KG = 1000;
+    
+    /**
+     * Get the vehicles of several collectors
+     * @param collectors Collectors
+     * @return Vehicles in the order of the collectors, or null on error
+     */
+    public List<Vehicle> getVehicles(List<User> collectors) {
+        String query = "SELECT collector_id, capacity_kg, certified FROM collector_vehicles";
+        Map<Integer, Vehicle> vehicles = new HashMap<>();
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            
+            while (rs.next()) {
+                int collectorId = rs.getInt("collector_id");
+                vehicles.put(collectorId, new Vehicle(collectorId, rs.getDouble("capacity_kg"), rs.getBoolean("certified")));
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Error getting collector vehicles: " + e.getMessage());
+            return null;
+        }
+        
+        List<Vehicle> result = new ArrayList<>(collectors.size());
+        for (User collector : collectors) {
+            Vehicle vehicle = vehicles.get(collector.getUserId());
+            result.add(vehicle != null ? vehicle : new Vehicle(collector.getUserId(), DEFAULT_CAPACITY_KG, false));
+        }
+        return result;
+    }
+    
+    /**
+     * Set the vehicle of a collector
+     * @param vehicle Vehicle with collector ID, capacity and certification set
+     * @return true if successful, false otherwise
+     */
+    public boolean setVehicle(Vehicle vehicle) {
+        String query = "INSERT INTO collector_vehicles (collector_id, capacity_kg, certified) VALUES (?, ?, ?) " +
+                       "ON DUPLICATE KEY UPDATE capacity_kg = VALUES(capacity_kg), certified = VALUES(certified)";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            
+            stmt.setInt(1, vehicle.getCollectorId());
+            stmt.setDouble(2, vehicle.getCapacityKg());
+            stmt.setBoolean(3, vehicle.isCertified());
+            
+            int rowsAffected = stmt.executeUpdate();
+            return rowsAffected > 0;
+        
+        } catch (SQLException e) {
+            System.err.println("Error setting collector vehicle: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Get the waste types that only certified crews may collect
+     * @return Set of waste type IDs, or null on error
+     */
+    public Set<Integer> getRestrictedWasteTypes() {
+        String query = "SELECT type_id FROM waste_types WHERE requires_certification";
+        Set<Integer> types = new HashSet<>();
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            
+            while (rs.next()) {
+                types.add(rs.getInt("type_id"));
+            }
+            return types;
+        
+        } catch (SQLException e) {
+            System.err.println("Error getting restricted waste types: " + e.getMessage());
+            return null;
+        }
+    }
+}
\ No newline at end of file
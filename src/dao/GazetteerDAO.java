@@ -0,0 +1,272 @@
+package dao;
+
+import analytics.KpiSketches;
+import dispatch.Location;
+import utils.DatabaseConnection;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Data Access Object for the local address gazetteer, which gives the
+ * coordinates of pickup addresses for route planning and their pickup zone
+ * for slot scheduling. Addresses are looked
+ * up in normalized form, so spelling variants of one address share a row.
+ * Rows are loaded from a CSV file by importCsv(), from the admin requests tab.
+ */
+public class GazetteerDAO {
+    
+    /** Address of the row holding the depot that routes start from */
+    public static final String DEPOT = "depot";
+    
+    private static final int MAX_IDS_PER_QUERY = 500;
+    
+    /**
+     * Get the locations of several addresses
+     * @param addresses Addresses as entered (duplicates are ignored)
+     * @return Map of address as given to location; addresses not in the gazetteer are left out
+     */
+    public Map<String, Location> getLocations(Collection<String> addresses) {
+        Map<String, Location> locations = new HashMap<>();
+        for (Map.Entry<String, Entry> entry : lookup(addresses).entrySet()) {
+            locations.put(entry.getKey(), entry.getValue().location);
+        }
+        return locations;
+    }
+    
+    /**
+     * Get the pickup zones of several addresses
+     * @param addresses Addresses as entered (duplicates are ignored)
+     * @return Map of address as given to zone; addresses not in the gazetteer or without a zone are left out
+     */
+    public Map<String, String> getZones(Collection<String> addresses) {
+        return zonesOf(lookup(addresses));
+    }
+    
+    /**
+     * Get the pickup zones of several addresses as part of a larger write
+     * @param tx Transaction of the write
+     * @param addresses Addresses as entered (duplicates are ignored)
+     * @return Map of address as given to zone; addresses not in the gazetteer or without a zone are left out
+     * @throws SQLException if the query fails
+     */
+    Map<String, String> getZones(Transaction tx, Collection<String> addresses) throws SQLException {
+        return zonesOf(lookup(tx.getConnection(), addresses));
+    }
+    
+    private static Map<String, String> zonesOf(Map<String, Entry> entries) {
+        Map<String, String> zones = new HashMap<>();
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            if (entry.getValue().zone != null) {
+                zones.put(entry.getKey(), entry.getValue().zone);
+            }
+        }
+        return zones;
+    }
+    
+    /**
+     * Look up several addresses on a connection of its own
+     * @param addresses Addresses as entered
+     * @return Map of address as given to its gazetteer row; empty on error
+     */
+    private Map<String, Entry> lookup(Collection<String> addresses) {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return lookup(conn, addresses);
+        } catch (SQLException e) {
+            System.err.println("Error looking up addresses: " + e.getMessage());
+            return new HashMap<>();
+        }
+    }
+    
+    /**
+     * Look up several addresses with one IN query per batch
+     * @param conn Connection to use (left open)
+     * @param addresses Addresses as entered
+     * @return Map of address as given to its gazetteer row
+     * @throws SQLException if a query fails
+     */
+    private Map<String, Entry> lookup(Connection conn, Collection<String> addresses) throws SQLException {
+        // Several spellings may normalize to the same key
+        Map<String, List<String>> byKey = new HashMap<>();
+        for (String address : addresses) {
+            String key = KpiSketches.normalizeAddress(address);
+            List<String> spellings = byKey.get(key);
+            if (spellings == null) {
+                spellings = new ArrayList<>();
+                byKey.put(key, spellings);
+            }
+            if (!spellings.contains(address)) {
+                spellings.add(address);
+            }
+        }
+        
+        Map<String, Entry> entries = new HashMap<>();
+        List<String> keys = new ArrayList<>(byKey.keySet());
+        for (int start = 0; start < keys.size(); start += MAX_IDS_PER_QUERY) {
+            List<String> batch = keys.subList(start, Math.min(start + MAX_IDS_PER_QUERY, keys.size()));
+            StringBuilder placeholders = new StringBuilder();
+            for (int i = 0; i < batch.size(); i++) {
+                placeholders.append(i == 0 ? "?" : ", ?");
+            }
+            String query = "SELECT address, latitude, longitude, zone FROM address_gazetteer " +
+                           "WHERE address IN (" + placeholders + ")";
+            
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                
+                for (int i = 0; i < batch.size(); i++) {
+                    stmt.setString(i + 1, batch.get(i));
+                }
+                
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        // MySQL matches IN case-, accent- and pad-insensitively, so a row
+                        // stored in another form may come back under a key not asked for
+                        List<String> spellings = byKey.get(KpiSketches.normalizeAddress(rs.getString("address")));
+                        if (spellings == null) {
+                            continue;
+                        }
+                        Entry entry = new Entry(new Location(rs.getDouble("latitude"), rs.getDouble("longitude")),
+                                rs.getString("zone"));
+                        for (String address : spellings) {
+                            entries.put(address, entry);
+                        }
+                    }
+                }
+            }
+        }
+        
+        return entries;
+    }
+    
+    /**
+     * Get the location routes start from
+     * @return Depot location, or null if none is set
+     */
+    public Location getDepot() {
+        return getLocations(Collections.singletonList(DEPOT)).get(DEPOT);
+    }
+    
+    /**
+     * Add or update gazetteer rows from a CSV file with the columns
+     * address, latitude, longitude and optionally zone. A header row is
+     * skipped, and fields with commas may be quoted as in the CSV exports.
+     * The address "depot" sets where routes start. A row without a zone keeps
+     * the zone already stored for its address. Unreadable lines are reported
+     * and skipped.
+     * @param file CSV file
+     * @return Number of rows added or updated, or -1 on error
+     */
+    public int importCsv(Path file) {
+        String query = "INSERT INTO address_gazetteer (address, latitude, longitude, zone) VALUES (?, ?, ?, ?) " +
+                       "ON DUPLICATE KEY UPDATE latitude = VALUES(latitude), longitude = VALUES(longitude), " +
+                       "zone = COALESCE(VALUES(zone), zone)";
+        
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+             Transaction tx = new Transaction();
+             PreparedStatement stmt = tx.getConnection().prepareStatement(query)) {
+            
+            int imported = 0;
+            int lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                List<String> fields = parseCsvLine(line);
+                if (fields.isEmpty() || (lineNumber == 1 && fields.get(0).trim().equalsIgnoreCase("address"))) {
+                    continue;
+                }
+                
+                String address = KpiSketches.normalizeAddress(fields.get(0));
+                if (fields.size() < 3 || address.isEmpty()) {
+                    System.err.println("Skipping gazetteer line " + lineNumber + ": expected address, latitude, longitude[, zone]");
+                    continue;
+                }
+                double latitude;
+                double longitude;
+                try {
+                    latitude = Double.parseDouble(fields.get(1).trim());
+                    longitude = Double.parseDouble(fields.get(2).trim());
+                } catch (NumberFormatException e) {
+                    System.err.println("Skipping gazetteer line " + lineNumber + ": " + e.getMessage());
+                    continue;
+                }
+                String zone = fields.size() > 3 && !fields.get(3).trim().isEmpty() ? fields.get(3).trim() : null;
+                
+                stmt.setString(1, address);
+                stmt.setDouble(2, latitude);
+                stmt.setDouble(3, longitude);
+                stmt.setString(4, zone);
+                stmt.addBatch();
+                imported++;
+            }
+            
+            stmt.executeBatch();
+            tx.commit();
+            return imported;
+        
+        } catch (IOException e) {
+            System.err.println("Error reading gazetteer file " + file + ": " + e.getMessage());
+            return -1;
+        } catch (SQLException e) {
+            System.err.println("Error importing gazetteer: " + e.getMessage());
+            return -1;
+        }
+    }
+    
+    /**
+     * Split a CSV line into fields, honouring double-quoted fields with "" for a quote
+     */
+    private static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        if (line.trim().isEmpty()) {
+            return fields;
+        }
+        
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+    
+    /**
+     * Gazetteer row of an address
+     */
+    private static class Entry {
+        private final Location location;
+        private final String zone;
+        
+        Entry(Location location, String zone) {
+            this.location = location;
+            this.zone = zone;
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package dao;
+
+import analytics.CountMinSketch;
+import analytics.HyperLogLog;
+import analytics.KpiSketches;
+import analytics.QuantileSketch;
+import models.WasteRequest;
+import reports.ReportDimension;
+import utils.DatabaseConnection;
+
+import java.sql.*;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Data Access Object for the KPI sketches in kpi_sketches.
+ * Each month of requested dates has one row per sketch: "residents",
+ * "addresses" and "quantity:<waste type ID>". WasteRequestDAO adds every new
+ * request to an in-memory delta once its insert commits; a daemon thread
+ * merges the buffered deltas into the rows every FLUSH_INTERVAL_SECONDS, and
+ * once more on exit. Inserts therefore never wait on the shared sketch rows,
+ * and each flush writes one merged delta per month. getSketches() merges the
+ * rows of a range of months, so the KPIs never scan the requests table.
+ * Sketches only grow: edits and deletions of requests are not subtracted
+ * until rebuild() recomputes them, which the admin KPIs tab offers. The
+ * client builds missing sketches on startup (rebuildIfEmpty()).
+ */
+public class KpiSketchDAO {
+    
+    private static final String RESIDENTS = "residents";
+    private static final String ADDRESSES = "addresses";
+    private static final String QUANTITY_PREFIX = "quantity:";
+    
+    private static final long FLUSH_INTERVAL_SECONDS = 30;
+    
+    /** Requests committed but not yet flushed, by month key */
+    private static final Map<Integer, KpiSketches> pending = new TreeMap<>();
+    
+    private static ScheduledExecutorService flusher;
+    
+    /**
+     * Start flushing the buffered requests on a daemon thread, and once more
+     * when the JVM exits. Calling it again has no effect.
+     */
+    public static synchronized void startFlushing() {
+        if (flusher != null) {
+            return;
+        }
+        
+        flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "kpi-sketch-flusher");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        
+        flusher.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                new KpiSketchDAO().flush();
+            }
+        }, FLUSH_INTERVAL_SECONDS, FLUSH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                new KpiSketchDAO().flush();
+            }
+        }, "kpi-sketch-final-flush"));
+    }
+    
+    /**
+     * Buffer a committed request for the next flush
+     * @param request Request with user, waste type, quantity, address and requested date set
+     */
+    void addRequest(WasteRequest request) {
+        int month = ReportDimension.MONTH.bucketKey(request.getRequestedDate().toLocalDate());
+        
+        synchronized (pending) {
+            KpiSketches sketches = pending.get(month);
+            if (sketches == null) {
+                sketches = new KpiSketches();
+                pending.put(month, sketches);
+            }
+            sketches.addRequest(request.getUserId(), request.getWasteType(), request.getQuantity(),
+                    request.getAddress());
+        }
+    }
+    
+    /**
+     * Merge the buffered requests into the stored sketches in one transaction.
+     * On failure they are put back and tried again on the next flush.
+     * @return true if successful or nothing was buffered, false otherwise
+     */
+    public boolean flush() {
+        Map<Integer, KpiSketches> deltas;
+        synchronized (pending) {
+            if (pending.isEmpty()) {
+                return true;
+            }
+            deltas = new TreeMap<>(pending);
+            pending.clear();
+        }
+        
+        try (Transaction tx = new Transaction()) {
+            // Months ascending and names in order, so that concurrent flushes cannot deadlock
+            for (Map.Entry<Integer, KpiSketches> delta : deltas.entrySet()) {
+                int month = delta.getKey();
+                KpiSketches sketches = new KpiSketches();
+                
+                merge(sketches, ADDRESSES, lockSketch(tx, month, ADDRESSES));
+                for (int wasteType : delta.getValue().getWasteTypes()) {
+                    String name = QUANTITY_PREFIX + wasteType;
+                    merge(sketches, name, lockSketch(tx, month, name));
+                }
+                merge(sketches, RESIDENTS, lockSketch(tx, month, RESIDENTS));
+                
+                sketches.merge(delta.getValue());
+                
+                saveSketch(tx, month, ADDRESSES, sketches.getAddresses().toBytes());
+                for (int wasteType : delta.getValue().getWasteTypes()) {
+                    saveSketch(tx, month, QUANTITY_PREFIX + wasteType,
+                            sketches.getQuantities().get(wasteType).toBytes());
+                }
+                saveSketch(tx, month, RESIDENTS, sketches.getResidents().toBytes());
+            }
+            tx.commit();
+            return true;
+        
+        } catch (SQLException e) {
+            System.err.println("Error flushing KPI sketches: " + e.getMessage());
+            synchronized (pending) {
+                for (Map.Entry<Integer, KpiSketches> delta : deltas.entrySet()) {
+                    KpiSketches sketches = pending.get(delta.getKey());
+                    if (sketches == null) {
+                        pending.put(delta.getKey(), delta.getValue());
+                    } else {
+                        sketches.merge(delta.getValue());
+                    }
+                }
+            }
+            return false;
+        }
+    }
+    
+    /**
+     * Get the sketches of the requests made in a range of months
+     * @param from First month included, or null for no lower bound
+     * @param to Last month included, or null for no upper bound
+     * @return KpiSketches object, or null if the sketches could not be read
+     */
+    public KpiSketches getSketches(YearMonth from, YearMonth to) {
+        String query = "SELECT sketch, data FROM kpi_sketches WHERE month BETWEEN ? AND ?";
+        int fromKey = from != null ? monthKey(from) : Integer.MIN_VALUE;
+        int toKey = to != null ? monthKey(to) : Integer.MAX_VALUE;
+        KpiSketches sketches = new KpiSketches();
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            
+            stmt.setInt(1, fromKey);
+            stmt.setInt(2, toKey);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    merge(sketches, rs.getString("sketch"), rs.getBytes("data"));
+                }
+            }
+        
+        } catch (SQLException e) {
+            System.err.println("Error getting KPI sketches: " + e.getMessage());
+            return null;
+        }
+        
+        // Include this client's requests that are not flushed yet
+        synchronized (pending) {
+            for (Map.Entry<Integer, KpiSketches> delta : pending.entrySet()) {
+                if (delta.getKey() >= fromKey && delta.getKey() <= toKey) {
+                    sketches.merge(delta.getValue());
+                }
+            }
+        }
+        return sketches;
+    }
+    
+    /**
+     * Build the sketches once after an upgrade: if there are requests but no
+     * sketches yet, recompute them, as the KPIs would otherwise only count
+     * requests made since
+     * @return true if the sketches were rebuilt, false if not needed or failed
+     */
+    public boolean rebuildIfEmpty() {
+        String query = "SELECT EXISTS (SELECT 1 FROM waste_requests) " +
+                       "AND NOT EXISTS (SELECT 1 FROM kpi_sketches) AS missing";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            
+            if (!rs.next() || !rs.getBoolean("missing")) {
+                return false;
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Error checking KPI sketches: " + e.getMessage());
+            return false;
+        }
+        
+        return rebuild();
+    }
+    
+    /**
+     * Recompute all sketches from the requests table in one streamed scan,
+     * e.g. after an upgrade or to drop edited and deleted requests
+     * @return true if successful, false otherwise
+     */
+    public boolean rebuild() {
+        String query = "SELECT user_id, waste_type, quantity, address, requested_date FROM waste_requests";
+        Map<Integer, KpiSketches> months = new HashMap<>();
+        
+        // The scan below sees the buffered requests, which are already committed
+        synchronized (pending) {
+            pending.clear();
+        }
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            
+            // Connector/J streams rows one at a time with this fetch size
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int month = ReportDimension.MONTH.bucketKey(rs.getDate("requested_date").toLocalDate());
+                    KpiSketches sketches = months.get(month);
+                    if (sketches == null) {
+                        sketches = new KpiSketches();
+                        months.put(month, sketches);
+                    }
+                    sketches.addRequest(rs.getInt("user_id"), rs.getInt("waste_type"),
+                            rs.getDouble("quantity"), rs.getString("address"));
+                }
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Error reading requests for KPI sketches: " + e.getMessage());
+            return false;
+        }
+        
+        String insert = "INSERT INTO kpi_sketches (month, sketch, data) VALUES (?, ?, ?)";
+        
+        try (Transaction tx = new Transaction();
+             Statement deleteStmt = tx.getConnection().createStatement();
+             PreparedStatement insertStmt = tx.getConnection().prepareStatement(insert)) {
+            
+            deleteStmt.executeUpdate("DELETE FROM kpi_sketches");
+            for (Map.Entry<Integer, KpiSketches> month : months.entrySet()) {
+                KpiSketches sketches = month.getValue();
+                addBatch(insertStmt, month.getKey(), RESIDENTS, sketches.getResidents().toBytes());
+                addBatch(insertStmt, month.getKey(), ADDRESSES, sketches.getAddresses().toBytes());
+                for (Map.Entry<Integer, QuantileSketch> quantity : sketches.getQuantities().entrySet()) {
+                    addBatch(insertStmt, month.getKey(), QUANTITY_PREFIX + quantity.getKey(),
+                            quantity.getValue().toBytes());
+                }
+            }
+            insertStmt.executeBatch();
+            tx.commit();
+            return true;
+        
+        } catch (SQLException e) {
+            System.err.println("Error rebuilding KPI sketches: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Lock a sketch row for the rest of the transaction, creating it empty if needed
+     * @return Serialized sketch, empty for a new row
+     */
+    private byte[] lockSketch(Transaction tx, int month, String name) throws SQLException {
+        // An upsert locks the row whether or not it exists; SELECT ... FOR UPDATE
+        // on a missing row would only take a gap lock and let two inserts deadlock
+        String create = "INSERT INTO kpi_sketches (month, sketch, data) VALUES (?, ?, '') " +
+                        "ON DUPLICATE KEY UPDATE data = data";
+        String select = "SELECT data FROM kpi_sketches WHERE month = ? AND sketch = ? FOR UPDATE";
+        
+        try (PreparedStatement createStmt = tx.getConnection().prepareStatement(create);
+             PreparedStatement selectStmt = tx.getConnection().prepareStatement(select)) {
+            
+            createStmt.setInt(1, month);
+            createStmt.setString(2, name);
+            createStmt.executeUpdate();
+            
+            selectStmt.setInt(1, month);
+            selectStmt.setString(2, name);
+            try (ResultSet rs = selectStmt.executeQuery()) {
+                return rs.next() ? rs.getBytes("data") : new byte[0];
+            }
+        }
+    }
+    
+    private void saveSketch(Transaction tx, int month, String name, byte[] data) throws SQLException {
+        String query = "UPDATE kpi_sketches SET data = ? WHERE month = ? AND sketch = ?";
+        
+        try (PreparedStatement stmt = tx.getConnection().prepareStatement(query)) {
+            stmt.setBytes(1, data);
+            stmt.setInt(2, month);
+            stmt.setString(3, name);
+            stmt.executeUpdate();
+        }
+    }
+    
+    private static void addBatch(PreparedStatement stmt, int month, String name, byte[] data) throws SQLException {
+        stmt.setInt(1, month);
+        stmt.setString(2, name);
+        stmt.setBytes(3, data);
+        stmt.addBatch();
+    }
+    
+    /**
+     * Merge a serialized sketch into a KpiSketches object by its row name.
+     * Empty rows are skipped, and unreadable ones are reported and skipped.
+     */
+    private static void merge(KpiSketches sketches, String name, byte[] data) {
+        if (data == null || data.length == 0) {
+            return;
+        }
+        
+        try {
+            if (name.equals(RESIDENTS)) {
+                sketches.mergeResidents(HyperLogLog.fromBytes(data));
+            } else if (name.equals(ADDRESSES)) {
+                sketches.mergeAddresses(CountMinSketch.fromBytes(data));
+            } else if (name.startsWith(QUANTITY_PREFIX)) {
+                int wasteType = Integer.parseInt(name.substring(QUANTITY_PREFIX.length()));
+                sketches.mergeQuantities(wasteType, QuantileSketch.fromBytes(data));
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Skipping unreadable KPI sketch " + name + ": " + e.getMessage());
+        }
+    }
+    
+    private static int monthKey(YearMonth month) {
+        return ReportDimension.MONTH.bucketKey(month.atDay(1));
+    }
+}
\ No newline at end of file
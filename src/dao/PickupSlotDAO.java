@@ -0,0 +1,449 @@
+package dao;
+
+import dispatch.SlotCalendar;
+import models.WasteRequest;
+import utils.DatabaseConnection;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Data Access Object for pickup date slotting.
+ * Pending requests get the earliest pickup_date on or after their requested
+ * date on which their zone still has pickup capacity (zone_capacity, with
+ * single-day overrides in zone_capacity_days). Requests slotted earlier keep
+ * their day and count against its capacity. Each slotted request also
+ * records its zone in pickup_zone, so the pickups a zone has booked per day
+ * can be counted from an index. A new request is slotted on its own on a
+ * background thread: it takes the earliest free day of its zone from those
+ * counts, without reading or moving any other request. After a capacity
+ * change or a cancellation only the pending requests of that zone from that
+ * day on are slotted again, so they can move into the freed pickups.
+ */
+public class PickupSlotDAO {
+    
+    /** Zone of the addresses the gazetteer gives no zone */
+    public static final String DEFAULT_ZONE = "default";
+    
+    /** Pickups per day of a zone with no row in zone_capacity */
+    public static final int DEFAULT_DAILY_PICKUPS = 20;
+    
+    private static final int HORIZON_DAYS = 90;
+    
+    // Named lock held while slotting, so two runs never book the same pickups
+    private static final String SLOT_LOCK = "wastewise.pickup_slots";
+    private static final int SLOT_LOCK_TIMEOUT_SECONDS = 10;
+    
+    private static ExecutorService executor;
+    
+    private final GazetteerDAO gazetteerDAO = new GazetteerDAO();
+    
+    /**
+     * Slot every pending request that has no pickup date, or one that has passed, in one batch
+     * @return Number of requests given a pickup date, or -1 on error
+     */
+    public int slotPending() {
+        return slot(null, null);
+    }
+    
+    /**
+     * Slot a new pending request on the slotting thread, so that the caller
+     * never waits for the slot lock. A failure leaves it for the next
+     * Schedule Pickups.
+     * @param request Request with ID, address and requested date set
+     */
+    void slotInBackground(final WasteRequest request) {
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                slotRequest(request);
+            }
+        });
+    }
+    
+    /**
+     * Book the earliest free day of a new pending request's zone. Only that
+     * zone's booked pickups per day are read and only this request is updated.
+     * @param request Request with ID, address and requested date set
+     * @return 1 if given a pickup date, 0 if its zone is full up to the horizon, or -1 on error
+     */
+    public int slotRequest(WasteRequest request) {
+        String update = "UPDATE waste_requests SET pickup_date = ?, pickup_zone = ? " +
+                        "WHERE request_id = ? AND status = 'Pending' AND pickup_date IS NULL";
+        
+        try (Transaction tx = new Transaction()) {
+            
+            Map<String, String> zones = gazetteerDAO.getZones(tx, Collections.singletonList(request.getAddress()));
+            String zone = zoneOf(zones, request);
+            
+            if (!acquireSlotLock(tx)) {
+                System.err.println("Error slotting request " + request.getRequestId() +
+                        ": timed out waiting for another slotting run");
+                return -1;
+            }
+            
+            try (PreparedStatement updateStmt = tx.getConnection().prepareStatement(update)) {
+                LocalDate today = currentDate(tx);
+                SlotCalendar calendar = loadCalendar(tx, today, zone);
+                useBookedPickups(tx, calendar, zone, today);
+                
+                LocalDate requested = request.getRequestedDate().toLocalDate();
+                LocalDate day = calendar.book(zone, requested.isAfter(today) ? requested : today);
+                if (day == null) {
+                    return 0;
+                }
+                
+                updateStmt.setDate(1, Date.valueOf(day));
+                updateStmt.setString(2, zone);
+                updateStmt.setInt(3, request.getRequestId());
+                if (updateStmt.executeUpdate() > 0) {
+                    tx.invalidate(CacheTags.request(request.getRequestId()));
+                }
+                tx.commit();
+                return 1;
+                
+            } finally {
+                releaseSlotLock(tx);
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Error slotting request " + request.getRequestId() + ": " + e.getMessage());
+            return -1;
+        }
+    }
+    
+    /**
+     * Slot the pending requests of a zone again from a given day on
+     * @param zone Zone name
+     * @param from First day whose pending requests may move, or null for today
+     * @return Number of requests given a pickup date, or -1 on error
+     */
+    public int reslot(String zone, LocalDate from) {
+        return slot(zone, from);
+    }
+    
+    /**
+     * Set the pickups per day of a zone and slot its pending requests again
+     * @param zone Zone name
+     * @param pickups Pickups per day
+     * @return true if successful, false otherwise
+     */
+    public boolean setDailyCapacity(String zone, int pickups) {
+        String query = "INSERT INTO zone_capacity (zone, daily_pickups) VALUES (?, ?) " +
+                       "ON DUPLICATE KEY UPDATE daily_pickups = VALUES(daily_pickups)";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            
+            stmt.setString(1, zone);
+            stmt.setInt(2, pickups);
+            stmt.executeUpdate();
+        
+        } catch (SQLException e) {
+            System.err.println("Error setting zone capacity: " + e.getMessage());
+            return false;
+        }
+        
+        return reslot(zone, null) >= 0;
+    }
+    
+    /**
+     * Set the pickups of a zone on one day and slot its pending requests again from that day
+     * @param zone Zone name
+     * @param day Day
+     * @param pickups Pickups that day, e.g. 0 on a holiday
+     * @return true if successful, false otherwise
+     */
+    public boolean setDayCapacity(String zone, LocalDate day, int pickups) {
+        String query = "INSERT INTO zone_capacity_days (zone, day, pickups) VALUES (?, ?, ?) " +
+                       "ON DUPLICATE KEY UPDATE pickups = VALUES(pickups)";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            
+            stmt.setString(1, zone);
+            stmt.setDate(2, Date.valueOf(day));
+            stmt.setInt(3, pickups);
+            stmt.executeUpdate();
+        
+        } catch (SQLException e) {
+            System.err.println("Error setting zone day capacity: " + e.getMessage());
+            return false;
+        }
+        
+        return reslot(zone, day) >= 0;
+    }
+    
+    /**
+     * Give the pickup of a deleted request to the pending requests behind it,
+     * on the slotting thread
+     * @param request Deleted request, with address and pickup date set
+     */
+    void requestCancelled(final WasteRequest request) {
+        if (request.getPickupDate() == null) {
+            return;
+        }
+        
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                String zone = gazetteerDAO.getZones(Collections.singletonList(request.getAddress()))
+                        .get(request.getAddress());
+                reslot(zone != null ? zone : DEFAULT_ZONE, request.getPickupDate().toLocalDate());
+            }
+        });
+    }
+    
+    /**
+     * Run slotting work on one daemon thread, in submission order
+     */
+    private static synchronized void execute(Runnable task) {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "pickup-slotter");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        executor.execute(task);
+    }
+    
+    /**
+     * Slot pending requests in one transaction. Runs are serialized by a named
+     * lock instead of row locks, so request writes never wait for slotting;
+     * the update only touches rows that are still pending.
+     * @param reslotZone Zone whose pending requests from reslotFrom on are slotted again, or null
+     * @param reslotFrom First day to slot again, or null for today
+     * @return Number of requests given a pickup date, or -1 on error
+     */
+    private int slot(String reslotZone, LocalDate reslotFrom) {
+        // Each half of the union can use an index: future pickups by date, pending requests by status
+        String query = "SELECT request_id, address, status, requested_date, pickup_date, pickup_zone " +
+                       "FROM waste_requests WHERE pickup_date >= ? " +
+                       "UNION ALL " +
+                       "SELECT request_id, address, status, requested_date, pickup_date, pickup_zone " +
+                       "FROM waste_requests WHERE status = 'Pending' AND (pickup_date IS NULL OR pickup_date < ?)";
+        String update = "UPDATE waste_requests SET pickup_date = ?, pickup_zone = ? " +
+                        "WHERE request_id = ? AND status = 'Pending'";
+        String zoneUpdate = "UPDATE waste_requests SET pickup_zone = ? WHERE request_id = ?";
+        
+        try (Transaction tx = new Transaction()) {
+            
+            if (!acquireSlotLock(tx)) {
+                System.err.println("Error slotting pickup dates: timed out waiting for another slotting run");
+                return -1;
+            }
+            
+            try (PreparedStatement stmt = tx.getConnection().prepareStatement(query);
+                 PreparedStatement updateStmt = tx.getConnection().prepareStatement(update);
+                 PreparedStatement zoneStmt = tx.getConnection().prepareStatement(zoneUpdate)) {
+                
+                // The database's date, so clients in other time zones agree on "today"
+                final LocalDate today = currentDate(tx);
+                LocalDate from = reslotFrom != null ? reslotFrom : today;
+                SlotCalendar calendar = loadCalendar(tx, today, null);
+                
+                List<WasteRequest> requests = new ArrayList<>();
+                Map<Integer, String> storedZones = new HashMap<>();
+                List<String> addresses = new ArrayList<>();
+                stmt.setDate(1, Date.valueOf(today));
+                stmt.setDate(2, Date.valueOf(today));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        WasteRequest request = new WasteRequest();
+                        request.setRequestId(rs.getInt("request_id"));
+                        request.setAddress(rs.getString("address"));
+                        request.setStatus(rs.getString("status"));
+                        request.setRequestedDate(rs.getDate("requested_date"));
+                        request.setPickupDate(rs.getDate("pickup_date"));
+                        requests.add(request);
+                        storedZones.put(request.getRequestId(), rs.getString("pickup_zone"));
+                        addresses.add(request.getAddress());
+                    }
+                }
+                Map<String, String> zones = gazetteerDAO.getZones(tx, addresses);
+                
+                List<WasteRequest> toSlot = new ArrayList<>();
+                int zonesFixed = 0;
+                for (WasteRequest request : requests) {
+                    String zone = zoneOf(zones, request);
+                    LocalDate pickup = request.getPickupDate() != null ? request.getPickupDate().toLocalDate() : null;
+                    boolean pending = request.getStatus().equals("Pending");
+                    boolean reslotted = reslotZone != null && reslotZone.equals(zone) && pickup != null
+                            && !pickup.isBefore(from);
+                    if (pending && (pickup == null || pickup.isBefore(today) || reslotted)) {
+                        toSlot.add(request);
+                    } else if (pickup != null) {
+                        calendar.use(zone, pickup);
+                        // Keep the recorded zone current, e.g. after an address import, for slotRequest()
+                        if (!zone.equals(storedZones.get(request.getRequestId()))) {
+                            zoneStmt.setString(1, zone);
+                            zoneStmt.setInt(2, request.getRequestId());
+                            zoneStmt.addBatch();
+                            zonesFixed++;
+                        }
+                    }
+                }
+                
+                // First come, first served
+                Collections.sort(toSlot, new Comparator<WasteRequest>() {
+                    @Override
+                    public int compare(WasteRequest a, WasteRequest b) {
+                        int result = a.getRequestedDate().compareTo(b.getRequestedDate());
+                        return result != 0 ? result : Integer.compare(a.getRequestId(), b.getRequestId());
+                    }
+                });
+                
+                int slotted = 0;
+                List<String> tags = new ArrayList<>();
+                for (WasteRequest request : toSlot) {
+                    String zone = zoneOf(zones, request);
+                    LocalDate requested = request.getRequestedDate().toLocalDate();
+                    LocalDate day = calendar.book(zone, requested.isAfter(today) ? requested : today);
+                    Date pickupDate = day != null ? Date.valueOf(day) : null;
+                    String pickupZone = day != null ? zone : null;
+                    if (day != null) {
+                        slotted++;
+                    }
+                    boolean sameDate = pickupDate == null ? request.getPickupDate() == null
+                            : pickupDate.equals(request.getPickupDate());
+                    if (sameDate && Objects.equals(pickupZone, storedZones.get(request.getRequestId()))) {
+                        continue;
+                    }
+                    
+                    updateStmt.setDate(1, pickupDate);
+                    updateStmt.setString(2, pickupZone);
+                    updateStmt.setInt(3, request.getRequestId());
+                    updateStmt.addBatch();
+                    if (!sameDate) {
+                        tags.add(CacheTags.request(request.getRequestId()));
+                    }
+                }
+                
+                updateStmt.executeBatch();
+                if (zonesFixed > 0) {
+                    zoneStmt.executeBatch();
+                }
+                if (!tags.isEmpty()) {
+                    tx.invalidate(tags.toArray(new String[0]));
+                }
+                tx.commit();
+                return slotted;
+                
+            } finally {
+                releaseSlotLock(tx);
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Error slotting pickup dates: " + e.getMessage());
+            return -1;
+        }
+    }
+    
+    /**
+     * Take the named lock that serializes slotting across clients. It belongs
+     * to the connection, not the transaction, so it must be released explicitly.
+     * @return true if the lock was taken within SLOT_LOCK_TIMEOUT_SECONDS
+     */
+    private static boolean acquireSlotLock(Transaction tx) throws SQLException {
+        try (PreparedStatement stmt = tx.getConnection().prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            stmt.setString(1, SLOT_LOCK);
+            stmt.setInt(2, SLOT_LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+    
+    private static void releaseSlotLock(Transaction tx) throws SQLException {
+        try (PreparedStatement stmt = tx.getConnection().prepareStatement("DO RELEASE_LOCK(?)")) {
+            stmt.setString(1, SLOT_LOCK);
+            stmt.execute();
+        }
+    }
+    
+    private static LocalDate currentDate(Transaction tx) throws SQLException {
+        try (Statement stmt = tx.getConnection().createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT CURRENT_DATE")) {
+            rs.next();
+            return rs.getDate(1).toLocalDate();
+        }
+    }
+    
+    /**
+     * Read the zone capacities over the horizon starting today
+     * @param zone Only zone to read, or null for all zones
+     */
+    private SlotCalendar loadCalendar(Transaction tx, LocalDate today, String zone) throws SQLException {
+        SlotCalendar calendar = new SlotCalendar(today, HORIZON_DAYS, DEFAULT_DAILY_PICKUPS);
+        String zoneCondition = zone != null ? " AND zone = ?" : "";
+        
+        String dailyQuery = "SELECT zone, daily_pickups FROM zone_capacity" + (zone != null ? " WHERE zone = ?" : "");
+        try (PreparedStatement stmt = tx.getConnection().prepareStatement(dailyQuery)) {
+            if (zone != null) {
+                stmt.setString(1, zone);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    calendar.setDailyCapacity(rs.getString("zone"), rs.getInt("daily_pickups"));
+                }
+            }
+        }
+        
+        String query = "SELECT zone, day, pickups FROM zone_capacity_days WHERE day BETWEEN ? AND ?" + zoneCondition;
+        try (PreparedStatement stmt = tx.getConnection().prepareStatement(query)) {
+            stmt.setDate(1, Date.valueOf(today));
+            stmt.setDate(2, Date.valueOf(today.plusDays(HORIZON_DAYS - 1)));
+            if (zone != null) {
+                stmt.setString(3, zone);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    calendar.setDayCapacity(rs.getString("zone"), rs.getDate("day").toLocalDate(), rs.getInt("pickups"));
+                }
+            }
+        }
+        return calendar;
+    }
+    
+    /**
+     * Count the pickups a zone has booked on each day of the horizon
+     */
+    private static void useBookedPickups(Transaction tx, SlotCalendar calendar, String zone, LocalDate today)
+            throws SQLException {
+        String query = "SELECT pickup_date, COUNT(*) AS pickups FROM waste_requests " +
+                       "WHERE pickup_zone = ? AND pickup_date BETWEEN ? AND ? GROUP BY pickup_date";
+        
+        try (PreparedStatement stmt = tx.getConnection().prepareStatement(query)) {
+            stmt.setString(1, zone);
+            stmt.setDate(2, Date.valueOf(today));
+            stmt.setDate(3, Date.valueOf(today.plusDays(HORIZON_DAYS - 1)));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    LocalDate day = rs.getDate("pickup_date").toLocalDate();
+                    for (int i = rs.getInt("pickups"); i > 0; i--) {
+                        calendar.use(zone, day);
+                    }
+                }
+            }
+        }
+    }
+    
+    private static String zoneOf(Map<String, String> zones, WasteRequest request) {
+        String zone = zones.get(request.getAddress());
+        return zone != null ? zone : DEFAULT_ZONE;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,785 @@
+package dao;
+
+import analytics.Dimension;
+import analytics.GroupTotals;
+import analytics.QuantileSketch;
+import analytics.RequestColumns;
+import analytics.RowFilter;
+import reports.Measure;
+import reports.ReportDefinition;
+import reports.ReportDimension;
+import reports.ReportFilter;
+import reports.ReportResult;
+import utils.DatabaseConnection;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Data Access Object running declarative admin reports.
+ * Each ReportDefinition is answered with one aggregation over the cheapest
+ * source able to answer it:
+ * - the daily request rollup, for waste type, status and day, week or month
+ *   buckets with counts and kg
+ * - the collector rollups, for per-collector counts and completion by day,
+ *   week or month of assignment, and ratings over all time
+ * - the in-memory column store (see AnalyticsDAO) for one dimension, latency
+ *   percentiles included
+ * - otherwise a single GROUP BY over the raw tables, or, for latency
+ *   percentiles, a single streamed scan feeding one quantile sketch per group
+ * Feedback reports read the daily feedback rollup for rating, waste type and
+ * time buckets, the collector ratings rollup for collectors over all time,
+ * and otherwise group the raw feedback table. Reports grouped by collector
+ * bucket and range by the assignment date rather than the requested date.
+ * Dimension values are turned into names afterwards from the caches.
+ */
+public class ReportDAO {
+    
+    private static final List<ReportDimension> REQUEST_ROLLUP_DIMENSIONS = Arrays.asList(
+            ReportDimension.WASTE_TYPE, ReportDimension.STATUS,
+            ReportDimension.DAY, ReportDimension.WEEK, ReportDimension.MONTH);
+    private static final List<Measure> REQUEST_ROLLUP_MEASURES = Arrays.asList(
+            Measure.COUNT, Measure.TOTAL_KG, Measure.COUNT_SHARE, Measure.KG_SHARE);
+    
+    private static final List<ReportDimension> COLLECTOR_ROLLUP_DIMENSIONS = Arrays.asList(
+            ReportDimension.COLLECTOR, ReportDimension.DAY, ReportDimension.WEEK, ReportDimension.MONTH);
+    private static final List<Measure> COLLECTOR_ROLLUP_MEASURES = Arrays.asList(
+            Measure.COUNT, Measure.COMPLETED, Measure.COMPLETION_RATE, Measure.AVERAGE_RATING, Measure.COUNT_SHARE);
+    
+    private static final List<Measure> FEEDBACK_MEASURES = Arrays.asList(
+            Measure.FEEDBACK_COUNT, Measure.FEEDBACK_SHARE, Measure.AVERAGE_RATING);
+    private static final List<ReportDimension> FEEDBACK_ROLLUP_DIMENSIONS = Arrays.asList(
+            ReportDimension.RATING, ReportDimension.WASTE_TYPE,
+            ReportDimension.DAY, ReportDimension.WEEK, ReportDimension.MONTH);
+    private static final List<ReportDimension> RATINGS_ROLLUP_DIMENSIONS = Arrays.asList(
+            ReportDimension.COLLECTOR, ReportDimension.RATING);
+    
+    private static final List<ReportDimension> COLUMN_STORE_DIMENSIONS = Arrays.asList(
+            ReportDimension.WASTE_TYPE, ReportDimension.STATUS, ReportDimension.COLLECTOR,
+            ReportDimension.DAY, ReportDimension.WEEK, ReportDimension.MONTH, ReportDimension.RESIDENT);
+    private static final List<Measure> COLUMN_STORE_MEASURES = Arrays.asList(
+            Measure.COUNT, Measure.TOTAL_KG, Measure.COMPLETED, Measure.COMPLETION_RATE,
+            Measure.COUNT_SHARE, Measure.KG_SHARE,
+            Measure.ASSIGN_P50, Measure.ASSIGN_P90, Measure.ASSIGN_P99,
+            Measure.COMPLETE_P50, Measure.COMPLETE_P90, Measure.COMPLETE_P99);
+    
+    private static final double SECONDS_PER_HOUR = 3600;
+    
+    private static final Map<ReportDimension, String> REQUEST_ROLLUP_COLUMNS = new EnumMap<>(ReportDimension.class);
+    private static final Map<ReportDimension, String> COLLECTOR_ROLLUP_COLUMNS = new EnumMap<>(ReportDimension.class);
+    private static final Map<ReportDimension, String> RAW_COLUMNS = new EnumMap<>(ReportDimension.class);
+    private static final Map<ReportDimension, String> RAW_COLLECTOR_COLUMNS = new EnumMap<>(ReportDimension.class);
+    private static final Map<ReportDimension, String> FEEDBACK_ROLLUP_COLUMNS = new EnumMap<>(ReportDimension.class);
+    private static final Map<ReportDimension, String> RATINGS_ROLLUP_COLUMNS = new EnumMap<>(ReportDimension.class);
+    private static final Map<ReportDimension, String> RAW_FEEDBACK_COLUMNS = new EnumMap<>(ReportDimension.class);
+    
+    static {
+        REQUEST_ROLLUP_COLUMNS.put(ReportDimension.WASTE_TYPE, "waste_type");
+        REQUEST_ROLLUP_COLUMNS.put(ReportDimension.STATUS, "status");
+        REQUEST_ROLLUP_COLUMNS.put(ReportDimension.DAY, "DATEDIFF(day, '1970-01-01')");
+        REQUEST_ROLLUP_COLUMNS.put(ReportDimension.WEEK, "FLOOR((DATEDIFF(day, '1970-01-01') - 4) / 7)");
+        REQUEST_ROLLUP_COLUMNS.put(ReportDimension.MONTH, "(YEAR(day) * 12 + MONTH(day) - 1)");
+        
+        RAW_COLUMNS.put(ReportDimension.WASTE_TYPE, "r.waste_type");
+        RAW_COLUMNS.put(ReportDimension.STATUS, "r.status");
+        RAW_COLUMNS.put(ReportDimension.COLLECTOR, "a.collector_id");
+        RAW_COLUMNS.put(ReportDimension.DAY, "DATEDIFF(r.requested_date, '1970-01-01')");
+        RAW_COLUMNS.put(ReportDimension.WEEK, "FLOOR((DATEDIFF(r.requested_date, '1970-01-01') - 4) / 7)");
+        RAW_COLUMNS.put(ReportDimension.MONTH, "(YEAR(r.requested_date) * 12 + MONTH(r.requested_date) - 1)");
+        RAW_COLUMNS.put(ReportDimension.RESIDENT, "r.user_id");
+        
+        COLLECTOR_ROLLUP_COLUMNS.put(ReportDimension.COLLECTOR, "collector_id");
+        COLLECTOR_ROLLUP_COLUMNS.put(ReportDimension.DAY, REQUEST_ROLLUP_COLUMNS.get(ReportDimension.DAY));
+        COLLECTOR_ROLLUP_COLUMNS.put(ReportDimension.WEEK, REQUEST_ROLLUP_COLUMNS.get(ReportDimension.WEEK));
+        COLLECTOR_ROLLUP_COLUMNS.put(ReportDimension.MONTH, REQUEST_ROLLUP_COLUMNS.get(ReportDimension.MONTH));
+        
+        RAW_COLLECTOR_COLUMNS.putAll(RAW_COLUMNS);
+        RAW_COLLECTOR_COLUMNS.put(ReportDimension.DAY, "DATEDIFF(a.assigned_date, '1970-01-01')");
+        RAW_COLLECTOR_COLUMNS.put(ReportDimension.WEEK, "FLOOR((DATEDIFF(a.assigned_date, '1970-01-01') - 4) / 7)");
+        RAW_COLLECTOR_COLUMNS.put(ReportDimension.MONTH, "(YEAR(a.assigned_date) * 12 + MONTH(a.assigned_date) - 1)");
+        
+        FEEDBACK_ROLLUP_COLUMNS.put(ReportDimension.RATING, "rating");
+        FEEDBACK_ROLLUP_COLUMNS.put(ReportDimension.WASTE_TYPE, "waste_type");
+        FEEDBACK_ROLLUP_COLUMNS.put(ReportDimension.DAY, REQUEST_ROLLUP_COLUMNS.get(ReportDimension.DAY));
+        FEEDBACK_ROLLUP_COLUMNS.put(ReportDimension.WEEK, REQUEST_ROLLUP_COLUMNS.get(ReportDimension.WEEK));
+        FEEDBACK_ROLLUP_COLUMNS.put(ReportDimension.MONTH, REQUEST_ROLLUP_COLUMNS.get(ReportDimension.MONTH));
+        
+        RATINGS_ROLLUP_COLUMNS.put(ReportDimension.COLLECTOR, "collector_id");
+        RATINGS_ROLLUP_COLUMNS.put(ReportDimension.RATING, "rating");
+        
+        RAW_FEEDBACK_COLUMNS.put(ReportDimension.WASTE_TYPE, "r.waste_type");
+        RAW_FEEDBACK_COLUMNS.put(ReportDimension.STATUS, "r.status");
+        RAW_FEEDBACK_COLUMNS.put(ReportDimension.COLLECTOR, "a.collector_id");
+        RAW_FEEDBACK_COLUMNS.put(ReportDimension.DAY, "DATEDIFF(f.submitted_on, '1970-01-01')");
+        RAW_FEEDBACK_COLUMNS.put(ReportDimension.WEEK, "FLOOR((DATEDIFF(f.submitted_on, '1970-01-01') - 4) / 7)");
+        RAW_FEEDBACK_COLUMNS.put(ReportDimension.MONTH, "(YEAR(f.submitted_on) * 12 + MONTH(f.submitted_on) - 1)");
+        RAW_FEEDBACK_COLUMNS.put(ReportDimension.RESIDENT, "f.user_id");
+        RAW_FEEDBACK_COLUMNS.put(ReportDimension.RATING, "f.rating");
+    }
+    
+    private final WasteTypeDAO wasteTypeDAO = new WasteTypeDAO();
+    private final UserDAO userDAO = new UserDAO();
+    
+    /**
+     * Run a report
+     * @param definition Report to run
+     * @return ReportResult object, or null if the report could not be run
+     */
+    public ReportResult run(ReportDefinition definition) {
+        Map<List<Object>, Group> groups = null;
+        
+        try {
+            if (definition.isFeedbackReport()) {
+                groups = aggregateFeedback(definition);
+            } else if (hasLatencyMeasure(definition)) {
+                groups = aggregateColumns(definition);
+                if (groups == null) {
+                    groups = aggregateLatencies(definition);
+                }
+            } else if (definition.usesOnly(REQUEST_ROLLUP_DIMENSIONS, REQUEST_ROLLUP_MEASURES)) {
+                groups = aggregateRequestRollup(definition);
+            } else if (usesCollectorRollups(definition)) {
+                groups = aggregateCollectorRollups(definition);
+            } else {
+                groups = aggregateColumns(definition);
+                if (groups == null) {
+                    groups = aggregateRawTables(definition);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error running report " + definition.getTitle() + ": " + e.getMessage());
+            return null;
+        }
+        
+        return buildResult(definition, groups);
+    }
+    
+    /**
+     * Aggregate rollup_requests_daily
+     */
+    private Map<List<Object>, Group> aggregateRequestRollup(ReportDefinition definition) throws SQLException {
+        String query = "SELECT " + selectDimensions(definition, REQUEST_ROLLUP_COLUMNS) +
+                       "SUM(request_count) AS request_count, SUM(total_quantity) AS total_quantity " +
+                       "FROM rollup_requests_daily " +
+                       whereClause(definition, REQUEST_ROLLUP_COLUMNS, "day", Collections.<String>emptyList()) +
+                       groupByClause(definition, REQUEST_ROLLUP_COLUMNS) +
+                       "HAVING SUM(request_count) > 0";
+        
+        Map<List<Object>, Group> groups = new LinkedHashMap<>();
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            
+            bindFilters(stmt, definition);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Group group = group(groups, readKeys(rs, definition));
+                    group.count += rs.getLong("request_count");
+                    group.quantity += rs.getDouble("total_quantity");
+                }
+            }
+        }
+        
+        return groups;
+    }
+    
+    /**
+     * Aggregate rollup_collector_daily, and rollup_collector_ratings if ratings are needed
+     */
+    private Map<List<Object>, Group> aggregateCollectorRollups(ReportDefinition definition) throws SQLException {
+        String countQuery = "SELECT " + selectDimensions(definition, COLLECTOR_ROLLUP_COLUMNS) +
+                            "SUM(assigned_count) AS assigned_count, SUM(completed_count) AS completed_count " +
+                            "FROM rollup_collector_daily " +
+                            whereClause(definition, COLLECTOR_ROLLUP_COLUMNS, "day", Collections.<String>emptyList()) +
+                            groupByClause(definition, COLLECTOR_ROLLUP_COLUMNS) +
+                            "HAVING SUM(assigned_count) > 0";
+        // Only reached for collector-only reports over all time, see usesCollectorRollups()
+        String ratingQuery = "SELECT collector_id AS d0, SUM(rating * feedback_count) AS rating_sum, " +
+                             "SUM(feedback_count) AS rating_count " +
+                             "FROM rollup_collector_ratings " +
+                             whereClause(definition, COLLECTOR_ROLLUP_COLUMNS, null, Collections.<String>emptyList()) +
+                             "GROUP BY collector_id";
+        
+        Map<List<Object>, Group> groups = new LinkedHashMap<>();
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement countStmt = conn.prepareStatement(countQuery);
+             PreparedStatement ratingStmt = conn.prepareStatement(ratingQuery)) {
+            
+            bindFilters(countStmt, definition);
+            try (ResultSet rs = countStmt.executeQuery()) {
+                while (rs.next()) {
+                    Group group = group(groups, readKeys(rs, definition));
+                    group.count += rs.getLong("assigned_count");
+                    group.completed += rs.getLong("completed_count");
+                }
+            }
+            
+            if (definition.getMeasures().contains(Measure.AVERAGE_RATING)) {
+                bindFilters(ratingStmt, definition);
+                try (ResultSet rs = ratingStmt.executeQuery()) {
+                    while (rs.next()) {
+                        Group group = groups.get(readKeys(rs, definition));
+                        if (group != null) {
+                            group.ratingSum += rs.getDouble("rating_sum");
+                            group.ratingCount += rs.getLong("rating_count");
+                        }
+                    }
+                }
+            }
+        }
+        
+        return groups;
+    }
+    
+    /**
+     * Aggregate feedback from the cheapest source able to answer the report
+     */
+    private Map<List<Object>, Group> aggregateFeedback(ReportDefinition definition) throws SQLException {
+        String query;
+        if (definition.usesOnly(FEEDBACK_ROLLUP_DIMENSIONS, FEEDBACK_MEASURES)) {
+            query = "SELECT " + selectDimensions(definition, FEEDBACK_ROLLUP_COLUMNS) +
+                    "SUM(feedback_count) AS feedback_count, SUM(rating * feedback_count) AS rating_sum " +
+                    "FROM rollup_feedback_daily " +
+                    whereClause(definition, FEEDBACK_ROLLUP_COLUMNS, "day", Collections.<String>emptyList()) +
+                    groupByClause(definition, FEEDBACK_ROLLUP_COLUMNS) +
+                    "HAVING SUM(feedback_count) > 0";
+        } else if (!definition.hasDateRange() && definition.usesOnly(RATINGS_ROLLUP_DIMENSIONS, FEEDBACK_MEASURES)) {
+            query = "SELECT " + selectDimensions(definition, RATINGS_ROLLUP_COLUMNS) +
+                    "SUM(feedback_count) AS feedback_count, SUM(rating * feedback_count) AS rating_sum " +
+                    "FROM rollup_collector_ratings " +
+                    whereClause(definition, RATINGS_ROLLUP_COLUMNS, null, Collections.<String>emptyList()) +
+                    groupByClause(definition, RATINGS_ROLLUP_COLUMNS) +
+                    "HAVING SUM(feedback_count) > 0";
+        } else {
+            List<String> conditions = new ArrayList<>();
+            conditions.add("f.rating IS NOT NULL");
+            if (definition.getDimensions().contains(ReportDimension.COLLECTOR)) {
+                conditions.add("a.collector_id IS NOT NULL");
+            }
+            query = "SELECT " + selectDimensions(definition, RAW_FEEDBACK_COLUMNS) +
+                    "COUNT(*) AS feedback_count, SUM(f.rating) AS rating_sum " +
+                    "FROM feedback f " +
+                    "JOIN waste_requests r ON r.request_id = f.request_id " +
+                    "LEFT JOIN assignments a ON a.request_id = f.request_id " +
+                    whereClause(definition, RAW_FEEDBACK_COLUMNS, "DATE(f.submitted_on)", conditions) +
+                    groupByClause(definition, RAW_FEEDBACK_COLUMNS) +
+                    "HAVING COUNT(*) > 0";
+        }
+        
+        Map<List<Object>, Group> groups = new LinkedHashMap<>();
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            
+            bindFilters(stmt, definition);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Group group = group(groups, readKeys(rs, definition));
+                    group.ratingCount += rs.getLong("feedback_count");
+                    group.ratingSum += rs.getDouble("rating_sum");
+                }
+            }
+        }
+        
+        return groups;
+    }
+    
+    /**
+     * Aggregate the in-memory column store
+     * @return Groups, or null if the column store is disabled, cannot answer
+     *         the report or could not be loaded
+     */
+    private Map<List<Object>, Group> aggregateColumns(ReportDefinition definition) {
+        if (!AnalyticsDAO.isEnabled() || definition.getDimensions().size() != 1
+                || !definition.usesOnly(COLUMN_STORE_DIMENSIONS, COLUMN_STORE_MEASURES)) {
+            return null;
+        }
+        // The column store ranges by requested date; collector reports range by assignment date
+        if (definition.hasDateRange() && definition.getDimensions().contains(ReportDimension.COLLECTOR)) {
+            return null;
+        }
+        final RequestColumns columns = AnalyticsDAO.getColumns();
+        if (columns == null) {
+            return null;
+        }
+        
+        final ReportDimension dimension = definition.getDimensions().get(0);
+        final List<ReportFilter> filters = definition.getFilters();
+        final int[] filterValues = new int[filters.size()];
+        for (int i = 0; i < filters.size(); i++) {
+            filterValues[i] = columnValue(columns, filters.get(i));
+        }
+        final int fromDay = definition.getFrom() != null ? (int) definition.getFrom().toEpochDay() : Integer.MIN_VALUE;
+        final int toDay = definition.getTo() != null ? (int) definition.getTo().toEpochDay() : Integer.MAX_VALUE;
+        
+        RowFilter rowFilter = new RowFilter() {
+            @Override
+            public boolean accept(RequestColumns table, int row) {
+                // Unassigned requests have no collector to group by
+                if (dimension == ReportDimension.COLLECTOR && table.collectorIdAt(row) == RequestColumns.UNASSIGNED) {
+                    return false;
+                }
+                int day = table.requestedDayAt(row);
+                if (day < fromDay || day > toDay) {
+                    return false;
+                }
+                for (int i = 0; i < filterValues.length; i++) {
+                    if (valueAt(table, row, filters.get(i).getDimension()) != filterValues[i]) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        };
+        
+        GroupTotals totals = columns.groupBy(Dimension.valueOf(dimension.name()), rowFilter,
+                hasLatencyMeasure(definition));
+        Map<List<Object>, Group> groups = new LinkedHashMap<>();
+        for (int key : totals.getKeys()) {
+            Object value = dimension == ReportDimension.STATUS ? columns.decodeStatus(key) : (Object) key;
+            Group group = group(groups, Collections.singletonList(value));
+            group.count += totals.getCount(key);
+            group.quantity += totals.getQuantity(key);
+            group.completed += totals.getCompleted(key);
+            if (totals.getAssignSeconds(key) != null) {
+                group.assignSeconds.merge(totals.getAssignSeconds(key));
+            }
+            if (totals.getCompleteSeconds(key) != null) {
+                group.completeSeconds.merge(totals.getCompleteSeconds(key));
+            }
+        }
+        return groups;
+    }
+    
+    /**
+     * Aggregate the requests, assignments and feedback tables in one pass
+     */
+    private Map<List<Object>, Group> aggregateRawTables(ReportDefinition definition) throws SQLException {
+        boolean withRatings = definition.getMeasures().contains(Measure.AVERAGE_RATING);
+        
+        Map<ReportDimension, String> columns = rawColumns(definition);
+        String query = "SELECT " + selectDimensions(definition, columns) +
+                       "COUNT(*) AS request_count, SUM(r.quantity) AS total_quantity, " +
+                       "SUM(a.status = 'Completed') AS completed_count" +
+                       (withRatings ? ", SUM(f.rating_sum) AS rating_sum, SUM(f.rating_count) AS rating_count " : " ") +
+                       rawFromClause(withRatings) +
+                       whereClause(definition, columns, rawDateColumn(definition), rawConditions(definition)) +
+                       groupByClause(definition, columns);
+        
+        Map<List<Object>, Group> groups = new LinkedHashMap<>();
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            
+            bindFilters(stmt, definition);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    long count = rs.getLong("request_count");
+                    if (count == 0) {
+                        continue;
+                    }
+                    Group group = group(groups, readKeys(rs, definition));
+                    group.count += count;
+                    group.quantity += rs.getDouble("total_quantity");
+                    group.completed += rs.getLong("completed_count");
+                    if (withRatings) {
+                        group.ratingSum += rs.getDouble("rating_sum");
+                        group.ratingCount += rs.getLong("rating_count");
+                    }
+                }
+            }
+        }
+        
+        return groups;
+    }
+    
+    /**
+     * Stream the requests row by row, adding assignment and completion times
+     * to each group's quantile sketches instead of sorting them
+     */
+    private Map<List<Object>, Group> aggregateLatencies(ReportDefinition definition) throws SQLException {
+        boolean withRatings = definition.getMeasures().contains(Measure.AVERAGE_RATING);
+        
+        Map<ReportDimension, String> columns = rawColumns(definition);
+        String query = "SELECT " + selectDimensions(definition, columns) +
+                       "r.quantity, a.status AS assignment_status, " +
+                       "TIMESTAMPDIFF(SECOND, r.created_at, a.assigned_date) AS assign_seconds, " +
+                       "TIMESTAMPDIFF(SECOND, a.assigned_date, a.completed_at) AS complete_seconds" +
+                       (withRatings ? ", f.rating_sum, f.rating_count " : " ") +
+                       rawFromClause(withRatings) +
+                       whereClause(definition, columns, rawDateColumn(definition), rawConditions(definition));
+        
+        Map<List<Object>, Group> groups = new LinkedHashMap<>();
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            
+            // Connector/J streams rows one at a time with this fetch size
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            bindFilters(stmt, definition);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Group group = group(groups, readKeys(rs, definition));
+                    group.count++;
+                    group.quantity += rs.getDouble("quantity");
+                    if ("Completed".equals(rs.getString("assignment_status"))) {
+                        group.completed++;
+                    }
+                    
+                    long assignSeconds = rs.getLong("assign_seconds");
+                    if (!rs.wasNull()) {
+                        group.assignSeconds.add(assignSeconds);
+                    }
+                    long completeSeconds = rs.getLong("complete_seconds");
+                    if (!rs.wasNull()) {
+                        group.completeSeconds.add(completeSeconds);
+                    }
+                    if (withRatings) {
+                        group.ratingSum += rs.getDouble("rating_sum");
+                        group.ratingCount += rs.getLong("rating_count");
+                    }
+                }
+            }
+        }
+        
+        return groups;
+    }
+    
+    private static String rawFromClause(boolean withRatings) {
+        return "FROM waste_requests r " +
+               "LEFT JOIN assignments a ON a.request_id = r.request_id " +
+               (withRatings ? "LEFT JOIN (SELECT request_id, SUM(rating) AS rating_sum, COUNT(*) AS rating_count " +
+                              "FROM feedback GROUP BY request_id) f ON f.request_id = r.request_id " : "");
+    }
+    
+    /**
+     * Check whether the collector rollups can answer a report. Ratings are
+     * only rolled up per collector over all time, not per day.
+     */
+    private static boolean usesCollectorRollups(ReportDefinition definition) {
+        if (!definition.getDimensions().contains(ReportDimension.COLLECTOR)
+                || !definition.usesOnly(COLLECTOR_ROLLUP_DIMENSIONS, COLLECTOR_ROLLUP_MEASURES)) {
+            return false;
+        }
+        return !definition.getMeasures().contains(Measure.AVERAGE_RATING)
+                || (definition.getDimensions().size() == 1 && !definition.hasDateRange());
+    }
+    
+    private static Map<ReportDimension, String> rawColumns(ReportDefinition definition) {
+        return definition.getDimensions().contains(ReportDimension.COLLECTOR) ? RAW_COLLECTOR_COLUMNS : RAW_COLUMNS;
+    }
+    
+    private static String rawDateColumn(ReportDefinition definition) {
+        return definition.getDimensions().contains(ReportDimension.COLLECTOR) ? "DATE(a.assigned_date)" : "r.requested_date";
+    }
+    
+        private static List<String> rawConditions(ReportDefinition definition) {
+        List<String> conditions = new ArrayList<>();
+        if (definition.getDimensions().contains(ReportDimension.COLLECTOR)) {
+            conditions.add("a.collector_id IS NOT NULL");
+        }
+        return conditions;
+    }
+    
+    private static boolean hasLatencyMeasure(ReportDefinition definition) {
+        for (Measure measure : definition.getMeasures()) {
+            if (measure.isLatency()) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Compute the measures of each group, sort the rows and label them
+     */
+    private ReportResult buildResult(ReportDefinition definition, Map<List<Object>, Group> groups) {
+        final List<Measure> measures = definition.getMeasures();
+        final Group total = new Group(Collections.emptyList());
+        for (Group group : groups.values()) {
+            total.add(group);
+        }
+        
+        List<Group> rows = new ArrayList<>(groups.values());
+        final Measure sortBy = definition.getSortBy();
+        Collections.sort(rows, new Comparator<Group>() {
+            @Override
+            public int compare(Group a, Group b) {
+                if (sortBy != null) {
+                    return Double.compare(measureValue(b, sortBy, total), measureValue(a, sortBy, total));
+                }
+                return compareKeys(a.keys, b.keys);
+            }
+        });
+        
+        Map<ReportDimension, Map<Integer, String>> names = lookUpNames(definition, rows);
+        
+        ReportResult result = new ReportResult(definition);
+        for (Group row : rows) {
+            String[] labels = new String[row.keys.size()];
+            for (int i = 0; i < labels.length; i++) {
+                labels[i] = label(definition.getDimensions().get(i), row.keys.get(i), names);
+            }
+            result.addRow(labels, measureValues(row, measures, total));
+        }
+        
+        if (definition.isShowTotal()) {
+            result.setTotals(measureValues(total, measures, total));
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Get the names behind waste type, collector and resident IDs, from the caches where possible
+     */
+    private Map<ReportDimension, Map<Integer, String>> lookUpNames(ReportDefinition definition, List<Group> rows) {
+        Map<ReportDimension, Map<Integer, String>> names = new EnumMap<>(ReportDimension.class);
+        Set<Integer> userIds = new HashSet<>();
+        List<ReportDimension> dimensions = definition.getDimensions();
+        
+        for (int i = 0; i < dimensions.size(); i++) {
+            if (dimensions.get(i) == ReportDimension.COLLECTOR || dimensions.get(i) == ReportDimension.RESIDENT) {
+                for (Group row : rows) {
+                    userIds.add((Integer) row.keys.get(i));
+                }
+            }
+        }
+        
+        if (dimensions.contains(ReportDimension.WASTE_TYPE)) {
+            names.put(ReportDimension.WASTE_TYPE, wasteTypeDAO.getWasteTypeNames());
+        }
+        if (!userIds.isEmpty()) {
+            Map<Integer, String> userNames = userDAO.getFullNames(userIds);
+            names.put(ReportDimension.COLLECTOR, userNames);
+            names.put(ReportDimension.RESIDENT, userNames);
+        }
+        
+        return names;
+    }
+    
+    private static String label(ReportDimension dimension, Object key, Map<ReportDimension, Map<Integer, String>> names) {
+        if (dimension == ReportDimension.STATUS) {
+            return String.valueOf(key);
+        }
+        if (dimension.isTimeBucket()) {
+            return dimension.bucketLabel((Integer) key);
+        }
+        if (dimension == ReportDimension.RATING) {
+            return key + (Integer.valueOf(1).equals(key) ? " star" : " stars");
+        }
+        
+        String name = names.get(dimension).get(key);
+        return name != null ? name : "#" + key;
+    }
+    
+    private static double[] measureValues(Group group, List<Measure> measures, Group total) {
+        double[] values = new double[measures.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = measureValue(group, measures.get(i), total);
+        }
+        return values;
+    }
+    
+    private static double measureValue(Group group, Measure measure, Group total) {
+        switch (measure) {
+            case COUNT:
+                return group.count;
+            case TOTAL_KG:
+                return group.quantity;
+            case COMPLETED:
+                return group.completed;
+            case COMPLETION_RATE:
+                return group.count == 0 ? 0 : (double) group.completed / group.count * 100;
+            case AVERAGE_RATING:
+                return group.ratingCount == 0 ? 0 : group.ratingSum / group.ratingCount;
+            case COUNT_SHARE:
+                return total.count == 0 ? 0 : (double) group.count / total.count * 100;
+            case KG_SHARE:
+                return total.quantity == 0 ? 0 : group.quantity / total.quantity * 100;
+            case FEEDBACK_COUNT:
+                return group.ratingCount;
+            case FEEDBACK_SHARE:
+                return total.ratingCount == 0 ? 0 : (double) group.ratingCount / total.ratingCount * 100;
+            case ASSIGN_P50:
+            case ASSIGN_P90:
+            case ASSIGN_P99:
+                return group.assignSeconds.getQuantile(measure.getQuantile()) / SECONDS_PER_HOUR;
+            case COMPLETE_P50:
+            case COMPLETE_P90:
+            case COMPLETE_P99:
+                return group.completeSeconds.getQuantile(measure.getQuantile()) / SECONDS_PER_HOUR;
+            default:
+                throw new IllegalArgumentException("Unknown measure: " + measure);
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static int compareKeys(List<Object> a, List<Object> b) {
+        for (int i = 0; i < a.size(); i++) {
+            int result = ((Comparable<Object>) a.get(i)).compareTo(b.get(i));
+            if (result != 0) {
+                return result;
+            }
+        }
+        return 0;
+    }
+    
+    private static String selectDimensions(ReportDefinition definition, Map<ReportDimension, String> columns) {
+        StringBuilder select = new StringBuilder();
+        List<ReportDimension> dimensions = definition.getDimensions();
+        for (int i = 0; i < dimensions.size(); i++) {
+            select.append(columns.get(dimensions.get(i))).append(" AS d").append(i).append(", ");
+        }
+        return select.toString();
+    }
+    
+    private static String whereClause(ReportDefinition definition, Map<ReportDimension, String> columns,
+            String dateColumn, List<String> conditions) {
+        List<String> all = new ArrayList<>(conditions);
+        for (ReportFilter filter : definition.getFilters()) {
+            all.add(columns.get(filter.getDimension()) + " = ?");
+        }
+        // A plain range on the date column, so that its index can be used
+        if (definition.getFrom() != null) {
+            all.add(dateColumn + " >= ?");
+        }
+        if (definition.getTo() != null) {
+            all.add(dateColumn + " <= ?");
+        }
+        if (all.isEmpty()) {
+            return "";
+        }
+        
+        StringBuilder where = new StringBuilder("WHERE ");
+        for (int i = 0; i < all.size(); i++) {
+            where.append(i == 0 ? "" : " AND ").append(all.get(i));
+        }
+        return where.append(" ").toString();
+    }
+    
+    private static String groupByClause(ReportDefinition definition, Map<ReportDimension, String> columns) {
+        List<ReportDimension> dimensions = definition.getDimensions();
+        if (dimensions.isEmpty()) {
+            return "";
+        }
+        
+        StringBuilder groupBy = new StringBuilder("GROUP BY ");
+        for (int i = 0; i < dimensions.size(); i++) {
+            groupBy.append(i == 0 ? "" : ", ").append(columns.get(dimensions.get(i)));
+        }
+        return groupBy.append(" ").toString();
+    }
+    
+    private static void bindFilters(PreparedStatement stmt, ReportDefinition definition) throws SQLException {
+        int index = 1;
+        for (ReportFilter filter : definition.getFilters()) {
+            if (filter.getDimension() == ReportDimension.STATUS) {
+                stmt.setString(index++, (String) filter.getValue());
+            } else {
+                stmt.setInt(index++, filter.getKey());
+            }
+        }
+        if (definition.getFrom() != null) {
+            stmt.setDate(index++, Date.valueOf(definition.getFrom()));
+        }
+        if (definition.getTo() != null) {
+            stmt.setDate(index++, Date.valueOf(definition.getTo()));
+        }
+    }
+    
+    private static List<Object> readKeys(ResultSet rs, ReportDefinition definition) throws SQLException {
+        List<ReportDimension> dimensions = definition.getDimensions();
+        List<Object> keys = new ArrayList<>(dimensions.size());
+        for (int i = 0; i < dimensions.size(); i++) {
+            if (dimensions.get(i) == ReportDimension.STATUS) {
+                keys.add(rs.getString("d" + i));
+            } else {
+                keys.add(rs.getInt("d" + i));
+            }
+        }
+        return keys;
+    }
+    
+    /**
+     * Get the value a column store filter compares against
+     */
+    private static int columnValue(RequestColumns columns, ReportFilter filter) {
+        if (filter.getDimension() == ReportDimension.STATUS) {
+            return columns.statusCode((String) filter.getValue());
+        }
+        return filter.getKey();
+    }
+    
+    private static int valueAt(RequestColumns columns, int row, ReportDimension dimension) {
+        switch (dimension) {
+            case WASTE_TYPE:
+                return columns.wasteTypeAt(row);
+            case STATUS:
+                return columns.statusCodeAt(row);
+            case COLLECTOR:
+                return columns.collectorIdAt(row);
+            case DAY:
+                return columns.requestedDayAt(row);
+            case WEEK:
+                return columns.requestedWeekAt(row);
+            case MONTH:
+                return columns.requestedMonthAt(row);
+            case RESIDENT:
+                return columns.userIdAt(row);
+            default:
+                throw new IllegalArgumentException("Unknown dimension: " + dimension);
+        }
+    }
+    
+    private static Group group(Map<List<Object>, Group> groups, List<Object> keys) {
+        Group group = groups.get(keys);
+        if (group == null) {
+            group = new Group(keys);
+            groups.put(keys, group);
+        }
+        return group;
+    }
+    
+    /**
+     * Running totals of one group of requests
+     */
+    private static class Group {
+        private final List<Object> keys;
+        private long count;
+        private double quantity;
+        private long completed;
+        private double ratingSum;
+        private long ratingCount;
+        private final QuantileSketch assignSeconds = new QuantileSketch();
+        private final QuantileSketch completeSeconds = new QuantileSketch();
+        
+        Group(List<Object> keys) {
+            this.keys = keys;
+        }
+        
+        void add(Group other) {
+            count += other.count;
+            quantity += other.quantity;
+            completed += other.completed;
+            ratingSum += other.ratingSum;
+            ratingCount += other.ratingCount;
+            assignSeconds.merge(other.assignSeconds);
+            completeSeconds.merge(other.completeSeconds);
+        }
+    }
+}
\ No newline at end of file
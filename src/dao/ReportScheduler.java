@@ -0,0 +1,203 @@
+package dao;
+
+import reports.ReportDefinition;
+import reports.ReportResult;
+import reports.ReportSnapshot;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background scheduler keeping recent snapshots of the standard reports.
+ * A report is recomputed when its latest snapshot is older than the refresh
+ * interval, or when enough writes have been seen since it was computed
+ * (local writes and those of other instances, via CacheTags). At most one
+ * report is computed per tick, so the database sees a steady trickle of
+ * report queries rather than a burst per click. The last few versions of
+ * each report are kept in memory.
+ */
+public class ReportScheduler {
+    
+    private static final long TICK_MILLIS = 5000;
+    private static final long REFRESH_INTERVAL_MILLIS = 15 * 60 * 1000;
+    private static final int CHANGE_THRESHOLD = 25;
+    private static final long MIN_AGE_MILLIS = 30 * 1000;
+    private static final int VERSIONS_KEPT = 5;
+    
+    private static final AtomicLong changeCount = new AtomicLong();
+    private static final Map<String, ReportDefinition> definitions = new LinkedHashMap<>();
+    private static final Map<String, Deque<ReportSnapshot>> snapshots = new HashMap<>();
+    
+    private static ScheduledExecutorService executor;
+    
+    private ReportScheduler() {}
+    
+    /**
+     * Start keeping snapshots of reports on a daemon thread. Reports are
+     * identified by title; calling it again adds any new reports.
+     * @param reports Reports to keep up to date
+     */
+    public static synchronized void start(List<ReportDefinition> reports) {
+        for (ReportDefinition report : reports) {
+            definitions.put(report.getTitle(), report);
+        }
+        if (executor != null) {
+            return;
+        }
+        
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "report-scheduler");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                tick();
+            }
+        }, 0, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Stop the scheduler and drop its snapshots
+     */
+    public static synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        definitions.clear();
+        snapshots.clear();
+    }
+    
+    /**
+     * Count a write for the change threshold
+     */
+    static void recordChange() {
+        changeCount.incrementAndGet();
+    }
+    
+    /**
+     * Mark every snapshot as stale, e.g. after the rollups were rebuilt
+     */
+    static void recordBulkChange() {
+        changeCount.addAndGet(CHANGE_THRESHOLD);
+    }
+    
+    /**
+     * Get the latest snapshot of a report
+     * @param title Report title
+     * @return ReportSnapshot object, or null if the report has not been computed yet
+     */
+    public static synchronized ReportSnapshot getLatest(String title) {
+        Deque<ReportSnapshot> versions = snapshots.get(title);
+        return versions == null ? null : versions.peekFirst();
+    }
+    
+    /**
+     * Get the kept snapshots of a report
+     * @param title Report title
+     * @return Snapshots, newest first
+     */
+    public static synchronized List<ReportSnapshot> getVersions(String title) {
+        Deque<ReportSnapshot> versions = snapshots.get(title);
+        return versions == null ? new ArrayList<ReportSnapshot>() : new ArrayList<>(versions);
+    }
+    
+    /**
+     * Get the number of writes seen since a snapshot was computed
+     * @param snapshot Snapshot
+     * @return Number of writes
+     */
+    public static long getChangesSince(ReportSnapshot snapshot) {
+        return changeCount.get() - snapshot.getChangeMark();
+    }
+    
+    /**
+     * Compute a report on the calling thread and keep it as its latest snapshot
+     * @param definition Report to compute
+     * @return New snapshot, or null if the report could not be run
+     */
+    public static ReportSnapshot computeNow(ReportDefinition definition) {
+        long computedAt = System.currentTimeMillis();
+        long changeMark = changeCount.get();
+        ReportResult result = new ReportDAO().run(definition);
+        if (result == null) {
+            return null;
+        }
+        return store(definition.getTitle(), result, computedAt, changeMark);
+    }
+    
+    private static synchronized ReportSnapshot store(String title, ReportResult result, long computedAt, long changeMark) {
+        Deque<ReportSnapshot> versions = snapshots.get(title);
+        if (versions == null) {
+            versions = new ArrayDeque<>();
+            snapshots.put(title, versions);
+        }
+        
+        ReportSnapshot latest = versions.peekFirst();
+        if (latest != null && latest.getComputedAt() > computedAt) {
+            // A newer computation finished first
+            return latest;
+        }
+        
+        ReportSnapshot snapshot = new ReportSnapshot(result, latest == null ? 1 : latest.getVersion() + 1,
+                computedAt, changeMark);
+        versions.addFirst(snapshot);
+        while (versions.size() > VERSIONS_KEPT) {
+            versions.removeLast();
+        }
+        return snapshot;
+    }
+    
+    /**
+     * Compute the report that is most overdue, if any
+     */
+    private static void tick() {
+        try {
+            ReportDefinition due = nextDue(System.currentTimeMillis());
+            if (due != null && computeNow(due) == null) {
+                System.err.println("Error computing scheduled report " + due.getTitle());
+            }
+        } catch (RuntimeException e) {
+            // Keep the scheduled task alive; the next tick retries
+            System.err.println("Error in report scheduler: " + e.getMessage());
+        }
+    }
+    
+    private static synchronized ReportDefinition nextDue(long now) {
+        ReportDefinition due = null;
+        long dueComputedAt = Long.MAX_VALUE;
+        
+        for (Map.Entry<String, ReportDefinition> entry : definitions.entrySet()) {
+            Deque<ReportSnapshot> versions = snapshots.get(entry.getKey());
+            ReportSnapshot latest = versions == null ? null : versions.peekFirst();
+            if (latest == null) {
+                return entry.getValue();
+            }
+            
+            long age = now - latest.getComputedAt();
+            boolean stale = age >= REFRESH_INTERVAL_MILLIS
+                    || (age >= MIN_AGE_MILLIS && getChangesSince(latest) >= CHANGE_THRESHOLD);
+            if (stale && latest.getComputedAt() < dueComputedAt) {
+                due = entry.getValue();
+                dueComputedAt = latest.getComputedAt();
+            }
+        }
+        return due;
+    }
+}
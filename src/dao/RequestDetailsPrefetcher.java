@@ -0,0 +1,165 @@
+package dao;
+
+import cache.QueryCache;
+import models.Assignment;
+import models.Feedback;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads the assignment and feedback of a waste request in the background as
+ * soon as the request is selected, so that follow-up dialogs do not wait.
+ * Results live for half a minute at most and are dropped as soon as any cache
+ * invalidation happens, so a prefetched answer is never older than the
+ * last known write. A lookup that finds a load still in flight waits for it
+ * instead of starting a second query.
+ */
+public class RequestDetailsPrefetcher {
+    
+    private static final long TTL_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    private static final int MAX_ENTRIES = 64;
+    
+    private static final RequestDetailsPrefetcher INSTANCE = new RequestDetailsPrefetcher();
+    
+    private final ExecutorService executor = Executors.newFixedThreadPool(2, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "request-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private final QueryCache queryCache = QueryCache.getInstance();
+    private final AssignmentDAO assignmentDAO = new AssignmentDAO();
+    private final FeedbackDAO feedbackDAO = new FeedbackDAO();
+    
+    private RequestDetailsPrefetcher() {}
+    
+    /**
+     * Get the shared prefetcher instance
+     * @return RequestDetailsPrefetcher instance
+     */
+    public static RequestDetailsPrefetcher getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Start loading the assignment and feedback of a request, unless a fresh
+     * load is already cached or in flight
+     * @param requestId Waste request ID
+     */
+    public void prefetch(final int requestId) {
+        if (usable(entries.get(requestId)) != null) {
+            return;
+        }
+        
+        removeStaleEntries();
+        
+        long version = queryCache.getVersion();
+        Future<Assignment> assignment = executor.submit(new Callable<Assignment>() {
+            @Override
+            public Assignment call() {
+                return assignmentDAO.getAssignmentByRequestId(requestId);
+            }
+        });
+        Future<Feedback> feedback = executor.submit(new Callable<Feedback>() {
+            @Override
+            public Feedback call() {
+                return feedbackDAO.getFeedbackByRequestId(requestId);
+            }
+        });
+        
+        entries.put(requestId, new Entry(assignment, feedback, version, System.currentTimeMillis() + TTL_MILLIS));
+    }
+    
+    /**
+     * Get the assignment of a request, using a prefetched result when possible
+     * @param requestId Waste request ID
+     * @return Assignment object if found, null otherwise
+     */
+    public Assignment getAssignment(int requestId) {
+        Entry entry = usable(entries.get(requestId));
+        if (entry != null) {
+            try {
+                return entry.assignment.get();
+            } catch (InterruptedException | ExecutionException e) {
+                System.err.println("Error prefetching assignment: " + e.getMessage());
+            }
+        }
+        return assignmentDAO.getAssignmentByRequestId(requestId);
+    }
+    
+    /**
+     * Get the feedback of a request, using a prefetched result when possible
+     * @param requestId Waste request ID
+     * @return Feedback object if found, null otherwise
+     */
+    public Feedback getFeedback(int requestId) {
+        Entry entry = usable(entries.get(requestId));
+        if (entry != null) {
+            try {
+                return entry.feedback.get();
+            } catch (InterruptedException | ExecutionException e) {
+                System.err.println("Error prefetching feedback: " + e.getMessage());
+            }
+        }
+        return feedbackDAO.getFeedbackByRequestId(requestId);
+    }
+    
+    /**
+     * Return the entry if it has not expired and no write happened since it was started
+     */
+    private Entry usable(Entry entry) {
+        if (entry == null) {
+            return null;
+        }
+        if (entry.version != queryCache.getVersion() || System.currentTimeMillis() >= entry.expiresAt) {
+            return null;
+        }
+        return entry;
+    }
+    
+    private void removeStaleEntries() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (usable(iterator.next()) == null) {
+                iterator.remove();
+            }
+        }
+        
+        // Selections are made one at a time, so this only trims rapid scrolling
+        iterator = entries.values().iterator();
+        while (entries.size() >= MAX_ENTRIES && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+    
+    /**
+     * Prefetched results with the cache version they were started at
+     */
+    private static class Entry {
+        private final Future<Assignment> assignment;
+        private final Future<Feedback> feedback;
+        private final long version;
+        private final long expiresAt;
+        
+        Entry(Future<Assignment> assignment, Future<Feedback> feedback, long version, long expiresAt) {
+            this.assignment = assignment;
+            this.feedback = feedback;
+            this.version = version;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,264 @@
+package dao;
+
+import models.WasteRequest;
+import utils.DatabaseConnection;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Access Object for the reporting rollup tables.
+ * The rollups are kept up to date by the request, assignment and feedback
+ * DAOs inside the same transaction as each write, so reports read a few
+ * pre-aggregated rows per day instead of scanning the raw tables:
+ * - rollup_requests_daily: requested day x waste type x status, with count and kg
+ * - rollup_collector_daily: collector x day assigned, with assigned and completed counts
+ * - rollup_collector_ratings: collector x rating, with feedback count
+ * - rollup_feedback_daily: submitted day x waste type x rating, with feedback count
+ */
+public class RollupDAO {
+    
+    /**
+     * Add (sign = 1) or remove (sign = -1) a request from the daily request rollup
+     * @param tx Transaction of the write
+     * @param request Request with waste type, quantity, status and requested date set
+     * @param sign 1 to add, -1 to remove
+     * @throws SQLException if the update fails
+     */
+    void applyRequest(Transaction tx, WasteRequest request, int sign) throws SQLException {
+        applyRequests(tx, request.getRequestedDate(), request.getWasteType(), request.getStatus(),
+                sign, sign * request.getQuantity());
+    }
+    
+    /**
+     * Change the count and kg of one cell of the daily request rollup, e.g. for a
+     * batch of requests that moved between statuses together
+     * @param tx Transaction of the write
+     * @param day Requested day
+     * @param wasteType Waste type ID
+     * @param status Request status
+     * @param countDelta Change of the request count
+     * @param quantityDelta Change of the total kg
+     * @throws SQLException if the update fails
+     */
+    void applyRequests(Transaction tx, Date day, int wasteType, String status, int countDelta,
+            double quantityDelta) throws SQLException {
+        String query = "INSERT INTO rollup_requests_daily (day, waste_type, status, request_count, total_quantity) " +
+                       "VALUES (?, ?, ?, ?, ?) " +
+                       "ON DUPLICATE KEY UPDATE request_count = request_count + VALUES(request_count), " +
+                       "total_quantity = total_quantity + VALUES(total_quantity)";
+        
+        try (PreparedStatement stmt = tx.getConnection().prepareStatement(query)) {
+            stmt.setDate(1, day);
+            stmt.setInt(2, wasteType);
+            stmt.setString(3, status);
+            stmt.setInt(4, countDelta);
+            stmt.setDouble(5, quantityDelta);
+            stmt.executeUpdate();
+        }
+    }
+    
+    /**
+     * Change the assigned and completed counts of a collector on the day an assignment was made
+     * @param tx Transaction of the write
+     * @param collectorId Collector ID
+     * @param day Day the assignment was made
+     * @param assignedDelta Change of the assigned count
+     * @param completedDelta Change of the completed count
+     * @throws SQLException if the update fails
+     */
+    void applyAssignment(Transaction tx, int collectorId, Date day, int assignedDelta, int completedDelta) throws SQLException {
+        if (assignedDelta == 0 && completedDelta == 0) {
+            return;
+        }
+        
+        String query = "INSERT INTO rollup_collector_daily (collector_id, day, assigned_count, completed_count) " +
+                       "VALUES (?, ?, ?, ?) " +
+                       "ON DUPLICATE KEY UPDATE assigned_count = assigned_count + VALUES(assigned_count), " +
+                       "completed_count = completed_count + VALUES(completed_count)";
+        
+        try (PreparedStatement stmt = tx.getConnection().prepareStatement(query)) {
+            stmt.setInt(1, collectorId);
+            stmt.setDate(2, day);
+            stmt.setInt(3, assignedDelta);
+            stmt.setInt(4, completedDelta);
+            stmt.executeUpdate();
+        }
+    }
+    
+    /**
+     * Change the number of times a collector received a rating
+     * @param tx Transaction of the write
+     * @param collectorId Collector ID
+     * @param rating Rating from 1 to 5
+     * @param delta Change of the count
+     * @throws SQLException if the update fails
+     */
+    void applyRating(Transaction tx, int collectorId, int rating, int delta) throws SQLException {
+        String query = "INSERT INTO rollup_collector_ratings (collector_id, rating, feedback_count) " +
+                       "VALUES (?, ?, ?) " +
+                       "ON DUPLICATE KEY UPDATE feedback_count = feedback_count + VALUES(feedback_count)";
+        
+        try (PreparedStatement stmt = tx.getConnection().prepareStatement(query)) {
+            stmt.setInt(1, collectorId);
+            stmt.setInt(2, rating);
+            stmt.setInt(3, delta);
+            stmt.executeUpdate();
+        }
+    }
+    
+    /**
+     * Add (sign = 1) or remove (sign = -1) one feedback row from the daily feedback rollup
+     * @param tx Transaction of the write
+     * @param feedbackId Feedback ID; the row and its request are read as they are now
+     * @param sign 1 to add, -1 to remove
+     * @throws SQLException if the update fails
+     */
+    void applyFeedback(Transaction tx, int feedbackId, int sign) throws SQLException {
+        applyFeedbackWhere(tx, "f.feedback_id = ?", feedbackId, sign);
+    }
+    
+    /**
+     * Add (sign = 1) or remove (sign = -1) all feedback of a request from the
+     * daily feedback rollup, e.g. around a change of the request's waste type
+     * @param tx Transaction of the write
+     * @param requestId Waste request ID
+     * @param sign 1 to add, -1 to remove
+     * @throws SQLException if the update fails
+     */
+    void applyFeedbackForRequest(Transaction tx, int requestId, int sign) throws SQLException {
+        applyFeedbackWhere(tx, "f.request_id = ?", requestId, sign);
+    }
+    
+    private void applyFeedbackWhere(Transaction tx, String condition, int id, int sign) throws SQLException {
+        String query = "INSERT INTO rollup_feedback_daily (day, waste_type, rating, feedback_count) " +
+                       "SELECT DATE(f.submitted_on), r.waste_type, f.rating, ? * COUNT(*) " +
+                       "FROM feedback f JOIN waste_requests r ON r.request_id = f.request_id " +
+                       "WHERE " + condition + " AND f.rating IS NOT NULL " +
+                       "GROUP BY DATE(f.submitted_on), r.waste_type, f.rating " +
+                       "ON DUPLICATE KEY UPDATE feedback_count = feedback_count + VALUES(feedback_count)";
+        
+        try (PreparedStatement stmt = tx.getConnection().prepareStatement(query)) {
+            stmt.setInt(1, sign);
+            stmt.setInt(2, id);
+            stmt.executeUpdate();
+        }
+    }
+    
+    /**
+     * Get the collector assigned to a request
+     * @param tx Transaction of the write
+     * @param requestId Waste request ID
+     * @return Collector ID, or 0 if the request is not assigned
+     * @throws SQLException if the query fails
+     */
+    int findCollectorForRequest(Transaction tx, int requestId) throws SQLException {
+        String query = "SELECT collector_id FROM assignments WHERE request_id = ?";
+        
+        try (PreparedStatement stmt = tx.getConnection().prepareStatement(query)) {
+            stmt.setInt(1, requestId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt("collector_id") : 0;
+            }
+        }
+    }
+    
+    /**
+     * Get the ratings given for a request, skipping feedback without a rating
+     * @param tx Transaction of the write
+     * @param requestId Waste request ID
+     * @return List of ratings
+     * @throws SQLException if the query fails
+     */
+    List<Integer> findRatingsForRequest(Transaction tx, int requestId) throws SQLException {
+        List<Integer> ratings = new ArrayList<>();
+        String query = "SELECT rating FROM feedback WHERE request_id = ? AND rating IS NOT NULL";
+        
+        try (PreparedStatement stmt = tx.getConnection().prepareStatement(query)) {
+            stmt.setInt(1, requestId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ratings.add(rs.getInt("rating"));
+                }
+            }
+        }
+        return ratings;
+    }
+    
+    /**
+     * Backfill the rollups once after an upgrade. Rollups only receive changes
+     * from new writes, so on a database that had data before they were added
+     * every rollup-backed report would leave out the history. Rebuilds all
+     * rollups if any of them is empty while its source table is not.
+     * @return true if the rollups were rebuilt, false if not needed or failed
+     */
+    public boolean backfillIfEmpty() {
+        String query = "SELECT (EXISTS (SELECT 1 FROM waste_requests) " +
+                       "AND NOT EXISTS (SELECT 1 FROM rollup_requests_daily)) " +
+                       "OR (EXISTS (SELECT 1 FROM assignments) " +
+                       "AND NOT EXISTS (SELECT 1 FROM rollup_collector_daily)) " +
+                       "OR (EXISTS (SELECT 1 FROM feedback WHERE rating IS NOT NULL) " +
+                       "AND NOT EXISTS (SELECT 1 FROM rollup_feedback_daily)) AS missing";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            
+            if (!rs.next() || !rs.getBoolean("missing")) {
+                return false;
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Error checking rollups: " + e.getMessage());
+            return false;
+        }
+        
+        return rebuildAll();
+    }
+    
+    /**
+     * Recompute every rollup from the raw tables, e.g. after an upgrade or a
+     * write made by a client that does not maintain the rollups
+     * @return true if successful, false otherwise
+     */
+    public boolean rebuildAll() {
+        String[] statements = {
+            "DELETE FROM rollup_requests_daily",
+            "DELETE FROM rollup_collector_daily",
+            "DELETE FROM rollup_collector_ratings",
+            "DELETE FROM rollup_feedback_daily",
+            "INSERT INTO rollup_requests_daily (day, waste_type, status, request_count, total_quantity) " +
+                "SELECT requested_date, waste_type, status, COUNT(*), SUM(quantity) " +
+                "FROM waste_requests GROUP BY requested_date, waste_type, status",
+            "INSERT INTO rollup_collector_daily (collector_id, day, assigned_count, completed_count) " +
+                "SELECT collector_id, DATE(assigned_date), COUNT(*), SUM(status = 'Completed') " +
+                "FROM assignments GROUP BY collector_id, DATE(assigned_date)",
+            "INSERT INTO rollup_collector_ratings (collector_id, rating, feedback_count) " +
+                "SELECT a.collector_id, f.rating, COUNT(*) " +
+                "FROM feedback f JOIN assignments a ON f.request_id = a.request_id " +
+                "WHERE f.rating IS NOT NULL " +
+                "GROUP BY a.collector_id, f.rating",
+            "INSERT INTO rollup_feedback_daily (day, waste_type, rating, feedback_count) " +
+                "SELECT DATE(f.submitted_on), r.waste_type, f.rating, COUNT(*) " +
+                "FROM feedback f JOIN waste_requests r ON r.request_id = f.request_id " +
+                "WHERE f.rating IS NOT NULL " +
+                "GROUP BY DATE(f.submitted_on), r.waste_type, f.rating"
+        };
+        
+        try (Transaction tx = new Transaction();
+             Statement stmt = tx.getConnection().createStatement()) {
+            
+            for (String statement : statements) {
+                stmt.executeUpdate(statement);
+            }
+            tx.commit();
+            ReportScheduler.recordBulkChange();
+            return true;
+        
+        } catch (SQLException e) {
+            System.err.println("Error rebuilding rollups: " + e.getMessage());
+            return false;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,83 @@
+package dao;
+
+import utils.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A database transaction shared by the DAO calls that make up one write, e.g.
+ * an assignment insert, the request status change it causes and the rollup
+ * rows both of them touch. Cache tags collected during the transaction are
+ * recorded in the change log as part of it, and evicted locally only after
+ * the commit, so no reader can cache the old rows in between.
+ * Closing without committing rolls back.
+ */
+final class Transaction implements AutoCloseable {
+    
+    private final Connection conn;
+    private final List<String> tags = new ArrayList<>();
+    private boolean committed;
+    
+    /**
+     * Start a transaction on the current thread's connection
+     * @throws SQLException if the connection fails
+     */
+    Transaction() throws SQLException {
+        this.conn = DatabaseConnection.getConnection();
+        conn.setAutoCommit(false);
+    }
+    
+    /**
+     * Get the connection to run the transaction's statements on
+     * @return Connection object (do not close it)
+     */
+    Connection getConnection() {
+        return conn;
+    }
+    
+    /**
+     * Invalidate the cached data carrying any of the given tags once the transaction commits
+     * @param tags Tags touched by a write
+     */
+    void invalidate(String... tags) {
+        this.tags.addAll(Arrays.asList(tags));
+    }
+    
+    /**
+     * Commit the transaction and evict the collected cache tags
+     * @throws SQLException if the commit fails
+     */
+    void commit() throws SQLException {
+        if (!tags.isEmpty()) {
+            new ChangeLogDAO().publish(conn, tags);
+        }
+        conn.commit();
+        committed = true;
+        
+        if (!tags.isEmpty()) {
+            CacheTags.applyLocally(tags);
+        }
+    }
+    
+    @Override
+    public void close() {
+        try {
+            if (!committed) {
+                conn.rollback();
+            }
+            conn.setAutoCommit(true);
+        } catch (SQLException e) {
+            System.err.println("Error ending transaction: " + e.getMessage());
+        } finally {
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                System.err.println("Error closing connection: " + e.getMessage());
+            }
+        }
+    }
+}
\ No newline at end of file
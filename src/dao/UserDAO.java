@@ -1,18 +1,41 @@
 package dao;
 
+import cache.CacheStats;
+import cache.QueryCache;
+import cache.UserAvailabilityFilter;
+import cache.UserCache;
 import models.User;
 import utils.DatabaseConnection;
 import utils.PasswordHasher;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Data Access Object for User-related database operations
  */
 public class UserDAO {
     
+    private static final int MAX_IDS_PER_QUERY = 500;
+    
+    private final UserCache cache = UserCache.getInstance();
+    private final UserAvailabilityFilter availabilityFilter = UserAvailabilityFilter.getInstance();
+    private final QueryCache queryCache = QueryCache.getInstance();
+    
+    /**
+     * Result of checking whether a username and email can be registered
+     */
+    public enum Availability {
+        AVAILABLE,
+        USERNAME_TAKEN,
+        EMAIL_TAKEN
+    }
+    
     /**
      * Add a new user to the database
      * @param user User object to add
@@ -32,6 +55,8 @@ public class UserDAO {
             stmt.setString(6, user.getPhone());
             
             int rowsAffected = stmt.executeUpdate();
+            CacheTags.invalidate(conn, CacheTags.ALL_USERS, CacheTags.username(user.getUsername()),
+                    CacheTags.email(user.getEmail()));
             return rowsAffected > 0;
             
         } catch (SQLException e) {
@@ -58,6 +83,7 @@ public class UserDAO {
             stmt.setInt(5, user.getUserId());
             
             int rowsAffected = stmt.executeUpdate();
+            CacheTags.invalidate(conn, CacheTags.user(user.getUserId()), CacheTags.email(user.getEmail()));
             return rowsAffected > 0;
             
         } catch (SQLException e) {
@@ -82,6 +108,7 @@ public class UserDAO {
             stmt.setInt(2, userId);
             
             int rowsAffected = stmt.executeUpdate();
+            CacheTags.invalidate(conn, CacheTags.user(userId));
             return rowsAffected > 0;
             
         } catch (SQLException e) {
@@ -104,6 +131,7 @@ public class UserDAO {
             stmt.setInt(1, userId);
             
             int rowsAffected = stmt.executeUpdate();
+            CacheTags.invalidate(conn, CacheTags.user(userId));
             return rowsAffected > 0;
             
         } catch (SQLException e) {
@@ -118,6 +146,12 @@ public class UserDAO {
      * @return User object if found, null otherwise
      */
     public User getUserById(int userId) {
+        User cached = cache.getById(userId);
+        if (cached != null) {
+            return cached;
+        }
+        
+        long version = cache.getVersion();
         String query = "SELECT * FROM users WHERE user_id = ?";
         
         try (Connection conn = DatabaseConnection.getConnection();
@@ -127,7 +161,9 @@ public class UserDAO {
             
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    return extractUserFromResultSet(rs);
+                    User user = extractUserFromResultSet(rs);
+                    cache.put(user, version);
+                    return user;
                 }
             }
             
@@ -144,6 +180,12 @@ public class UserDAO {
      * @return User object if found, null otherwise
      */
     public User getUserByUsername(String username) {
+        User cached = cache.getByUsername(username);
+        if (cached != null) {
+            return cached;
+        }
+        
+        long version = cache.getVersion();
         String query = "SELECT * FROM users WHERE username = ?";
         
         try (Connection conn = DatabaseConnection.getConnection();
@@ -153,7 +195,9 @@ public class UserDAO {
             
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    return extractUserFromResultSet(rs);
+                    User user = extractUserFromResultSet(rs);
+                    cache.put(user, version);
+                    return user;
                 }
             }
             
@@ -166,9 +210,17 @@ public class UserDAO {
     
     /**
      * Get all users
-     * @return List of all users
+     * @return List of all users, or null if the query failed
      */
     public List<User> getAllUsers() {
+        String cacheKey = QueryCache.key("UserDAO.getAllUsers");
+        List<User> cached = queryCache.get(cacheKey);
+        if (cached != null) {
+            return copyOf(cached);
+        }
+        
+        long version = queryCache.getVersion();
+        boolean loaded = false;
         List<User> users = new ArrayList<>();
         String query = "SELECT * FROM users ORDER BY full_name";
         
@@ -180,19 +232,33 @@ public class UserDAO {
                 users.add(extractUserFromResultSet(rs));
             }
             
+            loaded = true;
+            
         } catch (SQLException e) {
             System.err.println("Error getting all users: " + e.getMessage());
         }
         
+        if (!loaded) {
+            return null;
+        }
+        
+        queryCache.put(cacheKey, copyOf(users), CacheTags.forUsers(users, CacheTags.ALL_USERS), version);
+        
         return users;
     }
     
     /**
      * Get all users with a specific role
      * @param role Role to filter by
-     * @return List of users with the specified role
+     * @return List of users with the specified role, or null if the query failed
      */
     public List<User> getUsersByRole(String role) {
+        List<User> cached = cache.getByRole(role);
+        if (cached != null) {
+            return cached;
+        }
+        
+        long version = cache.getVersion();
         List<User> users = new ArrayList<>();
         String query = "SELECT * FROM users WHERE role = ? ORDER BY full_name";
         
@@ -207,13 +273,85 @@ public class UserDAO {
                 }
             }
             
+            cache.putRole(role, users, version);
+            
         } catch (SQLException e) {
             System.err.println("Error getting users by role: " + e.getMessage());
+            return null;
         }
         
         return users;
     }
     
+    /**
+     * Get the full names of several users, served from the user cache where possible.
+     * Users that are not cached are read with one IN query per batch and then cached.
+     * @param userIds IDs of the users (duplicates are ignored)
+     * @return Map of user ID to full name; unknown IDs are left out
+     */
+    public Map<Integer, String> getFullNames(Collection<Integer> userIds) {
+        Map<Integer, String> names = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        
+        for (int userId : new LinkedHashSet<>(userIds)) {
+            User cached = cache.getById(userId);
+            if (cached != null) {
+                names.put(userId, cached.getFullName());
+            } else {
+                missing.add(userId);
+            }
+        }
+        
+        for (int start = 0; start < missing.size(); start += MAX_IDS_PER_QUERY) {
+            List<Integer> batch = missing.subList(start, Math.min(start + MAX_IDS_PER_QUERY, missing.size()));
+            loadUsers(batch, names);
+        }
+        
+        return names;
+    }
+    
+    /**
+     * Read a batch of users by ID, cache them and record their full names
+     * @param userIds IDs of the users to read
+     * @param names Map to add the full names to
+     */
+    private void loadUsers(List<Integer> userIds, Map<Integer, String> names) {
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < userIds.size(); i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        
+        long version = cache.getVersion();
+        String query = "SELECT * FROM users WHERE user_id IN (" + placeholders + ")";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            
+            for (int i = 0; i < userIds.size(); i++) {
+                stmt.setInt(i + 1, userIds.get(i));
+            }
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    User user = extractUserFromResultSet(rs);
+                    cache.put(user, version);
+                    names.put(user.getUserId(), user.getFullName());
+                }
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Error getting users by ID: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Get hit rate and eviction counters for the user cache
+     * @return CacheStats object
+     */
+    public CacheStats getCacheStats() {
+        return cache.getStats();
+    }
+    
     /**
      * Authenticate a user
      * @param username Username
@@ -236,6 +374,10 @@ public class UserDAO {
      * @return true if username exists, false otherwise
      */
     public boolean usernameExists(String username) {
+        if (isAvailabilityFilterReady() && !availabilityFilter.mightContainUsername(username)) {
+            return false;
+        }
+        
         String query = "SELECT COUNT(*) FROM users WHERE username = ?";
         
         try (Connection conn = DatabaseConnection.getConnection();
@@ -262,6 +404,10 @@ public class UserDAO {
      * @return true if email exists, false otherwise
      */
     public boolean emailExists(String email) {
+        if (isAvailabilityFilterReady() && !availabilityFilter.mightContainEmail(email)) {
+            return false;
+        }
+        
         String query = "SELECT COUNT(*) FROM users WHERE email = ?";
         
         try (Connection conn = DatabaseConnection.getConnection();
@@ -282,6 +428,125 @@ public class UserDAO {
         return false;
     }
     
+    /**
+     * Check whether a username and email can both be registered.
+     * The Bloom filters answer most checks without touching the database; only a
+     * possible match is confirmed, with a single query covering both fields.
+     * @param username Username to check
+     * @param email Email to check
+     * @return USERNAME_TAKEN or EMAIL_TAKEN if either exists (username checked first), AVAILABLE otherwise
+     */
+    public Availability checkAvailability(String username, String email) {
+        boolean checkUsername = true;
+        boolean checkEmail = true;
+        
+        if (isAvailabilityFilterReady()) {
+            checkUsername = availabilityFilter.mightContainUsername(username);
+            checkEmail = availabilityFilter.mightContainEmail(email);
+            if (!checkUsername && !checkEmail) {
+                return Availability.AVAILABLE;
+            }
+        }
+        
+        String query = "SELECT COALESCE(SUM(username = ?), 0) AS username_count, " +
+                       "COALESCE(SUM(email = ?), 0) AS email_count " +
+                       "FROM users WHERE username = ? OR email = ?";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            
+            stmt.setString(1, username);
+            stmt.setString(2, email);
+            stmt.setString(3, checkUsername ? username : null);
+            stmt.setString(4, checkEmail ? email : null);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    if (rs.getInt("username_count") > 0) {
+                        return Availability.USERNAME_TAKEN;
+                    }
+                    if (rs.getInt("email_count") > 0) {
+                        return Availability.EMAIL_TAKEN;
+                    }
+                }
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Error checking username and email availability: " + e.getMessage());
+        }
+        
+        return Availability.AVAILABLE;
+    }
+    
+    /**
+     * Build the username and email Bloom filters from the users table.
+     * Runs on a background thread, at startup and again whenever the filters fill up.
+     */
+    public void buildAvailabilityFilter() {
+        String countQuery = "SELECT COUNT(*) FROM users";
+        String query = "SELECT username, email FROM users";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+            
+            long userCount = 0;
+            try (ResultSet rs = stmt.executeQuery(countQuery)) {
+                if (rs.next()) {
+                    userCount = rs.getLong(1);
+                }
+            }
+            
+            availabilityFilter.beginBuild(userCount);
+            
+            long added = 0;
+            stmt.setFetchSize(Integer.MIN_VALUE); // Stream rows instead of buffering the whole table
+            try (ResultSet rs = stmt.executeQuery(query)) {
+                while (rs.next()) {
+                    availabilityFilter.addToBuild(rs.getString("username"), rs.getString("email"));
+                    added++;
+                }
+            }
+            
+            availabilityFilter.completeBuild(added);
+            
+        } catch (SQLException e) {
+            availabilityFilter.cancelBuild();
+            System.err.println("Error building username and email filter: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Check whether the Bloom filters can be used, starting a background rebuild
+     * if they have filled up. Until the startup build or the rebuild has finished
+     * every check goes to the database.
+     * @return true if the filters are ready
+     */
+    private boolean isAvailabilityFilterReady() {
+        if (availabilityFilter.claimRebuild()) {
+            Thread filterThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    buildAvailabilityFilter();
+                }
+            }, "availability-filter");
+            filterThread.setDaemon(true);
+            filterThread.start();
+        }
+        return availabilityFilter.isReady();
+    }
+    
+    /**
+     * Copy users so that callers never share objects with the query cache
+     */
+    private static List<User> copyOf(List<User> users) {
+        List<User> copies = new ArrayList<>(users.size());
+        for (User user : users) {
+            copies.add(new User(user.getUserId(), user.getUsername(), user.getPassword(), user.getFullName(),
+                    user.getRole(), user.getEmail(), user.getPhone(), user.getCreatedAt()));
+        }
+        return copies;
+    }
+    
     /**
      * Extract a User object from a ResultSet
      * @param rs ResultSet containing user data
@@ -1,17 +1,28 @@
 package dao;
 
+import cache.QueryCache;
+import cache.RequestRecordStore;
 import models.WasteRequest;
 import utils.DatabaseConnection;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Data Access Object for Waste Request-related database operations
  */
 public class WasteRequestDAO {
     
+    private final WasteTypeDAO wasteTypeDAO = new WasteTypeDAO();
+    private final UserDAO userDAO = new UserDAO();
+    private final QueryCache queryCache = QueryCache.getInstance();
+    private final RollupDAO rollupDAO = new RollupDAO();
+    private final KpiSketchDAO kpiSketchDAO = new KpiSketchDAO();
+    private final PickupSlotDAO pickupSlotDAO = new PickupSlotDAO();
+    
     /**
      * Add a new waste request to the database
      * @param request WasteRequest object to add
@@ -21,8 +32,8 @@ public class WasteRequestDAO {
         String query = "INSERT INTO waste_requests (user_id, waste_type, quantity, address, status, requested_date) " +
                        "VALUES (?, ?, ?, ?, ?, ?)";
         
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Transaction tx = new Transaction();
+             PreparedStatement stmt = tx.getConnection().prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
             
             stmt.setInt(1, request.getUserId());
             stmt.setInt(2, request.getWasteType());
@@ -32,12 +43,32 @@ public class WasteRequestDAO {
             stmt.setDate(6, request.getRequestedDate());
             
             int rowsAffected = stmt.executeUpdate();
-            return rowsAffected > 0;
+            if (rowsAffected == 0) {
+                return false;
+            }
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                if (keys.next()) {
+                    request.setRequestId(keys.getInt(1));
+                }
+            }
+            rollupDAO.applyRequest(tx, request, 1);
+            
+            tx.invalidate(CacheTags.ALL_REQUESTS, CacheTags.requestsByUser(request.getUserId()),
+                    CacheTags.requestsByStatus(request.getStatus()));
+            tx.commit();
             
         } catch (SQLException e) {
             System.err.println("Error adding waste request: " + e.getMessage());
             return false;
         }
+        
+        kpiSketchDAO.addRequest(request);
+        
+        // Give the new request a pickup date in the background; a failure leaves it for the next Schedule Pickups
+        if (request.getStatus().equals("Pending") && request.getRequestId() > 0) {
+            pickupSlotDAO.slotInBackground(request);
+        }
+        return true;
     }
     
     /**
@@ -49,8 +80,13 @@ public class WasteRequestDAO {
         String query = "UPDATE waste_requests SET waste_type = ?, quantity = ?, address = ?, " +
                        "status = ?, requested_date = ?, pickup_date = ? WHERE request_id = ?";
         
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Transaction tx = new Transaction();
+             PreparedStatement stmt = tx.getConnection().prepareStatement(query)) {
+            
+            WasteRequest previous = lockRequest(tx, request.getRequestId());
+            if (previous == null) {
+                return false;
+            }
             
             stmt.setInt(1, request.getWasteType());
             stmt.setDouble(2, request.getQuantity());
@@ -60,7 +96,23 @@ public class WasteRequestDAO {
             stmt.setDate(6, request.getPickupDate());
             stmt.setInt(7, request.getRequestId());
             
+            // Feedback is rolled up by the waste type of its request
+            boolean wasteTypeChanged = previous.getWasteType() != request.getWasteType();
+            if (wasteTypeChanged) {
+                rollupDAO.applyFeedbackForRequest(tx, request.getRequestId(), -1);
+            }
+            
             int rowsAffected = stmt.executeUpdate();
+            if (rowsAffected > 0) {
+                rollupDAO.applyRequest(tx, previous, -1);
+                rollupDAO.applyRequest(tx, request, 1);
+            }
+            if (wasteTypeChanged) {
+                rollupDAO.applyFeedbackForRequest(tx, request.getRequestId(), 1);
+            }
+            
+            tx.invalidate(CacheTags.request(request.getRequestId()), CacheTags.requestsByStatus(request.getStatus()));
+            tx.commit();
             return rowsAffected > 0;
             
         } catch (SQLException e) {
@@ -76,16 +128,11 @@ public class WasteRequestDAO {
      * @return true if successful, false otherwise
      */
     public boolean updateRequestStatus(int requestId, String status) {
-        String query = "UPDATE waste_requests SET status = ? WHERE request_id = ?";
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            
-            stmt.setString(1, status);
-            stmt.setInt(2, requestId);
+        try (Transaction tx = new Transaction()) {
             
-            int rowsAffected = stmt.executeUpdate();
-            return rowsAffected > 0;
+            boolean updated = updateRequestStatus(tx, requestId, status);
+            tx.commit();
+            return updated;
             
         } catch (SQLException e) {
             System.err.println("Error updating request status: " + e.getMessage());
@@ -93,6 +140,37 @@ public class WasteRequestDAO {
         }
     }
     
+    /**
+     * Update the status of a waste request as part of a larger write
+     * @param tx Transaction of the write
+     * @param requestId Request ID
+     * @param status New status
+     * @return true if the request exists, false otherwise
+     * @throws SQLException if the update fails
+     */
+    boolean updateRequestStatus(Transaction tx, int requestId, String status) throws SQLException {
+        String query = "UPDATE waste_requests SET status = ? WHERE request_id = ?";
+        
+        WasteRequest previous = lockRequest(tx, requestId);
+        if (previous == null) {
+            return false;
+        }
+        
+        try (PreparedStatement stmt = tx.getConnection().prepareStatement(query)) {
+            
+            stmt.setString(1, status);
+            stmt.setInt(2, requestId);
+            stmt.executeUpdate();
+        }
+        
+        rollupDAO.applyRequest(tx, previous, -1);
+        previous.setStatus(status);
+        rollupDAO.applyRequest(tx, previous, 1);
+        
+        tx.invalidate(CacheTags.request(requestId), CacheTags.requestsByStatus(status));
+        return true;
+    }
+    
     /**
      * Delete a waste request from the database
      * @param requestId ID of the waste request to delete
@@ -100,19 +178,70 @@ public class WasteRequestDAO {
      */
     public boolean deleteWasteRequest(int requestId) {
         String query = "DELETE FROM waste_requests WHERE request_id = ?";
+        WasteRequest previous;
         
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Transaction tx = new Transaction();
+             PreparedStatement stmt = tx.getConnection().prepareStatement(query)) {
+            
+            previous = lockRequest(tx, requestId);
+            if (previous == null) {
+                return false;
+            }
             
             stmt.setInt(1, requestId);
             
             int rowsAffected = stmt.executeUpdate();
-            return rowsAffected > 0;
+            if (rowsAffected == 0) {
+                return false;
+            }
+            rollupDAO.applyRequest(tx, previous, -1);
+            
+            tx.invalidate(CacheTags.request(requestId));
+            tx.commit();
             
         } catch (SQLException e) {
             System.err.println("Error deleting waste request: " + e.getMessage());
             return false;
         }
+        
+        // After the commit, as slotting runs its own transaction
+        pickupSlotDAO.requestCancelled(previous);
+        return true;
+    }
+    
+    /**
+     * Lock a waste request row for the rest of the transaction and read the
+     * fields the rollups are keyed on
+     * @param tx Transaction of the write
+     * @param requestId Request ID
+     * @return WasteRequest with waste type, quantity, address, status, requested and pickup dates set,
+     *         or null if not found
+     * @throws SQLException if the query fails
+     */
+    private WasteRequest lockRequest(Transaction tx, int requestId) throws SQLException {
+        String query = "SELECT waste_type, quantity, address, status, requested_date, pickup_date " +
+                       "FROM waste_requests WHERE request_id = ? FOR UPDATE";
+        
+        try (PreparedStatement stmt = tx.getConnection().prepareStatement(query)) {
+            
+            stmt.setInt(1, requestId);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                
+                WasteRequest request = new WasteRequest();
+                request.setRequestId(requestId);
+                request.setWasteType(rs.getInt("waste_type"));
+                request.setQuantity(rs.getDouble("quantity"));
+                request.setAddress(rs.getString("address"));
+                request.setStatus(rs.getString("status"));
+                request.setRequestedDate(rs.getDate("requested_date"));
+                request.setPickupDate(rs.getDate("pickup_date"));
+                return request;
+            }
+        }
     }
     
     /**
@@ -121,12 +250,20 @@ public class WasteRequestDAO {
      * @return WasteRequest object if found, null otherwise
      */
     public WasteRequest getWasteRequestById(int requestId) {
-        String query = "SELECT wr.*, u.full_name as user_name, wt.type_name as waste_type_name " +
+        String cacheKey = QueryCache.key("WasteRequestDAO.getWasteRequestById", requestId);
+        WasteRequest cached = queryCache.get(cacheKey);
+        if (cached != null) {
+            return copyOf(cached);
+        }
+        
+        long version = queryCache.getVersion();
+        String query = "SELECT wr.* " +
                        "FROM waste_requests wr " +
-                       "JOIN users u ON wr.user_id = u.user_id " +
-                       "JOIN waste_types wt ON wr.waste_type = wt.type_id " +
                        "WHERE wr.request_id = ?";
         
+        WasteRequest request = null;
+        Map<Integer, String> typeNames = wasteTypeDAO.getWasteTypeNames();
+        
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
             
@@ -134,7 +271,7 @@ public class WasteRequestDAO {
             
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    return extractWasteRequestFromResultSet(rs);
+                    request = extractWasteRequestFromResultSet(rs, typeNames);
                 }
             }
             
@@ -142,50 +279,80 @@ public class WasteRequestDAO {
             System.err.println("Error getting waste request by ID: " + e.getMessage());
         }
         
-        return null;
+        if (request != null) {
+            hydrateUserNames(Collections.singletonList(request));
+            queryCache.put(cacheKey, copyOf(request), CacheTags.forRequests(Collections.singletonList(request), CacheTags.request(requestId)), version);
+        }
+        
+        return request;
     }
     
     /**
      * Get all waste requests
-     * @return List of all waste requests
+     * @return List of all waste requests, or null if the query failed
      */
     public List<WasteRequest> getAllWasteRequests() {
+        String cacheKey = QueryCache.key("WasteRequestDAO.getAllWasteRequests");
+        RequestRecordStore cached = queryCache.get(cacheKey);
+        if (cached != null) {
+            return cached.toList();
+        }
+        
+        long version = queryCache.getVersion();
+        boolean loaded = false;
         List<WasteRequest> requests = new ArrayList<>();
-        String query = "SELECT wr.*, u.full_name as user_name, wt.type_name as waste_type_name " +
+        String query = "SELECT wr.* " +
                        "FROM waste_requests wr " +
-                       "JOIN users u ON wr.user_id = u.user_id " +
-                       "JOIN waste_types wt ON wr.waste_type = wt.type_id " +
                        "ORDER BY wr.created_at DESC";
         
+        Map<Integer, String> typeNames = wasteTypeDAO.getWasteTypeNames();
+        
         try (Connection conn = DatabaseConnection.getConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(query)) {
             
             while (rs.next()) {
-                requests.add(extractWasteRequestFromResultSet(rs));
+                requests.add(extractWasteRequestFromResultSet(rs, typeNames));
             }
             
+            loaded = true;
+            
         } catch (SQLException e) {
             System.err.println("Error getting all waste requests: " + e.getMessage());
         }
         
+        if (!loaded) {
+            return null;
+        }
+        
+        hydrateUserNames(requests);
+        queryCache.put(cacheKey, RequestRecordStore.of(requests), CacheTags.forRequests(requests, CacheTags.ALL_REQUESTS), version);
+        
         return requests;
     }
     
     /**
      * Get waste requests by user ID
      * @param userId User ID to filter by
-     * @return List of waste requests for the specified user
+     * @return List of waste requests for the specified user, or null if the query failed
      */
     public List<WasteRequest> getWasteRequestsByUserId(int userId) {
+        String cacheKey = QueryCache.key("WasteRequestDAO.getWasteRequestsByUserId", userId);
+        RequestRecordStore cached = queryCache.get(cacheKey);
+        if (cached != null) {
+            return cached.toList();
+        }
+        
+        long version = queryCache.getVersion();
+        boolean loaded = false;
         List<WasteRequest> requests = new ArrayList<>();
-        String query = "SELECT wr.*, u.full_name as user_name, wt.type_name as waste_type_name " +
+        String query = "SELECT wr.* " +
                        "FROM waste_requests wr " +
-                       "JOIN users u ON wr.user_id = u.user_id " +
-                       "JOIN waste_types wt ON wr.waste_type = wt.type_id " +
                        "WHERE wr.user_id = ? " +
                        "ORDER BY wr.created_at DESC";
         
+        Map<Integer, String> typeNames = wasteTypeDAO.getWasteTypeNames();
+        
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
             
@@ -193,31 +360,48 @@ public class WasteRequestDAO {
             
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    requests.add(extractWasteRequestFromResultSet(rs));
+                    requests.add(extractWasteRequestFromResultSet(rs, typeNames));
                 }
             }
             
+            loaded = true;
+            
         } catch (SQLException e) {
             System.err.println("Error getting waste requests by user ID: " + e.getMessage());
         }
         
+        if (!loaded) {
+            return null;
+        }
+        
+        hydrateUserNames(requests);
+        queryCache.put(cacheKey, RequestRecordStore.of(requests), CacheTags.forRequests(requests, CacheTags.requestsByUser(userId)), version);
+        
         return requests;
     }
     
     /**
      * Get waste requests by status
      * @param status Status to filter by
-     * @return List of waste requests with the specified status
+     * @return List of waste requests with the specified status, or null if the query failed
      */
     public List<WasteRequest> getWasteRequestsByStatus(String status) {
+        String cacheKey = QueryCache.key("WasteRequestDAO.getWasteRequestsByStatus", status);
+        RequestRecordStore cached = queryCache.get(cacheKey);
+        if (cached != null) {
+            return cached.toList();
+        }
+        
+        long version = queryCache.getVersion();
+        boolean loaded = false;
         List<WasteRequest> requests = new ArrayList<>();
-        String query = "SELECT wr.*, u.full_name as user_name, wt.type_name as waste_type_name " +
+        String query = "SELECT wr.* " +
                        "FROM waste_requests wr " +
-                       "JOIN users u ON wr.user_id = u.user_id " +
-                       "JOIN waste_types wt ON wr.waste_type = wt.type_id " +
                        "WHERE wr.status = ? " +
                        "ORDER BY wr.created_at DESC";
         
+        Map<Integer, String> typeNames = wasteTypeDAO.getWasteTypeNames();
+        
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
             
@@ -225,24 +409,66 @@ public class WasteRequestDAO {
             
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    requests.add(extractWasteRequestFromResultSet(rs));
+                    requests.add(extractWasteRequestFromResultSet(rs, typeNames));
                 }
             }
             
+            loaded = true;
+            
         } catch (SQLException e) {
             System.err.println("Error getting waste requests by status: " + e.getMessage());
         }
         
+        if (!loaded) {
+            return null;
+        }
+        
+        hydrateUserNames(requests);
+        queryCache.put(cacheKey, RequestRecordStore.of(requests), CacheTags.forRequests(requests, CacheTags.requestsByStatus(status)), version);
+        
         return requests;
     }
     
+    /**
+     * Fill in resident names from the user cache instead of joining the users table
+     * @param requests List of WasteRequest objects to update
+     */
+    private void hydrateUserNames(List<WasteRequest> requests) {
+        if (requests.isEmpty()) {
+            return;
+        }
+        
+        List<Integer> userIds = new ArrayList<>(requests.size());
+        for (WasteRequest request : requests) {
+            userIds.add(request.getUserId());
+        }
+        
+        Map<Integer, String> names = userDAO.getFullNames(userIds);
+        for (WasteRequest request : requests) {
+            request.setUserName(names.get(request.getUserId()));
+        }
+    }
+    
+    /**
+     * Copy a WasteRequest so that callers never share objects with the query cache
+     */
+    private static WasteRequest copyOf(WasteRequest request) {
+        WasteRequest copy = new WasteRequest(request.getRequestId(), request.getUserId(), request.getWasteType(),
+                request.getQuantity(), request.getAddress(), request.getStatus(), request.getRequestedDate(),
+                request.getPickupDate(), request.getCreatedAt());
+        copy.setUserName(request.getUserName());
+        copy.setWasteTypeName(request.getWasteTypeName());
+        return copy;
+    }
+    
     /**
      * Extract a WasteRequest object from a ResultSet
      * @param rs ResultSet containing waste request data
+     * @param typeNames Waste type names keyed by type ID
      * @return WasteRequest object
      * @throws SQLException if an error occurs
      */
-    private WasteRequest extractWasteRequestFromResultSet(ResultSet rs) throws SQLException {
+    private WasteRequest extractWasteRequestFromResultSet(ResultSet rs, Map<Integer, String> typeNames) throws SQLException {
         WasteRequest request = new WasteRequest();
         request.setRequestId(rs.getInt("request_id"));
         request.setUserId(rs.getInt("user_id"));
@@ -255,8 +481,7 @@ public class WasteRequestDAO {
         request.setCreatedAt(rs.getTimestamp("created_at"));
         
         // Set additional display fields
-        request.setUserName(rs.getString("user_name"));
-        request.setWasteTypeName(rs.getString("waste_type_name"));
+        request.setWasteTypeName(typeNames.get(request.getWasteType()));
         
         return request;
     }
@@ -1,17 +1,22 @@
 package dao;
 
+import cache.WasteTypeCache;
 import models.WasteType;
 import utils.DatabaseConnection;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Data Access Object for Waste Type-related database operations
  */
 public class WasteTypeDAO {
     
+    private final WasteTypeCache cache = WasteTypeCache.getInstance();
+    
     /**
      * Add a new waste type to the database
      * @param wasteType WasteType object to add
@@ -27,6 +32,7 @@ public class WasteTypeDAO {
             stmt.setString(2, wasteType.getDescription());
             
             int rowsAffected = stmt.executeUpdate();
+            CacheTags.invalidate(conn, CacheTags.ALL_WASTE_TYPES);
             return rowsAffected > 0;
             
         } catch (SQLException e) {
@@ -51,6 +57,7 @@ public class WasteTypeDAO {
             stmt.setInt(3, wasteType.getTypeId());
             
             int rowsAffected = stmt.executeUpdate();
+            CacheTags.invalidate(conn, CacheTags.ALL_WASTE_TYPES);
             return rowsAffected > 0;
             
         } catch (SQLException e) {
@@ -73,6 +80,7 @@ public class WasteTypeDAO {
             stmt.setInt(1, typeId);
             
             int rowsAffected = stmt.executeUpdate();
+            CacheTags.invalidate(conn, CacheTags.ALL_WASTE_TYPES);
             return rowsAffected > 0;
             
         } catch (SQLException e) {
@@ -87,31 +95,51 @@ public class WasteTypeDAO {
      * @return WasteType object if found, null otherwise
      */
     public WasteType getWasteTypeById(int typeId) {
-        String query = "SELECT * FROM waste_types WHERE type_id = ?";
+        if (cache.isLoaded()) {
+            return cache.getById(typeId);
+        }
         
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            
-            stmt.setInt(1, typeId);
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return extractWasteTypeFromResultSet(rs);
-                }
+        for (WasteType wasteType : loadWasteTypes()) {
+            if (wasteType.getTypeId() == typeId) {
+                return wasteType;
             }
-            
-        } catch (SQLException e) {
-            System.err.println("Error getting waste type by ID: " + e.getMessage());
         }
         
         return null;
     }
     
+    /**
+     * Get the names of all waste types keyed by type ID
+     * @return Map of type ID to type name
+     */
+    public Map<Integer, String> getWasteTypeNames() {
+        Map<Integer, String> typeNames = cache.getTypeNames();
+        if (typeNames != null) {
+            return typeNames;
+        }
+        
+        typeNames = new HashMap<>();
+        for (WasteType wasteType : loadWasteTypes()) {
+            typeNames.put(wasteType.getTypeId(), wasteType.getTypeName());
+        }
+        return typeNames;
+    }
+    
     /**
      * Get all waste types
      * @return List of all waste types
      */
     public List<WasteType> getAllWasteTypes() {
+        List<WasteType> wasteTypes = cache.getAll();
+        return wasteTypes != null ? wasteTypes : loadWasteTypes();
+    }
+    
+    /**
+     * Read all waste types from the database and store them in the cache
+     * @return List of all waste types
+     */
+    private List<WasteType> loadWasteTypes() {
+        long version = cache.getVersion();
         List<WasteType> wasteTypes = new ArrayList<>();
         String query = "SELECT * FROM waste_types ORDER BY type_name";
         
@@ -123,6 +151,8 @@ public class WasteTypeDAO {
                 wasteTypes.add(extractWasteTypeFromResultSet(rs));
             }
             
+            cache.load(wasteTypes, version);
+            
         } catch (SQLException e) {
             System.err.println("Error getting all waste types: " + e.getMessage());
         }
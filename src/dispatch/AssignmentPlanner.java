@@ -0,0 +1,117 @@
+package dispatch;
+
+import models.Assignment;
+import models.WasteRequest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Plans the assignment of pending requests to collectors, giving each request
+ * to the eligible collector with the least open work at that point. Waste
+ * types that require certification only go to certified crews; capacity is
+ * not considered (see FleetPlanner).
+ * Collectors are kept in a priority queue keyed on open kg, then stop count,
+ * so each request costs O(log collectors). Requests are placed heaviest
+ * first, which keeps the final loads closer than placing them in any other
+ * order. The planner only reads and updates its own copy of the loads; the
+ * plan is saved by AssignmentDAO.addAssignments().
+ */
+public class AssignmentPlanner {
+    
+    private static final Comparator<CollectorLoad> LEAST_LOADED = new Comparator<CollectorLoad>() {
+        @Override
+        public int compare(CollectorLoad a, CollectorLoad b) {
+            int result = Double.compare(a.getOpenKg(), b.getOpenKg());
+            if (result == 0) {
+                result = Integer.compare(a.getStops(), b.getStops());
+            }
+            return result != 0 ? result : Integer.compare(a.getCollectorId(), b.getCollectorId());
+        }
+    };
+    
+    private static final Comparator<WasteRequest> HEAVIEST_FIRST = new Comparator<WasteRequest>() {
+        @Override
+        public int compare(WasteRequest a, WasteRequest b) {
+            int result = Double.compare(b.getQuantity(), a.getQuantity());
+            return result != 0 ? result : Integer.compare(a.getRequestId(), b.getRequestId());
+        }
+    };
+    
+    private final PriorityQueue<CollectorLoad> queue;
+    private final List<CollectorLoad> loads = new ArrayList<>();
+    private final Set<Integer> certified = new HashSet<>();
+    private final Set<Integer> restrictedTypes;
+    
+    /**
+     * Create a planner
+     * @param vehicles Vehicles of the collectors to assign to
+     * @param openLoads Current open work by collector ID; collectors missing from it have none
+     * @param restrictedTypes IDs of the waste types that require certification
+     */
+    public AssignmentPlanner(List<Vehicle> vehicles, Map<Integer, CollectorLoad> openLoads, Set<Integer> restrictedTypes) {
+        this.restrictedTypes = restrictedTypes;
+        queue = new PriorityQueue<>(Math.max(1, vehicles.size()), LEAST_LOADED);
+        for (Vehicle vehicle : vehicles) {
+            CollectorLoad open = openLoads.get(vehicle.getCollectorId());
+            CollectorLoad load = open != null
+                    ? new CollectorLoad(vehicle.getCollectorId(), open.getOpenKg(), open.getStops())
+                    : new CollectorLoad(vehicle.getCollectorId(), 0, 0);
+            loads.add(load);
+            queue.add(load);
+            if (vehicle.isCertified()) {
+                certified.add(vehicle.getCollectorId());
+            }
+        }
+    }
+    
+    /**
+     * Assign requests to the least-loaded eligible collectors
+     * @param requests Pending requests
+     * @return New assignments; requests no collector may take are left out
+     */
+    public List<Assignment> plan(List<WasteRequest> requests) {
+        List<Assignment> assignments = new ArrayList<>(requests.size());
+        if (queue.isEmpty()) {
+            return assignments;
+        }
+        
+        List<WasteRequest> ordered = new ArrayList<>(requests);
+        Collections.sort(ordered, HEAVIEST_FIRST);
+        
+        List<CollectorLoad> skipped = new ArrayList<>();
+        for (WasteRequest request : ordered) {
+            // Set aside the least-loaded collectors until one may take the request
+            boolean restricted = restrictedTypes.contains(request.getWasteType());
+            CollectorLoad load = queue.poll();
+            while (load != null && restricted && !certified.contains(load.getCollectorId())) {
+                skipped.add(load);
+                load = queue.poll();
+            }
+            queue.addAll(skipped);
+            skipped.clear();
+            if (load == null) {
+                continue;
+            }
+            
+            load.addStop(request.getQuantity());
+            queue.add(load);
+            assignments.add(new Assignment(request.getRequestId(), load.getCollectorId()));
+        }
+        return assignments;
+    }
+    
+    /**
+     * Get the open work of each collector including the planned assignments
+     * @return Loads in the order the collectors were given
+     */
+    public List<CollectorLoad> getLoads() {
+        return loads;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,39 @@
+package dispatch;
+
+/**
+ * Open work of a collector: the kg and number of stops of the assignments
+ * not yet completed
+ */
+public class CollectorLoad {
+    
+    private final int collectorId;
+    private double openKg;
+    private int stops;
+    
+    public CollectorLoad(int collectorId, double openKg, int stops) {
+        this.collectorId = collectorId;
+        this.openKg = openKg;
+        this.stops = stops;
+    }
+    
+    public int getCollectorId() {
+        return collectorId;
+    }
+    
+    public double getOpenKg() {
+        return openKg;
+    }
+    
+    public int getStops() {
+        return stops;
+    }
+    
+    /**
+     * Add one pickup to the open work
+     * @param quantity Quantity in kg
+     */
+    void addStop(double quantity) {
+        openKg += quantity;
+        stops++;
+    }
+}
\ No newline at end of file
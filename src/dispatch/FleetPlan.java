@@ -0,0 +1,49 @@
+package dispatch;
+
+import models.Assignment;
+import models.WasteRequest;
+
+import java.util.List;
+
+/**
+ * Result of FleetPlanner: the new assignments, in route order per collector,
+ * and the requests that fit no vehicle
+ */
+public class FleetPlan {
+    
+    private final List<Assignment> assignments;
+    private final List<WasteRequest> unassigned;
+    private final double routeKm;
+    private final int runs;
+    
+    FleetPlan(List<Assignment> assignments, List<WasteRequest> unassigned, double routeKm, int runs) {
+        this.assignments = assignments;
+        this.unassigned = unassigned;
+        this.routeKm = routeKm;
+        this.runs = runs;
+    }
+    
+    public List<Assignment> getAssignments() {
+        return assignments;
+    }
+    
+    public List<WasteRequest> getUnassigned() {
+        return unassigned;
+    }
+    
+    /**
+     * Get the estimated length of all routes, from each start to its last stop
+     * @return Length in km
+     */
+    public double getRouteKm() {
+        return routeKm;
+    }
+    
+    /**
+     * Get the number of search runs the plan was chosen from
+     * @return Run count
+     */
+    public int getRuns() {
+        return runs;
+    }
+}
\ No newline at end of file
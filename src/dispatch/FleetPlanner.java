@@ -0,0 +1,470 @@
+package dispatch;
+
+import models.Assignment;
+import models.WasteRequest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splits pending requests across the collectors' vehicles for the day.
+ * A vehicle only takes waste types its crew may collect and no more kg than
+ * its capacity left after its open assignments. Within that, the planner
+ * first assigns as many requests as it can, then keeps the routes short.
+ *
+ * Each run builds a plan by cheapest insertion and then improves it with
+ * ruin and recreate: it removes a few requests (at random, or a cluster
+ * around one request), reinserts them and any unassigned requests where
+ * they cost least, and keeps the result unless it is worse. One run per core
+ * is started with its own seed, all stop at the wall-clock budget, and the
+ * best plan wins. Distances are straight lines on a local projection; the
+ * order of each route is refined later by RouteOptimizer.
+ */
+public class FleetPlanner {
+    
+    private static final double KM_PER_DEGREE_LATITUDE = 110.574;
+    private static final double KM_PER_DEGREE_LONGITUDE = 111.320;
+    private static final double EPSILON = 1e-9;
+    private static final int MAX_RUIN = 40;
+    private static final int STALL_ITERATIONS = 2000;
+    
+    private final List<Vehicle> vehicles;
+    private final double[] capacities;
+    private final Set<Integer> restrictedTypes;
+    private final Location depot;
+    private final int threads;
+    
+    /**
+     * Create a planner using one run per available core
+     * @param vehicles Vehicles of the collectors to plan for
+     * @param openLoads Current open work by collector ID; collectors missing from it have none
+     * @param restrictedTypes IDs of the waste types that require certification
+     * @param depot Start of every route, or null
+     */
+    public FleetPlanner(List<Vehicle> vehicles, Map<Integer, CollectorLoad> openLoads, Set<Integer> restrictedTypes,
+            Location depot) {
+        this(vehicles, openLoads, restrictedTypes, depot, Runtime.getRuntime().availableProcessors());
+    }
+    
+    /**
+     * Create a planner
+     * @param vehicles Vehicles of the collectors to plan for
+     * @param openLoads Current open work by collector ID; collectors missing from it have none
+     * @param restrictedTypes IDs of the waste types that require certification
+     * @param depot Start of every route, or null
+     * @param threads Number of parallel runs
+     */
+    public FleetPlanner(List<Vehicle> vehicles, Map<Integer, CollectorLoad> openLoads, Set<Integer> restrictedTypes,
+            Location depot, int threads) {
+        this.vehicles = vehicles;
+        this.restrictedTypes = restrictedTypes;
+        this.depot = depot;
+        this.threads = Math.max(1, threads);
+        
+        capacities = new double[vehicles.size()];
+        for (int v = 0; v < vehicles.size(); v++) {
+            CollectorLoad open = openLoads.get(vehicles.get(v).getCollectorId());
+            capacities[v] = Math.max(0, vehicles.get(v).getCapacityKg() - (open != null ? open.getOpenKg() : 0));
+        }
+    }
+    
+    /**
+     * Plan the assignment of requests to vehicles
+     * @param requests Pending requests, with address, waste type and quantity set
+     * @param locations Locations by address; requests without one are assigned by capacity alone
+     * @param budgetMillis Wall-clock time the search may take
+     * @return FleetPlan object
+     */
+    public FleetPlan plan(List<WasteRequest> requests, Map<String, Location> locations, long budgetMillis) {
+        final Problem problem = new Problem(requests, locations);
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "fleet-planner");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        
+        List<Future<Solution>> runs = new ArrayList<>();
+        for (int run = 0; run < threads; run++) {
+            final long seed = run;
+            runs.add(executor.submit(new Callable<Solution>() {
+                @Override
+                public Solution call() {
+                    return search(problem, new Random(seed), deadline);
+                }
+            }));
+        }
+        
+        Solution best = null;
+        try {
+            for (Future<Solution> run : runs) {
+                Solution solution = run.get();
+                if (best == null || solution.isBetterThan(best)) {
+                    best = solution;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.err.println("Error in fleet planner run: " + e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        if (best == null) {
+            best = construct(problem, new Random(0));
+        }
+        return toPlan(problem, best);
+    }
+    
+    /**
+     * One seeded run: construct a plan, then ruin and recreate until the
+     * deadline or until it stops improving
+     */
+    private Solution search(Problem problem, Random random, long deadline) {
+        Solution current = construct(problem, random);
+        Solution best = current.copy();
+        
+        int stalled = 0;
+        int stallLimit = STALL_ITERATIONS + 20 * problem.size;
+        while (problem.size > 0 && stalled < stallLimit && System.nanoTime() < deadline) {
+            Solution candidate = current.copy();
+            candidate.ruin(random);
+            candidate.recreate(candidate.getUnassigned(), random);
+            
+            if (!current.isBetterThan(candidate)) {
+                current = candidate;
+            }
+            if (current.isBetterThan(best)) {
+                best = current.copy();
+                stalled = 0;
+            } else {
+                stalled++;
+            }
+        }
+        return best;
+    }
+    
+    private Solution construct(Problem problem, Random random) {
+        Solution solution = new Solution(problem);
+        List<Integer> all = new ArrayList<>(problem.size);
+        for (int r = 0; r < problem.size; r++) {
+            all.add(r);
+        }
+        solution.recreate(all, random);
+        return solution;
+    }
+    
+    private FleetPlan toPlan(Problem problem, Solution solution) {
+        List<Assignment> assignments = new ArrayList<>();
+        for (int v = 0; v < vehicles.size(); v++) {
+            for (int i = 0; i < solution.sizes[v]; i++) {
+                WasteRequest request = problem.requests.get(solution.routes[v][i]);
+                assignments.add(new Assignment(request.getRequestId(), vehicles.get(v).getCollectorId()));
+            }
+        }
+        
+        List<WasteRequest> unassigned = new ArrayList<>();
+        for (int r : solution.getUnassigned()) {
+            unassigned.add(problem.requests.get(r));
+        }
+        return new FleetPlan(assignments, unassigned, solution.length, threads);
+    }
+    
+    /**
+     * The requests projected onto a flat km grid, shared read-only by the runs.
+     * The origin is the depot, or the centre of the requests without one.
+     */
+    private class Problem {
+        private final List<WasteRequest> requests;
+        private final int size;
+        private final double[] x;
+        private final double[] y;
+        private final boolean[] located;
+        private final boolean[] restricted;
+        private final double[] quantities;
+        
+        Problem(List<WasteRequest> requests, Map<String, Location> locations) {
+            this.requests = requests;
+            size = requests.size();
+            x = new double[size];
+            y = new double[size];
+            located = new boolean[size];
+            restricted = new boolean[size];
+            quantities = new double[size];
+            
+            Location origin = depot != null ? depot : centre(requests, locations);
+            double kmPerDegreeLongitude = origin == null ? 0
+                    : KM_PER_DEGREE_LONGITUDE * Math.cos(Math.toRadians(origin.getLatitude()));
+            for (int r = 0; r < size; r++) {
+                WasteRequest request = requests.get(r);
+                Location location = locations.get(request.getAddress());
+                if (location != null) {
+                    x[r] = (location.getLongitude() - origin.getLongitude()) * kmPerDegreeLongitude;
+                    y[r] = (location.getLatitude() - origin.getLatitude()) * KM_PER_DEGREE_LATITUDE;
+                    located[r] = true;
+                }
+                restricted[r] = restrictedTypes.contains(request.getWasteType());
+                quantities[r] = request.getQuantity();
+            }
+        }
+        
+        /**
+         * Distance between two requests, or from the depot when a is -1.
+         * Requests without a location are no distance from anything.
+         */
+        double distance(int a, int b) {
+            if (!located[b] || (a >= 0 && !located[a])) {
+                return 0;
+            }
+            double dx = a >= 0 ? x[b] - x[a] : x[b];
+            double dy = a >= 0 ? y[b] - y[a] : y[b];
+            return Math.sqrt(dx * dx + dy * dy);
+        }
+        
+        boolean allowed(int v, int r) {
+            return !restricted[r] || vehicles.get(v).isCertified();
+        }
+    }
+    
+    private static Location centre(List<WasteRequest> requests, Map<String, Location> locations) {
+        double latitude = 0;
+        double longitude = 0;
+        int count = 0;
+        for (WasteRequest request : requests) {
+            Location location = locations.get(request.getAddress());
+            if (location != null) {
+                latitude += location.getLatitude();
+                longitude += location.getLongitude();
+                count++;
+            }
+        }
+        return count == 0 ? null : new Location(latitude / count, longitude / count);
+    }
+    
+    /**
+     * A plan being searched: an open route per vehicle, its remaining
+     * capacity, and the total route length kept up to date by each change
+     */
+    private class Solution {
+        // Neighbour of a route end: the depot before the first stop, or nothing
+        private static final int DEPOT = -1;
+        private static final int NONE = -2;
+        
+        private final Problem problem;
+        private final int[][] routes;
+        private final int[] sizes;
+        private final double[] remaining;
+        private final int[] vehicleOf;
+        private double length;
+        private int unassignedCount;
+        
+        Solution(Problem problem) {
+            this.problem = problem;
+            routes = new int[vehicles.size()][8];
+            sizes = new int[vehicles.size()];
+            remaining = capacities.clone();
+            vehicleOf = new int[problem.size];
+            Arrays.fill(vehicleOf, -1);
+            unassignedCount = problem.size;
+        }
+        
+        private Solution(Solution other) {
+            problem = other.problem;
+            routes = new int[other.routes.length][];
+            for (int v = 0; v < routes.length; v++) {
+                routes[v] = other.routes[v].clone();
+            }
+            sizes = other.sizes.clone();
+            remaining = other.remaining.clone();
+            vehicleOf = other.vehicleOf.clone();
+            length = other.length;
+            unassignedCount = other.unassignedCount;
+        }
+        
+        Solution copy() {
+            return new Solution(this);
+        }
+        
+        /**
+         * Fewer unassigned requests first, then shorter routes
+         */
+        boolean isBetterThan(Solution other) {
+            if (unassignedCount != other.unassignedCount) {
+                return unassignedCount < other.unassignedCount;
+            }
+            return length < other.length - EPSILON;
+        }
+        
+        List<Integer> getUnassigned() {
+            List<Integer> unassigned = new ArrayList<>(unassignedCount);
+            for (int r = 0; r < vehicleOf.length; r++) {
+                if (vehicleOf[r] < 0) {
+                    unassigned.add(r);
+                }
+            }
+            return unassigned;
+        }
+        
+        /**
+         * Remove a few assigned requests: random ones, or the ones closest to a random request
+         */
+        void ruin(Random random) {
+            int assigned = problem.size - unassignedCount;
+            if (assigned == 0) {
+                return;
+            }
+            int count = 1 + random.nextInt(Math.min(MAX_RUIN, Math.max(1, assigned / 5)));
+            
+            int seed = random.nextInt(problem.size);
+            if (random.nextBoolean() && problem.located[seed]) {
+                for (int i = 0; i < count; i++) {
+                    int nearest = -1;
+                    double nearestDistance = Double.MAX_VALUE;
+                    for (int r = 0; r < problem.size; r++) {
+                        if (vehicleOf[r] >= 0 && problem.located[r]) {
+                            double distance = problem.distance(seed, r);
+                            if (distance < nearestDistance) {
+                                nearest = r;
+                                nearestDistance = distance;
+                            }
+                        }
+                    }
+                    if (nearest < 0) {
+                        break;
+                    }
+                    remove(nearest);
+                }
+            } else {
+                int removed = 0;
+                for (int i = 0; i < count * 4 && removed < count; i++) {
+                    int r = random.nextInt(problem.size);
+                    if (vehicleOf[r] >= 0) {
+                        remove(r);
+                        removed++;
+                    }
+                }
+            }
+        }
+        
+        /**
+         * Insert requests where each costs least, restricted and heavy ones first
+         * (with some noise, so that runs and iterations differ)
+         */
+        void recreate(List<Integer> requests, Random random) {
+            final double[] keys = new double[problem.size];
+            for (int r : requests) {
+                keys[r] = (problem.restricted[r] ? 1e12 : 0) + problem.quantities[r] * (0.75 + random.nextDouble() / 2);
+            }
+            Integer[] order = requests.toArray(new Integer[0]);
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer a, Integer b) {
+                    return Double.compare(keys[b], keys[a]);
+                }
+            });
+            
+            for (int r : order) {
+                insertBest(r);
+            }
+        }
+        
+        /**
+         * Insert a request at its cheapest feasible position; on ties, into the
+         * vehicle with the most capacity left
+         * @return true if some vehicle could take it
+         */
+        boolean insertBest(int r) {
+            double quantity = problem.quantities[r];
+            int bestVehicle = -1;
+            int bestPosition = -1;
+            double bestCost = Double.MAX_VALUE;
+            for (int v = 0; v < routes.length; v++) {
+                if (remaining[v] < quantity - EPSILON || !problem.allowed(v, r)) {
+                    continue;
+                }
+                for (int position = 0; position <= sizes[v]; position++) {
+                    double cost = insertionCost(v, r, position);
+                    if (cost < bestCost - EPSILON
+                            || (cost < bestCost + EPSILON && remaining[v] > remaining[bestVehicle])) {
+                        bestVehicle = v;
+                        bestPosition = position;
+                        bestCost = cost;
+                    }
+                }
+            }
+            if (bestVehicle < 0) {
+                return false;
+            }
+            
+            int[] route = routes[bestVehicle];
+            if (sizes[bestVehicle] == route.length) {
+                route = Arrays.copyOf(route, route.length * 2);
+                routes[bestVehicle] = route;
+            }
+            System.arraycopy(route, bestPosition, route, bestPosition + 1, sizes[bestVehicle] - bestPosition);
+            route[bestPosition] = r;
+            sizes[bestVehicle]++;
+            remaining[bestVehicle] -= quantity;
+            vehicleOf[r] = bestVehicle;
+            length += bestCost;
+            unassignedCount--;
+            return true;
+        }
+        
+        void remove(int r) {
+            int v = vehicleOf[r];
+            int[] route = routes[v];
+            int position = 0;
+            while (route[position] != r) {
+                position++;
+            }
+            
+            int previous = previous(v, position);
+            int next = position + 1 < sizes[v] ? route[position + 1] : NONE;
+            length -= link(previous, r) + link(r, next) - link(previous, next);
+            
+            System.arraycopy(route, position + 1, route, position, sizes[v] - position - 1);
+            sizes[v]--;
+            remaining[v] += problem.quantities[r];
+            vehicleOf[r] = -1;
+            unassignedCount++;
+        }
+        
+        private double insertionCost(int v, int r, int position) {
+            int previous = previous(v, position);
+            int next = position < sizes[v] ? routes[v][position] : NONE;
+            return link(previous, r) + link(r, next) - link(previous, next);
+        }
+        
+        private int previous(int v, int position) {
+            if (position > 0) {
+                return routes[v][position - 1];
+            }
+            return depot != null ? DEPOT : NONE;
+        }
+        
+        private double link(int a, int b) {
+            if (a == NONE || b == NONE) {
+                return 0;
+            }
+            return a == DEPOT ? problem.distance(-1, b) : problem.distance(a, b);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,39 @@
+package dispatch;
+
+/**
+ * Point on the map in degrees
+ */
+public class Location {
+    
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    
+    private final double latitude;
+    private final double longitude;
+    
+    public Location(double latitude, double longitude) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+    
+    public double getLatitude() {
+        return latitude;
+    }
+    
+    public double getLongitude() {
+        return longitude;
+    }
+    
+    /**
+     * Get the great-circle distance to another location (haversine formula)
+     * @param other Other location
+     * @return Distance in km
+     */
+    public double distanceKm(Location other) {
+        double dLat = Math.toRadians(other.latitude - latitude);
+        double dLon = Math.toRadians(other.longitude - longitude);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
+                   Math.cos(Math.toRadians(latitude)) * Math.cos(Math.toRadians(other.latitude)) *
+                   Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+}
\ No newline at end of file
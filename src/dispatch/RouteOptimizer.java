@@ -0,0 +1,239 @@
+package dispatch;
+
+import models.Assignment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Orders the stops of a collector's route to shorten the distance travelled.
+ * The route is open: it starts at the depot (or, without one, at the stop
+ * farthest from the others' centre) and ends at the last stop. It is built
+ * nearest neighbour first and then improved with 2-opt (reversing a stretch
+ * of the route) and Or-opt (moving a run of up to three stops elsewhere,
+ * either way round) until neither shortens it. Distances are precomputed,
+ * so 200 stops take a few milliseconds.
+ */
+public final class RouteOptimizer {
+    
+    private static final int MAX_PASSES = 50;
+    private static final int MAX_RUN = 3;
+    private static final double EPSILON = 1e-9;
+    
+    private RouteOptimizer() {}
+    
+    /**
+     * Order assignments into a route. Assignments whose address has no known
+     * location follow the route in their original order.
+     * @param assignments Assignments to visit, with address set
+     * @param locations Locations by address
+     * @param depot Start of the route, or null
+     * @return Assignments in visiting order
+     */
+    public static List<Assignment> sequence(List<Assignment> assignments, Map<String, Location> locations, Location depot) {
+        List<Assignment> located = new ArrayList<>();
+        List<Location> stops = new ArrayList<>();
+        List<Assignment> unlocated = new ArrayList<>();
+        for (Assignment assignment : assignments) {
+            Location location = locations.get(assignment.getAddress());
+            if (location != null) {
+                located.add(assignment);
+                stops.add(location);
+            } else {
+                unlocated.add(assignment);
+            }
+        }
+        
+        List<Assignment> route = new ArrayList<>(assignments.size());
+        for (int stop : order(stops, depot)) {
+            route.add(located.get(stop));
+        }
+        route.addAll(unlocated);
+        return route;
+    }
+    
+    /**
+     * Order stops into a short route
+     * @param stops Stop locations
+     * @param depot Start of the route, or null
+     * @return Indexes into stops in visiting order
+     */
+    public static int[] order(List<Location> stops, Location depot) {
+        int n = stops.size();
+        if (n <= 1) {
+            return n == 0 ? new int[0] : new int[] {0};
+        }
+        
+        // The depot, if any, is node n and stays first
+        int nodes = depot != null ? n + 1 : n;
+        double[][] distances = new double[nodes][nodes];
+        for (int i = 0; i < nodes; i++) {
+            Location a = i < n ? stops.get(i) : depot;
+            for (int j = i + 1; j < nodes; j++) {
+                Location b = j < n ? stops.get(j) : depot;
+                distances[i][j] = distances[j][i] = a.distanceKm(b);
+            }
+        }
+        
+        int[] route = nearestNeighbour(distances, depot != null ? n : farthestFromCentre(stops));
+        for (int pass = 0; pass < MAX_PASSES; pass++) {
+            boolean improved = twoOpt(route, distances);
+            improved |= orOpt(route, distances);
+            if (!improved) {
+                break;
+            }
+        }
+        
+        return depot != null ? Arrays.copyOfRange(route, 1, route.length) : route;
+    }
+    
+    /**
+     * Get the length of a route
+     * @param stops Stop locations
+     * @param depot Start of the route, or null
+     * @param order Indexes into stops in visiting order
+     * @return Length in km
+     */
+    public static double lengthKm(List<Location> stops, Location depot, int[] order) {
+        double length = 0;
+        Location previous = depot;
+        for (int stop : order) {
+            Location location = stops.get(stop);
+            if (previous != null) {
+                length += previous.distanceKm(location);
+            }
+            previous = location;
+        }
+        return length;
+    }
+    
+    private static int farthestFromCentre(List<Location> stops) {
+        double latitude = 0;
+        double longitude = 0;
+        for (Location stop : stops) {
+            latitude += stop.getLatitude();
+            longitude += stop.getLongitude();
+        }
+        Location centre = new Location(latitude / stops.size(), longitude / stops.size());
+        
+        int farthest = 0;
+        double farthestDistance = -1;
+        for (int i = 0; i < stops.size(); i++) {
+            double distance = centre.distanceKm(stops.get(i));
+            if (distance > farthestDistance) {
+                farthest = i;
+                farthestDistance = distance;
+            }
+        }
+        return farthest;
+    }
+    
+    private static int[] nearestNeighbour(double[][] distances, int start) {
+        int nodes = distances.length;
+        int[] route = new int[nodes];
+        boolean[] visited = new boolean[nodes];
+        route[0] = start;
+        visited[start] = true;
+        
+        for (int position = 1; position < nodes; position++) {
+            int current = route[position - 1];
+            int nearest = -1;
+            for (int node = 0; node < nodes; node++) {
+                if (!visited[node] && (nearest == -1 || distances[current][node] < distances[current][nearest])) {
+                    nearest = node;
+                }
+            }
+            route[position] = nearest;
+            visited[nearest] = true;
+        }
+        return route;
+    }
+    
+    /**
+     * Reverse stretches of the route where that shortens it
+     * @return true if the route changed
+     */
+    private static boolean twoOpt(int[] route, double[][] d) {
+        boolean improved = false;
+        int nodes = route.length;
+        for (int i = 1; i < nodes - 1; i++) {
+            for (int j = i + 1; j < nodes; j++) {
+                int before = route[i - 1];
+                int first = route[i];
+                int last = route[j];
+                // The route is open, so a stretch at the end has no edge after it
+                double delta = d[before][last] - d[before][first];
+                if (j + 1 < nodes) {
+                    int after = route[j + 1];
+                    delta += d[first][after] - d[last][after];
+                }
+                if (delta < -EPSILON) {
+                    reverse(route, i, j);
+                    improved = true;
+                }
+            }
+        }
+        return improved;
+    }
+    
+    /**
+     * Move runs of up to MAX_RUN stops to wherever that shortens the route
+     * @return true if the route changed
+     */
+    private static boolean orOpt(int[] route, double[][] d) {
+        boolean improved = false;
+        int nodes = route.length;
+        for (int length = 1; length <= MAX_RUN && length < nodes - 1; length++) {
+            for (int i = 1; i + length <= nodes; i++) {
+                int before = route[i - 1];
+                int first = route[i];
+                int last = route[i + length - 1];
+                int after = i + length < nodes ? route[i + length] : -1;
+                double removed = d[before][first] + (after >= 0 ? d[last][after] - d[before][after] : 0);
+                
+                // Insert between route[k] and route[k + 1], outside the run and its old place
+                for (int k = 0; k < nodes; k++) {
+                    if (k >= i - 1 && k < i + length) {
+                        continue;
+                    }
+                    int u = route[k];
+                    int v = k + 1 < nodes ? route[k + 1] : -1;
+                    double kept = v >= 0 ? d[u][v] : 0;
+                    double forward = d[u][first] + (v >= 0 ? d[last][v] : 0) - kept;
+                    double backward = d[u][last] + (v >= 0 ? d[first][v] : 0) - kept;
+                    if (Math.min(forward, backward) - removed < -EPSILON) {
+                        moveRun(route, i, length, k, backward < forward);
+                        improved = true;
+                        break;
+                    }
+                }
+            }
+        }
+        return improved;
+    }
+    
+    private static void moveRun(int[] route, int start, int length, int after, boolean reversed) {
+        int[] run = Arrays.copyOfRange(route, start, start + length);
+        if (reversed) {
+            reverse(run, 0, length - 1);
+        }
+        int[] rest = new int[route.length - length];
+        System.arraycopy(route, 0, rest, 0, start);
+        System.arraycopy(route, start + length, rest, start, route.length - start - length);
+        
+        int at = (after < start ? after : after - length) + 1;
+        System.arraycopy(rest, 0, route, 0, at);
+        System.arraycopy(run, 0, route, at, length);
+        System.arraycopy(rest, at, route, at + length, rest.length - at);
+    }
+    
+    private static void reverse(int[] route, int from, int to) {
+        while (from < to) {
+            int node = route[from];
+            route[from++] = route[to];
+            route[to--] = node;
+        }
+    }
+}
\ No newline at end of file
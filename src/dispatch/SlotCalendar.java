@@ -0,0 +1,148 @@
+package dispatch;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Pickup capacity per zone and day over a fixed horizon, handing out the
+ * earliest day with room. Each zone keeps the free pickups of every day and
+ * a union-find over the days, where a full day points to the day after it,
+ * so finding the next free day from any date takes near-constant time no
+ * matter how many days are already full.
+ * Capacities must be set before the first booking in a zone. Not thread-safe.
+ */
+public class SlotCalendar {
+    
+    private final LocalDate start;
+    private final int days;
+    private final int defaultPickups;
+    private final Map<String, Integer> dailyPickups = new HashMap<>();
+    private final Map<String, Map<Integer, Integer>> dayPickups = new HashMap<>();
+    private final Map<String, Zone> zones = new HashMap<>();
+    
+    /**
+     * Create a calendar
+     * @param start First day that can be booked
+     * @param days Number of days that can be booked
+     * @param defaultPickups Pickups per day of a zone with no capacity set
+     */
+    public SlotCalendar(LocalDate start, int days, int defaultPickups) {
+        this.start = start;
+        this.days = days;
+        this.defaultPickups = defaultPickups;
+    }
+    
+    /**
+     * Set the pickups per day of a zone
+     * @param zone Zone name
+     * @param pickups Pickups per day
+     */
+    public void setDailyCapacity(String zone, int pickups) {
+        dailyPickups.put(zone, pickups);
+    }
+    
+    /**
+     * Set the pickups of a zone on one day, e.g. 0 on a holiday
+     * @param zone Zone name
+     * @param day Day; days outside the horizon are ignored
+     * @param pickups Pickups that day
+     */
+    public void setDayCapacity(String zone, LocalDate day, int pickups) {
+        int index = index(day);
+        if (index < 0 || index >= days) {
+            return;
+        }
+        Map<Integer, Integer> overrides = dayPickups.get(zone);
+        if (overrides == null) {
+            overrides = new HashMap<>();
+            dayPickups.put(zone, overrides);
+        }
+        overrides.put(index, pickups);
+    }
+    
+    /**
+     * Take a pickup on a given day, e.g. for a request slotted earlier.
+     * A day booked beyond its capacity simply stays full.
+     * @param zone Zone name
+     * @param day Day; days outside the horizon are ignored
+     */
+    public void use(String zone, LocalDate day) {
+        int index = index(day);
+        if (index >= 0 && index < days) {
+            zone(zone).take(index);
+        }
+    }
+    
+    /**
+     * Book the earliest day with a free pickup
+     * @param zone Zone name
+     * @param earliest Earliest acceptable day
+     * @return Day booked, or null if the zone is full up to the end of the horizon
+     */
+    public LocalDate book(String zone, LocalDate earliest) {
+        Zone calendar = zone(zone);
+        int index = calendar.find(Math.max(0, index(earliest)));
+        if (index >= days) {
+            return null;
+        }
+        calendar.take(index);
+        return start.plusDays(index);
+    }
+    
+    private int index(LocalDate day) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, ChronoUnit.DAYS.between(start, day)));
+    }
+    
+    private Zone zone(String name) {
+        Zone zone = zones.get(name);
+        if (zone == null) {
+            Integer daily = dailyPickups.get(name);
+            zone = new Zone(daily != null ? daily : defaultPickups, dayPickups.get(name));
+            zones.put(name, zone);
+        }
+        return zone;
+    }
+    
+    /**
+     * Free pickups of one zone, with the union-find over its days.
+     * Index days stands for "after the horizon" and is never full.
+     */
+    private class Zone {
+        private final int[] free;
+        private final int[] next;
+        
+        Zone(int daily, Map<Integer, Integer> overrides) {
+            free = new int[days];
+            next = new int[days + 1];
+            for (int day = 0; day < days; day++) {
+                Integer override = overrides != null ? overrides.get(day) : null;
+                free[day] = Math.max(0, override != null ? override : daily);
+                next[day] = free[day] > 0 ? day : day + 1;
+            }
+            next[days] = days;
+        }
+        
+        /**
+         * Find the first day from the given one with a free pickup
+         */
+        int find(int day) {
+            if (day >= days) {
+                return days;
+            }
+            // Path halving: point each visited day two steps ahead
+            while (next[day] != day) {
+                next[day] = next[next[day]];
+                day = next[day];
+            }
+            return day;
+        }
+        
+        void take(int day) {
+            if (free[day] > 0 && --free[day] == 0) {
+                next[day] = day + 1;
+            }
+        }
+    }
+}
\ No newline at end of file
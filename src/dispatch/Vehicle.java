@@ -0,0 +1,42 @@
+package dispatch;
+
+import java.util.Set;
+
+/**
+ * Vehicle of a collector: how many kg it carries and whether its crew is
+ * certified for the waste types that require it
+ */
+public class Vehicle {
+    
+    private final int collectorId;
+    private final double capacityKg;
+    private final boolean certified;
+    
+    public Vehicle(int collectorId, double capacityKg, boolean certified) {
+        this.collectorId = collectorId;
+        this.capacityKg = capacityKg;
+        this.certified = certified;
+    }
+    
+    public int getCollectorId() {
+        return collectorId;
+    }
+    
+    public double getCapacityKg() {
+        return capacityKg;
+    }
+    
+    public boolean isCertified() {
+        return certified;
+    }
+    
+    /**
+     * Check whether the crew may collect a waste type
+     * @param wasteType Waste type ID
+     * @param restrictedTypes IDs of the waste types that require certification
+     * @return true if the waste type is unrestricted or the crew is certified
+     */
+    public boolean canCollect(int wasteType, Set<Integer> restrictedTypes) {
+        return certified || !restrictedTypes.contains(wasteType);
+    }
+}
\ No newline at end of file
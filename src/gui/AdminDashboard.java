@@ -1,21 +1,43 @@
 package gui;
 
+import analytics.KpiSketches;
 import dao.*;
+import dispatch.AssignmentPlanner;
+import dispatch.CollectorLoad;
+import dispatch.FleetPlan;
+import dispatch.FleetPlanner;
+import dispatch.Location;
+import dispatch.Vehicle;
 import models.*;
+import reports.ReportDefinition;
+import reports.ReportDimension;
+import reports.ReportResult;
+import reports.ReportSnapshot;
+import reports.StandardReports;
 
 import javax.swing.*;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.event.ListSelectionListener;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 // import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Dashboard for Admin users
  */
 public class AdminDashboard extends JFrame {
     
+    // Wall-clock time the route planner may search for
+    private static final long ROUTE_PLAN_BUDGET_MILLIS = 2000;
+    
     private User currentUser;
     
     private JTabbedPane tabbedPane;
@@ -24,6 +46,11 @@ public class AdminDashboard extends JFrame {
     private JTable requestsTable;
     private DefaultTableModel requestsTableModel;
     private JButton assignButton;
+    private JButton autoAssignButton;
+    private JButton planRoutesButton;
+    private JButton importAddressesButton;
+    private JButton schedulePickupsButton;
+    private JButton pickupCapacityButton;
     private JButton refreshRequestsButton;
     
     // Users tab components
@@ -31,6 +58,7 @@ public class AdminDashboard extends JFrame {
     private DefaultTableModel usersTableModel;
     private JButton addUserButton;
     private JButton editUserButton;
+    private JButton editVehicleButton;
     private JButton deleteUserButton;
     private JButton refreshUsersButton;
     
@@ -50,12 +78,23 @@ public class AdminDashboard extends JFrame {
     // Other components
     private JButton logoutButton;
     
+    // Background loaders showing saved rows until fresh ones arrive
+    private JLabel requestsStatusLabel;
+    private JLabel usersStatusLabel;
+    private JLabel assignmentsStatusLabel;
+    private JLabel feedbackStatusLabel;
+    private TableLoader requestsLoader;
+    private TableLoader usersLoader;
+    private TableLoader assignmentsLoader;
+    private TableLoader feedbackLoader;
+    
     /**
      * Constructor
      * @param user Current user
      */
     public AdminDashboard(User user) {
         this.currentUser = user;
+        ReportScheduler.start(StandardReports.scheduled());
         initComponents();
         setupLayout();
         setupListeners();
@@ -74,7 +113,7 @@ public class AdminDashboard extends JFrame {
         tabbedPane = new JTabbedPane();
         
         // Requests table
-        String[] requestsColumns = {"ID", "Resident", "Waste Type", "Quantity (kg)", "Address", "Status", "Requested Date"};
+        String[] requestsColumns = {"ID", "Resident", "Waste Type", "Quantity (kg)", "Address", "Status", "Requested Date", "Pickup Date"};
         requestsTableModel = new DefaultTableModel(requestsColumns, 0) {
             @Override
             public boolean isCellEditable(int row, int column) {
@@ -118,10 +157,18 @@ public class AdminDashboard extends JFrame {
         
         // Buttons
         assignButton = new JButton("Assign to Collector");
+        autoAssignButton = new JButton("Auto-Assign Pending");
+        planRoutesButton = new JButton("Plan Routes");
+        importAddressesButton = new JButton("Import Addresses...");
+        importAddressesButton.setToolTipText("Load address coordinates and zones from a CSV file: address, latitude, longitude[, zone]");
+        schedulePickupsButton = new JButton("Schedule Pickups");
+        schedulePickupsButton.setToolTipText("Give a pickup date to pending requests left without one or whose date has passed; new requests get one when they are made");
+        pickupCapacityButton = new JButton("Pickup Capacity...");
         refreshRequestsButton = new JButton("Refresh");
         
         addUserButton = new JButton("Add User");
         editUserButton = new JButton("Edit User");
+        editVehicleButton = new JButton("Vehicle...");
         deleteUserButton = new JButton("Delete User");
         refreshUsersButton = new JButton("Refresh");
         
@@ -130,6 +177,43 @@ public class AdminDashboard extends JFrame {
         refreshFeedbackButton = new JButton("Refresh");
         
         logoutButton = new JButton("Logout");
+        
+        // Status labels and table loaders
+        requestsStatusLabel = new JLabel();
+        requestsLoader = new TableLoader("admin-requests-" + currentUser.getUserId(),
+                requestsTableModel, requestsStatusLabel, new TableLoader.RowSource() {
+            @Override
+            public List<Object[]> loadRows() {
+                return fetchRequestRows();
+            }
+        });
+        
+        usersStatusLabel = new JLabel();
+        usersLoader = new TableLoader("admin-users-" + currentUser.getUserId(),
+                usersTableModel, usersStatusLabel, new TableLoader.RowSource() {
+            @Override
+            public List<Object[]> loadRows() {
+                return fetchUserRows();
+            }
+        });
+        
+        assignmentsStatusLabel = new JLabel();
+        assignmentsLoader = new TableLoader("admin-assignments-" + currentUser.getUserId(),
+                assignmentsTableModel, assignmentsStatusLabel, new TableLoader.RowSource() {
+            @Override
+            public List<Object[]> loadRows() {
+                return fetchAssignmentRows();
+            }
+        });
+        
+        feedbackStatusLabel = new JLabel();
+        feedbackLoader = new TableLoader("admin-feedback-" + currentUser.getUserId(),
+                feedbackTableModel, feedbackStatusLabel, new TableLoader.RowSource() {
+            @Override
+            public List<Object[]> loadRows() {
+                return fetchFeedbackRows();
+            }
+        });
     }
     
     /**
@@ -157,7 +241,13 @@ public class AdminDashboard extends JFrame {
         
         JPanel requestsButtonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         requestsButtonPanel.add(assignButton);
+        requestsButtonPanel.add(autoAssignButton);
+        requestsButtonPanel.add(planRoutesButton);
+        requestsButtonPanel.add(importAddressesButton);
+        requestsButtonPanel.add(schedulePickupsButton);
+        requestsButtonPanel.add(pickupCapacityButton);
         requestsButtonPanel.add(refreshRequestsButton);
+        requestsButtonPanel.add(requestsStatusLabel);
         
         requestsPanel.add(requestsScrollPane, BorderLayout.CENTER);
         requestsPanel.add(requestsButtonPanel, BorderLayout.SOUTH);
@@ -171,8 +261,10 @@ public class AdminDashboard extends JFrame {
         JPanel usersButtonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         usersButtonPanel.add(addUserButton);
         usersButtonPanel.add(editUserButton);
+        usersButtonPanel.add(editVehicleButton);
         usersButtonPanel.add(deleteUserButton);
         usersButtonPanel.add(refreshUsersButton);
+        usersButtonPanel.add(usersStatusLabel);
         
         usersPanel.add(usersScrollPane, BorderLayout.CENTER);
         usersPanel.add(usersButtonPanel, BorderLayout.SOUTH);
@@ -185,6 +277,7 @@ public class AdminDashboard extends JFrame {
         
         JPanel assignmentsButtonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         assignmentsButtonPanel.add(refreshAssignmentsButton);
+        assignmentsButtonPanel.add(assignmentsStatusLabel);
         
         assignmentsPanel.add(assignmentsScrollPane, BorderLayout.CENTER);
         assignmentsPanel.add(assignmentsButtonPanel, BorderLayout.SOUTH);
@@ -197,10 +290,14 @@ public class AdminDashboard extends JFrame {
         
         JPanel feedbackButtonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         feedbackButtonPanel.add(refreshFeedbackButton);
+        feedbackButtonPanel.add(feedbackStatusLabel);
         
         feedbackPanel.add(feedbackScrollPane, BorderLayout.CENTER);
         feedbackPanel.add(feedbackButtonPanel, BorderLayout.SOUTH);
         
+        // KPIs tab
+        JPanel kpiPanel = createKpiPanel();
+        
         // Reports tab
         setupReportsPanel();
         
@@ -209,6 +306,7 @@ public class AdminDashboard extends JFrame {
         tabbedPane.addTab("Users", usersPanel);
         tabbedPane.addTab("Assignments", assignmentsPanel);
         tabbedPane.addTab("Feedback", feedbackPanel);
+        tabbedPane.addTab("KPIs", kpiPanel);
         tabbedPane.addTab("Reports", reportsPanel);
         
         // Add components to main panel
@@ -219,58 +317,487 @@ public class AdminDashboard extends JFrame {
         setContentPane(mainPanel);
     }
     
+    /**
+     * Create the KPI panel, answered from the monthly KPI sketches
+     * @return KPI panel
+     */
+    private JPanel createKpiPanel() {
+        JPanel kpiPanel = new JPanel(new BorderLayout(10, 10));
+        
+        final JComboBox<String> periodComboBox = new JComboBox<>(new String[] {"This Month", "Last 12 Months", "All Time"});
+        JButton refreshKpisButton = new JButton("Refresh");
+        final JButton rebuildKpisButton = new JButton("Rebuild");
+        rebuildKpisButton.setToolTipText("Recompute the KPIs from all requests, dropping edited and deleted ones");
+        JPanel kpiControlsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        kpiControlsPanel.add(new JLabel("Period:"));
+        kpiControlsPanel.add(periodComboBox);
+        kpiControlsPanel.add(refreshKpisButton);
+        kpiControlsPanel.add(rebuildKpisButton);
+        
+        final JLabel residentsLabel = new JLabel("-", SwingConstants.CENTER);
+        final JLabel requestsLabel = new JLabel("-", SwingConstants.CENTER);
+        JPanel tilesPanel = new JPanel(new GridLayout(1, 2, 10, 10));
+        for (JLabel tile : new JLabel[] {residentsLabel, requestsLabel}) {
+            tile.setFont(new Font("Arial", Font.BOLD, 28));
+        }
+        residentsLabel.setBorder(BorderFactory.createTitledBorder("Active Residents"));
+        requestsLabel.setBorder(BorderFactory.createTitledBorder("Requests"));
+        tilesPanel.add(residentsLabel);
+        tilesPanel.add(requestsLabel);
+        
+        final JTextArea kpiTextArea = new JTextArea();
+        kpiTextArea.setEditable(false);
+        kpiTextArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        
+        JPanel kpiTopPanel = new JPanel(new BorderLayout(10, 10));
+        kpiTopPanel.add(kpiControlsPanel, BorderLayout.NORTH);
+        kpiTopPanel.add(tilesPanel, BorderLayout.CENTER);
+        kpiPanel.add(kpiTopPanel, BorderLayout.NORTH);
+        kpiPanel.add(new JScrollPane(kpiTextArea), BorderLayout.CENTER);
+        
+        ActionListener loadKpisListener = new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                loadKpis(periodComboBox.getSelectedIndex(), residentsLabel, requestsLabel, kpiTextArea);
+            }
+        };
+        periodComboBox.addActionListener(loadKpisListener);
+        refreshKpisButton.addActionListener(loadKpisListener);
+        
+        rebuildKpisButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                rebuildKpisButton.setEnabled(false);
+                kpiTextArea.setText("Rebuilding KPIs from all requests...");
+                SwingWorker<Boolean, Void> worker = new SwingWorker<Boolean, Void>() {
+                    @Override
+                    protected Boolean doInBackground() {
+                        return new KpiSketchDAO().rebuild();
+                    }
+                    
+                    @Override
+                    protected void done() {
+                        rebuildKpisButton.setEnabled(true);
+                        boolean rebuilt = false;
+                        try {
+                            rebuilt = get();
+                        } catch (InterruptedException | java.util.concurrent.ExecutionException ex) {
+                            System.err.println("Error rebuilding KPIs: " + ex.getMessage());
+                        }
+                        
+                        if (!rebuilt) {
+                            JOptionPane.showMessageDialog(AdminDashboard.this, "Failed to rebuild KPIs", "Error", JOptionPane.ERROR_MESSAGE);
+                        }
+                        loadKpis(periodComboBox.getSelectedIndex(), residentsLabel, requestsLabel, kpiTextArea);
+                    }
+                };
+                worker.execute();
+            }
+        });
+        loadKpis(periodComboBox.getSelectedIndex(), residentsLabel, requestsLabel, kpiTextArea);
+        
+        return kpiPanel;
+    }
+    
+    /**
+     * Load the KPIs of a period in the background and show them
+     * @param period 0 for this month, 1 for the last 12 months, 2 for all time
+     */
+    private void loadKpis(int period, final JLabel residentsLabel, final JLabel requestsLabel,
+            final JTextArea kpiTextArea) {
+        YearMonth to = YearMonth.now();
+        final YearMonth from = period == 0 ? to : period == 1 ? to.minusMonths(11) : null;
+        residentsLabel.setText("...");
+        requestsLabel.setText("...");
+        
+        SwingWorker<String, Void> worker = new SwingWorker<String, Void>() {
+            private KpiSketches sketches;
+            
+            @Override
+            protected String doInBackground() {
+                // No upper bound, so requests for future dates are counted too
+                sketches = new KpiSketchDAO().getSketches(from, null);
+                if (sketches == null) {
+                    return null;
+                }
+                
+                Map<Integer, String> wasteTypeNames = new WasteTypeDAO().getWasteTypeNames();
+                StringBuilder text = new StringBuilder();
+                text.append(String.format("%-25s %-12s %-12s %-12s%n", "Waste Type", "p50 (kg)", "p90 (kg)", "p99 (kg)"));
+                for (int wasteType : sketches.getWasteTypes()) {
+                    String name = wasteTypeNames.get(wasteType);
+                    text.append(String.format("%-25s %-12.2f %-12.2f %-12.2f%n", name != null ? name : "#" + wasteType,
+                            sketches.getQuantityQuantile(wasteType, 0.5), sketches.getQuantityQuantile(wasteType, 0.9),
+                            sketches.getQuantityQuantile(wasteType, 0.99)));
+                }
+                
+                text.append(String.format("%n%-50s %s%n", "Most Requested Addresses", "Requests (approx.)"));
+                for (Map.Entry<String, Long> address : sketches.getTopAddresses(10)) {
+                    text.append(String.format("%-50s %d%n", address.getKey(), address.getValue()));
+                }
+                return text.toString();
+            }
+            
+            @Override
+            protected void done() {
+                String text = null;
+                try {
+                    text = get();
+                } catch (InterruptedException | java.util.concurrent.ExecutionException e) {
+                    System.err.println("Error loading KPIs: " + e.getMessage());
+                }
+                
+                if (text == null) {
+                    residentsLabel.setText("-");
+                    requestsLabel.setText("-");
+                    kpiTextArea.setText("Failed to load KPIs");
+                    return;
+                }
+                residentsLabel.setText("~" + sketches.getActiveResidents());
+                requestsLabel.setText(String.valueOf(sketches.getRequestCount()));
+                kpiTextArea.setText(text);
+            }
+        };
+        worker.execute();
+    }
+    
     /**
      * Set up the reports panel
      */
     private void setupReportsPanel() {
         reportsPanel.setLayout(new BorderLayout(10, 10));
         
-        JPanel reportButtonsPanel = new JPanel(new GridLayout(3, 1, 10, 10));
+        JPanel reportButtonsPanel = new JPanel(new GridLayout(8, 1, 10, 10));
         reportButtonsPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
         
         JButton wasteByTypeButton = new JButton("Waste Collection by Type");
         JButton requestStatusButton = new JButton("Request Status Summary");
         JButton collectorPerformanceButton = new JButton("Collector Performance");
+        JButton collectorLatencyButton = new JButton("Collector Response Times");
+        JButton wasteTypeLatencyButton = new JButton("Response Times by Type");
+        JButton ratingDistributionButton = new JButton("Rating Distribution");
+        JButton collectorSatisfactionButton = new JButton("Satisfaction by Collector");
+        JButton wasteTypeSatisfactionButton = new JButton("Satisfaction by Type");
         
         reportButtonsPanel.add(wasteByTypeButton);
         reportButtonsPanel.add(requestStatusButton);
         reportButtonsPanel.add(collectorPerformanceButton);
+        reportButtonsPanel.add(collectorLatencyButton);
+        reportButtonsPanel.add(wasteTypeLatencyButton);
+        reportButtonsPanel.add(ratingDistributionButton);
+        reportButtonsPanel.add(collectorSatisfactionButton);
+        reportButtonsPanel.add(wasteTypeSatisfactionButton);
         
         JPanel reportContentPanel = new JPanel();
         reportContentPanel.setBorder(BorderFactory.createTitledBorder("Report Results"));
         reportContentPanel.setLayout(new BorderLayout());
         
-        JTextArea reportTextArea = new JTextArea();
-        reportTextArea.setEditable(false);
-        JScrollPane reportScrollPane = new JScrollPane(reportTextArea);
-        reportContentPanel.add(reportScrollPane, BorderLayout.CENTER);
+        final ReportView reportView = new ReportView();
+        reportContentPanel.add(reportView, BorderLayout.CENTER);
+        
+        // Trend reports over a date range, bucketed by day, week or month; the range
+        // applies to the requested date, or to the submitted date for satisfaction
+        JPanel trendsPanel = new JPanel(new GridBagLayout());
+        trendsPanel.setBorder(BorderFactory.createTitledBorder("Trends"));
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(5, 5, 5, 5);
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        
+        final JComboBox<String> bucketComboBox = new JComboBox<>(new String[] {"Daily", "Weekly", "Monthly"});
+        bucketComboBox.setSelectedIndex(2);
+        
+        final JSpinner fromSpinner = new JSpinner(new SpinnerDateModel());
+        fromSpinner.setEditor(new JSpinner.DateEditor(fromSpinner, "yyyy-MM-dd"));
+        fromSpinner.setValue(java.sql.Date.valueOf(LocalDate.now().minusYears(1)));
+        
+        final JSpinner toSpinner = new JSpinner(new SpinnerDateModel());
+        toSpinner.setEditor(new JSpinner.DateEditor(toSpinner, "yyyy-MM-dd"));
+        
+        gbc.gridx = 0;
+        gbc.gridy = 0;
+        trendsPanel.add(new JLabel("Bucket:"), gbc);
+        gbc.gridx = 1;
+        trendsPanel.add(bucketComboBox, gbc);
+        
+        gbc.gridx = 0;
+        gbc.gridy = 1;
+        trendsPanel.add(new JLabel("From:"), gbc);
+        gbc.gridx = 1;
+        trendsPanel.add(fromSpinner, gbc);
+        
+        gbc.gridx = 0;
+        gbc.gridy = 2;
+        trendsPanel.add(new JLabel("To:"), gbc);
+        gbc.gridx = 1;
+        trendsPanel.add(toSpinner, gbc);
         
-        reportsPanel.add(reportButtonsPanel, BorderLayout.WEST);
+        JButton quantityTrendButton = new JButton("Quantity by Type");
+        JButton requestTrendButton = new JButton("Requests by Status");
+        JButton collectionTrendButton = new JButton("Collections by Collector");
+        JButton satisfactionTrendButton = new JButton("Satisfaction");
+        
+        gbc.gridx = 0;
+        gbc.gridwidth = 2;
+        gbc.gridy = 3;
+        trendsPanel.add(quantityTrendButton, gbc);
+        gbc.gridy = 4;
+        trendsPanel.add(requestTrendButton, gbc);
+        gbc.gridy = 5;
+        trendsPanel.add(collectionTrendButton, gbc);
+        gbc.gridy = 6;
+        trendsPanel.add(satisfactionTrendButton, gbc);
+        
+        // Full table exports for auditors
+        JPanel exportPanel = new JPanel(new GridBagLayout());
+        exportPanel.setBorder(BorderFactory.createTitledBorder("Export"));
+        
+        final JComboBox<ExportDAO.Table> exportTableComboBox = new JComboBox<>(ExportDAO.Table.values());
+        final JComboBox<ExportDAO.Format> exportFormatComboBox = new JComboBox<>(ExportDAO.Format.values());
+        final JCheckBox gzipCheckBox = new JCheckBox("Compress (gzip)");
+        JButton exportButton = new JButton("Export...");
+        
+        gbc = new GridBagConstraints();
+        gbc.insets = new Insets(5, 5, 5, 5);
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        gbc.gridx = 0;
+        gbc.gridy = 0;
+        exportPanel.add(new JLabel("Data:"), gbc);
+        gbc.gridx = 1;
+        exportPanel.add(exportTableComboBox, gbc);
+        
+        gbc.gridx = 0;
+        gbc.gridy = 1;
+        exportPanel.add(new JLabel("Format:"), gbc);
+        gbc.gridx = 1;
+        exportPanel.add(exportFormatComboBox, gbc);
+        
+        gbc.gridx = 0;
+        gbc.gridwidth = 2;
+        gbc.gridy = 2;
+        exportPanel.add(gzipCheckBox, gbc);
+        gbc.gridy = 3;
+        exportPanel.add(exportButton, gbc);
+        
+        JPanel reportControlsPanel = new JPanel(new BorderLayout());
+        reportControlsPanel.add(reportButtonsPanel, BorderLayout.NORTH);
+        reportControlsPanel.add(trendsPanel, BorderLayout.CENTER);
+        reportControlsPanel.add(exportPanel, BorderLayout.SOUTH);
+        
+        reportsPanel.add(reportControlsPanel, BorderLayout.WEST);
         reportsPanel.add(reportContentPanel, BorderLayout.CENTER);
         
         // Add action listeners for report buttons
         wasteByTypeButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                generateWasteByTypeReport(reportTextArea);
+                showScheduledReport(StandardReports.wasteByType(), reportView);
             }
         });
         
         requestStatusButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                generateRequestStatusReport(reportTextArea);
+                showScheduledReport(StandardReports.requestStatus(), reportView);
             }
         });
         
         collectorPerformanceButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                generateCollectorPerformanceReport(reportTextArea);
+                showScheduledReport(StandardReports.collectorPerformance(), reportView);
+            }
+        });
+        
+        collectorLatencyButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showScheduledReport(StandardReports.latencyByCollector(), reportView);
+            }
+        });
+        
+        wasteTypeLatencyButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showScheduledReport(StandardReports.latencyByWasteType(), reportView);
+            }
+        });
+        
+        ratingDistributionButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showScheduledReport(StandardReports.ratingDistribution(), reportView);
+            }
+        });
+        
+        collectorSatisfactionButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showScheduledReport(StandardReports.satisfactionByCollector(), reportView);
+            }
+        });
+        
+        wasteTypeSatisfactionButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showScheduledReport(StandardReports.satisfactionByWasteType(), reportView);
+            }
+        });
+        
+        quantityTrendButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                generateReport(StandardReports.quantityTrend(selectedBucket(bucketComboBox),
+                        spinnerDate(fromSpinner), spinnerDate(toSpinner)), reportView);
+            }
+        });
+        
+        requestTrendButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                generateReport(StandardReports.requestTrend(selectedBucket(bucketComboBox),
+                        spinnerDate(fromSpinner), spinnerDate(toSpinner)), reportView);
+            }
+        });
+        
+        collectionTrendButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                generateReport(StandardReports.collectionTrend(selectedBucket(bucketComboBox),
+                        spinnerDate(fromSpinner), spinnerDate(toSpinner)), reportView);
+            }
+        });
+        
+        satisfactionTrendButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                generateReport(StandardReports.satisfactionTrend(selectedBucket(bucketComboBox),
+                        spinnerDate(fromSpinner), spinnerDate(toSpinner)), reportView);
+            }
+        });
+        
+        exportButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                exportData((ExportDAO.Table) exportTableComboBox.getSelectedItem(),
+                        (ExportDAO.Format) exportFormatComboBox.getSelectedItem(), gzipCheckBox.isSelected());
             }
         });
     }
     
+    /**
+     * Ask for a file and export a table to it in the background, showing
+     * progress in a dialog that can cancel the export
+     * @param table Table to export
+     * @param format File format
+     * @param gzip true to gzip-compress the file
+     */
+    private void exportData(final ExportDAO.Table table, final ExportDAO.Format format, final boolean gzip) {
+        String fileName = table.getLabel().toLowerCase() + "-" + LocalDate.now() + "." + format.getExtension() +
+                (gzip ? ".gz" : "");
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setSelectedFile(new java.io.File(fileName));
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        final java.io.File file = fileChooser.getSelectedFile();
+        
+        final JDialog dialog = new JDialog(this, "Exporting " + table.getLabel(), true);
+        dialog.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+        final JProgressBar progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+        progressBar.setString("Starting...");
+        JButton cancelButton = new JButton("Cancel");
+        
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        panel.add(progressBar, BorderLayout.CENTER);
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonPanel.add(cancelButton);
+        panel.add(buttonPanel, BorderLayout.SOUTH);
+        dialog.setContentPane(panel);
+        dialog.setSize(400, 130);
+        dialog.setLocationRelativeTo(this);
+        
+        final SwingWorker<Boolean, long[]> worker = new SwingWorker<Boolean, long[]>() {
+            @Override
+            protected Boolean doInBackground() {
+                final SwingWorker<Boolean, long[]> self = this;
+                return new ExportDAO().export(table, format, gzip, file.toPath(), new ExportDAO.ProgressListener() {
+                    @Override
+                    public void progress(long rowsWritten, long totalRows) {
+                        publish(new long[] {rowsWritten, totalRows});
+                    }
+                    
+                    @Override
+                    public boolean isCancelled() {
+                        return self.isCancelled();
+                    }
+                });
+            }
+            
+            @Override
+            protected void process(List<long[]> chunks) {
+                long[] latest = chunks.get(chunks.size() - 1);
+                // The table may have grown since it was counted
+                long total = Math.max(latest[0], latest[1]);
+                progressBar.setValue(total == 0 ? 100 : (int) (latest[0] * 100 / total));
+                progressBar.setString(latest[0] + " of " + total + " rows");
+            }
+            
+            @Override
+            protected void done() {
+                dialog.dispose();
+                if (isCancelled()) {
+                    JOptionPane.showMessageDialog(AdminDashboard.this, "Export cancelled", "Export", JOptionPane.INFORMATION_MESSAGE);
+                    return;
+                }
+                try {
+                    if (get()) {
+                        JOptionPane.showMessageDialog(AdminDashboard.this, "Exported " + table.getLabel() + " to " + file, "Export", JOptionPane.INFORMATION_MESSAGE);
+                    } else {
+                        JOptionPane.showMessageDialog(AdminDashboard.this, "Failed to export " + table.getLabel(), "Error", JOptionPane.ERROR_MESSAGE);
+                    }
+                } catch (InterruptedException | java.util.concurrent.ExecutionException ex) {
+                    JOptionPane.showMessageDialog(AdminDashboard.this, "Failed to export " + table.getLabel(), "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        
+        cancelButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                // The export stops at its next progress check and deletes the partial file
+                worker.cancel(false);
+                progressBar.setString("Cancelling...");
+            }
+        });
+        
+        worker.execute();
+        dialog.setVisible(true);
+    }
+    
+    /**
+     * Get the time bucket chosen in the trends panel
+     */
+    private static ReportDimension selectedBucket(JComboBox<String> bucketComboBox) {
+        switch (bucketComboBox.getSelectedIndex()) {
+            case 0:
+                return ReportDimension.DAY;
+            case 1:
+                return ReportDimension.WEEK;
+            default:
+                return ReportDimension.MONTH;
+        }
+    }
+    
+    /**
+     * Get the date shown in a date spinner
+     */
+    private static LocalDate spinnerDate(JSpinner spinner) {
+        java.util.Date date = (java.util.Date) spinner.getValue();
+        return new java.sql.Date(date.getTime()).toLocalDate();
+    }
+    
     /**
      * Set up event listeners
      */
@@ -282,6 +809,52 @@ public class AdminDashboard extends JFrame {
             }
         });
         
+        autoAssignButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                autoAssignPendingRequests();
+            }
+        });
+        
+        planRoutesButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                planRoutes();
+            }
+        });
+        
+        importAddressesButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                importAddresses();
+            }
+        });
+        
+        schedulePickupsButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                schedulePickups();
+            }
+        });
+        
+        pickupCapacityButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                editPickupCapacity();
+            }
+        });
+        
+        // Load the selected request's assignment and feedback ahead of any dialog
+        requestsTable.getSelectionModel().addListSelectionListener(new ListSelectionListener() {
+            @Override
+            public void valueChanged(ListSelectionEvent e) {
+                int selectedRow = requestsTable.getSelectedRow();
+                if (!e.getValueIsAdjusting() && selectedRow != -1) {
+                    RequestDetailsPrefetcher.getInstance().prefetch((int) requestsTable.getValueAt(selectedRow, 0));
+                }
+            }
+        });
+        
         refreshRequestsButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
@@ -303,6 +876,13 @@ public class AdminDashboard extends JFrame {
             }
         });
         
+        editVehicleButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                editVehicle();
+            }
+        });
+        
         deleteUserButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
@@ -353,14 +933,23 @@ public class AdminDashboard extends JFrame {
      * Load waste requests
      */
     private void loadRequests() {
-        // Clear table
-        requestsTableModel.setRowCount(0);
-        
+        requestsLoader.load();
+    }
+    
+    /**
+     * Fetch table rows for all waste requests
+     * @return List of table rows, or null if they could not be loaded
+     */
+    private List<Object[]> fetchRequestRows() {
         // Get all requests
         WasteRequestDAO requestDAO = new WasteRequestDAO();
         List<WasteRequest> requests = requestDAO.getAllWasteRequests();
+        if (requests == null) {
+            return null;
+        }
         
-        // Add requests to table
+        // Convert requests to table rows
+        List<Object[]> rows = new ArrayList<>();
         for (WasteRequest request : requests) {
             Object[] row = {
                 request.getRequestId(),
@@ -369,24 +958,35 @@ public class AdminDashboard extends JFrame {
                 request.getQuantity(),
                 request.getAddress(),
                 request.getStatus(),
-                request.getRequestedDate()
+                request.getRequestedDate(),
+                request.getPickupDate()
             };
-            requestsTableModel.addRow(row);
+            rows.add(row);
         }
+        return rows;
     }
     
     /**
      * Load users
      */
     private void loadUsers() {
-        // Clear table
-        usersTableModel.setRowCount(0);
-        
+        usersLoader.load();
+    }
+    
+    /**
+     * Fetch table rows for all users
+     * @return List of table rows, or null if they could not be loaded
+     */
+    private List<Object[]> fetchUserRows() {
         // Get all users
         UserDAO userDAO = new UserDAO();
         List<User> users = userDAO.getAllUsers();
+        if (users == null) {
+            return null;
+        }
         
-        // Add users to table
+        // Convert users to table rows
+        List<Object[]> rows = new ArrayList<>();
         for (User user : users) {
             Object[] row = {
                 user.getUserId(),
@@ -396,22 +996,32 @@ public class AdminDashboard extends JFrame {
                 user.getEmail(),
                 user.getPhone()
             };
-            usersTableModel.addRow(row);
+            rows.add(row);
         }
+        return rows;
     }
     
     /**
      * Load assignments
      */
     private void loadAssignments() {
-        // Clear table
-        assignmentsTableModel.setRowCount(0);
-        
+        assignmentsLoader.load();
+    }
+    
+    /**
+     * Fetch table rows for all assignments
+     * @return List of table rows, or null if they could not be loaded
+     */
+    private List<Object[]> fetchAssignmentRows() {
         // Get all assignments
         AssignmentDAO assignmentDAO = new AssignmentDAO();
         List<Assignment> assignments = assignmentDAO.getAllAssignments();
+        if (assignments == null) {
+            return null;
+        }
         
-        // Add assignments to table
+        // Convert assignments to table rows
+        List<Object[]> rows = new ArrayList<>();
         for (Assignment assignment : assignments) {
             Object[] row = {
                 assignment.getAssignmentId(),
@@ -421,22 +1031,32 @@ public class AdminDashboard extends JFrame {
                 assignment.getAssignedDate(),
                 assignment.getStatus()
             };
-            assignmentsTableModel.addRow(row);
+            rows.add(row);
         }
+        return rows;
     }
     
     /**
      * Load feedback
      */
     private void loadFeedback() {
-        // Clear table
-        feedbackTableModel.setRowCount(0);
-        
+        feedbackLoader.load();
+    }
+    
+    /**
+     * Fetch table rows for all feedback
+     * @return List of table rows, or null if they could not be loaded
+     */
+    private List<Object[]> fetchFeedbackRows() {
         // Get all feedback
         FeedbackDAO feedbackDAO = new FeedbackDAO();
         List<Feedback> feedbackList = feedbackDAO.getAllFeedback();
+        if (feedbackList == null) {
+            return null;
+        }
         
-        // Add feedback to table
+        // Convert feedback to table rows
+        List<Object[]> rows = new ArrayList<>();
         for (Feedback feedback : feedbackList) {
             Object[] row = {
                 feedback.getFeedbackId(),
@@ -446,67 +1066,406 @@ public class AdminDashboard extends JFrame {
                 feedback.getComments(),
                 feedback.getSubmittedOn()
             };
-            feedbackTableModel.addRow(row);
+            rows.add(row);
         }
+        return rows;
+    }
+    
+    /**
+     * Assign a request to a collector
+     */
+    private void assignRequestToCollector() {
+        // Check if a row is selected
+        int selectedRow = requestsTable.getSelectedRow();
+        if (selectedRow == -1) {
+            JOptionPane.showMessageDialog(this, "Please select a request", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        
+        // Get the selected request ID and status
+        int requestId = (int) requestsTable.getValueAt(selectedRow, 0);
+        String status = (String) requestsTable.getValueAt(selectedRow, 5);
+        
+        // Check if the request is already assigned
+        if (!status.equals("Pending")) {
+            JOptionPane.showMessageDialog(this, "This request is already " + status, "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        
+        // The table may show saved data, so check for an assignment made since (usually prefetched)
+        Assignment existingAssignment = RequestDetailsPrefetcher.getInstance().getAssignment(requestId);
+        if (existingAssignment != null) {
+            JOptionPane.showMessageDialog(this, "This request is already assigned to " + existingAssignment.getCollectorName(), "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        
+        // Get collectors
+        UserDAO userDAO = new UserDAO();
+        List<User> collectors = userDAO.getUsersByRole("Collector");
+        
+        if (collectors == null) {
+            JOptionPane.showMessageDialog(this, "Failed to load collectors", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (collectors.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "No collectors available", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        
+        // Show collector selection dialog
+        User selectedCollector = (User) JOptionPane.showInputDialog(
+            this,
+            "Select a collector:",
+            "Assign Request",
+            JOptionPane.QUESTION_MESSAGE,
+            null,
+            collectors.toArray(),
+            collectors.get(0)
+        );
+        
+        if (selectedCollector != null) {
+            // Create assignment
+            Assignment assignment = new Assignment(requestId, selectedCollector.getUserId());
+            
+            // Save to database
+            AssignmentDAO assignmentDAO = new AssignmentDAO();
+            boolean success = assignmentDAO.addAssignment(assignment);
+            
+            if (success) {
+                JOptionPane.showMessageDialog(this, "Request assigned successfully", "Success", JOptionPane.INFORMATION_MESSAGE);
+                loadRequests(); // Refresh the requests table
+                loadAssignments(); // Refresh the assignments table
+            } else {
+                JOptionPane.showMessageDialog(this, "Failed to assign request", "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+    
+    /**
+     * Assign every pending request to the least-loaded collector, planning and
+     * saving the assignments in the background
+     */
+    private void autoAssignPendingRequests() {
+        int choice = JOptionPane.showConfirmDialog(this,
+                "Assign all pending requests to the least-loaded collectors?",
+                "Auto-Assign", JOptionPane.YES_NO_OPTION);
+        if (choice != JOptionPane.YES_OPTION) {
+            return;
+        }
+        
+        autoAssignButton.setEnabled(false);
+        SwingWorker<String, Void> worker = new SwingWorker<String, Void>() {
+            @Override
+            protected String doInBackground() {
+                List<User> collectors = new UserDAO().getUsersByRole("Collector");
+                if (collectors == null) {
+                    return null;
+                }
+                if (collectors.isEmpty()) {
+                    return "No collectors available";
+                }
+                List<WasteRequest> pending = new WasteRequestDAO().getWasteRequestsByStatus("Pending");
+                if (pending == null) {
+                    return null;
+                }
+                if (pending.isEmpty()) {
+                    return "There are no pending requests";
+                }
+                
+                FleetDAO fleetDAO = new FleetDAO();
+                List<Vehicle> vehicles = fleetDAO.getVehicles(collectors);
+                Set<Integer> restrictedTypes = fleetDAO.getRestrictedWasteTypes();
+                AssignmentDAO assignmentDAO = new AssignmentDAO();
+                Map<Integer, CollectorLoad> openLoads = assignmentDAO.getOpenLoads();
+                if (vehicles == null || restrictedTypes == null || openLoads == null) {
+                    return null;
+                }
+                List<Assignment> plan = new AssignmentPlanner(vehicles, openLoads, restrictedTypes).plan(pending);
+                int assigned = assignmentDAO.addAssignments(plan);
+                if (assigned < 0) {
+                    return null;
+                }
+                return "Assigned " + assigned + " requests to " + collectors.size() + " collectors";
+            }
+            
+            @Override
+            protected void done() {
+                autoAssignButton.setEnabled(true);
+                String message = null;
+                try {
+                    message = get();
+                } catch (InterruptedException | java.util.concurrent.ExecutionException e) {
+                    System.err.println("Error auto-assigning requests: " + e.getMessage());
+                }
+                
+                if (message == null) {
+                    JOptionPane.showMessageDialog(AdminDashboard.this, "Failed to assign requests", "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                JOptionPane.showMessageDialog(AdminDashboard.this, message, "Auto-Assign", JOptionPane.INFORMATION_MESSAGE);
+                loadRequests();
+                loadAssignments();
+            }
+        };
+        worker.execute();
+    }
+    
+    /**
+     * Split every pending request across the collectors' vehicles within their
+     * capacity and certification, planning and saving in the background
+     */
+    private void planRoutes() {
+        int choice = JOptionPane.showConfirmDialog(this,
+                "Plan routes for all pending requests within each vehicle's capacity?",
+                "Plan Routes", JOptionPane.YES_NO_OPTION);
+        if (choice != JOptionPane.YES_OPTION) {
+            return;
+        }
+        
+        planRoutesButton.setEnabled(false);
+        SwingWorker<String, Void> worker = new SwingWorker<String, Void>() {
+            @Override
+            protected String doInBackground() {
+                List<User> collectors = new UserDAO().getUsersByRole("Collector");
+                if (collectors == null) {
+                    return null;
+                }
+                if (collectors.isEmpty()) {
+                    return "No collectors available";
+                }
+                List<WasteRequest> pending = new WasteRequestDAO().getWasteRequestsByStatus("Pending");
+                if (pending == null) {
+                    return null;
+                }
+                if (pending.isEmpty()) {
+                    return "There are no pending requests";
+                }
+                
+                FleetDAO fleetDAO = new FleetDAO();
+                List<Vehicle> vehicles = fleetDAO.getVehicles(collectors);
+                Set<Integer> restrictedTypes = fleetDAO.getRestrictedWasteTypes();
+                AssignmentDAO assignmentDAO = new AssignmentDAO();
+                Map<Integer, CollectorLoad> openLoads = assignmentDAO.getOpenLoads();
+                if (vehicles == null || restrictedTypes == null || openLoads == null) {
+                    return null;
+                }
+                
+                List<String> addresses = new ArrayList<>();
+                for (WasteRequest request : pending) {
+                    addresses.add(request.getAddress());
+                }
+                GazetteerDAO gazetteerDAO = new GazetteerDAO();
+                Map<String, Location> locations = gazetteerDAO.getLocations(addresses);
+                
+                FleetPlan plan = new FleetPlanner(vehicles, openLoads, restrictedTypes, gazetteerDAO.getDepot())
+                        .plan(pending, locations, ROUTE_PLAN_BUDGET_MILLIS);
+                int assigned = assignmentDAO.addAssignments(plan.getAssignments());
+                if (assigned < 0) {
+                    return null;
+                }
+                return String.format("Assigned %d of %d requests (%.1f km of routes, best of %d runs)%s",
+                        assigned, pending.size(), plan.getRouteKm(), plan.getRuns(),
+                        plan.getUnassigned().isEmpty() ? "" : "\n" + plan.getUnassigned().size() +
+                                " requests did not fit any vehicle and are still pending");
+            }
+            
+            @Override
+            protected void done() {
+                planRoutesButton.setEnabled(true);
+                String message = null;
+                try {
+                    message = get();
+                } catch (InterruptedException | java.util.concurrent.ExecutionException e) {
+                    System.err.println("Error planning routes: " + e.getMessage());
+                }
+                
+                if (message == null) {
+                    JOptionPane.showMessageDialog(AdminDashboard.this, "Failed to plan routes", "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                JOptionPane.showMessageDialog(AdminDashboard.this, message, "Plan Routes", JOptionPane.INFORMATION_MESSAGE);
+                loadRequests();
+                loadAssignments();
+            }
+        };
+        worker.execute();
+    }
+    
+    /**
+     * Load the address gazetteer from a CSV file in the background; the
+     * address "depot" sets where routes start
+     */
+    private void importAddresses() {
+        JFileChooser fileChooser = new JFileChooser();
+        if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        final java.io.File file = fileChooser.getSelectedFile();
+        
+        importAddressesButton.setEnabled(false);
+        SwingWorker<Integer, Void> worker = new SwingWorker<Integer, Void>() {
+            @Override
+            protected Integer doInBackground() {
+                return new GazetteerDAO().importCsv(file.toPath());
+            }
+            
+            @Override
+            protected void done() {
+                importAddressesButton.setEnabled(true);
+                int imported = -1;
+                try {
+                    imported = get();
+                } catch (InterruptedException | java.util.concurrent.ExecutionException e) {
+                    System.err.println("Error importing addresses: " + e.getMessage());
+                }
+                
+                if (imported < 0) {
+                    JOptionPane.showMessageDialog(AdminDashboard.this, "Failed to import addresses", "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                JOptionPane.showMessageDialog(AdminDashboard.this, "Imported " + imported + " addresses",
+                        "Import Addresses", JOptionPane.INFORMATION_MESSAGE);
+            }
+        };
+        worker.execute();
     }
     
     /**
-     * Assign a request to a collector
+     * Give every pending request without a pickup date the earliest day its
+     * zone has room for, in the background
      */
-    private void assignRequestToCollector() {
-        // Check if a row is selected
-        int selectedRow = requestsTable.getSelectedRow();
-        if (selectedRow == -1) {
-            JOptionPane.showMessageDialog(this, "Please select a request", "Error", JOptionPane.ERROR_MESSAGE);
-            return;
-        }
+    private void schedulePickups() {
+        schedulePickupsButton.setEnabled(false);
+        SwingWorker<Integer, Void> worker = new SwingWorker<Integer, Void>() {
+            @Override
+            protected Integer doInBackground() {
+                return new PickupSlotDAO().slotPending();
+            }
+            
+            @Override
+            protected void done() {
+                schedulePickupsButton.setEnabled(true);
+                int slotted = -1;
+                try {
+                    slotted = get();
+                } catch (InterruptedException | java.util.concurrent.ExecutionException e) {
+                    System.err.println("Error scheduling pickups: " + e.getMessage());
+                }
+                
+                if (slotted < 0) {
+                    JOptionPane.showMessageDialog(AdminDashboard.this, "Failed to schedule pickups", "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                JOptionPane.showMessageDialog(AdminDashboard.this, "Scheduled " + slotted + " pickups",
+                        "Schedule Pickups", JOptionPane.INFORMATION_MESSAGE);
+                loadRequests();
+            }
+        };
+        worker.execute();
+    }
+    
+    /**
+     * Set the pickups per day of a zone, every day or on one date, and move its
+     * pending requests to match
+     */
+    private void editPickupCapacity() {
+        JDialog dialog = new JDialog(this, "Pickup Capacity", true);
+        dialog.setSize(380, 250);
+        dialog.setLocationRelativeTo(this);
         
-        // Get the selected request ID and status
-        int requestId = (int) requestsTable.getValueAt(selectedRow, 0);
-        String status = (String) requestsTable.getValueAt(selectedRow, 5);
+        JPanel panel = new JPanel(new GridBagLayout());
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        gbc.insets = new Insets(5, 5, 5, 5);
         
-        // Check if the request is already assigned
-        if (!status.equals("Pending")) {
-            JOptionPane.showMessageDialog(this, "This request is already " + status, "Error", JOptionPane.ERROR_MESSAGE);
-            return;
-        }
+        // Zone
+        gbc.gridx = 0;
+        gbc.gridy = 0;
+        panel.add(new JLabel("Zone:"), gbc);
         
-        // Get collectors
-        UserDAO userDAO = new UserDAO();
-        List<User> collectors = userDAO.getUsersByRole("Collector");
+        JTextField zoneField = new JTextField(PickupSlotDAO.DEFAULT_ZONE, 15);
+        gbc.gridx = 1;
+        gbc.gridy = 0;
+        panel.add(zoneField, gbc);
         
-        if (collectors.isEmpty()) {
-            JOptionPane.showMessageDialog(this, "No collectors available", "Error", JOptionPane.ERROR_MESSAGE);
-            return;
-        }
+        // Date
+        gbc.gridx = 0;
+        gbc.gridy = 1;
+        panel.add(new JLabel("Date (YYYY-MM-DD):"), gbc);
         
-        // Show collector selection dialog
-        User selectedCollector = (User) JOptionPane.showInputDialog(
-            this,
-            "Select a collector:",
-            "Assign Request",
-            JOptionPane.QUESTION_MESSAGE,
-            null,
-            collectors.toArray(),
-            collectors.get(0)
-        );
+        JTextField dateField = new JTextField(15);
+        dateField.setToolTipText("Leave empty to set every day");
+        gbc.gridx = 1;
+        gbc.gridy = 1;
+        panel.add(dateField, gbc);
         
-        if (selectedCollector != null) {
-            // Create assignment
-            Assignment assignment = new Assignment(requestId, selectedCollector.getUserId());
-            
-            // Save to database
-            AssignmentDAO assignmentDAO = new AssignmentDAO();
-            boolean success = assignmentDAO.addAssignment(assignment);
-            
-            if (success) {
-                JOptionPane.showMessageDialog(this, "Request assigned successfully", "Success", JOptionPane.INFORMATION_MESSAGE);
-                loadRequests(); // Refresh the requests table
-                loadAssignments(); // Refresh the assignments table
-            } else {
-                JOptionPane.showMessageDialog(this, "Failed to assign request", "Error", JOptionPane.ERROR_MESSAGE);
+        // Pickups
+        gbc.gridx = 0;
+        gbc.gridy = 2;
+        panel.add(new JLabel("Pickups per day:"), gbc);
+        
+        JSpinner pickupsSpinner = new JSpinner(new SpinnerNumberModel(PickupSlotDAO.DEFAULT_DAILY_PICKUPS, 0, 10000, 1));
+        gbc.gridx = 1;
+        gbc.gridy = 2;
+        panel.add(pickupsSpinner, gbc);
+        
+        // Buttons
+        JButton saveButton = new JButton("Save");
+        JButton cancelButton = new JButton("Cancel");
+        
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonPanel.add(saveButton);
+        buttonPanel.add(cancelButton);
+        
+        gbc.gridx = 0;
+        gbc.gridy = 3;
+        gbc.gridwidth = 2;
+        panel.add(buttonPanel, gbc);
+        
+        saveButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                String zone = zoneField.getText().trim();
+                if (zone.isEmpty()) {
+                    JOptionPane.showMessageDialog(dialog, "Please enter a zone", "Validation Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                
+                LocalDate day = null;
+                if (!dateField.getText().trim().isEmpty()) {
+                    try {
+                        day = LocalDate.parse(dateField.getText().trim());
+                    } catch (java.time.format.DateTimeParseException ex) {
+                        JOptionPane.showMessageDialog(dialog, "Invalid date format. Use YYYY-MM-DD", "Validation Error", JOptionPane.ERROR_MESSAGE);
+                        return;
+                    }
+                }
+                int pickups = (Integer) pickupsSpinner.getValue();
+                
+                PickupSlotDAO pickupSlotDAO = new PickupSlotDAO();
+                boolean success = day == null
+                        ? pickupSlotDAO.setDailyCapacity(zone, pickups)
+                        : pickupSlotDAO.setDayCapacity(zone, day, pickups);
+                
+                if (success) {
+                    dialog.dispose();
+                    loadRequests(); // Pickup dates may have moved
+                } else {
+                    JOptionPane.showMessageDialog(dialog, "Failed to save pickup capacity", "Error", JOptionPane.ERROR_MESSAGE);
+                }
             }
-        }
+        });
+        
+        cancelButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                dialog.dispose();
+            }
+        });
+        
+        dialog.setContentPane(panel);
+        dialog.setVisible(true);
     }
     
     /**
@@ -643,6 +1602,99 @@ public class AdminDashboard extends JFrame {
         dialog.setVisible(true);
     }
     
+    /**
+     * Set the vehicle capacity and crew certification of the selected collector
+     */
+    private void editVehicle() {
+        int selectedRow = usersTable.getSelectedRow();
+        if (selectedRow == -1) {
+            JOptionPane.showMessageDialog(this, "Please select a collector", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        
+        int userId = (int) usersTable.getValueAt(selectedRow, 0);
+        User user = new UserDAO().getUserById(userId);
+        if (user == null) {
+            JOptionPane.showMessageDialog(this, "User not found", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (!user.getRole().equals("Collector")) {
+            JOptionPane.showMessageDialog(this, "Only collectors have vehicles", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        
+        final FleetDAO fleetDAO = new FleetDAO();
+        List<Vehicle> vehicles = fleetDAO.getVehicles(java.util.Collections.singletonList(user));
+        if (vehicles == null) {
+            JOptionPane.showMessageDialog(this, "Failed to load the vehicle", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        Vehicle vehicle = vehicles.get(0);
+        
+        final JDialog dialog = new JDialog(this, "Vehicle of " + user.getFullName(), true);
+        dialog.setSize(380, 200);
+        dialog.setLocationRelativeTo(this);
+        
+        JPanel panel = new JPanel(new GridBagLayout());
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        gbc.insets = new Insets(5, 5, 5, 5);
+        
+        // Capacity
+        gbc.gridx = 0;
+        gbc.gridy = 0;
+        panel.add(new JLabel("Capacity (kg):"), gbc);
+        
+        final JSpinner capacitySpinner = new JSpinner(new SpinnerNumberModel(vehicle.getCapacityKg(), 1.0, 100000.0, 50.0));
+        gbc.gridx = 1;
+        gbc.gridy = 0;
+        panel.add(capacitySpinner, gbc);
+        
+        // Certification
+        final JCheckBox certifiedCheckBox = new JCheckBox("Crew certified for restricted waste (e.g. Electronic, Hazardous)",
+                vehicle.isCertified());
+        gbc.gridx = 0;
+        gbc.gridy = 1;
+        gbc.gridwidth = 2;
+        panel.add(certifiedCheckBox, gbc);
+        
+        // Buttons
+        JButton saveButton = new JButton("Save");
+        JButton cancelButton = new JButton("Cancel");
+        
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonPanel.add(saveButton);
+        buttonPanel.add(cancelButton);
+        
+        gbc.gridy = 2;
+        panel.add(buttonPanel, gbc);
+        
+        saveButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                double capacity = ((Number) capacitySpinner.getValue()).doubleValue();
+                boolean success = fleetDAO.setVehicle(new Vehicle(userId, capacity, certifiedCheckBox.isSelected()));
+                
+                if (success) {
+                    dialog.dispose();
+                } else {
+                    JOptionPane.showMessageDialog(dialog, "Failed to save the vehicle", "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        });
+        
+        cancelButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                dialog.dispose();
+            }
+        });
+        
+        dialog.setContentPane(panel);
+        dialog.setVisible(true);
+    }
+    
     /**
      * Edit an existing user
      */
@@ -871,165 +1923,86 @@ public class AdminDashboard extends JFrame {
     }
     
     /**
-     * Generate waste by type report
-     * @param reportTextArea Text area to display the report
+     * Run a report in the background and display it
+     * @param definition Report to run
+     * @param reportView View to display the report in
      */
-    private void generateWasteByTypeReport(JTextArea reportTextArea) {
-        StringBuilder report = new StringBuilder();
-        report.append("WASTE COLLECTION BY TYPE REPORT\n");
-        report.append("===============================\n\n");
-        
-        WasteRequestDAO requestDAO = new WasteRequestDAO();
-        List<WasteRequest> requests = requestDAO.getAllWasteRequests();
-        
-        // Group by waste type
-        java.util.Map<String, Double> wasteByType = new java.util.HashMap<>();
-        
-        for (WasteRequest request : requests) {
-            String wasteType = request.getWasteTypeName();
-            double quantity = request.getQuantity();
-            
-            if (wasteByType.containsKey(wasteType)) {
-                wasteByType.put(wasteType, wasteByType.get(wasteType) + quantity);
-            } else {
-                wasteByType.put(wasteType, quantity);
-            }
-        }
+    private void generateReport(final ReportDefinition definition, final ReportView reportView) {
+        reportView.showMessage("Generating " + definition.getTitle() + "...");
         
-        // Sort by quantity (descending)
-        java.util.List<java.util.Map.Entry<String, Double>> sortedEntries = new java.util.ArrayList<>(wasteByType.entrySet());
-        java.util.Collections.sort(sortedEntries, new java.util.Comparator<java.util.Map.Entry<String, Double>>() {
+        SwingWorker<ReportResult, Void> worker = new SwingWorker<ReportResult, Void>() {
             @Override
-            public int compare(java.util.Map.Entry<String, Double> e1, java.util.Map.Entry<String, Double> e2) {
-                return e2.getValue().compareTo(e1.getValue());
+            protected ReportResult doInBackground() {
+                return new ReportDAO().run(definition);
             }
-        });
-        
-        // Calculate total
-        double total = 0;
-        for (double quantity : wasteByType.values()) {
-            total += quantity;
-        }
-        
-        // Format report
-        report.append(String.format("%-20s %-15s %-15s\n", "Waste Type", "Quantity (kg)", "Percentage"));
-        report.append(String.format("%-20s %-15s %-15s\n", "----------", "------------", "----------"));
-        
-        for (java.util.Map.Entry<String, Double> entry : sortedEntries) {
-            String wasteType = entry.getKey();
-            double quantity = entry.getValue();
-            double percentage = (quantity / total) * 100;
-            
-            report.append(String.format("%-20s %-15.2f %-15.2f%%\n", wasteType, quantity, percentage));
-        }
-        
-        report.append(String.format("\n%-20s %-15.2f %-15s\n", "TOTAL", total, "100.00%"));
-        
-        reportTextArea.setText(report.toString());
-    }
-    
-    /**
-     * Generate request status report
-     * @param reportTextArea Text area to display the report
-     */
-    private void generateRequestStatusReport(JTextArea reportTextArea) {
-        StringBuilder report = new StringBuilder();
-        report.append("REQUEST STATUS SUMMARY REPORT\n");
-        report.append("=============================\n\n");
-        
-        WasteRequestDAO requestDAO = new WasteRequestDAO();
-        List<WasteRequest> requests = requestDAO.getAllWasteRequests();
-        
-        // Count by status
-        int pendingCount = 0;
-        int assignedCount = 0;
-        int inProgressCount = 0;
-        int collectedCount = 0;
-        
-        for (WasteRequest request : requests) {
-            String status = request.getStatus();
             
-            switch (status) {
-                case "Pending":
-                    pendingCount++;
-                    break;
-                case "Assigned":
-                    assignedCount++;
-                    break;
-                case "In Progress":
-                    inProgressCount++;
-                    break;
-                case "Collected":
-                    collectedCount++;
-                    break;
+            @Override
+            protected void done() {
+                ReportResult result = null;
+                try {
+                    result = get();
+                } catch (InterruptedException | java.util.concurrent.ExecutionException e) {
+                    System.err.println("Error generating report: " + e.getMessage());
+                }
+                
+                if (result == null) {
+                    reportView.showMessage("");
+                    JOptionPane.showMessageDialog(AdminDashboard.this, "Failed to generate report", "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                reportView.showReport(result, null, null);
             }
-        }
-        
-        int totalCount = requests.size();
-        
-        // Format report
-        report.append(String.format("%-20s %-15s %-15s\n", "Status", "Count", "Percentage"));
-        report.append(String.format("%-20s %-15s %-15s\n", "------", "-----", "----------"));
-        
-        report.append(String.format("%-20s %-15d %-15.2f%%\n", "Pending", pendingCount, (double) pendingCount / totalCount * 100));
-        report.append(String.format("%-20s %-15d %-15.2f%%\n", "Assigned", assignedCount, (double) assignedCount / totalCount * 100));
-        report.append(String.format("%-20s %-15d %-15.2f%%\n", "In Progress", inProgressCount, (double) inProgressCount / totalCount * 100));
-        report.append(String.format("%-20s %-15d %-15.2f%%\n", "Collected", collectedCount, (double) collectedCount / totalCount * 100));
-        
-        report.append(String.format("\n%-20s %-15d %-15s\n", "TOTAL", totalCount, "100.00%"));
-        
-        reportTextArea.setText(report.toString());
+        };
+        worker.execute();
     }
     
     /**
-     * Generate collector performance report
-     * @param reportTextArea Text area to display the report
+     * Show the latest precomputed snapshot of a standard report, computing it
+     * in the background if the scheduler has not got to it yet
+     * @param definition Report to show
+     * @param reportView View to show it in
      */
-    private void generateCollectorPerformanceReport(JTextArea reportTextArea) {
-        StringBuilder report = new StringBuilder();
-        report.append("COLLECTOR PERFORMANCE REPORT\n");
-        report.append("============================\n\n");
-        
-        AssignmentDAO assignmentDAO = new AssignmentDAO();
-        List<Assignment> assignments = assignmentDAO.getAllAssignments();
-        
-        // Group by collector
-        java.util.Map<String, Integer> totalByCollector = new java.util.HashMap<>();
-        java.util.Map<String, Integer> completedByCollector = new java.util.HashMap<>();
+    private void showScheduledReport(final ReportDefinition definition, final ReportView reportView) {
+        ReportSnapshot snapshot = ReportScheduler.getLatest(definition.getTitle());
+        if (snapshot != null) {
+            showSnapshot(snapshot, reportView);
+            return;
+        }
         
-        for (Assignment assignment : assignments) {
-            String collectorName = assignment.getCollectorName();
-            
-            // Count total assignments
-            if (totalByCollector.containsKey(collectorName)) {
-                totalByCollector.put(collectorName, totalByCollector.get(collectorName) + 1);
-            } else {
-                totalByCollector.put(collectorName, 1);
+        reportView.showMessage("Generating " + definition.getTitle() + "...");
+        SwingWorker<ReportSnapshot, Void> worker = new SwingWorker<ReportSnapshot, Void>() {
+            @Override
+            protected ReportSnapshot doInBackground() {
+                return ReportScheduler.computeNow(definition);
             }
             
-            // Count completed assignments
-            if (assignment.getStatus().equals("Completed")) {
-                if (completedByCollector.containsKey(collectorName)) {
-                    completedByCollector.put(collectorName, completedByCollector.get(collectorName) + 1);
-                } else {
-                    completedByCollector.put(collectorName, 1);
+            @Override
+            protected void done() {
+                ReportSnapshot computed = null;
+                try {
+                    computed = get();
+                } catch (InterruptedException | java.util.concurrent.ExecutionException e) {
+                    System.err.println("Error generating report: " + e.getMessage());
                 }
+                
+                if (computed == null) {
+                    reportView.showMessage("");
+                    JOptionPane.showMessageDialog(AdminDashboard.this, "Failed to generate report", "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                showSnapshot(computed, reportView);
             }
-        }
-        
-        // Format report
-        report.append(String.format("%-25s %-15s %-15s %-15s\n", "Collector", "Total Assigned", "Completed", "Completion Rate"));
-        report.append(String.format("%-25s %-15s %-15s %-15s\n", "---------", "--------------", "---------", "--------------"));
-        
-        for (String collectorName : totalByCollector.keySet()) {
-            int total = totalByCollector.get(collectorName);
-            int completed = completedByCollector.getOrDefault(collectorName, 0);
-            double completionRate = (double) completed / total * 100;
-            
-            report.append(String.format("%-25s %-15d %-15d %-15.2f%%\n", collectorName, total, completed, completionRate));
-        }
-        
-        reportTextArea.setText(report.toString());
+        };
+        worker.execute();
+    }
+    
+    private static void showSnapshot(ReportSnapshot snapshot, ReportView reportView) {
+        String computedAt = new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new java.util.Date(snapshot.getComputedAt()));
+        long changes = ReportScheduler.getChangesSince(snapshot);
+        String footer = "Computed at " + computedAt + " (version " + snapshot.getVersion() +
+                (changes > 0 ? ", " + changes + " changes since" : "") + ")";
+        String title = snapshot.getResult().getDefinition().getTitle();
+        reportView.showReport(snapshot.getResult(), title + "#" + snapshot.getVersion(), footer);
     }
     
     /**
@@ -1038,6 +2011,11 @@ public class AdminDashboard extends JFrame {
     private void logout() {
         int option = JOptionPane.showConfirmDialog(this, "Are you sure you want to logout?", "Logout", JOptionPane.YES_NO_OPTION);
         if (option == JOptionPane.YES_OPTION) {
+            requestsLoader.discardSnapshot();
+            usersLoader.discardSnapshot();
+            assignmentsLoader.discardSnapshot();
+            feedbackLoader.discardSnapshot();
+            ReportScheduler.stop();
             dispose();
             new LoginFrame().setVisible(true);
         }
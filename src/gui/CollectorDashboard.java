@@ -1,6 +1,12 @@
 package gui;
 
 import dao.AssignmentDAO;
+import dao.FleetDAO;
+import dao.GazetteerDAO;
+import dispatch.CollectorLoad;
+import dispatch.Location;
+import dispatch.RouteOptimizer;
+import dispatch.Vehicle;
 import models.Assignment;
 import models.User;
 
@@ -9,7 +15,10 @@ import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Dashboard for Collector users
@@ -22,8 +31,11 @@ public class CollectorDashboard extends JFrame {
     private JTable assignmentsTable;
     private DefaultTableModel assignmentsTableModel;
     private JButton updateStatusButton;
+    private JButton claimButton;
     private JButton refreshButton;
     private JButton logoutButton;
+    private JLabel assignmentsStatusLabel;
+    private TableLoader assignmentsLoader;
     
     /**
      * Constructor
@@ -48,8 +60,8 @@ public class CollectorDashboard extends JFrame {
         
         tabbedPane = new JTabbedPane();
         
-        // Assignments table
-        String[] assignmentsColumns = {"ID", "Request ID", "Request Details", "Assigned Date", "Status"};
+        // Assignments table, open ones first in route order
+        String[] assignmentsColumns = {"Stop", "ID", "Request ID", "Request Details", "Assigned Date", "Status"};
         assignmentsTableModel = new DefaultTableModel(assignmentsColumns, 0) {
             @Override
             public boolean isCellEditable(int row, int column) {
@@ -60,8 +72,19 @@ public class CollectorDashboard extends JFrame {
         
         // Buttons
         updateStatusButton = new JButton("Update Status");
+        claimButton = new JButton("Claim Next Pickup");
         refreshButton = new JButton("Refresh");
         logoutButton = new JButton("Logout");
+        
+        // Shows how old the rows on screen are
+        assignmentsStatusLabel = new JLabel();
+        assignmentsLoader = new TableLoader("collector-assignments-" + currentUser.getUserId(),
+                assignmentsTableModel, assignmentsStatusLabel, new TableLoader.RowSource() {
+            @Override
+            public List<Object[]> loadRows() {
+                return fetchAssignmentRows();
+            }
+        });
     }
     
     /**
@@ -89,7 +112,9 @@ public class CollectorDashboard extends JFrame {
         
         JPanel assignmentsButtonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         assignmentsButtonPanel.add(updateStatusButton);
+        assignmentsButtonPanel.add(claimButton);
         assignmentsButtonPanel.add(refreshButton);
+        assignmentsButtonPanel.add(assignmentsStatusLabel);
         
         assignmentsPanel.add(assignmentsScrollPane, BorderLayout.CENTER);
         assignmentsPanel.add(assignmentsButtonPanel, BorderLayout.SOUTH);
@@ -116,6 +141,13 @@ public class CollectorDashboard extends JFrame {
             }
         });
         
+        claimButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                claimNextRequest();
+            }
+        });
+        
         refreshButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
@@ -135,24 +167,53 @@ public class CollectorDashboard extends JFrame {
      * Load assignments for the current collector
      */
     private void loadAssignments() {
-        // Clear table
-        assignmentsTableModel.setRowCount(0);
-        
+        assignmentsLoader.load();
+    }
+    
+    /**
+     * Fetch table rows for the current collector's assignments: the day's
+     * manifest of open assignments in route order, then the completed ones
+     * @return List of table rows, or null if they could not be loaded
+     */
+    private List<Object[]> fetchAssignmentRows() {
         // Get assignments for current collector
         AssignmentDAO assignmentDAO = new AssignmentDAO();
         List<Assignment> assignments = assignmentDAO.getAssignmentsByCollectorId(currentUser.getUserId());
+        if (assignments == null) {
+            return null;
+        }
         
-        // Add assignments to table
+        List<Assignment> open = new ArrayList<>();
+        List<Assignment> completed = new ArrayList<>();
+        List<String> addresses = new ArrayList<>();
         for (Assignment assignment : assignments) {
+            if (assignment.getStatus().equals("Completed")) {
+                completed.add(assignment);
+            } else {
+                open.add(assignment);
+                addresses.add(assignment.getAddress());
+            }
+        }
+        
+        GazetteerDAO gazetteerDAO = new GazetteerDAO();
+        Map<String, Location> locations = gazetteerDAO.getLocations(addresses);
+        List<Assignment> route = RouteOptimizer.sequence(open, locations, gazetteerDAO.getDepot());
+        
+        // Convert assignments to table rows
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < route.size() + completed.size(); i++) {
+            Assignment assignment = i < route.size() ? route.get(i) : completed.get(i - route.size());
             Object[] row = {
+                i < route.size() ? (Object) (i + 1) : "",
                 assignment.getAssignmentId(),
                 assignment.getRequestId(),
                 assignment.getRequestDetails(),
                 assignment.getAssignedDate(),
                 assignment.getStatus()
             };
-            assignmentsTableModel.addRow(row);
+            rows.add(row);
         }
+        return rows;
     }
     
     /**
@@ -167,8 +228,8 @@ public class CollectorDashboard extends JFrame {
         }
         
         // Get the selected assignment ID and current status
-        int assignmentId = (int) assignmentsTable.getValueAt(selectedRow, 0);
-        String currentStatus = (String) assignmentsTable.getValueAt(selectedRow, 4);
+        int assignmentId = (int) assignmentsTable.getValueAt(selectedRow, 1);
+        String currentStatus = (String) assignmentsTable.getValueAt(selectedRow, 5);
         
         // Create status options based on current status
         String[] statusOptions;
@@ -206,12 +267,58 @@ public class CollectorDashboard extends JFrame {
         }
     }
     
+    /**
+     * Claim the oldest pending request that fits the collector's vehicle, in the background
+     */
+    private void claimNextRequest() {
+        claimButton.setEnabled(false);
+        SwingWorker<Integer, Void> worker = new SwingWorker<Integer, Void>() {
+            @Override
+            protected Integer doInBackground() {
+                List<Vehicle> vehicles = new FleetDAO().getVehicles(Collections.singletonList(currentUser));
+                AssignmentDAO assignmentDAO = new AssignmentDAO();
+                CollectorLoad open = assignmentDAO.getOpenLoad(currentUser.getUserId());
+                if (vehicles == null || open == null) {
+                    return -1;
+                }
+                
+                Vehicle vehicle = vehicles.get(0);
+                double room = vehicle.getCapacityKg() - open.getOpenKg();
+                return assignmentDAO.claimNextRequest(currentUser.getUserId(), vehicle.isCertified(), room);
+            }
+            
+            @Override
+            protected void done() {
+                claimButton.setEnabled(true);
+                int requestId = -1;
+                try {
+                    requestId = get();
+                } catch (InterruptedException | java.util.concurrent.ExecutionException e) {
+                    System.err.println("Error claiming request: " + e.getMessage());
+                }
+                
+                if (requestId < 0) {
+                    JOptionPane.showMessageDialog(CollectorDashboard.this, "Failed to claim a request", "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                if (requestId == 0) {
+                    JOptionPane.showMessageDialog(CollectorDashboard.this, "No pending request fits your vehicle right now", "Claim Next Pickup", JOptionPane.INFORMATION_MESSAGE);
+                    return;
+                }
+                JOptionPane.showMessageDialog(CollectorDashboard.this, "Request " + requestId + " is now assigned to you", "Claim Next Pickup", JOptionPane.INFORMATION_MESSAGE);
+                loadAssignments();
+            }
+        };
+        worker.execute();
+    }
+    
     /**
      * Handle logout
      */
     private void logout() {
         int option = JOptionPane.showConfirmDialog(this, "Are you sure you want to logout?", "Logout", JOptionPane.YES_NO_OPTION);
         if (option == JOptionPane.YES_OPTION) {
+            assignmentsLoader.discardSnapshot();
             dispose();
             new LoginFrame().setVisible(true);
         }
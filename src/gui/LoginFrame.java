@@ -1,5 +1,8 @@
 package gui;
 
+import dao.ChangeLogPoller;
+import dao.KpiSketchDAO;
+import dao.RollupDAO;
 import dao.UserDAO;
 import models.User;
 // import utils.ValidationUtils;
@@ -193,5 +196,32 @@ public class LoginFrame extends JFrame {
                 new LoginFrame().setVisible(true);
             }
         });
+        
+        // Build the registration availability filters in the background
+        Thread filterThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                new UserDAO().buildAvailabilityFilter();
+            }
+        }, "availability-filter");
+        filterThread.setDaemon(true);
+        filterThread.start();
+        
+        // Fill the reporting rollups and KPI sketches from existing data after an upgrade
+        Thread backfillThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                new RollupDAO().backfillIfEmpty();
+                new KpiSketchDAO().rebuildIfEmpty();
+            }
+        }, "analytics-backfill");
+        backfillThread.setDaemon(true);
+        backfillThread.start();
+        
+        // Pick up cache invalidations from other client instances
+        ChangeLogPoller.start();
+        
+        // Write the KPI sketches of new requests in periodic merged batches
+        KpiSketchDAO.startFlushing();
     }
 }
\ No newline at end of file
@@ -195,12 +195,14 @@ public class RegistrationFrame extends JFrame {
         
         // Check if username or email already exists
         UserDAO userDAO = new UserDAO();
-        if (userDAO.usernameExists(username)) {
+        UserDAO.Availability availability = userDAO.checkAvailability(username, email);
+        
+        if (availability == UserDAO.Availability.USERNAME_TAKEN) {
             JOptionPane.showMessageDialog(this, "Username already exists", "Registration Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
         
-        if (userDAO.emailExists(email)) {
+        if (availability == UserDAO.Availability.EMAIL_TAKEN) {
             JOptionPane.showMessageDialog(this, "Email already exists", "Registration Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
@@ -0,0 +1,262 @@
+package gui;
+
+import reports.Measure;
+import reports.ReportDefinition;
+import reports.ReportDimension;
+import reports.ReportResult;
+
+import java.awt.*;
+import java.awt.geom.Arc2D;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Draws a report's first measure as a chart on an offscreen image.
+ * Time-bucketed reports become line charts (one line per value of a second
+ * dimension), status and rating reports pie charts, and the others bar
+ * charts. Safe to call off the event thread, as it only touches its own image.
+ */
+final class ReportChart {
+    
+    static final int WIDTH = 1000;
+    static final int HEIGHT = 560;
+    
+    private static final int MAX_BARS = 30;
+    private static final int MAX_SLICES = 8;
+    private static final int MAX_LINES = 8;
+    private static final int MARGIN = 60;
+    
+    private static final Color[] PALETTE = {
+        new Color(0x2E7D32), new Color(0x1565C0), new Color(0xF9A825), new Color(0xC62828),
+        new Color(0x6A1B9A), new Color(0x00838F), new Color(0xEF6C00), new Color(0x4E342E),
+        new Color(0x9E9E9E)
+    };
+    
+    private ReportChart() {}
+    
+    /**
+     * Render a report
+     * @param result Report to draw
+     * @return Image of WIDTH x HEIGHT pixels, or null if the report has nothing to chart
+     */
+    static BufferedImage render(ReportResult result) {
+        if (result.getRowCount() == 0) {
+            return null;
+        }
+        
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, WIDTH, HEIGHT);
+            
+            ReportDefinition definition = result.getDefinition();
+            Measure measure = definition.getMeasures().get(0);
+            g.setColor(Color.DARK_GRAY);
+            g.setFont(new Font("Arial", Font.BOLD, 16));
+            g.drawString(definition.getTitle() + " - " + measure.getLabel(), MARGIN, 30);
+            g.setFont(new Font("Arial", Font.PLAIN, 11));
+            
+            List<ReportDimension> dimensions = definition.getDimensions();
+            if (!dimensions.isEmpty() && dimensions.get(0).isTimeBucket()) {
+                drawLines(g, result, measure);
+            } else if (dimensions.size() == 1
+                    && (dimensions.get(0) == ReportDimension.STATUS || dimensions.get(0) == ReportDimension.RATING)) {
+                drawPie(g, result, measure);
+            } else {
+                drawBars(g, result, measure);
+            }
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+    
+    private static void drawBars(Graphics2D g, ReportResult result, Measure measure) {
+        int bars = Math.min(result.getRowCount(), MAX_BARS);
+        double max = 0;
+        for (int row = 0; row < bars; row++) {
+            max = Math.max(max, value(result, row));
+        }
+        
+        int left = MARGIN;
+        int bottom = HEIGHT - MARGIN - 40;
+        int plotWidth = WIDTH - 2 * MARGIN;
+        int plotHeight = bottom - MARGIN;
+        drawValueAxis(g, left, bottom, plotWidth, plotHeight, max, measure);
+        
+        double slot = (double) plotWidth / bars;
+        int barWidth = (int) Math.max(2, slot * 0.7);
+        for (int row = 0; row < bars; row++) {
+            double value = value(result, row);
+            int height = max == 0 ? 0 : (int) Math.round(value / max * plotHeight);
+            int x = left + (int) (row * slot + (slot - barWidth) / 2);
+            g.setColor(PALETTE[row % (PALETTE.length - 1)]);
+            g.fillRect(x, bottom - height, barWidth, height);
+            
+            g.setColor(Color.DARK_GRAY);
+            drawRotatedLabel(g, rowLabel(result, row), x + barWidth / 2, bottom + 6);
+        }
+        
+        if (result.getRowCount() > bars) {
+            g.drawString("First " + bars + " of " + result.getRowCount() + " rows", left, HEIGHT - 8);
+        }
+    }
+    
+    private static void drawPie(Graphics2D g, ReportResult result, Measure measure) {
+        // The largest slices, with the rest summed into "Other"
+        List<String> labels = new ArrayList<>();
+        List<Double> values = new ArrayList<>();
+        double total = 0;
+        double other = 0;
+        for (int row = 0; row < result.getRowCount(); row++) {
+            double value = Math.max(0, value(result, row));
+            total += value;
+            if (row < MAX_SLICES) {
+                labels.add(rowLabel(result, row));
+                values.add(value);
+            } else {
+                other += value;
+            }
+        }
+        if (other > 0) {
+            labels.add("Other");
+            values.add(other);
+        }
+        if (total == 0) {
+            g.setColor(Color.DARK_GRAY);
+            g.drawString("No data", WIDTH / 2 - 20, HEIGHT / 2);
+            return;
+        }
+        
+        int diameter = HEIGHT - 2 * MARGIN - 20;
+        int x = MARGIN;
+        int y = MARGIN + 10;
+        double start = 90;
+        for (int i = 0; i < values.size(); i++) {
+            double extent = -values.get(i) / total * 360;
+            g.setColor(i == values.size() - 1 && other > 0 ? PALETTE[PALETTE.length - 1] : PALETTE[i % (PALETTE.length - 1)]);
+            g.fill(new Arc2D.Double(x, y, diameter, diameter, start, extent, Arc2D.PIE));
+            start += extent;
+            
+            int legendY = y + 10 + i * 24;
+            g.fillRect(x + diameter + 40, legendY - 10, 14, 14);
+            g.setColor(Color.DARK_GRAY);
+            g.drawString(String.format("%s  %s (%.1f%%)", labels.get(i), measure.format(values.get(i)),
+                    values.get(i) / total * 100), x + diameter + 62, legendY + 2);
+        }
+    }
+    
+    private static void drawLines(Graphics2D g, ReportResult result, Measure measure) {
+        // X positions are the distinct buckets in row order; one series per second label
+        Map<String, Integer> buckets = new LinkedHashMap<>();
+        Map<String, Map<Integer, Double>> series = new LinkedHashMap<>();
+        double max = 0;
+        for (int row = 0; row < result.getRowCount(); row++) {
+            String[] labels = result.getLabels(row);
+            Integer bucket = buckets.get(labels[0]);
+            if (bucket == null) {
+                bucket = buckets.size();
+                buckets.put(labels[0], bucket);
+            }
+            String name = labels.length > 1 ? labels[1] : result.getDefinition().getMeasures().get(0).getLabel();
+            Map<Integer, Double> points = series.get(name);
+            if (points == null) {
+                if (series.size() >= MAX_LINES) {
+                    continue;
+                }
+                points = new LinkedHashMap<>();
+                series.put(name, points);
+            }
+            double value = value(result, row);
+            points.put(bucket, value);
+            max = Math.max(max, value);
+        }
+        
+        int left = MARGIN;
+        int bottom = HEIGHT - MARGIN - 40;
+        int plotWidth = WIDTH - 2 * MARGIN - 160;
+        int plotHeight = bottom - MARGIN;
+        drawValueAxis(g, left, bottom, plotWidth, plotHeight, max, measure);
+        
+        double step = buckets.size() > 1 ? (double) plotWidth / (buckets.size() - 1) : 0;
+        int labelEvery = Math.max(1, buckets.size() / 20);
+        g.setColor(Color.DARK_GRAY);
+        for (Map.Entry<String, Integer> bucket : buckets.entrySet()) {
+            if (bucket.getValue() % labelEvery == 0) {
+                drawRotatedLabel(g, bucket.getKey(), left + (int) (bucket.getValue() * step), bottom + 6);
+            }
+        }
+        
+        g.setStroke(new BasicStroke(2f));
+        int index = 0;
+        for (Map.Entry<String, Map<Integer, Double>> line : series.entrySet()) {
+            Color color = PALETTE[index % (PALETTE.length - 1)];
+            g.setColor(color);
+            Path2D.Double path = new Path2D.Double();
+            boolean first = true;
+            // Buckets missing from a series are zero
+            for (int bucket = 0; bucket < buckets.size(); bucket++) {
+                Double value = line.getValue().get(bucket);
+                double y = bottom - (max == 0 || value == null ? 0 : value / max * plotHeight);
+                double x = left + bucket * step;
+                if (first) {
+                    path.moveTo(x, y);
+                    first = false;
+                } else {
+                    path.lineTo(x, y);
+                }
+            }
+            g.draw(path);
+            
+            int legendY = MARGIN + index * 20;
+            g.fillRect(left + plotWidth + 30, legendY - 10, 14, 14);
+            g.setColor(Color.DARK_GRAY);
+            g.drawString(line.getKey(), left + plotWidth + 50, legendY + 2);
+            index++;
+        }
+    }
+    
+    private static void drawValueAxis(Graphics2D g, int left, int bottom, int plotWidth, int plotHeight,
+            double max, Measure measure) {
+        g.setColor(Color.LIGHT_GRAY);
+        for (int i = 0; i <= 4; i++) {
+            int y = bottom - plotHeight * i / 4;
+            g.drawLine(left, y, left + plotWidth, y);
+            g.setColor(Color.DARK_GRAY);
+            String label = measure.format(max * i / 4);
+            g.drawString(label, left - g.getFontMetrics().stringWidth(label) - 6, y + 4);
+            g.setColor(Color.LIGHT_GRAY);
+        }
+        g.setColor(Color.DARK_GRAY);
+        g.drawLine(left, bottom, left + plotWidth, bottom);
+    }
+    
+    private static void drawRotatedLabel(Graphics2D g, String label, int x, int y) {
+        String text = label.length() > 18 ? label.substring(0, 17) + "..." : label;
+        Graphics2D rotated = (Graphics2D) g.create();
+        try {
+            rotated.translate(x, y);
+            rotated.rotate(Math.PI / 4);
+            rotated.drawString(text, 0, 0);
+        } finally {
+            rotated.dispose();
+        }
+    }
+    
+    private static double value(ReportResult result, int row) {
+        double value = result.getValues(row)[0];
+        return Double.isNaN(value) ? 0 : value;
+    }
+    
+    private static String rowLabel(ReportResult result, int row) {
+        String[] labels = result.getLabels(row);
+        return labels.length == 0 ? "All" : String.join(" / ", labels);
+    }
+}
\ No newline at end of file
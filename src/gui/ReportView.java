@@ -0,0 +1,154 @@
+package gui;
+
+import reports.ReportResult;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Shows a report as a chart above its text.
+ * The chart image and the text are built on a background thread and kept
+ * per report snapshot, so showing a snapshot again is instant. The chart is
+ * drawn once at a fixed size and only scaled when the panel is resized.
+ */
+class ReportView extends JPanel {
+    
+    private static final int CACHED_REPORTS = 16;
+    
+    private final ChartPanel chartPanel = new ChartPanel();
+    private final JTextArea textArea = new JTextArea();
+    
+    // Most recently shown renderings, keyed by snapshot; only used on the event thread
+    private final Map<String, Rendering> cache = new LinkedHashMap<String, Rendering>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Rendering> eldest) {
+            return size() > CACHED_REPORTS;
+        }
+    };
+    
+    private int generation;
+    
+    ReportView() {
+        super(new BorderLayout());
+        textArea.setEditable(false);
+        textArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        
+        JSplitPane splitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT, chartPanel, new JScrollPane(textArea));
+        splitPane.setResizeWeight(0.6);
+        add(splitPane, BorderLayout.CENTER);
+    }
+    
+    /**
+     * Show a message instead of a report. Must be called on the event thread.
+     * @param message Message to show
+     */
+    void showMessage(String message) {
+        generation++;
+        chartPanel.setImage(null);
+        textArea.setText(message);
+    }
+    
+    /**
+     * Show a report, rendering it in the background unless it is cached.
+     * Must be called on the event thread.
+     * @param result Report to show
+     * @param cacheKey Key identifying this version of the report, or null to not cache it
+     * @param footer Line shown below the report text, or null
+     */
+    void showReport(final ReportResult result, final String cacheKey, final String footer) {
+        final int expectedGeneration = ++generation;
+        Rendering cached = cacheKey != null ? cache.get(cacheKey) : null;
+        if (cached != null) {
+            display(cached, footer);
+            return;
+        }
+        
+        textArea.setText("Rendering " + result.getDefinition().getTitle() + "...");
+        SwingWorker<Rendering, Void> worker = new SwingWorker<Rendering, Void>() {
+            @Override
+            protected Rendering doInBackground() {
+                return new Rendering(result.toText(), ReportChart.render(result));
+            }
+            
+            @Override
+            protected void done() {
+                Rendering rendering;
+                try {
+                    rendering = get();
+                } catch (InterruptedException | ExecutionException e) {
+                    System.err.println("Error rendering report: " + e.getMessage());
+                    rendering = new Rendering(result.toText(), null);
+                }
+                
+                if (cacheKey != null) {
+                    cache.put(cacheKey, rendering);
+                }
+                // Another report was requested while this one was rendering
+                if (expectedGeneration == generation) {
+                    display(rendering, footer);
+                }
+            }
+        };
+        worker.execute();
+    }
+    
+    private void display(Rendering rendering, String footer) {
+        chartPanel.setImage(rendering.chart);
+        textArea.setText(footer == null ? rendering.text : rendering.text + "\n" + footer + "\n");
+        textArea.setCaretPosition(0);
+    }
+    
+    /**
+     * Report text and chart image
+     */
+    private static class Rendering {
+        private final String text;
+        private final BufferedImage chart;
+        
+        Rendering(String text, BufferedImage chart) {
+            this.text = text;
+            this.chart = chart;
+        }
+    }
+    
+    /**
+     * Draws a chart image scaled to fit, keeping its aspect ratio
+     */
+    private static class ChartPanel extends JComponent {
+        private BufferedImage image;
+        
+        ChartPanel() {
+            setPreferredSize(new Dimension(ReportChart.WIDTH / 2, ReportChart.HEIGHT / 2));
+            setMinimumSize(new Dimension(0, 0));
+        }
+        
+        void setImage(BufferedImage image) {
+            this.image = image;
+            repaint();
+        }
+        
+        @Override
+        protected void paintComponent(Graphics g) {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, getWidth(), getHeight());
+            if (image == null) {
+                return;
+            }
+            
+            double scale = Math.min((double) getWidth() / image.getWidth(), (double) getHeight() / image.getHeight());
+            int width = (int) (image.getWidth() * scale);
+            int height = (int) (image.getHeight() * scale);
+            Graphics2D g2 = (Graphics2D) g.create();
+            try {
+                g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g2.drawImage(image, (getWidth() - width) / 2, (getHeight() - height) / 2, width, height, null);
+            } finally {
+                g2.dispose();
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -1,6 +1,7 @@
 package gui;
 
 import dao.FeedbackDAO;
+import dao.RequestDetailsPrefetcher;
 import dao.WasteRequestDAO;
 import dao.WasteTypeDAO;
 import models.Feedback;
@@ -9,11 +10,14 @@ import models.WasteRequest;
 import models.WasteType;
 
 import javax.swing.*;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.event.ListSelectionListener;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.sql.Date;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -30,6 +34,8 @@ public class ResidentDashboard extends JFrame {
     private JButton refreshButton;
     private JButton logoutButton;
     private JButton provideFeedbackButton;
+    private JLabel requestsStatusLabel;
+    private TableLoader requestsLoader;
     
     /**
      * Constructor
@@ -69,6 +75,16 @@ public class ResidentDashboard extends JFrame {
         refreshButton = new JButton("Refresh");
         logoutButton = new JButton("Logout");
         provideFeedbackButton = new JButton("Provide Feedback");
+        
+        // Shows how old the rows on screen are
+        requestsStatusLabel = new JLabel();
+        requestsLoader = new TableLoader("resident-requests-" + currentUser.getUserId(),
+                requestsTableModel, requestsStatusLabel, new TableLoader.RowSource() {
+            @Override
+            public List<Object[]> loadRows() {
+                return fetchRequestRows();
+            }
+        });
     }
     
     /**
@@ -98,6 +114,7 @@ public class ResidentDashboard extends JFrame {
         requestsButtonPanel.add(newRequestButton);
         requestsButtonPanel.add(refreshButton);
         requestsButtonPanel.add(provideFeedbackButton);
+        requestsButtonPanel.add(requestsStatusLabel);
         
         requestsPanel.add(requestsScrollPane, BorderLayout.CENTER);
         requestsPanel.add(requestsButtonPanel, BorderLayout.SOUTH);
@@ -144,20 +161,40 @@ public class ResidentDashboard extends JFrame {
                 provideFeedback();
             }
         });
+        
+        // Load the selected request's assignment and feedback ahead of any dialog
+        requestsTable.getSelectionModel().addListSelectionListener(new ListSelectionListener() {
+            @Override
+            public void valueChanged(ListSelectionEvent e) {
+                int selectedRow = requestsTable.getSelectedRow();
+                if (!e.getValueIsAdjusting() && selectedRow != -1) {
+                    RequestDetailsPrefetcher.getInstance().prefetch((int) requestsTable.getValueAt(selectedRow, 0));
+                }
+            }
+        });
     }
     
     /**
      * Load waste requests for the current user
      */
     private void loadRequests() {
-        // Clear table
-        requestsTableModel.setRowCount(0);
-        
+        requestsLoader.load();
+    }
+    
+    /**
+     * Fetch table rows for the current user's waste requests
+     * @return List of table rows, or null if they could not be loaded
+     */
+    private List<Object[]> fetchRequestRows() {
         // Get requests for current user
         WasteRequestDAO requestDAO = new WasteRequestDAO();
         List<WasteRequest> requests = requestDAO.getWasteRequestsByUserId(currentUser.getUserId());
+        if (requests == null) {
+            return null;
+        }
         
-        // Add requests to table
+        // Convert requests to table rows
+        List<Object[]> rows = new ArrayList<>();
         for (WasteRequest request : requests) {
             Object[] row = {
                 request.getRequestId(),
@@ -168,8 +205,9 @@ public class ResidentDashboard extends JFrame {
                 request.getRequestedDate(),
                 request.getPickupDate()
             };
-            requestsTableModel.addRow(row);
+            rows.add(row);
         }
+        return rows;
     }
     
     /**
@@ -333,9 +371,9 @@ public class ResidentDashboard extends JFrame {
             return;
         }
         
-        // Check if feedback already exists
+        // Check if feedback already exists (usually prefetched when the row was selected)
         FeedbackDAO feedbackDAO = new FeedbackDAO();
-        Feedback existingFeedback = feedbackDAO.getFeedbackByRequestId(requestId);
+        Feedback existingFeedback = RequestDetailsPrefetcher.getInstance().getFeedback(requestId);
         
         if (existingFeedback != null) {
             JOptionPane.showMessageDialog(this, "You have already provided feedback for this request", "Error", JOptionPane.ERROR_MESSAGE);
@@ -438,6 +476,7 @@ public class ResidentDashboard extends JFrame {
     private void logout() {
         int option = JOptionPane.showConfirmDialog(this, "Are you sure you want to logout?", "Logout", JOptionPane.YES_NO_OPTION);
         if (option == JOptionPane.YES_OPTION) {
+            requestsLoader.discardSnapshot();
             dispose();
             new LoginFrame().setVisible(true);
         }
@@ -0,0 +1,133 @@
+package gui;
+
+import cache.TableSnapshot;
+import cache.TableSnapshotStore;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Loads a dashboard table without blocking the event thread.
+ * The first load shows the rows saved by the previous session straight away,
+ * then a background refresh swaps in fresh rows and saves them for next time.
+ * A status label tells the user how old the rows on screen are.
+ */
+class TableLoader {
+    
+    /**
+     * Source of fresh table rows, called off the event thread.
+     * Returns null if the rows could not be loaded.
+     */
+    interface RowSource {
+        List<Object[]> loadRows();
+    }
+    
+    private final String snapshotName;
+    private final DefaultTableModel tableModel;
+    private final JLabel statusLabel;
+    private final RowSource rowSource;
+    private final TableSnapshotStore snapshotStore = TableSnapshotStore.getInstance();
+    
+    private boolean snapshotShown;
+    private boolean discarded;
+    private String asOfText;
+    private int generation;
+    
+    /**
+     * Constructor
+     * @param snapshotName Name the rows are saved under
+     * @param tableModel Table model to fill
+     * @param statusLabel Label showing when the rows were loaded
+     * @param rowSource Source of fresh rows
+     */
+    TableLoader(String snapshotName, DefaultTableModel tableModel, JLabel statusLabel, RowSource rowSource) {
+        this.snapshotName = snapshotName;
+        this.tableModel = tableModel;
+        this.statusLabel = statusLabel;
+        this.rowSource = rowSource;
+    }
+    
+    /**
+     * Refresh the table in the background. Must be called on the event thread.
+     */
+    void load() {
+        if (!snapshotShown) {
+            snapshotShown = true;
+            TableSnapshot snapshot = snapshotStore.load(snapshotName);
+            if (snapshot != null && snapshot.getColumnCount() == tableModel.getColumnCount()) {
+                setRows(snapshot.getRows());
+                asOfText = "Saved data as of " + format(snapshot.getSavedAt(), "yyyy-MM-dd HH:mm");
+            }
+        }
+        statusLabel.setText(asOfText == null ? "Loading..." : asOfText + " - refreshing...");
+        
+        final int expectedGeneration = ++generation;
+        final int columnCount = tableModel.getColumnCount();
+        
+        SwingWorker<List<Object[]>, Void> worker = new SwingWorker<List<Object[]>, Void>() {
+            @Override
+            protected List<Object[]> doInBackground() {
+                List<Object[]> rows = rowSource.loadRows();
+                // Keep the last good snapshot when the load failed
+                if (rows != null) {
+                    saveSnapshot(columnCount, rows);
+                }
+                return rows;
+            }
+            
+            @Override
+            protected void done() {
+                // A newer refresh was started while this one was running
+                if (expectedGeneration != generation) {
+                    return;
+                }
+                
+                List<Object[]> rows = null;
+                try {
+                    rows = get();
+                } catch (InterruptedException | ExecutionException e) {
+                    System.err.println("Error refreshing table: " + e.getMessage());
+                }
+                
+                if (rows == null) {
+                    statusLabel.setText(asOfText == null ? "Refresh failed" : asOfText + " - refresh failed");
+                    return;
+                }
+                setRows(rows);
+                asOfText = "As of " + format(System.currentTimeMillis(), "HH:mm:ss");
+                statusLabel.setText(asOfText);
+            }
+        };
+        worker.execute();
+    }
+    
+    /**
+     * Delete the saved rows and stop saving new ones, e.g. on logout.
+     * A refresh still running when this is called does not save its rows.
+     */
+    synchronized void discardSnapshot() {
+        discarded = true;
+        snapshotStore.delete(snapshotName);
+    }
+    
+    private synchronized void saveSnapshot(int columnCount, List<Object[]> rows) {
+        if (!discarded) {
+            snapshotStore.save(snapshotName, columnCount, rows);
+        }
+    }
+    
+    private void setRows(List<Object[]> rows) {
+        tableModel.setRowCount(0);
+        for (Object[] row : rows) {
+            tableModel.addRow(row);
+        }
+    }
+    
+    private static String format(long millis, String pattern) {
+        return new SimpleDateFormat(pattern).format(new Date(millis));
+    }
+}
\ No newline at end of file
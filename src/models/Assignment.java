@@ -10,11 +10,14 @@ public class Assignment {
     private int requestId;
     private int collectorId;
     private Timestamp assignedDate;
+    private Timestamp inProgressAt;
+    private Timestamp completedAt;
     private String status;
     
     // Additional fields for display purposes
     private String collectorName;
     private String requestDetails;
+    private String address;
     
     // Default constructor
     public Assignment() {}
@@ -68,6 +71,22 @@ public class Assignment {
         this.assignedDate = assignedDate;
     }
     
+    public Timestamp getInProgressAt() {
+        return inProgressAt;
+    }
+    
+    public void setInProgressAt(Timestamp inProgressAt) {
+        this.inProgressAt = inProgressAt;
+    }
+    
+    public Timestamp getCompletedAt() {
+        return completedAt;
+    }
+    
+    public void setCompletedAt(Timestamp completedAt) {
+        this.completedAt = completedAt;
+    }
+    
     public String getStatus() {
         return status;
     }
@@ -91,4 +110,12 @@ public class Assignment {
     public void setRequestDetails(String requestDetails) {
         this.requestDetails = requestDetails;
     }
+    
+    public String getAddress() {
+        return address;
+    }
+    
+    public void setAddress(String address) {
+        this.address = address;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,63 @@
+package models;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Model class for a Change Log entry: the cache tags touched by one write
+ */
+public class ChangeLogEntry {
+    private long changeId;
+    private String origin;
+    private List<String> tags;
+    private Timestamp changedAt;
+    
+    // Default constructor
+    public ChangeLogEntry() {}
+    
+    // Constructor with all fields
+    public ChangeLogEntry(long changeId, String origin, List<String> tags, Timestamp changedAt) {
+        this.changeId = changeId;
+        this.origin = origin;
+        this.tags = tags;
+        this.changedAt = changedAt;
+    }
+    
+    // Getters and Setters
+    public long getChangeId() {
+        return changeId;
+    }
+    
+    public void setChangeId(long changeId) {
+        this.changeId = changeId;
+    }
+    
+    public String getOrigin() {
+        return origin;
+    }
+    
+    public void setOrigin(String origin) {
+        this.origin = origin;
+    }
+    
+    public List<String> getTags() {
+        return tags;
+    }
+    
+    public void setTags(List<String> tags) {
+        this.tags = tags;
+    }
+    
+    public Timestamp getChangedAt() {
+        return changedAt;
+    }
+    
+    public void setChangedAt(Timestamp changedAt) {
+        this.changedAt = changedAt;
+    }
+    
+    @Override
+    public String toString() {
+        return "#" + changeId + " " + tags;
+    }
+}
\ No newline at end of file
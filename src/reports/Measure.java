@@ -0,0 +1,111 @@
+package reports;
+
+/**
+ * Values a report can compute for each group of waste requests, or of
+ * feedback for the feedback measures
+ */
+public enum Measure {
+    COUNT("Requests"),
+    TOTAL_KG("Quantity (kg)"),
+    COMPLETED("Completed"),
+    /** Completed assignments as a percentage of the requests in the group */
+    COMPLETION_RATE("Completion Rate"),
+    AVERAGE_RATING("Avg Rating"),
+    /** The group's requests as a percentage of all requests in the report */
+    COUNT_SHARE("% of Requests"),
+    /** The group's quantity as a percentage of the total quantity in the report */
+    KG_SHARE("% of Quantity"),
+    /** Hours from request creation to assignment, 50th percentile */
+    ASSIGN_P50("Assign p50 h"),
+    ASSIGN_P90("Assign p90 h"),
+    ASSIGN_P99("Assign p99 h"),
+    /** Hours from assignment to completion, 50th percentile */
+    COMPLETE_P50("Complete p50 h"),
+    COMPLETE_P90("Complete p90 h"),
+    COMPLETE_P99("Complete p99 h"),
+    /** Feedback given in the group */
+    FEEDBACK_COUNT("Feedback"),
+    /** The group's feedback as a percentage of all feedback in the report */
+    FEEDBACK_SHARE("% of Feedback");
+    
+    private final String label;
+    
+    Measure(String label) {
+        this.label = label;
+    }
+    
+    public String getLabel() {
+        return label;
+    }
+    
+    /**
+     * Check whether this measure is a latency percentile
+     * @return true for the ASSIGN_ and COMPLETE_ measures
+     */
+    public boolean isLatency() {
+        return getQuantile() > 0;
+    }
+    
+    /**
+     * Check whether this measure is a percentile of the time to completion
+     * @return true for the COMPLETE_ measures
+     */
+    public boolean isCompletionLatency() {
+        return this == COMPLETE_P50 || this == COMPLETE_P90 || this == COMPLETE_P99;
+    }
+    
+    /**
+     * Check whether this measure counts feedback rather than requests
+     * @return true for FEEDBACK_COUNT and FEEDBACK_SHARE
+     */
+    public boolean isFeedback() {
+        return this == FEEDBACK_COUNT || this == FEEDBACK_SHARE;
+    }
+    
+    /**
+     * Get the quantile of a latency measure
+     * @return Quantile between 0 and 1, or 0 for other measures
+     */
+    public double getQuantile() {
+        switch (this) {
+            case ASSIGN_P50:
+            case COMPLETE_P50:
+                return 0.5;
+            case ASSIGN_P90:
+            case COMPLETE_P90:
+                return 0.9;
+            case ASSIGN_P99:
+            case COMPLETE_P99:
+                return 0.99;
+            default:
+                return 0;
+        }
+    }
+    
+    /**
+     * Format a value of this measure for display
+     * @param value Value computed by the report engine
+     * @return Formatted value
+     */
+    public String format(double value) {
+        if (Double.isNaN(value)) {
+            return "-";
+        }
+        if (isLatency()) {
+            return String.format("%.1f", value);
+        }
+        switch (this) {
+            case COUNT:
+            case COMPLETED:
+            case FEEDBACK_COUNT:
+                return String.valueOf((long) value);
+            case COMPLETION_RATE:
+            case COUNT_SHARE:
+            case KG_SHARE:
+            case FEEDBACK_SHARE:
+                return String.format("%.2f%%", value);
+            default:
+                return String.format("%.2f", value);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,163 @@
+package reports;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Declaration of a report: the dimensions to group waste requests by, the
+ * measures to compute per group and the filters to apply. Time dimensions
+ * and the date range refer to the requested date.
+ * A report grouped by rating or with a feedback measure is a feedback report:
+ * it groups feedback instead of requests, and its time dimensions and date
+ * range refer to the day the feedback was submitted.
+ * ReportDAO.run() picks how to answer it, so a new report is a new
+ * definition rather than a new query.
+ */
+public class ReportDefinition {
+    
+    private final String title;
+    private final List<ReportDimension> dimensions;
+    private final List<Measure> measures;
+    private final List<ReportFilter> filters = new ArrayList<>();
+    private LocalDate from;
+    private LocalDate to;
+    private Measure sortBy;
+    private boolean showTotal;
+    
+    /**
+     * Create a report definition
+     * @param title Report title
+     * @param dimensions Dimensions to group by, in column order
+     * @param measures Measures to compute, in column order
+     */
+    public ReportDefinition(String title, List<ReportDimension> dimensions, List<Measure> measures) {
+        if (measures.isEmpty()) {
+            throw new IllegalArgumentException("A report needs at least one measure");
+        }
+        this.title = title;
+        this.dimensions = Collections.unmodifiableList(new ArrayList<>(dimensions));
+        this.measures = Collections.unmodifiableList(new ArrayList<>(measures));
+        
+        if (isFeedbackReport()) {
+            for (Measure measure : measures) {
+                if (!measure.isFeedback() && measure != Measure.AVERAGE_RATING) {
+                    throw new IllegalArgumentException(measure + " cannot be computed over feedback");
+                }
+            }
+        }
+    }
+    
+    /**
+     * Create a report definition grouped by one dimension
+     * @param title Report title
+     * @param dimension Dimension to group by
+     * @param measures Measures to compute, in column order
+     */
+    public ReportDefinition(String title, ReportDimension dimension, Measure... measures) {
+        this(title, Collections.singletonList(dimension), Arrays.asList(measures));
+    }
+    
+    /**
+     * Only include requests whose dimension equals a value
+     * @param dimension Dimension to filter on
+     * @param value Value to keep (see ReportFilter)
+     */
+    public void addFilter(ReportDimension dimension, Object value) {
+        filters.add(new ReportFilter(dimension, value));
+    }
+    
+    public String getTitle() {
+        return title;
+    }
+    
+    public List<ReportDimension> getDimensions() {
+        return dimensions;
+    }
+    
+    public List<Measure> getMeasures() {
+        return measures;
+    }
+    
+    public List<ReportFilter> getFilters() {
+        return Collections.unmodifiableList(filters);
+    }
+    
+    /**
+     * Only include requests whose requested date lies in a range
+     * @param from First day included, or null for no lower bound
+     * @param to Last day included, or null for no upper bound
+     */
+    public void setDateRange(LocalDate from, LocalDate to) {
+        this.from = from;
+        this.to = to;
+    }
+    
+    public LocalDate getFrom() {
+        return from;
+    }
+    
+    public LocalDate getTo() {
+        return to;
+    }
+    
+    public boolean hasDateRange() {
+        return from != null || to != null;
+    }
+    
+    public Measure getSortBy() {
+        return sortBy;
+    }
+    
+    /**
+     * Sort rows by a measure, largest first, instead of by dimension values
+     * @param sortBy Measure of the report, or null for dimension order
+     */
+    public void setSortBy(Measure sortBy) {
+        this.sortBy = sortBy;
+    }
+    
+    /**
+     * Check whether the report groups feedback instead of requests
+     * @return true if it is grouped by rating or has a feedback measure
+     */
+    public boolean isFeedbackReport() {
+        if (dimensions.contains(ReportDimension.RATING)) {
+            return true;
+        }
+        for (Measure measure : measures) {
+            if (measure.isFeedback()) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    public boolean isShowTotal() {
+        return showTotal;
+    }
+    
+    public void setShowTotal(boolean showTotal) {
+        this.showTotal = showTotal;
+    }
+    
+    /**
+     * Check whether the report only uses the given dimensions and measures
+     * @param allowedDimensions Dimensions allowed for grouping and filtering
+     * @param allowedMeasures Measures allowed
+     * @return true if all are allowed
+     */
+    public boolean usesOnly(List<ReportDimension> allowedDimensions, List<Measure> allowedMeasures) {
+        if (!allowedDimensions.containsAll(dimensions) || !allowedMeasures.containsAll(measures)) {
+            return false;
+        }
+        for (ReportFilter filter : filters) {
+            if (!allowedDimensions.contains(filter.getDimension())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
\ No newline at end of file
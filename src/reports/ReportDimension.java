@@ -0,0 +1,80 @@
+package reports;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * Attributes a report can group waste requests by. In feedback reports the
+ * time dimensions refer to the day the feedback was submitted instead, and in
+ * reports grouped by collector to the day the request was assigned.
+ */
+public enum ReportDimension {
+    WASTE_TYPE("Waste Type"),
+    STATUS("Status"),
+    /** Only assigned requests have a collector; the others are left out */
+    COLLECTOR("Collector"),
+    /** Requested date */
+    DAY("Day"),
+    /** Monday-based week of the requested date */
+    WEEK("Week"),
+    /** Month of the requested date */
+    MONTH("Month"),
+    RESIDENT("Resident"),
+    /** Feedback rating from 1 to 5; only used by feedback reports */
+    RATING("Rating");
+    
+    private final String label;
+    
+    ReportDimension(String label) {
+        this.label = label;
+    }
+    
+    public String getLabel() {
+        return label;
+    }
+    
+    /**
+     * Check whether this dimension buckets requests by their requested date
+     * @return true for DAY, WEEK and MONTH
+     */
+    public boolean isTimeBucket() {
+        return this == DAY || this == WEEK || this == MONTH;
+    }
+    
+    /**
+     * Get the bucket key of a date: days since 1970-01-01 for DAY, weeks
+     * since Monday 1970-01-05 for WEEK, and year * 12 + month - 1 for MONTH
+     * @param date Date to bucket
+     * @return Bucket key
+     */
+    public int bucketKey(LocalDate date) {
+        switch (this) {
+            case DAY:
+                return (int) date.toEpochDay();
+            case WEEK:
+                return (int) Math.floorDiv(date.toEpochDay() - 4, 7);
+            case MONTH:
+                return date.getYear() * 12 + date.getMonthValue() - 1;
+            default:
+                throw new IllegalStateException(this + " is not a time bucket");
+        }
+    }
+    
+    /**
+     * Get the display label of a bucket key
+     * @param key Key returned by bucketKey()
+     * @return First day of the bucket, or year and month for MONTH
+     */
+    public String bucketLabel(int key) {
+        switch (this) {
+            case DAY:
+                return LocalDate.ofEpochDay(key).toString();
+            case WEEK:
+                return LocalDate.ofEpochDay(4 + 7L * key).toString();
+            case MONTH:
+                return YearMonth.of(key / 12, key % 12 + 1).toString();
+            default:
+                throw new IllegalStateException(this + " is not a time bucket");
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,64 @@
+package reports;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * Restricts a report to the requests whose dimension equals a value.
+ * Values are waste type, collector and resident IDs and ratings as Integer, statuses as
+ * String, days and weeks as a LocalDate inside them, and months as YearMonth.
+ */
+public class ReportFilter {
+    
+    private final ReportDimension dimension;
+    private final Object value;
+    
+    public ReportFilter(ReportDimension dimension, Object value) {
+        if (!expectedType(dimension).isInstance(value)) {
+            throw new IllegalArgumentException(dimension + " filter needs a " + expectedType(dimension).getSimpleName());
+        }
+        this.dimension = dimension;
+        this.value = value;
+    }
+    
+    public ReportDimension getDimension() {
+        return dimension;
+    }
+    
+    public Object getValue() {
+        return value;
+    }
+    
+    /**
+     * Get the value as the integer key the report engine compares against
+     * @return Bucket key for time dimensions, ID for the others
+     * @throws IllegalStateException for STATUS, which is compared as a String
+     */
+    public int getKey() {
+        switch (dimension) {
+            case STATUS:
+                throw new IllegalStateException("STATUS filters have no integer key");
+            case DAY:
+            case WEEK:
+                return dimension.bucketKey((LocalDate) value);
+            case MONTH:
+                return dimension.bucketKey(((YearMonth) value).atDay(1));
+            default:
+                return (Integer) value;
+        }
+    }
+    
+    private static Class<?> expectedType(ReportDimension dimension) {
+        switch (dimension) {
+            case STATUS:
+                return String.class;
+            case DAY:
+            case WEEK:
+                return LocalDate.class;
+            case MONTH:
+                return YearMonth.class;
+            default:
+                return Integer.class;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,135 @@
+package reports;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rows produced by running a ReportDefinition: the display labels of each
+ * group's dimension values followed by its measure values
+ */
+public class ReportResult {
+    
+    private static final String LABEL_FORMAT = "%-25s ";
+    private static final String VALUE_FORMAT = "%-15s ";
+    
+    // Completion times were not recorded before the in_progress_at/completed_at upgrade
+    private static final String COMPLETION_NOTE =
+            "Complete times only cover assignments completed since completion times were recorded;\n" +
+            "assignments completed before that are left out of them.";
+    
+    private final ReportDefinition definition;
+    private final List<String[]> labels = new ArrayList<>();
+    private final List<double[]> values = new ArrayList<>();
+    private double[] totals;
+    
+    public ReportResult(ReportDefinition definition) {
+        this.definition = definition;
+    }
+    
+    /**
+     * Add a row
+     * @param rowLabels One label per dimension
+     * @param rowValues One value per measure
+     */
+    public void addRow(String[] rowLabels, double[] rowValues) {
+        labels.add(rowLabels);
+        values.add(rowValues);
+    }
+    
+    public ReportDefinition getDefinition() {
+        return definition;
+    }
+    
+    public int getRowCount() {
+        return labels.size();
+    }
+    
+    public String[] getLabels(int row) {
+        return labels.get(row);
+    }
+    
+    public double[] getValues(int row) {
+        return values.get(row);
+    }
+    
+    /**
+     * Get the measure values over all rows
+     * @return One value per measure, or null if the definition has no total
+     */
+    public double[] getTotals() {
+        return totals;
+    }
+    
+    public void setTotals(double[] totals) {
+        this.totals = totals;
+    }
+    
+    /**
+     * Lay the report out as fixed-width text
+     * @return Report text
+     */
+    public String toText() {
+        List<ReportDimension> dimensions = definition.getDimensions();
+        List<Measure> measures = definition.getMeasures();
+        
+        StringBuilder report = new StringBuilder();
+        String title = definition.getTitle().toUpperCase() + " REPORT";
+        report.append(title).append("\n");
+        report.append(repeat('=', title.length())).append("\n\n");
+        
+        StringBuilder header = new StringBuilder();
+        StringBuilder underline = new StringBuilder();
+        for (ReportDimension dimension : dimensions) {
+            header.append(String.format(LABEL_FORMAT, dimension.getLabel()));
+            underline.append(String.format(LABEL_FORMAT, repeat('-', dimension.getLabel().length())));
+        }
+        for (Measure measure : measures) {
+            header.append(String.format(VALUE_FORMAT, measure.getLabel()));
+            underline.append(String.format(VALUE_FORMAT, repeat('-', measure.getLabel().length())));
+        }
+        report.append(header.toString().trim()).append("\n");
+        report.append(underline.toString().trim()).append("\n");
+        
+        for (int row = 0; row < labels.size(); row++) {
+            StringBuilder line = new StringBuilder();
+            for (String label : labels.get(row)) {
+                line.append(String.format(LABEL_FORMAT, label));
+            }
+            appendValues(line, measures, values.get(row));
+            report.append(line.toString().trim()).append("\n");
+        }
+        
+        if (totals != null) {
+            StringBuilder line = new StringBuilder();
+            line.append(String.format(LABEL_FORMAT, "TOTAL"));
+            for (int i = 1; i < dimensions.size(); i++) {
+                line.append(String.format(LABEL_FORMAT, ""));
+            }
+            appendValues(line, measures, totals);
+            report.append("\n").append(line.toString().trim()).append("\n");
+        }
+        
+        for (Measure measure : measures) {
+            if (measure.isCompletionLatency()) {
+                report.append("\n").append(COMPLETION_NOTE).append("\n");
+                break;
+            }
+        }
+        
+        return report.toString();
+    }
+    
+    private static void appendValues(StringBuilder line, List<Measure> measures, double[] rowValues) {
+        for (int i = 0; i < measures.size(); i++) {
+            line.append(String.format(VALUE_FORMAT, measures.get(i).format(rowValues[i])));
+        }
+    }
+    
+    private static String repeat(char c, int count) {
+        StringBuilder repeated = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            repeated.append(c);
+        }
+        return repeated.toString();
+    }
+}
\ No newline at end of file
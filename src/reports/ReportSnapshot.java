@@ -0,0 +1,43 @@
+package reports;
+
+/**
+ * A report computed ahead of time by the report scheduler, with its version
+ * and the time it was computed
+ */
+public class ReportSnapshot {
+    
+    private final ReportResult result;
+    private final long version;
+    private final long computedAt;
+    private final long changeMark;
+    
+    /**
+     * Constructor
+     * @param result Computed report
+     * @param version Version number, increasing with each computation of the report
+     * @param computedAt Time the computation started, in milliseconds since the epoch
+     * @param changeMark Number of writes seen by the scheduler when the computation started
+     */
+    public ReportSnapshot(ReportResult result, long version, long computedAt, long changeMark) {
+        this.result = result;
+        this.version = version;
+        this.computedAt = computedAt;
+        this.changeMark = changeMark;
+    }
+    
+    public ReportResult getResult() {
+        return result;
+    }
+    
+    public long getVersion() {
+        return version;
+    }
+    
+    public long getComputedAt() {
+        return computedAt;
+    }
+    
+    public long getChangeMark() {
+        return changeMark;
+    }
+}
@@ -0,0 +1,140 @@
+package reports;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Definitions of the reports offered on the admin Reports tab
+ */
+public final class StandardReports {
+    
+    private StandardReports() {}
+    
+    /**
+     * Get the reports without parameters, which are kept precomputed
+     * @return Report definitions
+     */
+    public static List<ReportDefinition> scheduled() {
+        return Arrays.asList(wasteByType(), requestStatus(), collectorPerformance(),
+                latencyByCollector(), latencyByWasteType(),
+                ratingDistribution(), satisfactionByCollector(), satisfactionByWasteType());
+    }
+    
+    public static ReportDefinition wasteByType() {
+        ReportDefinition report = new ReportDefinition("Waste Collection by Type", ReportDimension.WASTE_TYPE,
+                Measure.TOTAL_KG, Measure.KG_SHARE);
+        report.setSortBy(Measure.TOTAL_KG);
+        report.setShowTotal(true);
+        return report;
+    }
+    
+    public static ReportDefinition requestStatus() {
+        ReportDefinition report = new ReportDefinition("Request Status Summary", ReportDimension.STATUS,
+                Measure.COUNT, Measure.COUNT_SHARE);
+        report.setShowTotal(true);
+        return report;
+    }
+    
+    public static ReportDefinition collectorPerformance() {
+        return new ReportDefinition("Collector Performance", ReportDimension.COLLECTOR,
+                Measure.COUNT, Measure.COMPLETED, Measure.COMPLETION_RATE, Measure.AVERAGE_RATING);
+    }
+    
+    public static ReportDefinition latencyByCollector() {
+        return new ReportDefinition("Collector Response Times", ReportDimension.COLLECTOR,
+                Measure.COUNT, Measure.ASSIGN_P50, Measure.ASSIGN_P90, Measure.ASSIGN_P99,
+                Measure.COMPLETE_P50, Measure.COMPLETE_P90, Measure.COMPLETE_P99);
+    }
+    
+    public static ReportDefinition latencyByWasteType() {
+        ReportDefinition report = new ReportDefinition("Response Times by Waste Type", ReportDimension.WASTE_TYPE,
+                Measure.COUNT, Measure.ASSIGN_P50, Measure.ASSIGN_P90, Measure.ASSIGN_P99,
+                Measure.COMPLETE_P50, Measure.COMPLETE_P90, Measure.COMPLETE_P99);
+        report.setShowTotal(true);
+        return report;
+    }
+    
+    public static ReportDefinition ratingDistribution() {
+        ReportDefinition report = new ReportDefinition("Rating Distribution", ReportDimension.RATING,
+                Measure.FEEDBACK_COUNT, Measure.FEEDBACK_SHARE);
+        report.setShowTotal(true);
+        return report;
+    }
+    
+    public static ReportDefinition satisfactionByCollector() {
+        ReportDefinition report = new ReportDefinition("Satisfaction by Collector", ReportDimension.COLLECTOR,
+                Measure.FEEDBACK_COUNT, Measure.AVERAGE_RATING);
+        report.setSortBy(Measure.AVERAGE_RATING);
+        return report;
+    }
+    
+    public static ReportDefinition satisfactionByWasteType() {
+        ReportDefinition report = new ReportDefinition("Satisfaction by Waste Type", ReportDimension.WASTE_TYPE,
+                Measure.FEEDBACK_COUNT, Measure.AVERAGE_RATING);
+        report.setShowTotal(true);
+        return report;
+    }
+    
+    /**
+     * Quantity per waste type in each time bucket
+     * @param bucket DAY, WEEK or MONTH
+     * @param from First requested date included, or null
+     * @param to Last requested date included, or null
+     */
+    public static ReportDefinition quantityTrend(ReportDimension bucket, LocalDate from, LocalDate to) {
+        return trend("Quantity by Type per " + bucket.getLabel(), bucket, ReportDimension.WASTE_TYPE, from, to,
+                Measure.TOTAL_KG);
+    }
+    
+    /**
+     * New requests per status in each time bucket
+     * @param bucket DAY, WEEK or MONTH
+     * @param from First requested date included, or null
+     * @param to Last requested date included, or null
+     */
+    public static ReportDefinition requestTrend(ReportDimension bucket, LocalDate from, LocalDate to) {
+        return trend("Requests by Status per " + bucket.getLabel(), bucket, ReportDimension.STATUS, from, to,
+                Measure.COUNT);
+    }
+    
+    /**
+     * Assigned and completed requests per collector in each time bucket,
+     * bucketed by the day the request was assigned
+     * @param bucket DAY, WEEK or MONTH
+     * @param from First assignment date included, or null
+     * @param to Last assignment date included, or null
+     */
+    public static ReportDefinition collectionTrend(ReportDimension bucket, LocalDate from, LocalDate to) {
+        return trend("Collections by Collector per " + bucket.getLabel(), bucket, ReportDimension.COLLECTOR, from, to,
+                Measure.COUNT, Measure.COMPLETED);
+    }
+    
+    /**
+     * Feedback count and average rating in each time bucket
+     * @param bucket DAY, WEEK or MONTH
+     * @param from First submitted date included, or null
+     * @param to Last submitted date included, or null
+     */
+    public static ReportDefinition satisfactionTrend(ReportDimension bucket, LocalDate from, LocalDate to) {
+        if (!bucket.isTimeBucket()) {
+            throw new IllegalArgumentException(bucket + " is not a time bucket");
+        }
+        ReportDefinition report = new ReportDefinition("Satisfaction per " + bucket.getLabel(), bucket,
+                Measure.FEEDBACK_COUNT, Measure.AVERAGE_RATING);
+        report.setDateRange(from, to);
+        report.setShowTotal(true);
+        return report;
+    }
+    
+    private static ReportDefinition trend(String title, ReportDimension bucket, ReportDimension groupBy,
+            LocalDate from, LocalDate to, Measure... measures) {
+        if (!bucket.isTimeBucket()) {
+            throw new IllegalArgumentException(bucket + " is not a time bucket");
+        }
+        ReportDefinition report = new ReportDefinition(title, Arrays.asList(bucket, groupBy), Arrays.asList(measures));
+        report.setDateRange(from, to);
+        report.setShowTotal(true);
+        return report;
+    }
+}
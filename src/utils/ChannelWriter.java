@@ -0,0 +1,128 @@
+package utils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writer encoding text as UTF-8 straight into a byte channel.
+ * Characters are encoded into one reusable direct buffer that is written to
+ * the channel whenever it fills up, so memory use does not grow with the
+ * amount of text written. Not thread-safe.
+ */
+public class ChannelWriter extends Writer {
+    
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    
+    /** High surrogate left over from the previous write, or 0 */
+    private char pendingSurrogate;
+    private boolean closed;
+    
+    /**
+     * Constructor
+     * @param channel Channel to write to; closed when this writer is closed
+     * @param bufferSize Size of the byte buffer
+     */
+    public ChannelWriter(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+    
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException {
+        encode(CharBuffer.wrap(chars, offset, length));
+    }
+    
+    @Override
+    public void write(String text, int offset, int length) throws IOException {
+        encode(CharBuffer.wrap(text, offset, offset + length));
+    }
+    
+    @Override
+    public void write(int c) throws IOException {
+        encode(CharBuffer.wrap(new char[] {(char) c}));
+    }
+    
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        drain();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        
+        try {
+            CharBuffer rest = pendingSurrogate != 0
+                    ? CharBuffer.wrap(new char[] {pendingSurrogate}) : CharBuffer.allocate(0);
+            pendingSurrogate = 0;
+            encode(rest, true);
+            while (encoder.flush(buffer).isOverflow()) {
+                drain();
+            }
+            drain();
+        } finally {
+            closed = true;
+            channel.close();
+        }
+    }
+    
+    private void encode(CharBuffer chars) throws IOException {
+        ensureOpen();
+        
+        // Complete a surrogate pair split across two writes
+        if (pendingSurrogate != 0 && chars.hasRemaining()) {
+            CharBuffer pair = CharBuffer.wrap(new char[] {pendingSurrogate, chars.get()});
+            pendingSurrogate = 0;
+            encode(pair, false);
+            if (pair.hasRemaining()) {
+                pendingSurrogate = pair.get();
+            }
+        }
+        
+        encode(chars, false);
+        if (chars.hasRemaining()) {
+            pendingSurrogate = chars.get();
+        }
+    }
+    
+    private void encode(CharBuffer chars, boolean endOfInput) throws IOException {
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, endOfInput);
+            if (result.isOverflow()) {
+                drain();
+            } else if (result.isUnderflow()) {
+                return;
+            } else {
+                result.throwException();
+            }
+        }
+    }
+    
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+    
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Writer is closed");
+        }
+    }
+}
\ No newline at end of file
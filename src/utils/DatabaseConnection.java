@@ -5,39 +5,46 @@ import java.sql.DriverManager;
 import java.sql.SQLException;
 
 /**
- * Utility class for managing database connections
+ * Utility class for managing database connections.
+ * Each thread gets its own connection, so background loaders never share
+ * (or close) the connection used by the Swing event thread.
  */
 public class DatabaseConnection {
-    private static final String URL = "jdbc:mysql://localhost:3306/waste_wise_db";
+    // Batched inserts and updates are sent as multi-row statements
+    private static final String URL = "jdbc:mysql://localhost:3306/waste_wise_db?rewriteBatchedStatements=true";
     private static final String USER = "root";
     private static final String PASSWORD = "omaewa"; // Set your MySQL password here
     
-    private static Connection connection = null;
+    private static final ThreadLocal<Connection> connection = new ThreadLocal<>();
     
     /**
-     * Get a connection to the database
+     * Get a connection to the database for the current thread
      * @return Connection object
      * @throws SQLException if connection fails
      */
     public static Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
+        Connection conn = connection.get();
+        if (conn == null || conn.isClosed()) {
             try {
                 Class.forName("com.mysql.cj.jdbc.Driver");
-                connection = DriverManager.getConnection(URL, USER, PASSWORD);
+                conn = DriverManager.getConnection(URL, USER, PASSWORD);
+                connection.set(conn);
             } catch (ClassNotFoundException e) {
                 throw new SQLException("MySQL JDBC Driver not found", e);
             }
         }
-        return connection;
+        return conn;
     }
     
     /**
-     * Close the database connection
+     * Close the database connection of the current thread
      */
     public static void closeConnection() {
-        if (connection != null) {
+        Connection conn = connection.get();
+        if (conn != null) {
+            connection.remove();
             try {
-                connection.close();
+                conn.close();
             } catch (SQLException e) {
                 System.err.println("Error closing database connection: " + e.getMessage());
             }